@@ -21,7 +21,6 @@ import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
 import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
 import com.microsoft.azure.management.storage.SkuName;
 import com.microsoft.azure.management.storage.StorageAccount;
-import com.microsoft.azure.management.storage.StorageAccountKey;
 import com.microsoft.rest.credentials.TokenCredentials;
 import okhttp3.Request;
 import org.joda.time.DateTime;
@@ -97,18 +96,11 @@ class FunctionAppImpl
         if (storageAccountToSet == null) {
             return super.submitAppSettings(site);
         } else {
-            return storageAccountToSet.getKeysAsync()
-                .flatMapIterable(new Func1<List<StorageAccountKey>, Iterable<StorageAccountKey>>() {
-                    @Override
-                    public Iterable<StorageAccountKey> call(List<StorageAccountKey> storageAccountKeys) {
-                        return storageAccountKeys;
-                    }
-                })
-                .first().flatMap(new Func1<StorageAccountKey, Observable<SiteInner>>() {
+            return storageAccountToSet.manager().storageAccountKeys()
+                .getConnectionStringAsync(storageAccountToSet.id())
+                .flatMap(new Func1<String, Observable<SiteInner>>() {
                 @Override
-                public Observable<SiteInner> call(StorageAccountKey storageAccountKey) {
-                    String connectionString = String.format("DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s",
-                        storageAccountToSet.name(), storageAccountKey.value());
+                public Observable<SiteInner> call(String connectionString) {
                     withAppSetting("AzureWebJobsStorage", connectionString);
                     withAppSetting("AzureWebJobsDashboard", connectionString);
                     withAppSetting("WEBSITE_CONTENTAZUREFILECONNECTIONSTRING", connectionString);
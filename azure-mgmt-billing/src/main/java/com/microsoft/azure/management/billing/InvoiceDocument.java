@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.billing;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+
+import java.nio.file.Path;
+
+/**
+ * The document of an invoice in the local invoice cache.
+ */
+@Beta(Beta.SinceVersion.V1_3_0)
+public interface InvoiceDocument {
+    /**
+     * @return the name of the invoice
+     */
+    String invoiceName();
+
+    /**
+     * @return the path of the document in the cache; documents with the same content share the same path
+     */
+    Path path();
+
+    /**
+     * @return the SHA-256 hash of the content of the document, in hexadecimal
+     */
+    String contentHash();
+
+    /**
+     * @return true if the document was already in the cache, false if it was downloaded
+     */
+    boolean isFromCache();
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.billing;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.billing.implementation.BillingPeriodInner;
+import com.microsoft.azure.management.billing.implementation.InvoiceInner;
+import rx.Observable;
+
+import java.io.File;
+
+/**
+ * Lists the billing periods and invoices of a subscription and downloads the invoice documents
+ * concurrently into a local cache.
+ * <p>
+ * Documents are streamed to disk and stored under the hash of their content, with an index from
+ * invoice name to content hash; an invoice in the index is not downloaded again, unless its cached
+ * document no longer matches the hash. Download URLs
+ * about to expire, or rejected by the server, are renewed by getting the invoice again.
+ */
+@Beta(Beta.SinceVersion.V1_3_0)
+public interface InvoiceDownloader {
+    /**
+     * Specifies the directory of the invoice cache.
+     *
+     * @param cacheDirectory the cache directory, created if missing; defaults to ".azure/invoices" in the home directory of the user
+     * @return the invoice downloader
+     */
+    InvoiceDownloader withCacheDirectory(File cacheDirectory);
+
+    /**
+     * Specifies the maximum number of documents downloaded concurrently.
+     *
+     * @param maxConcurrency the maximum number of concurrent downloads, defaults to 4
+     * @return the invoice downloader
+     */
+    InvoiceDownloader withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * @return an observable emitting the billing periods of the subscription, most recent first
+     */
+    Observable<BillingPeriodInner> listBillingPeriodsAsync();
+
+    /**
+     * @return an observable emitting the invoices of the subscription with their download URL, most recent first
+     */
+    Observable<InvoiceInner> listInvoicesAsync();
+
+    /**
+     * Gets the document of an invoice, from the cache or by downloading it.
+     *
+     * @param invoice the invoice
+     * @return an observable emitting the document
+     */
+    Observable<InvoiceDocument> downloadAsync(InvoiceInner invoice);
+
+    /**
+     * Gets the documents of the invoices of billing periods, from the cache or by downloading them.
+     *
+     * @param billingPeriods the billing periods
+     * @return an observable emitting the documents, in no particular order
+     */
+    Observable<InvoiceDocument> downloadAsync(Iterable<BillingPeriodInner> billingPeriods);
+
+    /**
+     * Gets the documents of all the invoices of the subscription, from the cache or by downloading them.
+     *
+     * @return an observable emitting the documents, in no particular order
+     */
+    Observable<InvoiceDocument> downloadAllAsync();
+}
@@ -11,12 +11,13 @@ import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.billing.InvoiceDownloader;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 
 /**
@@ -43,7 +44,7 @@ public final class BillingManager extends Manager<BillingManager, BillingManagem
         return new BillingManager(new RestClient.Builder()
                 .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -86,4 +87,12 @@ public final class BillingManager extends Manager<BillingManager, BillingManagem
             subscriptionId,
             new BillingManagementClientImpl(restClient).withSubscriptionId(subscriptionId));
     }
+
+    /**
+     * @return a new downloader of the invoice documents of the subscription, caching them locally
+     */
+    @Beta(Beta.SinceVersion.V1_3_0)
+    public InvoiceDownloader newInvoiceDownloader() {
+        return new InvoiceDownloaderImpl(this);
+    }
 }
@@ -0,0 +1,438 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.billing.implementation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.billing.InvoiceDocument;
+import com.microsoft.azure.management.billing.InvoiceDownloader;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.FileDownloader;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
+import org.joda.time.DateTime;
+import retrofit2.adapter.rxjava.HttpException;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation for InvoiceDownloader.
+ */
+@LangDefinition
+class InvoiceDownloaderImpl implements InvoiceDownloader {
+    private static final int FORMAT_VERSION = 1;
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    // Download URLs expiring sooner than this are renewed before the download starts
+    private static final long URL_EXPIRY_MARGIN_IN_MILLISECONDS = 60 * 1000;
+    private static final String INDEX_FILE_NAME = "invoices.json";
+    private static final String DOCUMENT_EXTENSION = ".pdf";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final BillingManager manager;
+    private File cacheDirectory = new File(new File(System.getProperty("user.home"), ".azure"), "invoices");
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    // Content hashes by invoice name, loaded on first use
+    private Map<String, String> index;
+
+    InvoiceDownloaderImpl(BillingManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public InvoiceDownloaderImpl withCacheDirectory(File cacheDirectory) {
+        synchronized (this) {
+            this.cacheDirectory = cacheDirectory;
+            this.index = null;
+        }
+        return this;
+    }
+
+    @Override
+    public InvoiceDownloaderImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public Observable<BillingPeriodInner> listBillingPeriodsAsync() {
+        return this.manager.inner().billingPeriods().listAsync()
+                .concatMapIterable(new Func1<Page<BillingPeriodInner>, List<BillingPeriodInner>>() {
+                    @Override
+                    public List<BillingPeriodInner> call(Page<BillingPeriodInner> page) {
+                        return page.items();
+                    }
+                });
+    }
+
+    @Override
+    public Observable<InvoiceInner> listInvoicesAsync() {
+        return this.manager.inner().invoices().listAsync("downloadUrl", null, null, null)
+                .concatMapIterable(new Func1<Page<InvoiceInner>, List<InvoiceInner>>() {
+                    @Override
+                    public List<InvoiceInner> call(Page<InvoiceInner> page) {
+                        return page.items();
+                    }
+                });
+    }
+
+    @Override
+    public Observable<InvoiceDocument> downloadAllAsync() {
+        return this.downloadAsync(this.listInvoicesAsync());
+    }
+
+    @Override
+    public Observable<InvoiceDocument> downloadAsync(Iterable<BillingPeriodInner> billingPeriods) {
+        Set<String> invoiceNames = new LinkedHashSet<>();
+        for (BillingPeriodInner billingPeriod : billingPeriods) {
+            if (billingPeriod.invoiceIds() != null) {
+                for (String invoiceId : billingPeriod.invoiceIds()) {
+                    invoiceNames.add(ResourceUtils.nameFromResourceId(invoiceId));
+                }
+            }
+        }
+        final InvoiceDownloaderImpl self = this;
+        return Observable.from(invoiceNames).flatMap(new Func1<String, Observable<InvoiceDocument>>() {
+            @Override
+            public Observable<InvoiceDocument> call(String invoiceName) {
+                // The download URL is fetched only if the invoice is not cached
+                return self.documentAsync(invoiceName, null);
+            }
+        }, this.maxConcurrency);
+    }
+
+    private Observable<InvoiceDocument> downloadAsync(Observable<InvoiceInner> invoices) {
+        final InvoiceDownloaderImpl self = this;
+        return invoices.flatMap(new Func1<InvoiceInner, Observable<InvoiceDocument>>() {
+            @Override
+            public Observable<InvoiceDocument> call(InvoiceInner invoice) {
+                return self.downloadAsync(invoice);
+            }
+        }, this.maxConcurrency);
+    }
+
+    @Override
+    public Observable<InvoiceDocument> downloadAsync(InvoiceInner invoice) {
+        return this.documentAsync(invoice.name(), invoice);
+    }
+
+    /**
+     * Gets the document of an invoice from the cache, or downloads it.
+     *
+     * @param invoiceName the name of the invoice
+     * @param invoice the invoice with its download URL, or null to get it on cache miss
+     * @return an observable emitting the document
+     */
+    private Observable<InvoiceDocument> documentAsync(final String invoiceName, final InvoiceInner invoice) {
+        final InvoiceDownloaderImpl self = this;
+        return Observable.defer(new Func0<Observable<InvoiceDocument>>() {
+            @Override
+            public Observable<InvoiceDocument> call() {
+                final File directory;
+                final String cachedHash;
+                synchronized (self) {
+                    directory = self.cacheDirectory;
+                    cachedHash = self.index().get(invoiceName);
+                }
+                if (cachedHash != null) {
+                    Path path = documentPath(directory, cachedHash);
+                    try {
+                        // A document modified or truncated since it was cached is downloaded again
+                        if (Files.exists(path) && cachedHash.equals(contentHash(path))) {
+                            return Observable.<InvoiceDocument>just(new InvoiceDocumentImpl(invoiceName, path, cachedHash, true));
+                        }
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                }
+                return self.downloadUrlAsync(invoiceName, invoice)
+                        .flatMap(new Func1<String, Observable<InvoiceDocument>>() {
+                            @Override
+                            public Observable<InvoiceDocument> call(String url) {
+                                return self.fetchAsync(invoiceName, url, directory);
+                            }
+                        })
+                        .onErrorResumeNext(new Func1<Throwable, Observable<InvoiceDocument>>() {
+                            @Override
+                            public Observable<InvoiceDocument> call(Throwable throwable) {
+                                if (!isDownloadUrlError(throwable)) {
+                                    return Observable.error(throwable);
+                                }
+                                // The download URL may have expired or been revoked: get a new one and try once more
+                                return self.downloadUrlAsync(invoiceName, null)
+                                        .flatMap(new Func1<String, Observable<InvoiceDocument>>() {
+                                            @Override
+                                            public Observable<InvoiceDocument> call(String url) {
+                                                return self.fetchAsync(invoiceName, url, directory);
+                                            }
+                                        });
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Checks whether a download failed in a way an expired or revoked download URL can cause: the storage
+     * service rejects such URLs with 403, 404 or 410, or the connection fails midway.
+     */
+    private static boolean isDownloadUrlError(Throwable throwable) {
+        if (throwable instanceof HttpException) {
+            int code = ((HttpException) throwable).code();
+            return code == 403 || code == 404 || code == 410;
+        }
+        return throwable instanceof IOException;
+    }
+
+    private Observable<String> downloadUrlAsync(final String invoiceName, InvoiceInner invoice) {
+        if (invoice != null && invoice.downloadUrl() != null && invoice.downloadUrl().url() != null
+                && (invoice.downloadUrl().expiryTime() == null
+                || invoice.downloadUrl().expiryTime().isAfter(DateTime.now().plus(URL_EXPIRY_MARGIN_IN_MILLISECONDS)))) {
+            return Observable.just(invoice.downloadUrl().url());
+        }
+        return this.manager.inner().invoices().getAsync(invoiceName)
+                .map(new Func1<InvoiceInner, String>() {
+                    @Override
+                    public String call(InvoiceInner refreshed) {
+                        if (refreshed == null || refreshed.downloadUrl() == null || refreshed.downloadUrl().url() == null) {
+                            throw Exceptions.propagate(new IOException("No download URL for invoice " + invoiceName));
+                        }
+                        return refreshed.downloadUrl().url();
+                    }
+                });
+    }
+
+    /**
+     * Downloads a document to a temporary file while hashing it, then moves it to its content address.
+     */
+    private Observable<InvoiceDocument> fetchAsync(final String invoiceName, final String url, final File directory) {
+        final InvoiceDownloaderImpl self = this;
+        final Path temp;
+        final FileChannel file;
+        final DigestChannel channel;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = Files.createTempFile(directory.toPath(), invoiceName, ".tmp");
+            file = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel = new DigestChannel(file);
+        } catch (IOException e) {
+            return Observable.error(e);
+        }
+        return new FileDownloader(this.manager.inner().restClient().retrofit())
+                .downloadAsync(url, channel)
+                .last()
+                .map(new Func1<Long, InvoiceDocument>() {
+                    @Override
+                    public InvoiceDocument call(Long length) {
+                        try {
+                            file.close();
+                            String hash = channel.hash();
+                            Path path = documentPath(directory, hash);
+                            // Replaces a cached document with the same hash whose content was altered
+                            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                            self.addToIndex(directory, invoiceName, hash);
+                            return new InvoiceDocumentImpl(invoiceName, path, hash, false);
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }
+                })
+                .doOnError(new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        try {
+                            file.close();
+                            Files.deleteIfExists(temp);
+                        } catch (IOException e) {
+                            // Leave the temporary file behind
+                        }
+                    }
+                });
+    }
+
+    /**
+     * @return the content hashes by invoice name of the current cache directory
+     */
+    private Map<String, String> index() {
+        if (this.index == null) {
+            this.index = new HashMap<>();
+            File file = new File(this.cacheDirectory, INDEX_FILE_NAME);
+            if (file.exists()) {
+                try {
+                    IndexFile content = ObjectMapperRegistry.readerFor(IndexFile.class).readValue(file);
+                    if (content.version == FORMAT_VERSION && content.invoices != null) {
+                        this.index.putAll(content.invoices);
+                    }
+                } catch (IOException e) {
+                    // An unreadable index is rebuilt as invoices are downloaded again
+                }
+            }
+        }
+        return this.index;
+    }
+
+    private synchronized void addToIndex(File directory, String invoiceName, String hash) throws IOException {
+        if (!directory.equals(this.cacheDirectory)) {
+            return;
+        }
+        this.index().put(invoiceName, hash);
+        IndexFile content = new IndexFile();
+        content.version = FORMAT_VERSION;
+        content.invoices = this.index;
+        File file = new File(directory, INDEX_FILE_NAME);
+        // Write aside and move, so that a concurrent reader never sees a partial file
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            ObjectMapperRegistry.writer().writeValue(temp, content);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static Path documentPath(File directory, String hash) {
+        return new File(directory, hash + DOCUMENT_EXTENSION).toPath();
+    }
+
+    /**
+     * Computes the SHA-256 hash of the content of a file.
+     */
+    static String contentHash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[8192];
+        try (InputStream input = Files.newInputStream(path)) {
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * A channel computing the SHA-256 hash of the bytes written to another channel.
+     */
+    static final class DigestChannel implements WritableByteChannel {
+        private final WritableByteChannel file;
+        private final MessageDigest digest = sha256();
+
+        DigestChannel(WritableByteChannel file) {
+            this.file = file;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            ByteBuffer hashed = source.duplicate();
+            int count = this.file.write(source);
+            hashed.limit(hashed.position() + count);
+            this.digest.update(hashed);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return this.file.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.file.close();
+        }
+
+        String hash() {
+            return hex(this.digest.digest());
+        }
+    }
+
+    /**
+     * A document in the cache.
+     */
+    private static final class InvoiceDocumentImpl implements InvoiceDocument {
+        private final String invoiceName;
+        private final Path path;
+        private final String contentHash;
+        private final boolean fromCache;
+
+        InvoiceDocumentImpl(String invoiceName, Path path, String contentHash, boolean fromCache) {
+            this.invoiceName = invoiceName;
+            this.path = path;
+            this.contentHash = contentHash;
+            this.fromCache = fromCache;
+        }
+
+        @Override
+        public String invoiceName() {
+            return this.invoiceName;
+        }
+
+        @Override
+        public Path path() {
+            return this.path;
+        }
+
+        @Override
+        public String contentHash() {
+            return this.contentHash;
+        }
+
+        @Override
+        public boolean isFromCache() {
+            return this.fromCache;
+        }
+    }
+
+    /**
+     * The persisted index of the cache.
+     */
+    private static final class IndexFile {
+        @JsonProperty("version")
+        private int version;
+
+        @JsonProperty("invoices")
+        private Map<String, String> invoices;
+    }
+}
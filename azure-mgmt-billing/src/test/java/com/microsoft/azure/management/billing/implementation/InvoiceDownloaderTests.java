@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.billing.implementation;
+
+import com.microsoft.azure.management.billing.InvoiceDocument;
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.adapter.rxjava.HttpException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InvoiceDownloaderTests {
+    private static final byte[] CONTENT = new byte[100 * 1024 + 3];
+
+    private LocalTestServer server;
+    private BillingManager manager;
+    private File cacheDirectory;
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicInteger urlRefreshes = new AtomicInteger();
+    // The status of the responses to the next downloads, before the content is served
+    private final Queue<Integer> failures = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setup() throws Exception {
+        new Random(42).nextBytes(CONTENT);
+        server = new LocalTestServer()
+                .withHandler("/documents/", new HttpHandler() {
+                    @Override
+                    public void handle(HttpExchange exchange) throws IOException {
+                        downloads.incrementAndGet();
+                        Integer failure = failures.poll();
+                        LocalTestServer.respond(exchange, failure == null ? 200 : failure, failure == null ? CONTENT : null);
+                    }
+                })
+                .withHandler("/subscriptions/", new HttpHandler() {
+                    @Override
+                    public void handle(HttpExchange exchange) throws IOException {
+                        // Gets an invoice with a new download URL
+                        urlRefreshes.incrementAndGet();
+                        String path = exchange.getRequestURI().getPath();
+                        LocalTestServer.respondJson(exchange, 200, invoiceJson(path.substring(path.lastIndexOf('/') + 1)));
+                    }
+                });
+        manager = BillingManager.authenticate(server.restClient(), LocalTestServer.SUBSCRIPTION_ID);
+        cacheDirectory = Files.createTempDirectory("invoices").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    @Test
+    public void canHashWrittenBytes() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InvoiceDownloaderImpl.DigestChannel channel = new InvoiceDownloaderImpl.DigestChannel(Channels.newChannel(output));
+        ByteBuffer buffer = ByteBuffer.wrap(CONTENT);
+        buffer.limit(1000);
+        Assert.assertEquals(1000, channel.write(buffer));
+        buffer.limit(CONTENT.length);
+        Assert.assertEquals(CONTENT.length - 1000, channel.write(buffer));
+
+        String expected = hex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+        Assert.assertArrayEquals(CONTENT, output.toByteArray());
+        Assert.assertEquals(expected, channel.hash());
+
+        Path file = new File(cacheDirectory, "content").toPath();
+        Files.write(file, CONTENT);
+        Assert.assertEquals(expected, InvoiceDownloaderImpl.contentHash(file));
+    }
+
+    @Test
+    public void canReuseIndexedDocuments() throws Exception {
+        InvoiceDocument downloaded = newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+        Assert.assertFalse(downloaded.isFromCache());
+        Assert.assertEquals("inv1", downloaded.invoiceName());
+        Assert.assertArrayEquals(CONTENT, Files.readAllBytes(downloaded.path()));
+        Assert.assertTrue(new File(cacheDirectory, "invoices.json").exists());
+
+        // A new downloader reads the index persisted by the first one
+        InvoiceDocument cached = newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+        Assert.assertTrue(cached.isFromCache());
+        Assert.assertEquals(downloaded.contentHash(), cached.contentHash());
+        Assert.assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void canDownloadAlteredDocumentsAgain() throws Exception {
+        InvoiceDocument downloaded = newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+        Files.write(downloaded.path(), Arrays.copyOf(CONTENT, 10));
+
+        InvoiceDocument repaired = newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+        Assert.assertFalse(repaired.isFromCache());
+        Assert.assertEquals(downloaded.contentHash(), repaired.contentHash());
+        Assert.assertArrayEquals(CONTENT, Files.readAllBytes(repaired.path()));
+        Assert.assertEquals(2, downloads.get());
+    }
+
+    @Test
+    public void canRebuildUnreadableIndex() throws Exception {
+        Files.write(new File(cacheDirectory, "invoices.json").toPath(), "{not json".getBytes(StandardCharsets.UTF_8));
+
+        InvoiceDocument downloaded = newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+        Assert.assertFalse(downloaded.isFromCache());
+        Assert.assertTrue(newDownloader().downloadAsync(invoice("inv1")).toBlocking().single().isFromCache());
+        Assert.assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void canRenewRejectedDownloadUrl() throws Exception {
+        for (int status : new int[] {403, 404, 410}) {
+            failures.add(status);
+            InvoiceDocument downloaded = newDownloader().downloadAsync(invoice("inv" + status)).toBlocking().single();
+            Assert.assertFalse(downloaded.isFromCache());
+            Assert.assertArrayEquals(CONTENT, Files.readAllBytes(downloaded.path()));
+        }
+        Assert.assertEquals(6, downloads.get());
+        Assert.assertEquals(3, urlRefreshes.get());
+    }
+
+    @Test
+    public void canRenewDownloadUrlOnlyOnce() throws Exception {
+        failures.add(403);
+        failures.add(403);
+        try {
+            newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+            Assert.fail();
+        } catch (HttpException e) {
+            Assert.assertEquals(403, e.code());
+        }
+        Assert.assertEquals(2, downloads.get());
+        Assert.assertEquals(1, urlRefreshes.get());
+        // No partial document is left behind
+        Assert.assertEquals(0, cacheDirectory.listFiles().length);
+    }
+
+    @Test
+    public void cannotRenewDownloadUrlOnServerErrors() throws Exception {
+        failures.add(500);
+        try {
+            newDownloader().downloadAsync(invoice("inv1")).toBlocking().single();
+            Assert.fail();
+        } catch (HttpException e) {
+            Assert.assertEquals(500, e.code());
+        }
+        Assert.assertEquals(1, downloads.get());
+        Assert.assertEquals(0, urlRefreshes.get());
+    }
+
+    private InvoiceDownloaderImpl newDownloader() {
+        return new InvoiceDownloaderImpl(manager).withCacheDirectory(cacheDirectory);
+    }
+
+    private InvoiceInner invoice(String name) throws IOException {
+        return new AzureJacksonAdapter().deserialize(invoiceJson(name), InvoiceInner.class);
+    }
+
+    private String invoiceJson(String name) {
+        return "{\"name\":\"" + name + "\",\"properties\":{\"downloadUrl\":{\"url\":\"" + server.url("/documents/" + name) + "\"}}}";
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
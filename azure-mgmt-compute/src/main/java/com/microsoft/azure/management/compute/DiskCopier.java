@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import rx.Observable;
+
+/**
+ * A utility to copy managed disks and snapshots to page blobs, for instance in a storage account of
+ * another region, from which a disk can then be created.
+ * <p>
+ * Read access to the disk or snapshot is granted for the duration of the copy and revoked when it ends,
+ * whether it completes, fails or is cancelled by unsubscribing.
+ * Only the page ranges holding data are copied, in chunks read and written in parallel through a
+ * fixed pool of buffers. The target page blob records in its metadata the source it is a copy of; a copy
+ * to an existing page blob of the same source and size resumes an interrupted copy, skipping the page ranges
+ * already written to the target, while a copy to any other existing blob fails.
+ * <p>
+ * The observables returned by the copy methods emit 0, then the number of bytes copied so far; progress items
+ * are conflated when the subscriber is slower than the copy.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface DiskCopier {
+    /**
+     * Specifies the size of the chunks copied in parallel.
+     *
+     * @param chunkSize the chunk size in bytes, a multiple of 512 up to 4 MB, defaults to 4 MB
+     * @return the disk copier
+     */
+    DiskCopier withChunkSize(int chunkSize);
+
+    /**
+     * Specifies the maximum number of chunks copied in parallel, which is also the number of buffers.
+     *
+     * @param maxConcurrency the maximum number of concurrent chunk copies, defaults to 8
+     * @return the disk copier
+     */
+    DiskCopier withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Specifies how long the read access to the copied disks and snapshots is granted for.
+     *
+     * @param accessDurationInSeconds the access duration in seconds, at least 1, defaults to one day
+     * @return the disk copier
+     */
+    DiskCopier withAccessDuration(int accessDurationInSeconds);
+
+    /**
+     * Copies a managed disk to a page blob.
+     *
+     * @param disk the disk to copy
+     * @param targetBlobUrl the URL of the target page blob, with a shared access signature allowing to create and write it
+     * @return an observable emitting the number of bytes copied so far
+     */
+    Observable<Long> copyAsync(Disk disk, String targetBlobUrl);
+
+    /**
+     * Copies a snapshot to a page blob.
+     *
+     * @param snapshot the snapshot to copy
+     * @param targetBlobUrl the URL of the target page blob, with a shared access signature allowing to create and write it
+     * @return an observable emitting the number of bytes copied so far
+     */
+    Observable<Long> copyAsync(Snapshot snapshot, String targetBlobUrl);
+
+    /**
+     * Copies a page blob to another page blob.
+     *
+     * @param sourceBlobUrl the URL of the source page blob, with a shared access signature allowing to read it
+     * @param targetBlobUrl the URL of the target page blob, with a shared access signature allowing to create and write it
+     * @return an observable emitting the number of bytes copied so far
+     */
+    Observable<Long> copyAsync(String sourceBlobUrl, String targetBlobUrl);
+}
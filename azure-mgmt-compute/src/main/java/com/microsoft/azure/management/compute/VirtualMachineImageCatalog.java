@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import com.microsoft.azure.management.resources.fluentcore.arm.Region;
+import rx.Completable;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An index of the virtual machine image publishers, offers, SKUs and versions available in regions.
+ * <p>
+ * The index of a region is crawled by {@link #refresh(Region)}, with a bounded number of concurrent requests at
+ * each level of the catalog, and optionally persisted to a cache directory so that it survives the process.
+ * Queries are only served from the index, or from the cache directory, and never crawl: they return no images
+ * for a region that was not refreshed yet. A refresh revalidates only the publishers, offers and SKUs whose
+ * time-to-live has expired, reusing the cached content of the others. Names are matched case insensitively.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface VirtualMachineImageCatalog {
+    /**
+     * Specifies a directory to persist the index of each region to.
+     *
+     * @param directory the cache directory, which must exist
+     * @return the catalog
+     */
+    VirtualMachineImageCatalog withCacheDirectory(File directory);
+
+    /**
+     * Specifies how long the content of a publisher, offer or SKU is considered current.
+     *
+     * @param timeToLive the time-to-live, defaults to one day
+     * @param unit the time unit of the time-to-live
+     * @return the catalog
+     */
+    VirtualMachineImageCatalog withTimeToLive(long timeToLive, TimeUnit unit);
+
+    /**
+     * Specifies the maximum number of concurrent requests at each level of the catalog during a crawl.
+     *
+     * @param maxConcurrency the maximum number of concurrent requests per level, at least 1, defaults to 4
+     * @return the catalog
+     */
+    VirtualMachineImageCatalog withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Crawls the catalog of a region, revalidating the expired parts of its index.
+     * <p>
+     * The index is replaced, and persisted, only when the crawl completes: if a request fails, for instance
+     * because it is throttled, the refresh fails with its error and the previous index is kept.
+     *
+     * @param region the region
+     */
+    void refresh(Region region);
+
+    /**
+     * Crawls the catalog of a region asynchronously, revalidating the expired parts of its index.
+     *
+     * @param region the region
+     * @return a representation of the deferred computation of this call
+     */
+    Completable refreshAsync(Region region);
+
+    /**
+     * Lists the image publishers in a region.
+     *
+     * @param region the region
+     * @return the publisher names
+     */
+    List<String> listPublishers(Region region);
+
+    /**
+     * Lists the image offers of a publisher.
+     *
+     * @param region the region
+     * @param publisherName the publisher name
+     * @return the offer names
+     */
+    List<String> listOffers(Region region, String publisherName);
+
+    /**
+     * Lists the image SKUs of an offer.
+     *
+     * @param region the region
+     * @param publisherName the publisher name
+     * @param offerName the offer name
+     * @return the SKU names
+     */
+    List<String> listSkus(Region region, String publisherName, String offerName);
+
+    /**
+     * Lists the image versions of a SKU.
+     *
+     * @param region the region
+     * @param publisherName the publisher name
+     * @param offerName the offer name
+     * @param skuName the SKU name
+     * @return the versions
+     */
+    List<String> listVersions(Region region, String publisherName, String offerName, String skuName);
+
+    /**
+     * Gets the image with the latest version among the SKUs of an offer whose name starts with a prefix,
+     * for example "16.04" for the "16.04-LTS" and "16.04.0-LTS" Ubuntu Server SKUs.
+     *
+     * @param region the region
+     * @param publisherName the publisher name
+     * @param offerName the offer name
+     * @param skuPrefix the SKU name prefix, or null to consider all the SKUs of the offer
+     * @return a reference to the latest image, or null if there is no matching image
+     */
+    ImageReference getLatestImage(Region region, String publisherName, String offerName, String skuPrefix);
+}
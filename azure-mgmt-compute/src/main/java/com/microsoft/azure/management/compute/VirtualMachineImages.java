@@ -46,4 +46,10 @@ public interface VirtualMachineImages extends
      * @return entry point to virtual machine image publishers
      */
     VirtualMachinePublishers publishers();
+
+    /**
+     * @return an index of the images available in regions, for queries not requiring the image details
+     */
+    @Beta(SinceVersion.V1_3_0)
+    VirtualMachineImageCatalog catalog();
 }
@@ -27,6 +27,7 @@ import com.microsoft.azure.management.storage.StorageAccount;
 import com.microsoft.rest.ServiceCallback;
 import com.microsoft.rest.ServiceFuture;
 import rx.Completable;
+import rx.Observable;
 
 import java.io.IOException;
 import java.util.List;
@@ -329,6 +330,25 @@ public interface VirtualMachineScaleSet extends
     @Beta(Beta.SinceVersion.V1_2_0)
     String managedServiceIdentityPrincipalId();
 
+    /**
+     * Gets the power and provisioning states of all the virtual machine instances in the scale set.
+     * <p>
+     * The instances are listed with their instance view statuses only; each refresh of the returned object
+     * lists the instances again.
+     *
+     * @return the states of the virtual machine instances
+     */
+    @Beta(Beta.SinceVersion.V1_3_0)
+    VirtualMachineScaleSetInstanceStatuses getInstanceStatuses();
+
+    /**
+     * Gets the power and provisioning states of all the virtual machine instances in the scale set.
+     *
+     * @return an observable emitting the states of the virtual machine instances
+     */
+    @Beta(Beta.SinceVersion.V1_3_0)
+    Observable<VirtualMachineScaleSetInstanceStatuses> getInstanceStatusesAsync();
+
     /**
      * The virtual machine scale set stages shared between managed and unmanaged based
      * virtual machine scale set definitions.
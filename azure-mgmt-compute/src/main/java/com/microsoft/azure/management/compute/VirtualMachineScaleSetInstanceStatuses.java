@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import com.microsoft.azure.management.resources.fluentcore.model.Refreshable;
+
+import java.util.Map;
+
+/**
+ * The power and provisioning states of all the virtual machine instances of a scale set.
+ * <p>
+ * The per instance states are kept in arrays indexed from 0 to {@link #size()} - 1. A refresh lists the
+ * instances again rather than comparing the status summary of the scale set, since the summary does not
+ * reveal changes leaving the number of instances in each state unchanged, such as one instance stopping
+ * while another one starts; the status counts are computed from the listed instances.
+ */
+@Fluent
+@Beta(Beta.SinceVersion.V1_3_0)
+public interface VirtualMachineScaleSetInstanceStatuses extends Refreshable<VirtualMachineScaleSetInstanceStatuses> {
+    /**
+     * @return the number of instances in each state, keyed by status code such as "PowerState/running"
+     */
+    Map<String, Integer> statusCounts();
+
+    /**
+     * @return the number of instances
+     */
+    int size();
+
+    /**
+     * Gets the index of an instance.
+     *
+     * @param instanceId the instance ID
+     * @return the index of the instance, or -1 if there is no such instance
+     */
+    int indexOf(String instanceId);
+
+    /**
+     * Gets the ID of an instance.
+     *
+     * @param index the index of the instance
+     * @return the instance ID
+     */
+    String instanceId(int index);
+
+    /**
+     * Gets the power state of an instance.
+     *
+     * @param index the index of the instance
+     * @return the power state, or null if not reported
+     */
+    PowerState powerState(int index);
+
+    /**
+     * Gets the provisioning state of an instance.
+     *
+     * @param index the index of the instance
+     * @return the provisioning state, such as "Succeeded"
+     */
+    String provisioningState(int index);
+
+    /**
+     * Gets whether an instance runs the latest model of the scale set.
+     *
+     * @param index the index of the instance
+     * @return true if the latest model is applied to the instance
+     */
+    boolean isLatestModelApplied(int index);
+}
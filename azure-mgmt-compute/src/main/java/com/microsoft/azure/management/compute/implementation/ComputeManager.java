@@ -13,6 +13,7 @@ import com.microsoft.azure.management.apigeneration.Beta;
 import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
 import com.microsoft.azure.management.compute.AvailabilitySets;
 import com.microsoft.azure.management.compute.ComputeUsages;
+import com.microsoft.azure.management.compute.DiskCopier;
 import com.microsoft.azure.management.compute.Disks;
 import com.microsoft.azure.management.compute.Snapshots;
 import com.microsoft.azure.management.compute.VirtualMachineCustomImages;
@@ -26,11 +27,12 @@ import com.microsoft.azure.management.network.implementation.NetworkManager;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
 import com.microsoft.azure.management.storage.implementation.StorageManager;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
+import okhttp3.OkHttpClient;
 
 /**
  * Entry point to Azure compute resource management.
@@ -73,7 +75,7 @@ public final class ComputeManager extends Manager<ComputeManager, ComputeManagem
         return new ComputeManager(new RestClient.Builder()
                 .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -236,4 +238,18 @@ public final class ComputeManager extends Manager<ComputeManager, ComputeManagem
         }
         return snapshots;
     }
+
+    /**
+     * Creates a copier of managed disks and snapshots to page blobs.
+     * <p>
+     * Each copier has its own chunk size, concurrency and access duration. The blobs are accessed with
+     * shared access signatures, through an HTTP client of their own rather than the client of the manager,
+     * which adds Azure Resource Manager credentials to the requests.
+     *
+     * @return a new disk copier
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public DiskCopier newDiskCopier() {
+        return new DiskCopierImpl(new OkHttpClient());
+    }
 }
\ No newline at end of file
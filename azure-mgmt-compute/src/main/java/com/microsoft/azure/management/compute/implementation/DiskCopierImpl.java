@@ -0,0 +1,457 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute.implementation;
+
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.compute.Disk;
+import com.microsoft.azure.management.compute.DiskCopier;
+import com.microsoft.azure.management.compute.Snapshot;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import rx.Completable;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The implementation for {@link DiskCopier}.
+ * <p>
+ * The blobs are accessed with shared access signatures, through an HTTP client which must not add
+ * Azure Resource Manager credentials to the requests.
+ */
+@LangDefinition
+class DiskCopierImpl implements DiskCopier {
+    private static final String STORAGE_VERSION = "2016-05-31";
+    // The metadata identifying the source of a target blob, so that only a copy of the same source is resumed
+    private static final String COPY_SOURCE_HEADER = "x-ms-meta-diskcopysource";
+    private static final int PAGE_SIZE = 512;
+    // The maximum size of a Put Page request
+    private static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+    // The size of the segments whose page ranges are listed in parallel
+    private static final long PAGE_LIST_SEGMENT_SIZE = 1024L * 1024 * 1024;
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int DEFAULT_ACCESS_DURATION_IN_SECONDS = 24 * 60 * 60;
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+    private static final Pattern PAGE_RANGE = Pattern.compile(
+            "<PageRange>\\s*<Start>(\\d+)</Start>\\s*<End>(\\d+)</End>\\s*</PageRange>");
+
+    private final OkHttpClient httpClient;
+    private int chunkSize = MAX_CHUNK_SIZE;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private int accessDurationInSeconds = DEFAULT_ACCESS_DURATION_IN_SECONDS;
+
+    DiskCopierImpl(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public DiskCopierImpl withChunkSize(int chunkSize) {
+        if (chunkSize < PAGE_SIZE || chunkSize > MAX_CHUNK_SIZE || chunkSize % PAGE_SIZE != 0) {
+            throw new IllegalArgumentException("chunkSize must be a multiple of 512 up to 4 MB");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    @Override
+    public DiskCopierImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public DiskCopierImpl withAccessDuration(int accessDurationInSeconds) {
+        if (accessDurationInSeconds < 1) {
+            throw new IllegalArgumentException("accessDurationInSeconds must be at least 1");
+        }
+        this.accessDurationInSeconds = accessDurationInSeconds;
+        return this;
+    }
+
+    @Override
+    public Observable<Long> copyAsync(Disk disk, String targetBlobUrl) {
+        return this.copyWithAccessAsync(disk.grantAccessAsync(this.accessDurationInSeconds), disk.revokeAccessAsync(),
+                disk.id(), targetBlobUrl);
+    }
+
+    @Override
+    public Observable<Long> copyAsync(Snapshot snapshot, String targetBlobUrl) {
+        return this.copyWithAccessAsync(snapshot.grantAccessAsync(this.accessDurationInSeconds), snapshot.revokeAccessAsync(),
+                snapshot.id(), targetBlobUrl);
+    }
+
+    @Override
+    public Observable<Long> copyAsync(String sourceBlobUrl, String targetBlobUrl) {
+        return this.copyAsync(sourceBlobUrl, redact(sourceBlobUrl), targetBlobUrl);
+    }
+
+    /**
+     * Copies a page blob to another page blob.
+     *
+     * @param sourceBlobUrl the URL of the source page blob, with a shared access signature
+     * @param copySource the identity of the source, recorded in the metadata of the target, which does not change
+     *                   with the shared access signatures granted to read the source
+     * @param targetBlobUrl the URL of the target page blob, with a shared access signature
+     * @return an observable emitting the number of bytes copied so far
+     */
+    private Observable<Long> copyAsync(final String sourceBlobUrl, final String copySource, final String targetBlobUrl) {
+        final DiskCopierImpl self = this;
+        return Observable.defer(new Func0<Observable<List<long[]>>>() {
+            @Override
+            public Observable<List<long[]>> call() {
+                try {
+                    final long length = self.getProperties(sourceBlobUrl, true).length;
+                    BlobProperties target = self.getProperties(targetBlobUrl, false);
+                    if (target == null) {
+                        self.createPageBlob(targetBlobUrl, length, copySource);
+                        return self.listPageRangesAsync(sourceBlobUrl, length);
+                    } else if (!copySource.equals(target.copySource)) {
+                        // The pages of another blob are neither kept nor overwritten
+                        throw new IOException(String.format("Cannot copy to %s, which is not a copy of the same source", redact(targetBlobUrl)));
+                    } else if (target.length != length) {
+                        throw new IOException(String.format("Cannot copy %d bytes to an existing blob of %d bytes", length, target.length));
+                    }
+                    // Resuming a copy: skip the pages already written to the target
+                    return Observable.zip(self.listPageRangesAsync(sourceBlobUrl, length),
+                            self.listPageRangesAsync(targetBlobUrl, length),
+                            new Func2<List<long[]>, List<long[]>, List<long[]>>() {
+                                @Override
+                                public List<long[]> call(List<long[]> sourceRanges, List<long[]> targetRanges) {
+                                    return subtract(sourceRanges, targetRanges);
+                                }
+                            });
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+            }
+        }).flatMap(new Func1<List<long[]>, Observable<Long>>() {
+            @Override
+            public Observable<Long> call(List<long[]> ranges) {
+                final BufferPool buffers = new BufferPool(self.maxConcurrency, self.chunkSize);
+                return Observable.from(chunks(ranges, self.chunkSize))
+                        .flatMap(new Func1<long[], Observable<Long>>() {
+                            @Override
+                            public Observable<Long> call(final long[] chunk) {
+                                return Observable.defer(new Func0<Observable<Long>>() {
+                                    @Override
+                                    public Observable<Long> call() {
+                                        try {
+                                            self.copyChunk(sourceBlobUrl, targetBlobUrl, chunk[0], chunk[1], buffers);
+                                            return Observable.just(chunk[1] - chunk[0]);
+                                        } catch (IOException e) {
+                                            return Observable.error(e);
+                                        }
+                                    }
+                                }).subscribeOn(SdkContext.getRxScheduler());
+                            }
+                        }, self.maxConcurrency)
+                        // Seeded, so that a copy with nothing left to copy still emits its progress
+                        .scan(0L, new Func2<Long, Long, Long>() {
+                            @Override
+                            public Long call(Long total, Long copied) {
+                                return total + copied;
+                            }
+                        });
+            }
+        }).onBackpressureLatest();
+    }
+
+    private Observable<Long> copyWithAccessAsync(final Observable<String> grantAccess, final Completable revokeAccess,
+                                                 final String copySource, final String targetBlobUrl) {
+        final DiskCopierImpl self = this;
+        return Observable.defer(new Func0<Observable<Long>>() {
+            @Override
+            public Observable<Long> call() {
+                // Revokes the access once per copy, whichever of completion, failure or cancellation comes first
+                final AtomicBoolean revoked = new AtomicBoolean();
+                final Completable revokeOnce = Completable.defer(new Func0<Completable>() {
+                    @Override
+                    public Completable call() {
+                        return revoked.compareAndSet(false, true) ? revokeAccess : Completable.complete();
+                    }
+                });
+                return grantAccess.flatMap(new Func1<String, Observable<Long>>() {
+                    @Override
+                    public Observable<Long> call(String sourceBlobUrl) {
+                        return self.copyAsync(sourceBlobUrl, copySource, targetBlobUrl)
+                                .onErrorResumeNext(new Func1<Throwable, Observable<Long>>() {
+                                    @Override
+                                    public Observable<Long> call(Throwable throwable) {
+                                        return revokeOnce.andThen(Observable.<Long>error(throwable));
+                                    }
+                                })
+                                .concatWith(revokeOnce.<Long>toObservable());
+                    }
+                }).doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        // A cancelled copy does not wait for the revocation, which cannot be reported anymore
+                        revokeOnce.onErrorComplete().subscribe();
+                    }
+                });
+            }
+        });
+    }
+
+    private void copyChunk(String sourceBlobUrl, String targetBlobUrl, long start, long end, BufferPool buffers) throws IOException {
+        int length = (int) (end - start);
+        byte[] buffer = buffers.acquire();
+        try {
+            Request read = new Request.Builder()
+                    .url(sourceBlobUrl)
+                    .header("x-ms-version", STORAGE_VERSION)
+                    .header("x-ms-range", rangeHeader(start, end))
+                    .build();
+            try (Response response = this.execute(read, sourceBlobUrl)) {
+                InputStream input = response.body().byteStream();
+                int offset = 0;
+                while (offset < length) {
+                    int count = input.read(buffer, offset, length - offset);
+                    if (count < 0) {
+                        throw new IOException(String.format("Unexpected end of %s at offset %d", sourceBlobUrl, start + offset));
+                    }
+                    offset += count;
+                }
+            }
+            Request write = new Request.Builder()
+                    .url(HttpUrl.parse(targetBlobUrl).newBuilder().addQueryParameter("comp", "page").build())
+                    .header("x-ms-version", STORAGE_VERSION)
+                    .header("x-ms-page-write", "update")
+                    .header("x-ms-range", rangeHeader(start, end))
+                    .put(RequestBody.create(OCTET_STREAM, buffer, 0, length))
+                    .build();
+            this.execute(write, targetBlobUrl).close();
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * Gets the properties of a blob.
+     *
+     * @return the properties of the blob, or null if it does not exist and is not required to
+     */
+    private BlobProperties getProperties(String blobUrl, boolean required) throws IOException {
+        Request request = new Request.Builder()
+                .url(blobUrl)
+                .head()
+                .header("x-ms-version", STORAGE_VERSION)
+                .build();
+        try (Response response = this.httpClient.newCall(request).execute()) {
+            if (response.code() == 404 && !required) {
+                return null;
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException(String.format("Failed to get the properties of %s: HTTP %d", redact(blobUrl), response.code()));
+            }
+            return new BlobProperties(Long.parseLong(response.header("Content-Length")), response.header(COPY_SOURCE_HEADER));
+        }
+    }
+
+    private void createPageBlob(String blobUrl, long length, String copySource) throws IOException {
+        Request request = new Request.Builder()
+                .url(blobUrl)
+                .header("x-ms-version", STORAGE_VERSION)
+                .header("x-ms-blob-type", "PageBlob")
+                .header("x-ms-blob-content-length", Long.toString(length))
+                .header(COPY_SOURCE_HEADER, copySource)
+                .put(RequestBody.create(OCTET_STREAM, new byte[0]))
+                .build();
+        this.execute(request, blobUrl).close();
+    }
+
+    /**
+     * Lists the page ranges holding data in a blob, segment by segment in parallel.
+     *
+     * @return an observable emitting the sorted ranges, as pairs of start inclusive and end exclusive offsets
+     */
+    private Observable<List<long[]>> listPageRangesAsync(final String blobUrl, long length) {
+        final DiskCopierImpl self = this;
+        List<long[]> segments = new ArrayList<>();
+        for (long start = 0; start < length; start += PAGE_LIST_SEGMENT_SIZE) {
+            segments.add(new long[] {start, Math.min(start + PAGE_LIST_SEGMENT_SIZE, length)});
+        }
+        return Observable.from(segments)
+                .flatMap(new Func1<long[], Observable<long[]>>() {
+                    @Override
+                    public Observable<long[]> call(final long[] segment) {
+                        return Observable.defer(new Func0<Observable<long[]>>() {
+                            @Override
+                            public Observable<long[]> call() {
+                                try {
+                                    return Observable.from(self.listPageRanges(blobUrl, segment[0], segment[1]));
+                                } catch (IOException e) {
+                                    return Observable.error(e);
+                                }
+                            }
+                        }).subscribeOn(SdkContext.getRxScheduler());
+                    }
+                }, this.maxConcurrency)
+                .toSortedList(new Func2<long[], long[], Integer>() {
+                    @Override
+                    public Integer call(long[] range1, long[] range2) {
+                        return Long.compare(range1[0], range2[0]);
+                    }
+                });
+    }
+
+    private List<long[]> listPageRanges(String blobUrl, long start, long end) throws IOException {
+        Request request = new Request.Builder()
+                .url(HttpUrl.parse(blobUrl).newBuilder().addQueryParameter("comp", "pagelist").build())
+                .header("x-ms-version", STORAGE_VERSION)
+                .header("x-ms-range", rangeHeader(start, end))
+                .build();
+        String content;
+        try (Response response = this.execute(request, blobUrl)) {
+            content = response.body().string();
+        }
+        List<long[]> ranges = new ArrayList<>();
+        Matcher matcher = PAGE_RANGE.matcher(content);
+        while (matcher.find()) {
+            // The end of the page ranges is inclusive
+            ranges.add(new long[] {Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)) + 1});
+        }
+        return ranges;
+    }
+
+    private Response execute(Request request, String blobUrl) throws IOException {
+        Response response = this.httpClient.newCall(request).execute();
+        if (!response.isSuccessful()) {
+            response.close();
+            throw new IOException(String.format("Failed to %s %s: HTTP %d", request.method(), redact(blobUrl), response.code()));
+        }
+        return response;
+    }
+
+    /**
+     * Removes from sorted ranges the parts covered by other sorted ranges.
+     */
+    static List<long[]> subtract(List<long[]> ranges, List<long[]> excluded) {
+        List<long[]> result = new ArrayList<>();
+        int j = 0;
+        for (long[] range : ranges) {
+            long start = range[0];
+            while (j < excluded.size() && excluded.get(j)[1] <= start) {
+                j++;
+            }
+            int k = j;
+            while (start < range[1] && k < excluded.size() && excluded.get(k)[0] < range[1]) {
+                long[] exclusion = excluded.get(k);
+                if (exclusion[0] > start) {
+                    result.add(new long[] {start, exclusion[0]});
+                }
+                start = Math.max(start, exclusion[1]);
+                k++;
+            }
+            if (start < range[1]) {
+                result.add(new long[] {start, range[1]});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits sorted ranges into chunks of at most a given size, merging adjacent ranges first.
+     */
+    static List<long[]> chunks(List<long[]> ranges, int chunkSize) {
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last[1] >= range[0]) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new long[] {range[0], range[1]});
+            }
+        }
+        List<long[]> chunks = new ArrayList<>();
+        for (long[] range : merged) {
+            for (long start = range[0]; start < range[1]; start += chunkSize) {
+                chunks.add(new long[] {start, Math.min(start + chunkSize, range[1])});
+            }
+        }
+        return chunks;
+    }
+
+    private static String rangeHeader(long start, long end) {
+        return String.format("bytes=%d-%d", start, end - 1);
+    }
+
+    /**
+     * Removes the shared access signature from a URL, so that it does not end up in error messages.
+     */
+    private static String redact(String blobUrl) {
+        int query = blobUrl.indexOf('?');
+        return query < 0 ? blobUrl : blobUrl.substring(0, query);
+    }
+
+    /**
+     * The properties of a blob used by the copy.
+     */
+    private static final class BlobProperties {
+        private final long length;
+        private final String copySource;
+
+        BlobProperties(long length, String copySource) {
+            this.length = length;
+            this.copySource = copySource;
+        }
+    }
+
+    /**
+     * A fixed number of buffers, allocated on first use.
+     */
+    private static final class BufferPool {
+        private final BlockingQueue<byte[]> available = new LinkedBlockingQueue<>();
+        private final AtomicInteger remaining;
+        private final int bufferSize;
+
+        BufferPool(int count, int bufferSize) {
+            this.remaining = new AtomicInteger(count);
+            this.bufferSize = bufferSize;
+        }
+
+        byte[] acquire() throws IOException {
+            byte[] buffer = this.available.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+            if (this.remaining.getAndDecrement() > 0) {
+                return new byte[this.bufferSize];
+            }
+            try {
+                return this.available.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a buffer", e);
+            }
+        }
+
+        void release(byte[] buffer) {
+            this.available.offer(buffer);
+        }
+    }
+}
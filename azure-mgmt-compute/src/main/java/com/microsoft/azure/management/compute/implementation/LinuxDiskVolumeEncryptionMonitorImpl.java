@@ -7,7 +7,6 @@
 package com.microsoft.azure.management.compute.implementation;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.MissingNode;
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 import com.microsoft.azure.management.compute.DiskVolumeEncryptionMonitor;
@@ -16,6 +15,7 @@ import com.microsoft.azure.management.compute.InstanceViewStatus;
 import com.microsoft.azure.management.compute.OperatingSystemTypes;
 import com.microsoft.azure.management.compute.VirtualMachineExtensionInstanceView;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import rx.Observable;
 import rx.functions.Func1;
 
@@ -220,10 +220,9 @@ class LinuxDiskVolumeEncryptionMonitorImpl implements DiskVolumeEncryptionMonito
         if (instanceViewSubStatuses.size() == 0) {
             return null;
         }
-        ObjectMapper mapper = new ObjectMapper();
         final JsonNode rootNode;
         try {
-            rootNode = mapper.readTree(instanceViewSubStatuses.get(0).message());
+            rootNode = ObjectMapperRegistry.treeReader().readTree(instanceViewSubStatuses.get(0).message());
         } catch (IOException exception) {
             return null;
         }
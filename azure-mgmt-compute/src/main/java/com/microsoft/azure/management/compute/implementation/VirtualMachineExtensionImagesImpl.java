@@ -15,6 +15,7 @@ import com.microsoft.azure.management.compute.VirtualMachinePublisher;
 import com.microsoft.azure.management.compute.VirtualMachinePublishers;
 import com.microsoft.azure.management.resources.fluentcore.arm.Region;
 import com.microsoft.azure.management.resources.fluentcore.utils.PagedListConverter;
+import com.microsoft.azure.management.resources.fluentcore.utils.PagedListFlattener;
 import rx.Observable;
 import rx.functions.Func1;
 
@@ -24,6 +25,9 @@ import rx.functions.Func1;
 @LangDefinition
 class VirtualMachineExtensionImagesImpl
         implements VirtualMachineExtensionImages {
+    // The maximum number of extension images retrieved concurrently
+    private static final int MAX_CONCURRENCY = 4;
+
     private final VirtualMachinePublishers publishers;
 
     VirtualMachineExtensionImagesImpl(VirtualMachinePublishers publishers) {
@@ -73,23 +77,28 @@ class VirtualMachineExtensionImagesImpl
 
     @Override
     public Observable<VirtualMachineExtensionImage> listByRegionAsync(String regionName) {
-        return this.publishers().listByRegionAsync(regionName)
-                .flatMap(new Func1<VirtualMachinePublisher, Observable<VirtualMachineExtensionImageType>>() {
+        Observable<VirtualMachineExtensionImageType> extensionTypes =
+                new PagedListFlattener<>(this.publishers().listByRegionAsync(regionName),
+                        new PagedListFlattener.ChildListLoader<VirtualMachinePublisher, VirtualMachineExtensionImageType>() {
                     @Override
-                    public Observable<VirtualMachineExtensionImageType> call(VirtualMachinePublisher virtualMachinePublisher) {
-                        return virtualMachinePublisher.extensionTypes().listAsync();
+                    public PagedList<VirtualMachineExtensionImageType> loadList(VirtualMachinePublisher publisher) {
+                        return publisher.extensionTypes().list();
                     }
-                }).flatMap(new Func1<VirtualMachineExtensionImageType, Observable<VirtualMachineExtensionImageVersion>>() {
+                }).flattenAsync();
+
+        return new PagedListFlattener<>(extensionTypes,
+                        new PagedListFlattener.ChildListLoader<VirtualMachineExtensionImageType, VirtualMachineExtensionImageVersion>() {
                     @Override
-                    public Observable<VirtualMachineExtensionImageVersion> call(VirtualMachineExtensionImageType virtualMachineExtensionImageType) {
-                        return virtualMachineExtensionImageType.versions().listAsync();
+                    public PagedList<VirtualMachineExtensionImageVersion> loadList(VirtualMachineExtensionImageType type) {
+                        return type.versions().list();
                     }
-                }).flatMap(new Func1<VirtualMachineExtensionImageVersion, Observable<VirtualMachineExtensionImage>>() {
+                }).flattenAsync()
+                .flatMap(new Func1<VirtualMachineExtensionImageVersion, Observable<VirtualMachineExtensionImage>>() {
                     @Override
                     public Observable<VirtualMachineExtensionImage> call(VirtualMachineExtensionImageVersion virtualMachineExtensionImageVersion) {
                         return virtualMachineExtensionImageVersion.getImageAsync();
                     }
-                });
+                }, MAX_CONCURRENCY);
     }
 
     @Override
@@ -0,0 +1,415 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute.implementation;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.compute.ImageReference;
+import com.microsoft.azure.management.compute.VirtualMachineImageCatalog;
+import com.microsoft.azure.management.resources.fluentcore.arm.Region;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import rx.Completable;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The implementation for {@link VirtualMachineImageCatalog}.
+ * <p>
+ * The index of a region maps the lower case path of each node of the catalog, i.e. "", "publisher",
+ * "publisher/offer" and "publisher/offer/sku", to the names of its children and the time they were fetched.
+ */
+@LangDefinition
+class VirtualMachineImageCatalogImpl implements VirtualMachineImageCatalog {
+    private static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final int FORMAT_VERSION = 1;
+
+    private final VirtualMachineImagesInner client;
+    // Immutable indexes, keyed by lower case region name
+    private final ConcurrentMap<String, Map<String, CatalogEntry>> indexes = new ConcurrentHashMap<>();
+    private volatile File cacheDirectory;
+    private volatile long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+    private volatile int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    VirtualMachineImageCatalogImpl(VirtualMachineImagesInner client) {
+        this.client = client;
+    }
+
+    @Override
+    public VirtualMachineImageCatalogImpl withCacheDirectory(File directory) {
+        this.cacheDirectory = directory;
+        return this;
+    }
+
+    @Override
+    public VirtualMachineImageCatalogImpl withTimeToLive(long timeToLive, TimeUnit unit) {
+        this.timeToLiveMillis = unit.toMillis(timeToLive);
+        return this;
+    }
+
+    @Override
+    public VirtualMachineImageCatalogImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public void refresh(Region region) {
+        this.refreshAsync(region).await();
+    }
+
+    @Override
+    public Completable refreshAsync(final Region region) {
+        final VirtualMachineImageCatalogImpl self = this;
+        return Observable.defer(new Func0<Observable<CatalogPath>>() {
+            @Override
+            public Observable<CatalogPath> call() {
+                final String regionName = region.name();
+                final Map<String, CatalogEntry> previous = self.loadIndex(regionName);
+                final ConcurrentMap<String, CatalogEntry> current = new ConcurrentHashMap<>();
+                Func1<CatalogPath, Observable<CatalogPath>> expand = new Func1<CatalogPath, Observable<CatalogPath>>() {
+                    @Override
+                    public Observable<CatalogPath> call(CatalogPath path) {
+                        return self.expandAsync(regionName, previous, current, path);
+                    }
+                };
+                // One concurrency window per level: offers, SKUs and versions
+                return expand.call(CatalogPath.ROOT)
+                        .flatMap(expand, self.maxConcurrency)
+                        .flatMap(expand, self.maxConcurrency)
+                        .flatMap(expand, self.maxConcurrency)
+                        .ignoreElements()
+                        .doOnCompleted(new Action0() {
+                            @Override
+                            public void call() {
+                                // Only a complete crawl replaces the index; a failed one leaves the previous index in place.
+                                // Branches no longer listed by their parent are dropped with the previous index
+                                Map<String, CatalogEntry> index = Collections.unmodifiableMap(new HashMap<>(current));
+                                self.indexes.put(key(regionName), index);
+                                try {
+                                    self.saveIndex(regionName, index);
+                                } catch (IOException e) {
+                                    throw Exceptions.propagate(e);
+                                }
+                            }
+                        });
+            }
+        }).toCompletable();
+    }
+
+    @Override
+    public List<String> listPublishers(Region region) {
+        return this.children(region, CatalogPath.ROOT);
+    }
+
+    @Override
+    public List<String> listOffers(Region region, String publisherName) {
+        return this.children(region, CatalogPath.ROOT.child(publisherName));
+    }
+
+    @Override
+    public List<String> listSkus(Region region, String publisherName, String offerName) {
+        return this.children(region, CatalogPath.ROOT.child(publisherName).child(offerName));
+    }
+
+    @Override
+    public List<String> listVersions(Region region, String publisherName, String offerName, String skuName) {
+        return this.children(region, CatalogPath.ROOT.child(publisherName).child(offerName).child(skuName));
+    }
+
+    @Override
+    public ImageReference getLatestImage(Region region, String publisherName, String offerName, String skuPrefix) {
+        String prefix = skuPrefix == null ? "" : key(skuPrefix);
+        String latestSku = null;
+        String latestVersion = null;
+        for (String sku : this.listSkus(region, publisherName, offerName)) {
+            if (!key(sku).startsWith(prefix)) {
+                continue;
+            }
+            for (String version : this.listVersions(region, publisherName, offerName, sku)) {
+                if (latestVersion == null || compareVersions(version, latestVersion) > 0) {
+                    latestSku = sku;
+                    latestVersion = version;
+                }
+            }
+        }
+        if (latestVersion == null) {
+            return null;
+        }
+        return new ImageReference()
+                .withPublisher(publisherName)
+                .withOffer(offerName)
+                .withSku(latestSku)
+                .withVersion(latestVersion);
+    }
+
+    /**
+     * Resolves the children of a node of the catalog, reusing the previous entry if it is still current.
+     *
+     * @return an observable emitting the paths of the children
+     */
+    private Observable<CatalogPath> expandAsync(String regionName,
+                                                Map<String, CatalogEntry> previous,
+                                                final Map<String, CatalogEntry> current,
+                                                final CatalogPath path) {
+        final CatalogEntry cached = previous.get(path.key());
+        Observable<CatalogEntry> entry;
+        if (cached != null && cached.fetchedAt + this.timeToLiveMillis > System.currentTimeMillis()) {
+            entry = Observable.just(cached);
+        } else {
+            entry = this.listNamesAsync(regionName, path)
+                    .map(new Func1<List<String>, CatalogEntry>() {
+                        @Override
+                        public CatalogEntry call(List<String> names) {
+                            return new CatalogEntry(System.currentTimeMillis(), names);
+                        }
+                    })
+                    .subscribeOn(SdkContext.getRxScheduler());
+        }
+        return entry
+                .doOnNext(new Action1<CatalogEntry>() {
+                    @Override
+                    public void call(CatalogEntry catalogEntry) {
+                        current.put(path.key(), catalogEntry);
+                    }
+                })
+                .concatMapIterable(new Func1<CatalogEntry, Iterable<CatalogPath>>() {
+                    @Override
+                    public Iterable<CatalogPath> call(CatalogEntry catalogEntry) {
+                        List<CatalogPath> children = new ArrayList<>();
+                        // Versions are the leaves of the catalog
+                        if (path.names.size() < 3) {
+                            for (String name : catalogEntry.children) {
+                                children.add(path.child(name));
+                            }
+                        }
+                        return children;
+                    }
+                });
+    }
+
+    private Observable<List<String>> listNamesAsync(String regionName, CatalogPath path) {
+        List<String> names = path.names;
+        Observable<List<VirtualMachineImageResourceInner>> resources;
+        switch (names.size()) {
+            case 0:
+                resources = this.client.listPublishersAsync(regionName);
+                break;
+            case 1:
+                resources = this.client.listOffersAsync(regionName, names.get(0));
+                break;
+            case 2:
+                resources = this.client.listSkusAsync(regionName, names.get(0), names.get(1));
+                break;
+            default:
+                resources = this.client.listAsync(regionName, names.get(0), names.get(1), names.get(2));
+                break;
+        }
+        return resources.map(new Func1<List<VirtualMachineImageResourceInner>, List<String>>() {
+            @Override
+            public List<String> call(List<VirtualMachineImageResourceInner> inners) {
+                List<String> names = new ArrayList<>();
+                if (inners != null) {
+                    for (VirtualMachineImageResourceInner inner : inners) {
+                        names.add(inner.name());
+                    }
+                }
+                return names;
+            }
+        });
+    }
+
+    private List<String> children(Region region, CatalogPath path) {
+        // Queries never crawl: a region not refreshed yet, and not in the cache directory, has no images
+        CatalogEntry entry = this.loadIndex(region.name()).get(path.key());
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(entry.children);
+    }
+
+    private Map<String, CatalogEntry> loadIndex(String regionName) {
+        Map<String, CatalogEntry> index = this.indexes.get(key(regionName));
+        if (index != null) {
+            return index;
+        }
+        index = Collections.emptyMap();
+        File file = this.cacheFile(regionName);
+        if (file != null && file.exists()) {
+            try {
+                index = Collections.unmodifiableMap(readIndex(file));
+            } catch (IOException e) {
+                // An unreadable cache is crawled again by the next refresh
+            }
+        }
+        Map<String, CatalogEntry> existing = this.indexes.putIfAbsent(key(regionName), index);
+        return existing == null ? index : existing;
+    }
+
+    private void saveIndex(String regionName, Map<String, CatalogEntry> index) throws IOException {
+        File file = this.cacheFile(regionName);
+        if (file == null) {
+            return;
+        }
+        CatalogFile content = new CatalogFile();
+        content.version = FORMAT_VERSION;
+        content.region = regionName;
+        content.entries = index;
+        // Write aside and move, so that a concurrent reader never sees a partial file
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            OutputStream output = new GZIPOutputStream(new FileOutputStream(temp));
+            try {
+                ObjectMapperRegistry.writer().writeValue(output, content);
+            } finally {
+                output.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static Map<String, CatalogEntry> readIndex(File file) throws IOException {
+        CatalogFile content;
+        InputStream input = new GZIPInputStream(new FileInputStream(file));
+        try {
+            content = ObjectMapperRegistry.readerFor(CatalogFile.class).readValue(input);
+        } finally {
+            input.close();
+        }
+        if (content.version != FORMAT_VERSION || content.entries == null) {
+            throw new IOException("Unsupported image catalog format in " + file);
+        }
+        return content.entries;
+    }
+
+    private File cacheFile(String regionName) {
+        File directory = this.cacheDirectory;
+        if (directory == null) {
+            return null;
+        }
+        return new File(directory, "vm-image-catalog-" + key(regionName) + ".json.gz");
+    }
+
+    /**
+     * Compares two image versions, made of dot separated numbers.
+     */
+    static int compareVersions(String version1, String version2) {
+        String[] parts1 = version1.split("\\.");
+        String[] parts2 = version2.split("\\.");
+        for (int i = 0; i < Math.min(parts1.length, parts2.length); i++) {
+            int result;
+            try {
+                result = Long.valueOf(parts1[i]).compareTo(Long.valueOf(parts2[i]));
+            } catch (NumberFormatException e) {
+                result = parts1[i].compareToIgnoreCase(parts2[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(parts1.length, parts2.length);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The path of a node of the catalog, from the publisher down to the SKU.
+     */
+    private static final class CatalogPath {
+        static final CatalogPath ROOT = new CatalogPath(Collections.<String>emptyList());
+
+        private final List<String> names;
+
+        private CatalogPath(List<String> names) {
+            this.names = names;
+        }
+
+        CatalogPath child(String name) {
+            List<String> childNames = new ArrayList<>(this.names);
+            childNames.add(name);
+            return new CatalogPath(childNames);
+        }
+
+        String key() {
+            StringBuilder builder = new StringBuilder();
+            for (String name : this.names) {
+                if (builder.length() > 0) {
+                    builder.append('/');
+                }
+                builder.append(VirtualMachineImageCatalogImpl.key(name));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * The children of a node of the catalog.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static final class CatalogEntry {
+        @JsonProperty("fetchedAt")
+        private long fetchedAt;
+
+        @JsonProperty("children")
+        private List<String> children;
+
+        CatalogEntry() {
+        }
+
+        CatalogEntry(long fetchedAt, List<String> children) {
+            this.fetchedAt = fetchedAt;
+            this.children = children;
+        }
+    }
+
+    /**
+     * The persisted index of a region.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static final class CatalogFile {
+        @JsonProperty("version")
+        private int version;
+
+        @JsonProperty("region")
+        private String region;
+
+        @JsonProperty("entries")
+        private Map<String, CatalogEntry> entries;
+    }
+}
@@ -8,6 +8,7 @@ package com.microsoft.azure.management.compute.implementation;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 import com.microsoft.azure.management.compute.VirtualMachineImage;
+import com.microsoft.azure.management.compute.VirtualMachineImageCatalog;
 import com.microsoft.azure.management.compute.VirtualMachineImages;
 import com.microsoft.azure.management.compute.VirtualMachineOffer;
 import com.microsoft.azure.management.compute.VirtualMachinePublisher;
@@ -25,12 +26,17 @@ import java.util.List;
 @LangDefinition
 class VirtualMachineImagesImpl
         implements VirtualMachineImages {
+    // Maximum number of concurrent child list requests at each level of the asynchronous listing
+    private static final int MAX_CONCURRENCY_PER_LEVEL = 4;
+
     private final VirtualMachinePublishers publishers;
     private final VirtualMachineImagesInner client;
+    private final VirtualMachineImageCatalogImpl catalog;
 
     VirtualMachineImagesImpl(VirtualMachinePublishers publishers, VirtualMachineImagesInner client) {
         this.publishers = publishers;
         this.client = client;
+        this.catalog = new VirtualMachineImageCatalogImpl(client);
     }
 
     @Override
@@ -116,17 +122,17 @@ class VirtualMachineImagesImpl
                     public Observable<VirtualMachineOffer> call(VirtualMachinePublisher virtualMachinePublisher) {
                         return virtualMachinePublisher.offers().listAsync();
                     }
-                }).flatMap(new Func1<VirtualMachineOffer, Observable<VirtualMachineSku>>() {
+                }, MAX_CONCURRENCY_PER_LEVEL).flatMap(new Func1<VirtualMachineOffer, Observable<VirtualMachineSku>>() {
                     @Override
                     public Observable<VirtualMachineSku> call(VirtualMachineOffer virtualMachineExtensionImageType) {
                         return virtualMachineExtensionImageType.skus().listAsync();
                     }
-                }).flatMap(new Func1<VirtualMachineSku, Observable<VirtualMachineImage>>() {
+                }, MAX_CONCURRENCY_PER_LEVEL).flatMap(new Func1<VirtualMachineSku, Observable<VirtualMachineImage>>() {
                     @Override
                     public Observable<VirtualMachineImage> call(VirtualMachineSku virtualMachineSku) {
                         return virtualMachineSku.images().listAsync();
                     }
-                });
+                }, MAX_CONCURRENCY_PER_LEVEL);
     }
 
     @Override
@@ -134,4 +140,9 @@ class VirtualMachineImagesImpl
         return this.publishers;
     }
 
+    @Override
+    public VirtualMachineImageCatalog catalog() {
+        return this.catalog;
+    }
+
 }
\ No newline at end of file
@@ -6,7 +6,6 @@
 package com.microsoft.azure.management.compute.implementation;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
@@ -59,6 +58,7 @@ import com.microsoft.azure.management.network.implementation.NetworkManager;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.arm.models.implementation.GroupableResourceImpl;
 import com.microsoft.azure.management.resources.fluentcore.model.Creatable;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.PagedListConverter;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceNamer;
 import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
@@ -351,10 +351,9 @@ class VirtualMachineImpl
                 if (innerResult == null) {
                     return null;
                 }
-                ObjectMapper mapper = new ObjectMapper();
                 //Object to JSON string
                 try {
-                    return mapper.writeValueAsString(innerResult.output());
+                    return ObjectMapperRegistry.writer().writeValueAsString(innerResult.output());
                 } catch (JsonProcessingException e) {
                     throw Exceptions.propagate(e);
                 }
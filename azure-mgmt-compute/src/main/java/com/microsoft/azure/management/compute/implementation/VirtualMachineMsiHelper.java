@@ -18,6 +18,7 @@ import com.microsoft.azure.management.graphrbac.RoleAssignment;
 import com.microsoft.azure.management.graphrbac.ServicePrincipal;
 import com.microsoft.azure.management.graphrbac.implementation.GraphRbacManager;
 import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
+import com.microsoft.azure.management.resources.fluentcore.utils.PropagationRetryPolicy;
 import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
 import org.apache.commons.lang3.tuple.Pair;
 import rx.Observable;
@@ -437,6 +438,8 @@ class VirtualMachineMsiHelper {
                 return Observable.<Indexable>error(throwable);
             }
         };
+        // The principal of the identity may not be known to Resource Manager yet
+        final PropagationRetryPolicy propagationRetryPolicy = PropagationRetryPolicy.forTenant(rbacManager.tenantId());
         final String roleAssignmentName = SdkContext.randomUuid();
         if (isRole) {
             return rbacManager
@@ -446,6 +449,7 @@ class VirtualMachineMsiHelper {
                     .withBuiltInRole(BuiltInRole.fromString(roleOrRoleDefinition))
                     .withScope(scope)
                     .createAsync()
+                    .compose(propagationRetryPolicy.<Indexable>transformer())
                     .last()
                     .onErrorResumeNext(onErrorResumeNext)
                     .map(new Func1<Indexable, RoleAssignment>() {
@@ -462,6 +466,7 @@ class VirtualMachineMsiHelper {
                     .withRoleDefinition(roleOrRoleDefinition)
                     .withScope(scope)
                     .createAsync()
+                    .compose(propagationRetryPolicy.<Indexable>transformer())
                     .last()
                     .onErrorResumeNext(onErrorResumeNext)
                     .map(new Func1<Indexable, RoleAssignment>() {
@@ -6,12 +6,12 @@
 package com.microsoft.azure.management.compute.implementation;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 import com.microsoft.azure.management.compute.VirtualMachineExtensionImage;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSet;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetExtension;
 import com.microsoft.azure.management.resources.fluentcore.arm.models.implementation.ChildResourceImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -72,9 +72,8 @@ public class VirtualMachineScaleSetExtensionImpl
 
     @Override
     public String publicSettingsAsJsonString() {
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            return mapper.writeValueAsString(this.publicSettings());
+            return ObjectMapperRegistry.writer().writeValueAsString(this.publicSettings());
         } catch (JsonProcessingException jex) {
             return null;
         }
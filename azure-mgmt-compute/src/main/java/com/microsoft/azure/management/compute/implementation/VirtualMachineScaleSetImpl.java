@@ -27,6 +27,7 @@ import com.microsoft.azure.management.compute.VirtualMachineScaleSet;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetDataDisk;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetExtension;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetExtensionProfile;
+import com.microsoft.azure.management.compute.VirtualMachineScaleSetInstanceStatuses;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetManagedDiskParameters;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetNetworkProfile;
 import com.microsoft.azure.management.compute.VirtualMachineScaleSetOSDisk;
@@ -1022,6 +1023,18 @@ public class VirtualMachineScaleSetImpl
         return null;
     }
 
+    @Override
+    public VirtualMachineScaleSetInstanceStatuses getInstanceStatuses() {
+        return this.getInstanceStatusesAsync().toBlocking().last();
+    }
+
+    @Override
+    public Observable<VirtualMachineScaleSetInstanceStatuses> getInstanceStatusesAsync() {
+        return new VirtualMachineScaleSetInstanceStatusesImpl(this.manager().inner().virtualMachineScaleSetVMs(),
+                this.resourceGroupName(),
+                this.name()).refreshAsync();
+    }
+
     @Override
     public VirtualMachineScaleSetImpl withUnmanagedDisks() {
         this.isUnmanagedDiskSelected = true;
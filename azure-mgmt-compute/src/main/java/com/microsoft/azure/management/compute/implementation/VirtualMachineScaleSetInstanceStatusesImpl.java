@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.compute.InstanceViewStatus;
+import com.microsoft.azure.management.compute.PowerState;
+import com.microsoft.azure.management.compute.VirtualMachineScaleSetInstanceStatuses;
+import rx.Observable;
+import rx.functions.Action2;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The implementation for {@link VirtualMachineScaleSetInstanceStatuses}.
+ */
+@LangDefinition
+class VirtualMachineScaleSetInstanceStatusesImpl implements VirtualMachineScaleSetInstanceStatuses {
+    // Restricts the instance views of the listed instances to their statuses
+    private static final String SELECT = "instanceView/statuses";
+    private static final String EXPAND = "instanceView";
+    private static final String PROVISIONING_STATE_PREFIX = "provisioningstate/";
+
+    private final VirtualMachineScaleSetVMsInner instancesClient;
+    private final String resourceGroupName;
+    private final String scaleSetName;
+    // Replaced as a whole by each refresh listing the instances
+    private volatile Snapshot snapshot = new Snapshot(new Records());
+
+    VirtualMachineScaleSetInstanceStatusesImpl(VirtualMachineScaleSetVMsInner instancesClient,
+                                               String resourceGroupName,
+                                               String scaleSetName) {
+        this.instancesClient = instancesClient;
+        this.resourceGroupName = resourceGroupName;
+        this.scaleSetName = scaleSetName;
+    }
+
+    @Override
+    public Map<String, Integer> statusCounts() {
+        return this.snapshot.statusCounts;
+    }
+
+    @Override
+    public int size() {
+        return this.snapshot.records.size;
+    }
+
+    @Override
+    public int indexOf(String instanceId) {
+        Integer index = this.snapshot.indexes.get(instanceId);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public String instanceId(int index) {
+        return this.snapshot.records.record(index).instanceIds[index];
+    }
+
+    @Override
+    public PowerState powerState(int index) {
+        return this.snapshot.records.record(index).powerStates[index];
+    }
+
+    @Override
+    public String provisioningState(int index) {
+        return this.snapshot.records.record(index).provisioningStates[index];
+    }
+
+    @Override
+    public boolean isLatestModelApplied(int index) {
+        return this.snapshot.records.record(index).latestModelApplied.get(index);
+    }
+
+    @Override
+    public VirtualMachineScaleSetInstanceStatuses refresh() {
+        return this.refreshAsync().toBlocking().last();
+    }
+
+    @Override
+    public Observable<VirtualMachineScaleSetInstanceStatuses> refreshAsync() {
+        final VirtualMachineScaleSetInstanceStatusesImpl self = this;
+        return this.listRecordsAsync()
+                .map(new Func1<Records, VirtualMachineScaleSetInstanceStatuses>() {
+                    @Override
+                    public VirtualMachineScaleSetInstanceStatuses call(Records records) {
+                        self.snapshot = new Snapshot(records);
+                        return self;
+                    }
+                });
+    }
+
+    private Observable<Records> listRecordsAsync() {
+        return this.instancesClient.listAsync(this.resourceGroupName, this.scaleSetName, null, SELECT, EXPAND)
+                .collect(new Func0<Records>() {
+                    @Override
+                    public Records call() {
+                        return new Records();
+                    }
+                }, new Action2<Records, Page<VirtualMachineScaleSetVMInner>>() {
+                    @Override
+                    public void call(Records records, Page<VirtualMachineScaleSetVMInner> page) {
+                        if (page.items() != null) {
+                            for (VirtualMachineScaleSetVMInner instance : page.items()) {
+                                records.add(instance);
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * The states of the instances, in growable parallel arrays.
+     */
+    static final class Records {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int size;
+        private String[] instanceIds = new String[INITIAL_CAPACITY];
+        private PowerState[] powerStates = new PowerState[INITIAL_CAPACITY];
+        private String[] provisioningStates = new String[INITIAL_CAPACITY];
+        private final BitSet latestModelApplied = new BitSet();
+        private final Map<String, Integer> statusCounts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        void add(VirtualMachineScaleSetVMInner instance) {
+            if (this.size == this.instanceIds.length) {
+                int capacity = this.size * 2;
+                this.instanceIds = Arrays.copyOf(this.instanceIds, capacity);
+                this.powerStates = Arrays.copyOf(this.powerStates, capacity);
+                this.provisioningStates = Arrays.copyOf(this.provisioningStates, capacity);
+            }
+            String provisioningState = instance.provisioningState();
+            if (instance.instanceView() != null && instance.instanceView().statuses() != null) {
+                for (InstanceViewStatus status : instance.instanceView().statuses()) {
+                    if (status.code() == null) {
+                        continue;
+                    }
+                    Integer count = this.statusCounts.get(status.code());
+                    this.statusCounts.put(status.code(), count == null ? 1 : count + 1);
+                    // The instance view status is more current than the provisioning state of the model
+                    if (status.code().toLowerCase().startsWith(PROVISIONING_STATE_PREFIX)) {
+                        provisioningState = status.code().substring(PROVISIONING_STATE_PREFIX.length());
+                    }
+                }
+            }
+            this.instanceIds[this.size] = instance.instanceId();
+            this.powerStates[this.size] = PowerState.fromInstanceView(instance.instanceView());
+            this.provisioningStates[this.size] = provisioningState;
+            this.latestModelApplied.set(this.size, instance.latestModelApplied() != null && instance.latestModelApplied());
+            this.size++;
+        }
+
+        Records record(int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of " + this.size);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * The instance states observed by a refresh, with their status counts and the index of the instance IDs.
+     */
+    private static final class Snapshot {
+        private final Map<String, Integer> statusCounts;
+        private final Records records;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        Snapshot(Records records) {
+            this.statusCounts = Collections.unmodifiableMap(records.statusCounts);
+            this.records = records;
+            for (int i = 0; i < records.size; i++) {
+                this.indexes.put(records.instanceIds[i], i);
+            }
+        }
+    }
+}
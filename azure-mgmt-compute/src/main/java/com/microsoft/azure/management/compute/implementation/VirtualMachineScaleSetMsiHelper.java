@@ -18,6 +18,7 @@ import com.microsoft.azure.management.graphrbac.RoleAssignment;
 import com.microsoft.azure.management.graphrbac.ServicePrincipal;
 import com.microsoft.azure.management.graphrbac.implementation.GraphRbacManager;
 import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
+import com.microsoft.azure.management.resources.fluentcore.utils.PropagationRetryPolicy;
 import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
 import com.microsoft.azure.management.resources.implementation.ResourceManager;
 import org.apache.commons.lang3.tuple.Pair;
@@ -362,6 +363,8 @@ class VirtualMachineScaleSetMsiHelper {
                 return Observable.<Indexable>error(throwable);
             }
         };
+        // The principal of the identity may not be known to Resource Manager yet
+        final PropagationRetryPolicy propagationRetryPolicy = PropagationRetryPolicy.forTenant(rbacManager.tenantId());
         final String roleAssignmentName = SdkContext.randomUuid();
         if (isRole) {
             return rbacManager
@@ -371,6 +374,7 @@ class VirtualMachineScaleSetMsiHelper {
                     .withBuiltInRole(BuiltInRole.fromString(roleOrRoleDefinition))
                     .withScope(scope)
                     .createAsync()
+                    .compose(propagationRetryPolicy.<Indexable>transformer())
                     .last()
                     .onErrorResumeNext(onErrorResumeNext)
                     .map(new Func1<Indexable, RoleAssignment>() {
@@ -387,6 +391,7 @@ class VirtualMachineScaleSetMsiHelper {
                     .withRoleDefinition(roleOrRoleDefinition)
                     .withScope(scope)
                     .createAsync()
+                    .compose(propagationRetryPolicy.<Indexable>transformer())
                     .last()
                     .onErrorResumeNext(onErrorResumeNext)
                     .map(new Func1<Indexable, RoleAssignment>() {
@@ -6,7 +6,6 @@
 package com.microsoft.azure.management.compute.implementation;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 import com.microsoft.azure.management.compute.DataDisk;
 import com.microsoft.azure.management.compute.HardwareProfile;
@@ -20,6 +19,7 @@ import com.microsoft.azure.management.compute.VirtualMachines;
 import com.microsoft.azure.management.graphrbac.implementation.GraphRbacManager;
 import com.microsoft.azure.management.network.implementation.NetworkManager;
 import com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation.TopLevelModifiableResourcesImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.storage.implementation.StorageManager;
 import com.microsoft.rest.ServiceCallback;
 import com.microsoft.rest.ServiceFuture;
@@ -176,10 +176,9 @@ class VirtualMachinesImpl
                         if (innerResult == null) {
                             return null;
                         }
-                        ObjectMapper mapper = new ObjectMapper();
                         //Object to JSON string
                         try {
-                            return mapper.writeValueAsString(innerResult.output());
+                            return ObjectMapperRegistry.writer().writeValueAsString(innerResult.output());
                         } catch (JsonProcessingException e) {
                             throw Exceptions.propagate(e);
                         }
@@ -0,0 +1,353 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.compute.implementation;
+
+import com.microsoft.azure.management.compute.Disk;
+import com.microsoft.azure.management.compute.Snapshot;
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Completable;
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action0;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class DiskCopierTests {
+    private static final int PAGE = 512;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private static final String DISK_ID = "/subscriptions/sub1/resourceGroups/rg1/providers/Microsoft.Compute/disks/disk1";
+
+    private LocalTestServer server;
+    private final Map<String, PageBlob> blobs = new ConcurrentHashMap<>();
+    private final AtomicInteger pagesRead = new AtomicInteger();
+
+    @Before
+    public void setup() throws IOException {
+        server = new LocalTestServer(new PageBlobHandler());
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void canCopyPageBlob() throws Exception {
+        PageBlob source = new PageBlob(64 * PAGE);
+        source.write(0, filled(8 * PAGE, (byte) 1));
+        source.write(40 * PAGE, filled(3 * PAGE, (byte) 2));
+        source.write(63 * PAGE, filled(PAGE, (byte) 3));
+        blobs.put("/disks/source", source);
+
+        long copied = copier()
+                .withChunkSize(2 * PAGE)
+                .withMaxConcurrency(3)
+                .copyAsync(url("/disks/source"), url("/vhds/target"))
+                .toBlocking()
+                .last();
+
+        Assert.assertEquals(12 * PAGE, copied);
+        PageBlob target = blobs.get("/vhds/target");
+        Assert.assertNotNull(target);
+        Assert.assertArrayEquals(source.data, target.data);
+        // Empty pages are neither read nor written
+        Assert.assertEquals(12, pagesRead.get());
+        Assert.assertEquals(12, target.writtenPageCount());
+        // The target records its source, without the shared access signature
+        Assert.assertEquals(server.url("/disks/source"), target.copySource);
+    }
+
+    @Test
+    public void canResumeCopy() throws Exception {
+        PageBlob source = new PageBlob(32 * PAGE);
+        source.write(0, filled(16 * PAGE, (byte) 7));
+        blobs.put("/disks/source", source);
+        PageBlob target = new PageBlob(32 * PAGE);
+        target.copySource = server.url("/disks/source");
+        target.write(4 * PAGE, Arrays.copyOfRange(source.data, 4 * PAGE, 10 * PAGE));
+        blobs.put("/vhds/target", target);
+
+        long copied = copier()
+                .withChunkSize(4 * PAGE)
+                .copyAsync(url("/disks/source"), url("/vhds/target"))
+                .toBlocking()
+                .last();
+
+        Assert.assertEquals(10 * PAGE, copied);
+        Assert.assertEquals(10, pagesRead.get());
+        Assert.assertArrayEquals(source.data, target.data);
+
+        // Resuming a complete copy copies nothing
+        List<Long> progress = copier().copyAsync(url("/disks/source"), url("/vhds/target")).toList().toBlocking().single();
+        Assert.assertEquals(Arrays.asList(0L), progress);
+        Assert.assertEquals(10, pagesRead.get());
+    }
+
+    @Test
+    public void canCopyEmptyBlob() {
+        blobs.put("/disks/source", new PageBlob(8 * PAGE));
+        List<Long> progress = copier().copyAsync(url("/disks/source"), url("/vhds/target")).toList().toBlocking().single();
+        Assert.assertEquals(Arrays.asList(0L), progress);
+        Assert.assertEquals(8 * PAGE, blobs.get("/vhds/target").data.length);
+    }
+
+    @Test
+    public void cannotResumeCopyOfAnotherSource() {
+        PageBlob source = new PageBlob(8 * PAGE);
+        source.write(0, filled(8 * PAGE, (byte) 1));
+        blobs.put("/disks/source", source);
+        // A blob of the same size which is not a copy, then a copy of another source
+        PageBlob target = new PageBlob(8 * PAGE);
+        target.write(0, filled(PAGE, (byte) 2));
+        blobs.put("/vhds/target", target);
+        for (String copySource : new String[] {null, server.url("/disks/other")}) {
+            target.copySource = copySource;
+            try {
+                copier().copyAsync(url("/disks/source"), url("/vhds/target")).toBlocking().last();
+                Assert.fail();
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        Assert.assertEquals(0, pagesRead.get());
+        Assert.assertEquals(1, target.writtenPageCount());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void cannotCopyToBlobOfDifferentSize() {
+        blobs.put("/disks/source", new PageBlob(8 * PAGE));
+        PageBlob target = new PageBlob(4 * PAGE);
+        target.copySource = server.url("/disks/source");
+        blobs.put("/vhds/target", target);
+        copier().copyAsync(url("/disks/source"), url("/vhds/target")).toBlocking().last();
+    }
+
+    @Test
+    public void canGrantAndRevokeAccessToDisk() throws Exception {
+        PageBlob source = new PageBlob(8 * PAGE);
+        source.write(0, filled(2 * PAGE, (byte) 1));
+        blobs.put("/disks/source", source);
+        AccessRecorder access = new AccessRecorder(Observable.just(url("/disks/source")));
+
+        long copied = copier()
+                .withAccessDuration(600)
+                .copyAsync(access.fake(Disk.class), url("/vhds/target"))
+                .toBlocking()
+                .last();
+
+        Assert.assertEquals(2 * PAGE, copied);
+        Assert.assertEquals(600, access.grantedDuration.get());
+        Assert.assertEquals(1, access.revokes.get());
+        // A disk is identified by its resource ID, as its access URLs change with each grant
+        Assert.assertEquals(DISK_ID, blobs.get("/vhds/target").copySource);
+    }
+
+    @Test
+    public void canRevokeAccessToSnapshotOnFailure() throws Exception {
+        AccessRecorder access = new AccessRecorder(Observable.just(url("/snapshots/missing")));
+        try {
+            copier().copyAsync(access.fake(Snapshot.class), url("/vhds/target")).toBlocking().last();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+        Assert.assertEquals(1, access.revokes.get());
+    }
+
+    @Test
+    public void canRevokeAccessWhenCancelled() throws Exception {
+        AccessRecorder access = new AccessRecorder(Observable.<String>never());
+        Subscription subscription = copier().copyAsync(access.fake(Snapshot.class), url("/vhds/target")).subscribe();
+        Assert.assertEquals(0, access.revokes.get());
+
+        subscription.unsubscribe();
+        Assert.assertEquals(1, access.revokes.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotGrantAccessForNoTime() {
+        copier().withAccessDuration(0);
+    }
+
+    private static DiskCopierImpl copier() {
+        return new DiskCopierImpl(new OkHttpClient());
+    }
+
+    private String url(String path) {
+        return server.url(path) + "?sv=2016-05-31&sig=signature";
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, value);
+        return data;
+    }
+
+    /**
+     * Records the access granted to and revoked from a disk or snapshot stand-in.
+     */
+    private static final class AccessRecorder {
+        private final Observable<String> grant;
+        private final AtomicInteger grantedDuration = new AtomicInteger();
+        private final AtomicInteger revokes = new AtomicInteger();
+
+        AccessRecorder(Observable<String> grant) {
+            this.grant = grant;
+        }
+
+        <T> T fake(Class<T> type) {
+            final AccessRecorder self = this;
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if ("id".equals(method.getName()) && args == null) {
+                        return DISK_ID;
+                    } else if ("grantAccessAsync".equals(method.getName()) && args.length == 1) {
+                        self.grantedDuration.set((Integer) args[0]);
+                        return self.grant;
+                    } else if ("revokeAccessAsync".equals(method.getName()) && args == null) {
+                        return Completable.fromAction(new Action0() {
+                            @Override
+                            public void call() {
+                                self.revokes.incrementAndGet();
+                            }
+                        });
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }));
+        }
+    }
+
+    /**
+     * An in-memory page blob, tracking which pages were written.
+     */
+    private static final class PageBlob {
+        private final byte[] data;
+        private final boolean[] written;
+        private volatile String copySource;
+
+        PageBlob(int length) {
+            this.data = new byte[length];
+            this.written = new boolean[length / PAGE];
+        }
+
+        synchronized void write(int offset, byte[] content) {
+            System.arraycopy(content, 0, data, offset, content.length);
+            Arrays.fill(written, offset / PAGE, (offset + content.length) / PAGE, true);
+        }
+
+        synchronized int writtenPageCount() {
+            int count = 0;
+            for (boolean page : written) {
+                if (page) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        synchronized String pageList(int start, int end) {
+            StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><PageList>");
+            int page = start / PAGE;
+            while (page < end / PAGE) {
+                if (!written[page]) {
+                    page++;
+                    continue;
+                }
+                int first = page;
+                while (page < end / PAGE && written[page]) {
+                    page++;
+                }
+                xml.append("<PageRange><Start>").append(first * PAGE).append("</Start><End>")
+                        .append(page * PAGE - 1).append("</End></PageRange>");
+            }
+            return xml.append("</PageList>").toString();
+        }
+    }
+
+    /**
+     * A stand-in for the blob endpoint, supporting the page blob operations used by the copier.
+     */
+    private final class PageBlobHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            String method = exchange.getRequestMethod();
+            PageBlob blob = blobs.get(path);
+            if (!query.contains("sig=")) {
+                LocalTestServer.respond(exchange, 403, null);
+            } else if ("PUT".equals(method) && !query.contains("comp=")) {
+                int length = Integer.parseInt(exchange.getRequestHeaders().getFirst("x-ms-blob-content-length"));
+                PageBlob created = new PageBlob(length);
+                created.copySource = exchange.getRequestHeaders().getFirst("x-ms-meta-diskcopysource");
+                blobs.put(path, created);
+                LocalTestServer.respond(exchange, 201, null);
+            } else if (blob == null) {
+                LocalTestServer.respond(exchange, 404, null);
+            } else if ("HEAD".equals(method)) {
+                exchange.getResponseHeaders().add("Content-Length", Integer.toString(blob.data.length));
+                if (blob.copySource != null) {
+                    exchange.getResponseHeaders().add("x-ms-meta-diskcopysource", blob.copySource);
+                }
+                LocalTestServer.respond(exchange, 200, null);
+            } else if ("PUT".equals(method)) {
+                int[] range = range(exchange);
+                byte[] content = readAll(exchange.getRequestBody());
+                Assert.assertEquals(range[1] - range[0], content.length);
+                blob.write(range[0], content);
+                LocalTestServer.respond(exchange, 201, null);
+            } else if (query.contains("comp=pagelist")) {
+                int[] range = range(exchange);
+                LocalTestServer.respond(exchange, 200, blob.pageList(range[0], range[1]).getBytes(StandardCharsets.UTF_8));
+            } else {
+                int[] range = range(exchange);
+                pagesRead.addAndGet((range[1] - range[0]) / PAGE);
+                LocalTestServer.respond(exchange, 206, Arrays.copyOfRange(blob.data, range[0], range[1]));
+            }
+        }
+
+        private int[] range(HttpExchange exchange) {
+            List<String> values = exchange.getRequestHeaders().get("x-ms-range");
+            Matcher matcher = RANGE.matcher(values.get(0));
+            Assert.assertTrue(matcher.matches());
+            return new int[] {Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)) + 1};
+        }
+
+        private byte[] readAll(InputStream input) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[PAGE];
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        }
+    }
+}
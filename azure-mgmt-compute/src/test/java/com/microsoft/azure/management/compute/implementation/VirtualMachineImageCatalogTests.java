@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.compute.implementation;
+
+import com.microsoft.azure.management.compute.ImageReference;
+import com.microsoft.azure.management.resources.fluentcore.arm.Region;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+public class VirtualMachineImageCatalogTests {
+    private static final Region REGION = Region.US_WEST;
+
+    @Test
+    public void canCompareVersions() {
+        Assert.assertTrue(VirtualMachineImageCatalogImpl.compareVersions("1.2.10", "1.2.9") > 0);
+        Assert.assertTrue(VirtualMachineImageCatalogImpl.compareVersions("1.2.9", "1.2.10") < 0);
+        Assert.assertEquals(0, VirtualMachineImageCatalogImpl.compareVersions("16.04.201801010", "16.04.201801010"));
+        Assert.assertTrue(VirtualMachineImageCatalogImpl.compareVersions("1.2", "1.2.0") < 0);
+        // Parts that are not numbers are compared as text
+        Assert.assertTrue(VirtualMachineImageCatalogImpl.compareVersions("1.2.b", "1.2.A") > 0);
+        Assert.assertTrue(VirtualMachineImageCatalogImpl.compareVersions("2.0", "10.0") < 0);
+    }
+
+    @Test
+    public void canCrawlAndGetLatestImage() {
+        FakeVirtualMachineImages client = new FakeVirtualMachineImages();
+        VirtualMachineImageCatalogImpl catalog = new VirtualMachineImageCatalogImpl(client);
+        catalog.refresh(REGION);
+
+        Assert.assertEquals(Arrays.asList("Canonical"), catalog.listPublishers(REGION));
+        Assert.assertEquals(3, catalog.listSkus(REGION, "canonical", "UBUNTUSERVER").size());
+        Assert.assertEquals(Arrays.asList("14.04.201901010"), catalog.listVersions(REGION, "Canonical", "UbuntuServer", "14.04-LTS"));
+        Assert.assertTrue(catalog.listOffers(REGION, "Unknown").isEmpty());
+
+        ImageReference image = catalog.getLatestImage(REGION, "Canonical", "UbuntuServer", "16.04");
+        Assert.assertEquals("16.04-LTS", image.sku());
+        Assert.assertEquals("16.04.201801010", image.version());
+        Assert.assertEquals("14.04-LTS", catalog.getLatestImage(REGION, "Canonical", "UbuntuServer", "14").sku());
+        Assert.assertEquals("16.04.201801010", catalog.getLatestImage(REGION, "Canonical", "UbuntuServer", null).version());
+        Assert.assertNull(catalog.getLatestImage(REGION, "Canonical", "UbuntuServer", "18.04"));
+
+        // The region is crawled once, with one request per publisher, offer and SKU
+        Assert.assertEquals(1 + 1 + 1 + 3, client.calls);
+    }
+
+    @Test
+    public void canQueryWithoutCrawling() {
+        FakeVirtualMachineImages client = new FakeVirtualMachineImages();
+        VirtualMachineImageCatalogImpl catalog = new VirtualMachineImageCatalogImpl(client);
+
+        // A region not refreshed yet has no images
+        Assert.assertTrue(catalog.listPublishers(REGION).isEmpty());
+        Assert.assertNull(catalog.getLatestImage(REGION, "Canonical", "UbuntuServer", null));
+        Assert.assertEquals(0, client.calls);
+
+        // An empty region is crawled once, by the refresh only
+        client.tree.put("", new ArrayList<String>());
+        catalog.refresh(REGION);
+        Assert.assertTrue(catalog.listPublishers(REGION).isEmpty());
+        Assert.assertTrue(catalog.listOffers(REGION, "Canonical").isEmpty());
+        Assert.assertEquals(1, client.calls);
+    }
+
+    @Test
+    public void canReuseCurrentEntries() {
+        FakeVirtualMachineImages client = new FakeVirtualMachineImages();
+        VirtualMachineImageCatalogImpl catalog = new VirtualMachineImageCatalogImpl(client);
+        catalog.refresh(REGION);
+        catalog.refresh(REGION);
+        Assert.assertEquals(6, client.calls);
+
+        catalog.withTimeToLive(0, TimeUnit.MILLISECONDS).refresh(REGION);
+        Assert.assertEquals(12, client.calls);
+    }
+
+    @Test
+    public void keepsPreviousIndexWhenRefreshFails() throws Exception {
+        File directory = Files.createTempDirectory("catalog").toFile();
+        try {
+            FakeVirtualMachineImages client = new FakeVirtualMachineImages();
+            VirtualMachineImageCatalogImpl catalog = new VirtualMachineImageCatalogImpl(client)
+                    .withCacheDirectory(directory)
+                    .withTimeToLive(0, TimeUnit.MILLISECONDS);
+
+            // A failed first crawl is not persisted
+            client.failing.add("canonical/ubuntuserver/16.04-lts");
+            try {
+                catalog.refresh(REGION);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("throttled", e.getMessage());
+            }
+            Assert.assertEquals(0, directory.listFiles().length);
+
+            client.failing.clear();
+            catalog.refresh(REGION);
+            Assert.assertEquals(1, directory.listFiles().length);
+
+            // A failed refresh keeps the previous index
+            client.tree.get("canonical/ubuntuserver").remove("14.04-LTS");
+            client.failing.add("canonical/ubuntuserver");
+            try {
+                catalog.refresh(REGION);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("throttled", e.getMessage());
+            }
+            Assert.assertEquals(3, catalog.listSkus(REGION, "Canonical", "UbuntuServer").size());
+            Assert.assertEquals(3, new VirtualMachineImageCatalogImpl(client).withCacheDirectory(directory)
+                    .listSkus(REGION, "Canonical", "UbuntuServer").size());
+        } finally {
+            for (File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test
+    public void canReadCacheWithUnknownProperties() throws Exception {
+        File directory = Files.createTempDirectory("catalog").toFile();
+        File file = new File(directory, "vm-image-catalog-westus.json.gz");
+        try {
+            OutputStream output = new GZIPOutputStream(new FileOutputStream(file));
+            try {
+                output.write(("{\"version\":1,\"region\":\"westus\",\"writtenBy\":\"a later version\","
+                        + "\"entries\":{\"\":{\"fetchedAt\":" + System.currentTimeMillis()
+                        + ",\"children\":[\"Canonical\"],\"etag\":\"1\"}}}").getBytes("UTF-8"));
+            } finally {
+                output.close();
+            }
+            FakeVirtualMachineImages client = new FakeVirtualMachineImages();
+            VirtualMachineImageCatalogImpl catalog = new VirtualMachineImageCatalogImpl(client).withCacheDirectory(directory);
+            Assert.assertEquals(Arrays.asList("Canonical"), catalog.listPublishers(REGION));
+            Assert.assertEquals(0, client.calls);
+        } finally {
+            Assert.assertTrue(file.delete());
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidConcurrency() {
+        new VirtualMachineImageCatalogImpl(new FakeVirtualMachineImages()).withMaxConcurrency(0);
+    }
+
+    /**
+     * Images client answering from a tree of names keyed by lower case path, failing for the paths in failing.
+     */
+    private static class FakeVirtualMachineImages extends VirtualMachineImagesInner {
+        private final Map<String, List<String>> tree = new HashMap<>();
+        private final Set<String> failing = new HashSet<>();
+        private int calls;
+
+        FakeVirtualMachineImages() {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+            tree.put("", new ArrayList<>(Arrays.asList("Canonical")));
+            tree.put("canonical", new ArrayList<>(Arrays.asList("UbuntuServer")));
+            tree.put("canonical/ubuntuserver", new ArrayList<>(Arrays.asList("16.04-LTS", "16.04.0-LTS", "14.04-LTS")));
+            tree.put("canonical/ubuntuserver/16.04-lts", new ArrayList<>(Arrays.asList("16.04.201701010", "16.04.201801010")));
+            tree.put("canonical/ubuntuserver/16.04.0-lts", new ArrayList<>(Arrays.asList("16.04.201705010")));
+            tree.put("canonical/ubuntuserver/14.04-lts", new ArrayList<>(Arrays.asList("14.04.201901010")));
+        }
+
+        @Override
+        public Observable<List<VirtualMachineImageResourceInner>> listPublishersAsync(String location) {
+            return this.answer("");
+        }
+
+        @Override
+        public Observable<List<VirtualMachineImageResourceInner>> listOffersAsync(String location, String publisherName) {
+            return this.answer(publisherName);
+        }
+
+        @Override
+        public Observable<List<VirtualMachineImageResourceInner>> listSkusAsync(String location, String publisherName, String offer) {
+            return this.answer(publisherName + "/" + offer);
+        }
+
+        @Override
+        public Observable<List<VirtualMachineImageResourceInner>> listAsync(String location, String publisherName, String offer, String skus) {
+            return this.answer(publisherName + "/" + offer + "/" + skus);
+        }
+
+        private synchronized Observable<List<VirtualMachineImageResourceInner>> answer(String path) {
+            this.calls++;
+            String key = path.toLowerCase();
+            if (this.failing.contains(key)) {
+                return Observable.error(new IllegalStateException("throttled"));
+            }
+            List<VirtualMachineImageResourceInner> inners = new ArrayList<>();
+            for (String name : this.tree.get(key)) {
+                inners.add(new VirtualMachineImageResourceInner().withName(name));
+            }
+            return Observable.just(inners);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.compute.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.compute.PowerState;
+import com.microsoft.azure.management.compute.VirtualMachineScaleSetInstanceStatuses;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class VirtualMachineScaleSetInstanceStatusesTests {
+    @Test
+    public void canCountStatusesOfListedInstances() throws Exception {
+        FakeScaleSetVMs instances = new FakeScaleSetVMs();
+        List<VirtualMachineScaleSetVMInner> listing = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            listing.add(vm(String.valueOf(i), i % 4 == 0 ? "stopped" : "running", i % 2 == 0));
+        }
+        instances.listings.add(listing);
+        VirtualMachineScaleSetInstanceStatuses statuses =
+                new VirtualMachineScaleSetInstanceStatusesImpl(instances, "rg1", "vmss1").refresh();
+
+        Assert.assertEquals(100, statuses.size());
+        Assert.assertEquals(Integer.valueOf(75), statuses.statusCounts().get("PowerState/running"));
+        Assert.assertEquals(Integer.valueOf(25), statuses.statusCounts().get("powerstate/STOPPED"));
+        Assert.assertEquals(Integer.valueOf(100), statuses.statusCounts().get("ProvisioningState/updating"));
+        Assert.assertEquals(3, statuses.statusCounts().size());
+        Assert.assertEquals(99, statuses.indexOf("99"));
+        Assert.assertEquals(PowerState.STOPPED, statuses.powerState(96));
+        Assert.assertFalse(statuses.isLatestModelApplied(99));
+    }
+
+    @Test
+    public void canRefreshInstancesWithUnchangedStatusCounts() throws Exception {
+        FakeScaleSetVMs instances = new FakeScaleSetVMs();
+        VirtualMachineScaleSetInstanceStatusesImpl statuses =
+                new VirtualMachineScaleSetInstanceStatusesImpl(instances, "rg1", "vmss1");
+
+        instances.listings.add(Arrays.asList(vm("0", "running", true), vm("1", "stopped", true)));
+        instances.listings.add(Arrays.asList(vm("0", "stopped", true), vm("2", "running", false)));
+        statuses.refresh();
+        Assert.assertEquals(2, statuses.size());
+        Assert.assertEquals(Integer.valueOf(1), statuses.statusCounts().get("powerstate/running"));
+        Assert.assertEquals(PowerState.RUNNING, statuses.powerState(statuses.indexOf("0")));
+
+        // One instance stops while another one starts, leaving the status counts unchanged
+        statuses.refresh();
+        Assert.assertEquals(2, instances.calls);
+        Assert.assertEquals(Integer.valueOf(1), statuses.statusCounts().get("powerstate/running"));
+        Assert.assertEquals("updating", statuses.provisioningState(statuses.indexOf("2")));
+        Assert.assertEquals(PowerState.STOPPED, statuses.powerState(statuses.indexOf("0")));
+        Assert.assertEquals(-1, statuses.indexOf("1"));
+        Assert.assertEquals(PowerState.RUNNING, statuses.powerState(statuses.indexOf("2")));
+        Assert.assertFalse(statuses.isLatestModelApplied(statuses.indexOf("2")));
+    }
+
+    private static VirtualMachineScaleSetVMInner vm(String instanceId, String powerState, boolean latestModelApplied) throws IOException {
+        return new AzureJacksonAdapter().deserialize(
+                "{\"instanceId\":\"" + instanceId + "\",\"properties\":{\"latestModelApplied\":" + latestModelApplied
+                        + ",\"provisioningState\":\"Succeeded\",\"instanceView\":{\"statuses\":["
+                        + "{\"code\":\"ProvisioningState/updating\"},{\"code\":\"PowerState/" + powerState + "\"}]}}}",
+                VirtualMachineScaleSetVMInner.class);
+    }
+
+    /**
+     * Scale set instances client answering with the queued listings.
+     */
+    private static class FakeScaleSetVMs extends VirtualMachineScaleSetVMsInner {
+        private final List<List<VirtualMachineScaleSetVMInner>> listings = new ArrayList<>();
+        private int calls;
+
+        FakeScaleSetVMs() {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+        }
+
+        @Override
+        public Observable<Page<VirtualMachineScaleSetVMInner>> listAsync(String resourceGroupName, String virtualMachineScaleSetName,
+                                                                         String filter, String select, String expand) {
+            return Observable.<Page<VirtualMachineScaleSetVMInner>>just(
+                    new PageImpl1<VirtualMachineScaleSetVMInner>().setItems(this.listings.get(this.calls++)));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.consumption;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.consumption.implementation.UsageDetailInner;
+
+/**
+ * Folds usage details into an aggregate as they are read, such as the cost per meter.
+ * <p>
+ * The usage details are passed to an aggregator one at a time, never concurrently.
+ */
+@Beta(Beta.SinceVersion.V1_3_0)
+public interface UsageAggregator {
+    /**
+     * Adds a usage detail to the aggregate.
+     *
+     * @param usageDetail the usage detail
+     */
+    void accumulate(UsageDetailInner usageDetail);
+}
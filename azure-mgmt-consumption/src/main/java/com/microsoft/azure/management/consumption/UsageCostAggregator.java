@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.consumption;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.consumption.implementation.UsageDetailInner;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An aggregator of the pretax cost and billable quantity of usage details by key, such as the meter,
+ * the resource group or the value of a tag.
+ * <p>
+ * Each distinct key is mapped to an index from 0 to {@link #size()} - 1, and the totals are kept in
+ * arrays by index, so that the memory used only depends on the number of keys. Costs and quantities are summed
+ * exactly, and costs must all be in the same currency: a usage detail in another currency fails with an
+ * IllegalStateException.
+ */
+@Beta(Beta.SinceVersion.V1_3_0)
+public final class UsageCostAggregator implements UsageAggregator {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final KeySelector keySelector;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private BigDecimal[] costs = new BigDecimal[INITIAL_CAPACITY];
+    private BigDecimal[] quantities = new BigDecimal[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private int size;
+    private String currency;
+
+    /**
+     * Selects the key a usage detail is aggregated under.
+     */
+    public interface KeySelector {
+        /**
+         * Gets the key of a usage detail.
+         *
+         * @param usageDetail the usage detail
+         * @return the key, or null to skip the usage detail
+         */
+        String keyOf(UsageDetailInner usageDetail);
+    }
+
+    /**
+     * Creates an aggregator.
+     *
+     * @param keySelector the selector of the key of the usage details
+     */
+    public UsageCostAggregator(KeySelector keySelector) {
+        this.keySelector = keySelector;
+    }
+
+    /**
+     * @return an aggregator by meter ID
+     */
+    public static UsageCostAggregator byMeter() {
+        return new UsageCostAggregator(new KeySelector() {
+            @Override
+            public String keyOf(UsageDetailInner usageDetail) {
+                return usageDetail.meterId();
+            }
+        });
+    }
+
+    /**
+     * Creates an aggregator by meter category; the meter details must be expanded.
+     *
+     * @return an aggregator by meter category
+     */
+    public static UsageCostAggregator byMeterCategory() {
+        return new UsageCostAggregator(new KeySelector() {
+            @Override
+            public String keyOf(UsageDetailInner usageDetail) {
+                return usageDetail.meterDetails() == null ? null : usageDetail.meterDetails().meterCategory();
+            }
+        });
+    }
+
+    /**
+     * @return an aggregator by resource group name, in lower case
+     */
+    public static UsageCostAggregator byResourceGroup() {
+        return new UsageCostAggregator(new KeySelector() {
+            @Override
+            public String keyOf(UsageDetailInner usageDetail) {
+                if (usageDetail.instanceId() == null) {
+                    return null;
+                }
+                String resourceGroupName = ResourceUtils.groupFromResourceId(usageDetail.instanceId());
+                return resourceGroupName == null ? null : resourceGroupName.toLowerCase(Locale.ROOT);
+            }
+        });
+    }
+
+    /**
+     * Creates an aggregator by the value of a tag; usage details without the tag are skipped.
+     *
+     * @param tagName the name of the tag
+     * @return an aggregator by tag value
+     */
+    public static UsageCostAggregator byTag(final String tagName) {
+        return new UsageCostAggregator(new KeySelector() {
+            @Override
+            public String keyOf(UsageDetailInner usageDetail) {
+                return usageDetail.tags() == null ? null : usageDetail.tags().get(tagName);
+            }
+        });
+    }
+
+    @Override
+    public void accumulate(UsageDetailInner usageDetail) {
+        String key = this.keySelector.keyOf(usageDetail);
+        if (key == null) {
+            return;
+        }
+        if (usageDetail.currency() != null) {
+            if (this.currency == null) {
+                this.currency = usageDetail.currency();
+            } else if (!this.currency.equalsIgnoreCase(usageDetail.currency())) {
+                throw new IllegalStateException(String.format("Cannot aggregate costs in %s with costs in %s",
+                        usageDetail.currency(), this.currency));
+            }
+        }
+        Integer index = this.indexes.get(key);
+        if (index == null) {
+            if (this.size == this.keys.length) {
+                int capacity = this.size * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.costs = Arrays.copyOf(this.costs, capacity);
+                this.quantities = Arrays.copyOf(this.quantities, capacity);
+                this.counts = Arrays.copyOf(this.counts, capacity);
+            }
+            index = this.size++;
+            this.keys[index] = key;
+            this.costs[index] = BigDecimal.ZERO;
+            this.quantities[index] = BigDecimal.ZERO;
+            this.indexes.put(key, index);
+        }
+        if (usageDetail.pretaxCost() != null) {
+            this.costs[index] = this.costs[index].add(usageDetail.pretaxCost());
+        }
+        if (usageDetail.billableQuantity() != null) {
+            this.quantities[index] = this.quantities[index].add(usageDetail.billableQuantity());
+        }
+        this.counts[index]++;
+    }
+
+    /**
+     * @return the number of distinct keys
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the index of a key.
+     *
+     * @param key the key
+     * @return the index of the key, or -1 if no usage detail has the key
+     */
+    public int indexOf(String key) {
+        Integer index = this.indexes.get(key);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index the index of a key
+     * @return the key
+     */
+    public String key(int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * @return the currency of the aggregated costs, or null if no usage detail had a currency
+     */
+    public String currency() {
+        return this.currency;
+    }
+
+    /**
+     * @param index the index of a key
+     * @return the total pretax cost of the usage details with the key
+     */
+    public BigDecimal cost(int index) {
+        return this.costs[index];
+    }
+
+    /**
+     * @param index the index of a key
+     * @return the total billable quantity of the usage details with the key
+     */
+    public BigDecimal quantity(int index) {
+        return this.quantities[index];
+    }
+
+    /**
+     * @param index the index of a key
+     * @return the number of usage details with the key
+     */
+    public long count(int index) {
+        return this.counts[index];
+    }
+
+    /**
+     * @return the total pretax cost of the aggregated usage details
+     */
+    public BigDecimal totalCost() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < this.size; i++) {
+            total = total.add(this.costs[i]);
+        }
+        return total;
+    }
+}
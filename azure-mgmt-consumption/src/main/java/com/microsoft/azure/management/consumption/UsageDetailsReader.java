@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.consumption;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.consumption.implementation.UsageDetailInner;
+import org.joda.time.DateTime;
+import rx.Observable;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming reader of the usage details of a scope.
+ * <p>
+ * A time range is split into windows of usage end time, which are listed in parallel using a server
+ * side filter. Usage details are streamed page by page rather than collected, so that the memory used
+ * does not depend on the number of usage details; they are either folded into aggregators or exported
+ * to a file as they arrive.
+ */
+@Beta(Beta.SinceVersion.V1_3_0)
+public interface UsageDetailsReader {
+    /**
+     * Specifies the scope of the usage details.
+     *
+     * @param scope the scope, such as '/subscriptions/{subscriptionId}/providers/Microsoft.Billing/billingPeriods/{billingPeriodName}'; defaults to the subscription of the manager
+     * @return the reader
+     */
+    UsageDetailsReader withScope(String scope);
+
+    /**
+     * Specifies the properties to expand, such as "properties/meterDetails".
+     *
+     * @param expand the properties to expand, separated by commas
+     * @return the reader
+     */
+    UsageDetailsReader withExpand(String expand);
+
+    /**
+     * Specifies the length of the windows the time range is split into.
+     *
+     * @param windowSize the length of a window, defaults to one day
+     * @param unit the time unit of the window length
+     * @return the reader
+     */
+    UsageDetailsReader withWindowSize(long windowSize, TimeUnit unit);
+
+    /**
+     * Specifies the maximum number of windows listed concurrently.
+     *
+     * @param maxConcurrency the maximum number of concurrent listings, defaults to 4
+     * @return the reader
+     */
+    UsageDetailsReader withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Lists the usage details ending in a time range, in no particular order.
+     *
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @return an observable emitting the usage details
+     */
+    Observable<UsageDetailInner> listAsync(DateTime startTime, DateTime endTime);
+
+    /**
+     * Folds the usage details ending in a time range into aggregators, in a single pass.
+     *
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @param aggregators the aggregators
+     * @return the number of usage details aggregated
+     */
+    long aggregate(DateTime startTime, DateTime endTime, UsageAggregator... aggregators);
+
+    /**
+     * Folds the usage details ending in a time range into aggregators, in a single pass.
+     *
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @param aggregators the aggregators
+     * @return an observable emitting the number of usage details aggregated
+     */
+    Observable<Long> aggregateAsync(DateTime startTime, DateTime endTime, UsageAggregator... aggregators);
+
+    /**
+     * Exports the usage details ending in a time range to a CSV file, with one line per usage detail.
+     * <p>
+     * The file is only replaced once all the usage details are written.
+     *
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @param file the CSV file
+     * @return an observable emitting the number of usage details exported
+     */
+    Observable<Long> exportAsync(DateTime startTime, DateTime endTime, File file);
+}
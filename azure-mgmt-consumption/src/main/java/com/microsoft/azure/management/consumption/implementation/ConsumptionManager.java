@@ -11,12 +11,13 @@ import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.consumption.UsageDetailsReader;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 
 /**
@@ -43,7 +44,7 @@ public final class ConsumptionManager extends Manager<ConsumptionManager, Consum
         return new ConsumptionManager(new RestClient.Builder()
                 .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -86,4 +87,14 @@ public final class ConsumptionManager extends Manager<ConsumptionManager, Consum
             subscriptionId,
             new ConsumptionManagementClientImpl(restClient).withSubscriptionId(subscriptionId));
     }
+
+    /**
+     * Creates a streaming reader of the usage details of the subscription or of another scope.
+     *
+     * @return the usage details reader
+     */
+    @Beta(Beta.SinceVersion.V1_3_0)
+    public UsageDetailsReader newUsageDetailsReader() {
+        return new UsageDetailsReaderImpl(this.inner().usageDetails(), this.subscriptionId());
+    }
 }
@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.consumption.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.consumption.UsageAggregator;
+import com.microsoft.azure.management.consumption.UsageDetailsReader;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation for UsageDetailsReader.
+ */
+@LangDefinition
+class UsageDetailsReaderImpl implements UsageDetailsReader {
+    private static final long DEFAULT_WINDOW_SIZE_IN_MILLISECONDS = TimeUnit.DAYS.toMillis(1);
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final String CSV_HEADER = "usageStart,usageEnd,billingPeriodId,instanceId,instanceName,instanceLocation,"
+            + "meterId,meterName,meterCategory,usageQuantity,billableQuantity,pretaxCost,currency,isEstimated";
+
+    private final UsageDetailsInner client;
+    private String scope;
+    private String expand;
+    private long windowSizeInMilliseconds = DEFAULT_WINDOW_SIZE_IN_MILLISECONDS;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    UsageDetailsReaderImpl(UsageDetailsInner client, String subscriptionId) {
+        this.client = client;
+        this.scope = "/subscriptions/" + subscriptionId;
+    }
+
+    @Override
+    public UsageDetailsReaderImpl withScope(String scope) {
+        this.scope = scope;
+        return this;
+    }
+
+    @Override
+    public UsageDetailsReaderImpl withExpand(String expand) {
+        this.expand = expand;
+        return this;
+    }
+
+    @Override
+    public UsageDetailsReaderImpl withWindowSize(long windowSize, TimeUnit unit) {
+        this.windowSizeInMilliseconds = unit.toMillis(windowSize);
+        if (this.windowSizeInMilliseconds <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        return this;
+    }
+
+    @Override
+    public UsageDetailsReaderImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public Observable<UsageDetailInner> listAsync(DateTime startTime, DateTime endTime) {
+        final UsageDetailsReaderImpl self = this;
+        List<String> filters = new ArrayList<>();
+        DateTime windowStart = startTime.withZone(DateTimeZone.UTC);
+        DateTime end = endTime.withZone(DateTimeZone.UTC);
+        while (windowStart.isBefore(end)) {
+            DateTime windowEnd = windowStart.plus(this.windowSizeInMilliseconds);
+            if (windowEnd.isAfter(end)) {
+                windowEnd = end;
+            }
+            filters.add(String.format("properties/usageEnd ge '%s' and properties/usageEnd lt '%s'", windowStart, windowEnd));
+            windowStart = windowEnd;
+        }
+        return Observable.from(filters)
+                .flatMap(new Func1<String, Observable<UsageDetailInner>>() {
+                    @Override
+                    public Observable<UsageDetailInner> call(String filter) {
+                        // Pages are released as soon as their items are emitted
+                        return self.client.listAsync(self.scope, self.expand, filter, null, null)
+                                .concatMapIterable(new Func1<Page<UsageDetailInner>, List<UsageDetailInner>>() {
+                                    @Override
+                                    public List<UsageDetailInner> call(Page<UsageDetailInner> page) {
+                                        return page.items();
+                                    }
+                                })
+                                .subscribeOn(SdkContext.getRxScheduler());
+                    }
+                }, this.maxConcurrency);
+    }
+
+    @Override
+    public long aggregate(DateTime startTime, DateTime endTime, UsageAggregator... aggregators) {
+        return this.aggregateAsync(startTime, endTime, aggregators).toBlocking().single();
+    }
+
+    @Override
+    public Observable<Long> aggregateAsync(DateTime startTime, DateTime endTime, final UsageAggregator... aggregators) {
+        return this.listAsync(startTime, endTime)
+                .doOnNext(new Action1<UsageDetailInner>() {
+                    @Override
+                    public void call(UsageDetailInner usageDetail) {
+                        for (UsageAggregator aggregator : aggregators) {
+                            aggregator.accumulate(usageDetail);
+                        }
+                    }
+                })
+                .countLong();
+    }
+
+    @Override
+    public Observable<Long> exportAsync(final DateTime startTime, final DateTime endTime, final File file) {
+        final UsageDetailsReaderImpl self = this;
+        return Observable.defer(new Func0<Observable<Long>>() {
+            @Override
+            public Observable<Long> call() {
+                final Path target = file.getAbsoluteFile().toPath();
+                final Path temporary;
+                final Writer writer;
+                try {
+                    temporary = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+                try {
+                    writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    deleteQuietly(temporary);
+                    return Observable.error(e);
+                }
+                // Set once the temporary file is either moved into place or discarded
+                final AtomicBoolean closed = new AtomicBoolean();
+                final Action0 discard = new Action0() {
+                    @Override
+                    public void call() {
+                        if (closed.compareAndSet(false, true)) {
+                            closeQuietly(writer);
+                            deleteQuietly(temporary);
+                        }
+                    }
+                };
+                try {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                } catch (IOException e) {
+                    discard.call();
+                    return Observable.error(e);
+                }
+                return self.listAsync(startTime, endTime)
+                        .doOnNext(new Action1<UsageDetailInner>() {
+                            @Override
+                            public void call(UsageDetailInner usageDetail) {
+                                try {
+                                    writeCsvLine(writer, usageDetail);
+                                } catch (IOException e) {
+                                    throw Exceptions.propagate(e);
+                                }
+                            }
+                        })
+                        .countLong()
+                        .doOnNext(new Action1<Long>() {
+                            @Override
+                            public void call(Long count) {
+                                if (!closed.compareAndSet(false, true)) {
+                                    return;
+                                }
+                                try {
+                                    writer.close();
+                                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                                } catch (IOException e) {
+                                    deleteQuietly(temporary);
+                                    throw Exceptions.propagate(e);
+                                }
+                            }
+                        })
+                        .doOnError(new Action1<Throwable>() {
+                            @Override
+                            public void call(Throwable throwable) {
+                                discard.call();
+                            }
+                        })
+                        // An export cancelled by unsubscribing leaves no temporary file behind either
+                        .doOnUnsubscribe(discard);
+            }
+        });
+    }
+
+    private static void closeQuietly(Writer writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // The content is discarded anyway
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Leave the temporary file behind
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, UsageDetailInner usageDetail) throws IOException {
+        writer.write(csv(usageDetail.usageStart()));
+        writer.write(',');
+        writer.write(csv(usageDetail.usageEnd()));
+        writer.write(',');
+        writer.write(csv(usageDetail.billingPeriodId()));
+        writer.write(',');
+        writer.write(csv(usageDetail.instanceId()));
+        writer.write(',');
+        writer.write(csv(usageDetail.instanceName()));
+        writer.write(',');
+        writer.write(csv(usageDetail.instanceLocation()));
+        writer.write(',');
+        writer.write(csv(usageDetail.meterId()));
+        writer.write(',');
+        writer.write(csv(usageDetail.meterDetails() == null ? null : usageDetail.meterDetails().meterName()));
+        writer.write(',');
+        writer.write(csv(usageDetail.meterDetails() == null ? null : usageDetail.meterDetails().meterCategory()));
+        writer.write(',');
+        writer.write(csv(usageDetail.usageQuantity()));
+        writer.write(',');
+        writer.write(csv(usageDetail.billableQuantity()));
+        writer.write(',');
+        writer.write(csv(usageDetail.pretaxCost()));
+        writer.write(',');
+        writer.write(csv(usageDetail.currency()));
+        writer.write(',');
+        writer.write(csv(usageDetail.isEstimated()));
+        writer.write('\n');
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.consumption;
+
+import com.microsoft.azure.management.consumption.implementation.UsageDetailInner;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+public class UsageCostAggregatorTests {
+    private static final String VM1 = "/subscriptions/sub1/resourceGroups/RG1/providers/Microsoft.Compute/virtualMachines/vm1";
+    private static final String VM2 = "/subscriptions/sub1/resourceGroups/rg2/providers/Microsoft.Compute/virtualMachines/vm2";
+
+    @Test
+    public void canSumCostsAndQuantitiesExactly() throws IOException {
+        UsageCostAggregator byResourceGroup = UsageCostAggregator.byResourceGroup();
+
+        for (int i = 0; i < 10; i++) {
+            byResourceGroup.accumulate(usageDetail(VM1, "0.1", "0.1", "USD"));
+        }
+        byResourceGroup.accumulate(usageDetail(VM2, "2.5", null, "usd"));
+        // Usage details without key are skipped
+        byResourceGroup.accumulate(usageDetail(null, "100", "100", "USD"));
+
+        Assert.assertEquals(2, byResourceGroup.size());
+        int rg1 = byResourceGroup.indexOf("rg1");
+        Assert.assertEquals("rg1", byResourceGroup.key(rg1));
+        Assert.assertEquals(0, new BigDecimal("1").compareTo(byResourceGroup.cost(rg1)));
+        Assert.assertEquals(0, new BigDecimal("1").compareTo(byResourceGroup.quantity(rg1)));
+        Assert.assertEquals(10, byResourceGroup.count(rg1));
+        int rg2 = byResourceGroup.indexOf("rg2");
+        Assert.assertEquals(0, BigDecimal.ZERO.compareTo(byResourceGroup.cost(rg2)));
+        Assert.assertEquals(0, new BigDecimal("2.5").compareTo(byResourceGroup.quantity(rg2)));
+        Assert.assertEquals(-1, byResourceGroup.indexOf("unknown"));
+        Assert.assertEquals(0, new BigDecimal("1").compareTo(byResourceGroup.totalCost()));
+        Assert.assertEquals("USD", byResourceGroup.currency());
+    }
+
+    @Test
+    public void canGrowPastInitialCapacity() throws IOException {
+        UsageCostAggregator byInstanceName = new UsageCostAggregator(new UsageCostAggregator.KeySelector() {
+            @Override
+            public String keyOf(UsageDetailInner usageDetail) {
+                return usageDetail.instanceName();
+            }
+        });
+
+        for (int i = 0; i < 200; i++) {
+            byInstanceName.accumulate(usageDetail("vm" + i, "1", "1", "USD"));
+        }
+        Assert.assertEquals(200, byInstanceName.size());
+        Assert.assertEquals("vm150", byInstanceName.key(byInstanceName.indexOf("vm150")));
+        Assert.assertEquals(0, new BigDecimal("200").compareTo(byInstanceName.totalCost()));
+    }
+
+    @Test
+    public void cannotAggregateMixedCurrencies() throws IOException {
+        UsageCostAggregator byResourceGroup = UsageCostAggregator.byResourceGroup();
+        byResourceGroup.accumulate(usageDetail(VM1, "1", "1", "USD"));
+        try {
+            byResourceGroup.accumulate(usageDetail(VM2, "1", "1", "EUR"));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("EUR"));
+        }
+        // The rejected usage detail is not aggregated
+        Assert.assertEquals(1, byResourceGroup.size());
+        Assert.assertEquals(0, BigDecimal.ONE.compareTo(byResourceGroup.totalCost()));
+    }
+
+    private static UsageDetailInner usageDetail(String instanceId, String quantity, String cost, String currency) throws IOException {
+        StringBuilder json = new StringBuilder("{\"properties\":{\"currency\":\"").append(currency).append('"');
+        if (instanceId != null) {
+            json.append(",\"instanceId\":\"").append(instanceId).append('"')
+                    .append(",\"instanceName\":\"").append(instanceId.substring(instanceId.lastIndexOf('/') + 1)).append('"');
+        }
+        if (quantity != null) {
+            json.append(",\"billableQuantity\":").append(quantity);
+        }
+        if (cost != null) {
+            json.append(",\"pretaxCost\":").append(cost);
+        }
+        return new AzureJacksonAdapter().deserialize(json.append("}}").toString(), UsageDetailInner.class);
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.consumption.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.consumption.UsageCostAggregator;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+import rx.Subscription;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class UsageDetailsReaderTests {
+    private static final DateTime START = new DateTime(2017, 8, 1, 0, 0, DateTimeZone.UTC);
+
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("usage").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        for (File file : directory.listFiles()) {
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertTrue(directory.delete());
+    }
+
+    @Test
+    public void canSplitRangeIntoWindows() {
+        FakeUsageDetails client = new FakeUsageDetails();
+        UsageDetailsReaderImpl reader = new UsageDetailsReaderImpl(client, "sub1").withExpand("properties/meterDetails");
+
+        reader.listAsync(START, START.plusHours(60)).toList().toBlocking().single();
+        Assert.assertEquals(Arrays.asList(
+                "properties/usageEnd ge '2017-08-01T00:00:00.000Z' and properties/usageEnd lt '2017-08-02T00:00:00.000Z'",
+                "properties/usageEnd ge '2017-08-02T00:00:00.000Z' and properties/usageEnd lt '2017-08-03T00:00:00.000Z'",
+                "properties/usageEnd ge '2017-08-03T00:00:00.000Z' and properties/usageEnd lt '2017-08-03T12:00:00.000Z'"),
+                sorted(client.filters));
+        Assert.assertEquals(Collections.nCopies(3, "/subscriptions/sub1|properties/meterDetails"), client.scopes);
+
+        // Times in other zones are converted to UTC, and empty ranges are not listed
+        client.filters.clear();
+        reader.withWindowSize(6, TimeUnit.HOURS)
+                .listAsync(START.withZone(DateTimeZone.forOffsetHours(2)), START.plusHours(6))
+                .toList().toBlocking().single();
+        Assert.assertEquals(Collections.singletonList(
+                "properties/usageEnd ge '2017-08-01T00:00:00.000Z' and properties/usageEnd lt '2017-08-01T06:00:00.000Z'"),
+                client.filters);
+        client.filters.clear();
+        Assert.assertTrue(reader.listAsync(START, START).toList().toBlocking().single().isEmpty());
+        Assert.assertTrue(client.filters.isEmpty());
+    }
+
+    @Test
+    public void canAggregateAllPages() {
+        FakeUsageDetails client = new FakeUsageDetails();
+        UsageCostAggregator byMeter = UsageCostAggregator.byMeter();
+
+        long count = new UsageDetailsReaderImpl(client, "sub1").aggregate(START, START.plusDays(2), byMeter);
+
+        // Two windows of three usage details each
+        Assert.assertEquals(6, count);
+        Assert.assertEquals(1, byMeter.size());
+        Assert.assertEquals(new BigDecimal("0.6"), byMeter.cost(byMeter.indexOf("meter1")));
+        Assert.assertEquals(new BigDecimal("1.8"), byMeter.quantity(byMeter.indexOf("meter1")));
+    }
+
+    @Test
+    public void canExportEscapedCsv() throws IOException {
+        FakeUsageDetails client = new FakeUsageDetails();
+        client.instanceName = "vm \"1\",\nsecond line";
+        File file = new File(directory, "usage.csv");
+
+        long count = new UsageDetailsReaderImpl(client, "sub1").exportAsync(START, START.plusDays(1), file).toBlocking().single();
+
+        Assert.assertEquals(3, count);
+        String csv = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(csv.startsWith("usageStart,usageEnd,billingPeriodId,instanceId,instanceName,"));
+        Assert.assertTrue(csv.contains(",\"vm \"\"1\"\",\nsecond line\",westus,meter1,D2 v2,Virtual Machines,0.3,0.3,0.1,USD,false\n"));
+        Assert.assertEquals(Collections.singletonList(file), Arrays.asList(directory.listFiles()));
+    }
+
+    @Test
+    public void canDiscardFailedExport() throws IOException {
+        FakeUsageDetails client = new FakeUsageDetails();
+        client.failure = new IOException("listing failed");
+        File file = new File(directory, "usage.csv");
+        Files.write(file.toPath(), "previous".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            new UsageDetailsReaderImpl(client, "sub1").exportAsync(START, START.plusDays(1), file).toBlocking().single();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertSame(client.failure, e.getCause());
+        }
+        // The previous export is kept, without temporary file
+        Assert.assertEquals(Collections.singletonList(file), Arrays.asList(directory.listFiles()));
+        Assert.assertEquals("previous", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void canDiscardCancelledExport() {
+        FakeUsageDetails client = new FakeUsageDetails();
+        client.endless = true;
+        File file = new File(directory, "usage.csv");
+
+        Subscription subscription = new UsageDetailsReaderImpl(client, "sub1").exportAsync(START, START.plusDays(1), file).subscribe();
+        Assert.assertEquals(1, directory.listFiles().length);
+        subscription.unsubscribe();
+        Assert.assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyWindows() {
+        new UsageDetailsReaderImpl(new FakeUsageDetails(), "sub1").withWindowSize(0, TimeUnit.HOURS);
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Usage details client answering each listing with two pages holding three usage details.
+     */
+    private static class FakeUsageDetails extends UsageDetailsInner {
+        private final List<String> filters = new CopyOnWriteArrayList<>();
+        private final List<String> scopes = new CopyOnWriteArrayList<>();
+        private String instanceName = "vm1";
+        private IOException failure;
+        private boolean endless;
+
+        FakeUsageDetails() {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+        }
+
+        @Override
+        public Observable<Page<UsageDetailInner>> listAsync(String scope, String expand, String filter, String skiptoken, Integer top) {
+            this.filters.add(filter);
+            this.scopes.add(scope + "|" + expand);
+            if (this.failure != null) {
+                return Observable.error(this.failure);
+            }
+            try {
+                Observable<Page<UsageDetailInner>> pages = Observable.<Page<UsageDetailInner>>just(
+                        new PageImpl<UsageDetailInner>().setItems(Arrays.asList(usageDetail(), usageDetail())),
+                        new PageImpl<UsageDetailInner>().setItems(Collections.singletonList(usageDetail())));
+                return this.endless ? pages.concatWith(Observable.<Page<UsageDetailInner>>never()) : pages;
+            } catch (IOException e) {
+                return Observable.error(e);
+            }
+        }
+
+        private UsageDetailInner usageDetail() throws IOException {
+            return new AzureJacksonAdapter().deserialize("{\"properties\":{\"usageStart\":\"2017-08-01T00:00:00.000Z\","
+                    + "\"usageEnd\":\"2017-08-01T01:00:00.000Z\",\"billingPeriodId\":\"201708\","
+                    + "\"instanceId\":\"/subscriptions/sub1/resourceGroups/rg1/providers/Microsoft.Compute/virtualMachines/vm1\","
+                    + "\"instanceName\":" + new AzureJacksonAdapter().serialize(this.instanceName) + ","
+                    + "\"instanceLocation\":\"westus\",\"meterId\":\"meter1\","
+                    + "\"meterDetails\":{\"meterName\":\"D2 v2\",\"meterCategory\":\"Virtual Machines\"},"
+                    + "\"usageQuantity\":0.3,\"billableQuantity\":0.3,\"pretaxCost\":0.1,\"currency\":\"USD\","
+                    + "\"isEstimated\":false}}", UsageDetailInner.class);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics;
+
+import rx.Observable;
+
+import java.io.File;
+
+/**
+ * A crawler of the U-SQL catalogs of Data Lake Analytics accounts, taking {@link CatalogSnapshot}s.
+ * <p>
+ * The databases are crawled in parallel, and the tables, views and table valued functions of each
+ * database are listed with one listing per database rather than per schema. The databases of the previous
+ * snapshot of the account have their objects listed with their names and versions only, and only the
+ * objects whose version changed are fetched again; databases created since are crawled in full. An object dropped while the catalog is crawled
+ * is left out of the snapshot; any other failure fails the crawl.
+ * <p>
+ * Crawlers are created with {@link com.microsoft.azure.management.datalake.analytics.implementation.CatalogCrawlers}.
+ */
+public interface CatalogCrawler {
+    /**
+     * Specifies the maximum number of concurrent requests of a crawl.
+     *
+     * @param maxConcurrency the maximum number of concurrent requests, defaults to 8
+     * @return the crawler
+     */
+    CatalogCrawler withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Specifies a directory where the snapshots are persisted, so that they survive restarts.
+     *
+     * @param directory the directory
+     * @return the crawler
+     */
+    CatalogCrawler withCacheDirectory(File directory);
+
+    /**
+     * Crawls the catalog of an account.
+     *
+     * @param accountName the Azure Data Lake Analytics account
+     * @return the snapshot of the catalog
+     */
+    CatalogSnapshot crawl(String accountName);
+
+    /**
+     * Crawls the catalog of an account.
+     *
+     * @param accountName the Azure Data Lake Analytics account
+     * @return an observable emitting the snapshot of the catalog
+     */
+    Observable<CatalogSnapshot> crawlAsync(String accountName);
+
+    /**
+     * Gets the last snapshot of the catalog of an account, without contacting the service.
+     *
+     * @param accountName the Azure Data Lake Analytics account
+     * @return the last snapshot taken by this crawler or persisted in the cache directory, or null if there is none
+     */
+    CatalogSnapshot lastSnapshot(String accountName);
+}
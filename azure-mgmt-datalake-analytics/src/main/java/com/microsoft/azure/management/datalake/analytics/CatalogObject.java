@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.management.datalake.analytics.models.CatalogItem;
+import com.microsoft.azure.management.datalake.analytics.models.USqlTableColumn;
+
+import java.util.List;
+
+/**
+ * A table, view, table valued function or procedure of a catalog snapshot.
+ */
+public class CatalogObject extends CatalogItem {
+    /**
+     * the type of the object.
+     */
+    @JsonProperty(value = "type")
+    private CatalogObjectType type;
+
+    /**
+     * the name of the database.
+     */
+    @JsonProperty(value = "databaseName")
+    private String databaseName;
+
+    /**
+     * the name of the schema.
+     */
+    @JsonProperty(value = "schemaName")
+    private String schemaName;
+
+    /**
+     * the name of the object.
+     */
+    @JsonProperty(value = "name")
+    private String name;
+
+    /**
+     * the columns of a table.
+     */
+    @JsonProperty(value = "columnList")
+    private List<USqlTableColumn> columnList;
+
+    /**
+     * the definition of a view, table valued function or procedure.
+     */
+    @JsonProperty(value = "definition")
+    private String definition;
+
+    /**
+     * Get the type value.
+     *
+     * @return the type value
+     */
+    public CatalogObjectType type() {
+        return this.type;
+    }
+
+    /**
+     * Set the type value.
+     *
+     * @param type the type value to set
+     * @return the CatalogObject object itself.
+     */
+    public CatalogObject withType(CatalogObjectType type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * Get the databaseName value.
+     *
+     * @return the databaseName value
+     */
+    public String databaseName() {
+        return this.databaseName;
+    }
+
+    /**
+     * Set the databaseName value.
+     *
+     * @param databaseName the databaseName value to set
+     * @return the CatalogObject object itself.
+     */
+    public CatalogObject withDatabaseName(String databaseName) {
+        this.databaseName = databaseName;
+        return this;
+    }
+
+    /**
+     * Get the schemaName value.
+     *
+     * @return the schemaName value
+     */
+    public String schemaName() {
+        return this.schemaName;
+    }
+
+    /**
+     * Set the schemaName value.
+     *
+     * @param schemaName the schemaName value to set
+     * @return the CatalogObject object itself.
+     */
+    public CatalogObject withSchemaName(String schemaName) {
+        this.schemaName = schemaName;
+        return this;
+    }
+
+    /**
+     * Get the name value.
+     *
+     * @return the name value
+     */
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Set the name value.
+     *
+     * @param name the name value to set
+     * @return the CatalogObject object itself.
+     */
+    public CatalogObject withName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Get the columnList value.
+     *
+     * @return the columnList value
+     */
+    public List<USqlTableColumn> columnList() {
+        return this.columnList;
+    }
+
+    /**
+     * Set the columnList value.
+     *
+     * @param columnList the columnList value to set
+     * @return the CatalogObject object itself.
+     */
+    public CatalogObject withColumnList(List<USqlTableColumn> columnList) {
+        this.columnList = columnList;
+        return this;
+    }
+
+    /**
+     * Get the definition value.
+     *
+     * @return the definition value
+     */
+    public String definition() {
+        return this.definition;
+    }
+
+    /**
+     * Set the definition value.
+     *
+     * @param definition the definition value to set
+     * @return the CatalogObject object itself.
+     */
+    public CatalogObject withDefinition(String definition) {
+        this.definition = definition;
+        return this;
+    }
+}
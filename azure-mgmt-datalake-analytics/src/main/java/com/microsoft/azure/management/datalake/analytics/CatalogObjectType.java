@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Defines values for the types of the objects of a catalog snapshot.
+ */
+public enum CatalogObjectType {
+    /** Enum value Table. */
+    TABLE("Table"),
+
+    /** Enum value View. */
+    VIEW("View"),
+
+    /** Enum value TableValuedFunction. */
+    TABLE_VALUED_FUNCTION("TableValuedFunction"),
+
+    /** Enum value Procedure. */
+    PROCEDURE("Procedure");
+
+    /** The actual serialized value for a CatalogObjectType instance. */
+    private String value;
+
+    CatalogObjectType(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Parses a serialized value to a CatalogObjectType instance.
+     *
+     * @param value the serialized value to parse.
+     * @return the parsed CatalogObjectType object, or null if unable to parse.
+     */
+    @JsonCreator
+    public static CatalogObjectType fromString(String value) {
+        CatalogObjectType[] items = CatalogObjectType.values();
+        for (CatalogObjectType item : items) {
+            if (item.toString().equalsIgnoreCase(value)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return this.value;
+    }
+}
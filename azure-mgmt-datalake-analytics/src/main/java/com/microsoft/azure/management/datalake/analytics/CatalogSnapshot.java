@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics;
+
+import org.joda.time.DateTime;
+
+import java.util.List;
+
+/**
+ * A local copy of the U-SQL catalog of a Data Lake Analytics account, taken by a {@link CatalogCrawler}.
+ * <p>
+ * Names are matched ignoring the case. The lineage is inferred from the definitions of the views,
+ * table valued functions and procedures, by looking up the names they contain in the snapshot.
+ */
+public interface CatalogSnapshot {
+    /**
+     * @return the name of the Data Lake Analytics account
+     */
+    String accountName();
+
+    /**
+     * @return the time the snapshot was taken
+     */
+    DateTime takenTime();
+
+    /**
+     * @return the names of the databases
+     */
+    List<String> databaseNames();
+
+    /**
+     * Lists the schemas of a database.
+     *
+     * @param databaseName the name of the database
+     * @return the names of the schemas
+     */
+    List<String> schemaNames(String databaseName);
+
+    /**
+     * Lists the objects of a schema.
+     *
+     * @param databaseName the name of the database
+     * @param schemaName the name of the schema
+     * @return the tables, views, table valued functions and procedures of the schema
+     */
+    List<CatalogObject> listObjects(String databaseName, String schemaName);
+
+    /**
+     * Gets an object of the catalog.
+     *
+     * @param databaseName the name of the database
+     * @param schemaName the name of the schema
+     * @param name the name of the object
+     * @return the object, or null if there is none with that name
+     */
+    CatalogObject getObject(String databaseName, String schemaName, String name);
+
+    /**
+     * Lists the objects an object is derived from.
+     *
+     * @param databaseName the name of the database
+     * @param schemaName the name of the schema
+     * @param name the name of the object
+     * @return the objects referenced by the definition of the object
+     */
+    List<CatalogObject> listDependencies(String databaseName, String schemaName, String name);
+
+    /**
+     * Lists the objects derived from an object.
+     *
+     * @param databaseName the name of the database
+     * @param schemaName the name of the schema
+     * @param name the name of the object
+     * @return the objects whose definition references the object
+     */
+    List<CatalogObject> listDependents(String databaseName, String schemaName, String name);
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics;
+
+import com.microsoft.azure.management.datalake.analytics.models.JobInformation;
+import org.joda.time.DateTime;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming access to the history of the jobs of Data Lake Analytics accounts.
+ * <p>
+ * A time range is split into windows of submission time, which are listed in parallel using a
+ * server side filter. Only the job properties needed for accounting are requested, and jobs are
+ * streamed page by page rather than collected, so the memory used does not depend on the number
+ * of jobs.
+ * <p>
+ * Job histories are created with {@link com.microsoft.azure.management.datalake.analytics.implementation.JobHistories};
+ * their settings apply to the calls made after they are changed.
+ */
+public interface JobHistory {
+    /**
+     * Specifies the length of the windows the time range is split into.
+     *
+     * @param windowSize the length of a window, defaults to one day
+     * @param unit the time unit of the window length
+     * @return the job history
+     */
+    JobHistory withWindowSize(long windowSize, TimeUnit unit);
+
+    /**
+     * Specifies the maximum number of windows listed concurrently.
+     *
+     * @param maxConcurrency the maximum number of concurrent listings, defaults to 4
+     * @return the job history
+     */
+    JobHistory withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Lists the jobs submitted in a time range.
+     * <p>
+     * The jobs only have their ID, name, type, submitter, degree of parallelism, submission, start
+     * and end times, state and result. They are emitted in no particular order.
+     *
+     * @param accountName the Azure Data Lake Analytics account
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @return an observable emitting the jobs
+     */
+    Observable<JobInformation> listAsync(String accountName, DateTime startTime, DateTime endTime);
+
+    /**
+     * Aggregates the usage of the jobs submitted in a time range.
+     *
+     * @param accountName the Azure Data Lake Analytics account
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @return the usage report
+     */
+    JobUsageReport aggregateUsage(String accountName, DateTime startTime, DateTime endTime);
+
+    /**
+     * Aggregates the usage of the jobs submitted in a time range.
+     *
+     * @param accountName the Azure Data Lake Analytics account
+     * @param startTime the start of the time range, inclusive
+     * @param endTime the end of the time range, exclusive
+     * @return an observable emitting the usage report
+     */
+    Observable<JobUsageReport> aggregateUsageAsync(String accountName, DateTime startTime, DateTime endTime);
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics;
+
+import com.microsoft.azure.management.datalake.analytics.models.JobResult;
+import com.microsoft.azure.management.datalake.analytics.models.JobType;
+
+/**
+ * The usage of the jobs of a Data Lake Analytics account, grouped by submitter, job type and result.
+ * <p>
+ * The usage is measured in AU-seconds, the degree of parallelism of a job multiplied by its running
+ * time; jobs still running are accounted up to the time they were aggregated. Groups are indexed from
+ * 0 to {@link #size()} - 1.
+ */
+public interface JobUsageReport {
+    /**
+     * @return the number of groups
+     */
+    int size();
+
+    /**
+     * Gets the submitter of the jobs of a group.
+     *
+     * @param group the index of the group
+     * @return the submitter
+     */
+    String submitter(int group);
+
+    /**
+     * Gets the type of the jobs of a group.
+     *
+     * @param group the index of the group
+     * @return the job type
+     */
+    JobType jobType(int group);
+
+    /**
+     * Gets the result of the jobs of a group.
+     *
+     * @param group the index of the group
+     * @return the job result, or null for the jobs that did not complete
+     */
+    JobResult result(int group);
+
+    /**
+     * Gets the number of jobs of a group.
+     *
+     * @param group the index of the group
+     * @return the number of jobs
+     */
+    long jobCount(int group);
+
+    /**
+     * Gets the usage of the jobs of a group.
+     *
+     * @param group the index of the group
+     * @return the usage in AU-seconds
+     */
+    double auSeconds(int group);
+
+    /**
+     * @return the total number of jobs
+     */
+    long totalJobCount();
+
+    /**
+     * @return the total usage in AU-seconds
+     */
+    double totalAuSeconds();
+}
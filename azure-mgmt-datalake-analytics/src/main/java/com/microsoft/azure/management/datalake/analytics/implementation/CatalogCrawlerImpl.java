@@ -0,0 +1,517 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.datalake.analytics.CatalogCrawler;
+import com.microsoft.azure.management.datalake.analytics.CatalogObject;
+import com.microsoft.azure.management.datalake.analytics.CatalogObjectType;
+import com.microsoft.azure.management.datalake.analytics.CatalogSnapshot;
+import com.microsoft.azure.management.datalake.analytics.Catalogs;
+import com.microsoft.azure.management.datalake.analytics.models.USqlDatabase;
+import com.microsoft.azure.management.datalake.analytics.models.USqlProcedure;
+import com.microsoft.azure.management.datalake.analytics.models.USqlSchema;
+import com.microsoft.azure.management.datalake.analytics.models.USqlTable;
+import com.microsoft.azure.management.datalake.analytics.models.USqlTableValuedFunction;
+import com.microsoft.azure.management.datalake.analytics.models.USqlView;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.joda.time.DateTime;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Implementation of the CatalogCrawler interface.
+ */
+class CatalogCrawlerImpl implements CatalogCrawler {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int FORMAT_VERSION = 1;
+    // Projections used to compare the listed objects with the previous snapshot
+    private static final String TABLE_SELECT = "databaseName,schemaName,tableName,version";
+    private static final String VIEW_SELECT = "databaseName,schemaName,viewName,version";
+    private static final String TABLE_VALUED_FUNCTION_SELECT = "databaseName,schemaName,tvfName,version";
+    private static final String PROCEDURE_SELECT = "databaseName,schemaName,procName,version";
+
+    private final Catalogs catalogs;
+    // Snapshots keyed by lower case account name
+    private final ConcurrentMap<String, CatalogSnapshotImpl> snapshots = new ConcurrentHashMap<>();
+    private volatile File cacheDirectory;
+    private volatile int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    CatalogCrawlerImpl(Catalogs catalogs) {
+        this.catalogs = catalogs;
+    }
+
+    @Override
+    public CatalogCrawlerImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public CatalogCrawlerImpl withCacheDirectory(File directory) {
+        this.cacheDirectory = directory;
+        return this;
+    }
+
+    @Override
+    public CatalogSnapshot crawl(String accountName) {
+        return this.crawlAsync(accountName).toBlocking().single();
+    }
+
+    @Override
+    public Observable<CatalogSnapshot> crawlAsync(final String accountName) {
+        final CatalogCrawlerImpl self = this;
+        return Observable.defer(new Func0<Observable<CatalogSnapshot>>() {
+            @Override
+            public Observable<CatalogSnapshot> call() {
+                final CatalogSnapshotImpl previous = self.loadSnapshot(accountName);
+                final DateTime takenTime = DateTime.now();
+                // The crawl runs in phases, each one starting when the previous one completes, so that the
+                // requests in flight are bounded by maxConcurrency for the whole crawl rather than per level
+                return self.listSchemaNamesAsync(accountName)
+                        .flatMap(new Func1<Map<String, List<String>>, Observable<CatalogSnapshot>>() {
+                            @Override
+                            public Observable<CatalogSnapshot> call(final Map<String, List<String>> schemaNames) {
+                                return self.listObjectsAsync(accountName, schemaNames, previous)
+                                        .toList()
+                                        .concatMapIterable(new Func1<List<CatalogObject>, Iterable<CatalogObject>>() {
+                                            @Override
+                                            public Iterable<CatalogObject> call(List<CatalogObject> objects) {
+                                                return objects;
+                                            }
+                                        })
+                                        .flatMap(new Func1<CatalogObject, Observable<CatalogObject>>() {
+                                            @Override
+                                            public Observable<CatalogObject> call(CatalogObject listed) {
+                                                if (!crawledBefore(previous, listed.databaseName())) {
+                                                    return Observable.just(listed);
+                                                }
+                                                return self.refreshObjectAsync(accountName, listed, previous);
+                                            }
+                                        }, self.maxConcurrency)
+                                        .toSortedList(new Func2<CatalogObject, CatalogObject, Integer>() {
+                                            @Override
+                                            public Integer call(CatalogObject object1, CatalogObject object2) {
+                                                return CatalogSnapshotImpl.key(object1.databaseName(), object1.schemaName(), object1.name())
+                                                        .compareTo(CatalogSnapshotImpl.key(object2.databaseName(), object2.schemaName(), object2.name()));
+                                            }
+                                        })
+                                        .map(new Func1<List<CatalogObject>, CatalogSnapshot>() {
+                                            @Override
+                                            public CatalogSnapshot call(List<CatalogObject> objects) {
+                                                CatalogSnapshotImpl snapshot = new CatalogSnapshotImpl(accountName, takenTime, schemaNames, objects);
+                                                self.snapshots.put(CatalogSnapshotImpl.key(accountName), snapshot);
+                                                try {
+                                                    self.saveSnapshot(snapshot);
+                                                } catch (IOException e) {
+                                                    throw Exceptions.propagate(e);
+                                                }
+                                                return snapshot;
+                                            }
+                                        });
+                            }
+                        });
+            }
+        });
+    }
+
+    @Override
+    public CatalogSnapshot lastSnapshot(String accountName) {
+        return this.loadSnapshot(accountName);
+    }
+
+    /**
+     * Lists the databases of an account, then the schemas of the databases.
+     *
+     * @return an observable emitting the names of the schemas keyed by database, ordered by database name
+     */
+    private Observable<Map<String, List<String>>> listSchemaNamesAsync(final String accountName) {
+        final CatalogCrawlerImpl self = this;
+        return this.catalogs.listDatabasesAsync(accountName)
+                .concatMapIterable(new Func1<Page<USqlDatabase>, Iterable<String>>() {
+                    @Override
+                    public Iterable<String> call(Page<USqlDatabase> page) {
+                        List<String> names = new ArrayList<>();
+                        for (USqlDatabase database : items(page)) {
+                            names.add(database.name());
+                        }
+                        return names;
+                    }
+                })
+                .toList()
+                .concatMapIterable(new Func1<List<String>, Iterable<String>>() {
+                    @Override
+                    public Iterable<String> call(List<String> names) {
+                        return names;
+                    }
+                })
+                .flatMap(new Func1<String, Observable<DatabaseSchemas>>() {
+                    @Override
+                    public Observable<DatabaseSchemas> call(final String databaseName) {
+                        return self.catalogs.listSchemasAsync(accountName, databaseName)
+                                .concatMapIterable(new Func1<Page<USqlSchema>, Iterable<String>>() {
+                                    @Override
+                                    public Iterable<String> call(Page<USqlSchema> page) {
+                                        List<String> names = new ArrayList<>();
+                                        for (USqlSchema schema : items(page)) {
+                                            names.add(schema.name());
+                                        }
+                                        return names;
+                                    }
+                                })
+                                .toList()
+                                .map(new Func1<List<String>, DatabaseSchemas>() {
+                                    @Override
+                                    public DatabaseSchemas call(List<String> schemaNames) {
+                                        return new DatabaseSchemas(databaseName, schemaNames);
+                                    }
+                                })
+                                .subscribeOn(SdkContext.getRxScheduler());
+                    }
+                }, this.maxConcurrency)
+                .toSortedList(new Func2<DatabaseSchemas, DatabaseSchemas, Integer>() {
+                    @Override
+                    public Integer call(DatabaseSchemas schemas1, DatabaseSchemas schemas2) {
+                        return schemas1.databaseName.compareToIgnoreCase(schemas2.databaseName);
+                    }
+                })
+                .map(new Func1<List<DatabaseSchemas>, Map<String, List<String>>>() {
+                    @Override
+                    public Map<String, List<String>> call(List<DatabaseSchemas> databases) {
+                        Map<String, List<String>> schemaNames = new LinkedHashMap<>();
+                        for (DatabaseSchemas database : databases) {
+                            schemaNames.put(database.databaseName, database.schemaNames);
+                        }
+                        return schemaNames;
+                    }
+                });
+    }
+
+    /**
+     * Lists the objects of the databases of an account. The objects of the databases of the previous snapshot
+     * are listed with their names and versions only.
+     *
+     * @return an observable emitting the objects listed
+     */
+    private Observable<CatalogObject> listObjectsAsync(String accountName,
+                                                       Map<String, List<String>> schemaNames,
+                                                       CatalogSnapshotImpl previous) {
+        List<Observable<CatalogObject>> listings = new ArrayList<>();
+        for (Map.Entry<String, List<String>> database : schemaNames.entrySet()) {
+            String databaseName = database.getKey();
+            boolean incremental = crawledBefore(previous, databaseName);
+            listings.add(this.catalogs.listTablesByDatabaseAsync(accountName, databaseName,
+                    null, null, null, incremental ? TABLE_SELECT : null, null, null)
+                    .concatMapIterable(new Func1<Page<USqlTable>, Iterable<CatalogObject>>() {
+                        @Override
+                        public Iterable<CatalogObject> call(Page<USqlTable> page) {
+                            List<CatalogObject> objects = new ArrayList<>();
+                            for (USqlTable table : items(page)) {
+                                objects.add(fromTable(table));
+                            }
+                            return objects;
+                        }
+                    })
+                    .subscribeOn(SdkContext.getRxScheduler()));
+            listings.add(this.catalogs.listViewsByDatabaseAsync(accountName, databaseName,
+                    null, null, null, incremental ? VIEW_SELECT : null, null, null)
+                    .concatMapIterable(new Func1<Page<USqlView>, Iterable<CatalogObject>>() {
+                        @Override
+                        public Iterable<CatalogObject> call(Page<USqlView> page) {
+                            List<CatalogObject> objects = new ArrayList<>();
+                            for (USqlView view : items(page)) {
+                                objects.add(fromView(view));
+                            }
+                            return objects;
+                        }
+                    })
+                    .subscribeOn(SdkContext.getRxScheduler()));
+            listings.add(this.catalogs.listTableValuedFunctionsByDatabaseAsync(accountName, databaseName,
+                    null, null, null, incremental ? TABLE_VALUED_FUNCTION_SELECT : null, null, null)
+                    .concatMapIterable(new Func1<Page<USqlTableValuedFunction>, Iterable<CatalogObject>>() {
+                        @Override
+                        public Iterable<CatalogObject> call(Page<USqlTableValuedFunction> page) {
+                            List<CatalogObject> objects = new ArrayList<>();
+                            for (USqlTableValuedFunction function : items(page)) {
+                                objects.add(fromTableValuedFunction(function));
+                            }
+                            return objects;
+                        }
+                    })
+                    .subscribeOn(SdkContext.getRxScheduler()));
+            // Procedures can only be listed per schema, the other objects are listed for the whole database
+            for (String schemaName : database.getValue()) {
+                listings.add(this.catalogs.listProceduresAsync(accountName, databaseName, schemaName,
+                        null, null, null, incremental ? PROCEDURE_SELECT : null, null, null)
+                        .concatMapIterable(new Func1<Page<USqlProcedure>, Iterable<CatalogObject>>() {
+                            @Override
+                            public Iterable<CatalogObject> call(Page<USqlProcedure> page) {
+                                List<CatalogObject> objects = new ArrayList<>();
+                                for (USqlProcedure procedure : items(page)) {
+                                    objects.add(fromProcedure(procedure));
+                                }
+                                return objects;
+                            }
+                        })
+                        .subscribeOn(SdkContext.getRxScheduler()));
+            }
+        }
+        return Observable.merge(Observable.from(listings), this.maxConcurrency);
+    }
+
+    /**
+     * Checks whether a database can be crawled incrementally, that is whether the previous snapshot has its objects.
+     */
+    private static boolean crawledBefore(CatalogSnapshotImpl previous, String databaseName) {
+        return previous != null && previous.containsDatabase(databaseName);
+    }
+
+    /**
+     * Resolves an object listed with its names and version only, reusing the object of the previous
+     * snapshot if its version did not change.
+     *
+     * @return an observable emitting the object, or nothing if it no longer exists
+     */
+    private Observable<CatalogObject> refreshObjectAsync(String accountName, CatalogObject listed, CatalogSnapshotImpl previous) {
+        CatalogObject cached = previous.getObject(listed.databaseName(), listed.schemaName(), listed.name());
+        if (cached != null
+                && cached.type() == listed.type()
+                && cached.version() != null
+                && cached.version().equals(listed.version())) {
+            return Observable.just(cached);
+        }
+        Observable<CatalogObject> object;
+        switch (listed.type()) {
+            case TABLE:
+                object = this.catalogs.getTableAsync(accountName, listed.databaseName(), listed.schemaName(), listed.name())
+                        .map(new Func1<USqlTable, CatalogObject>() {
+                            @Override
+                            public CatalogObject call(USqlTable table) {
+                                return fromTable(table);
+                            }
+                        });
+                break;
+            case VIEW:
+                object = this.catalogs.getViewAsync(accountName, listed.databaseName(), listed.schemaName(), listed.name())
+                        .map(new Func1<USqlView, CatalogObject>() {
+                            @Override
+                            public CatalogObject call(USqlView view) {
+                                return fromView(view);
+                            }
+                        });
+                break;
+            case TABLE_VALUED_FUNCTION:
+                object = this.catalogs.getTableValuedFunctionAsync(accountName, listed.databaseName(), listed.schemaName(), listed.name())
+                        .map(new Func1<USqlTableValuedFunction, CatalogObject>() {
+                            @Override
+                            public CatalogObject call(USqlTableValuedFunction function) {
+                                return fromTableValuedFunction(function);
+                            }
+                        });
+                break;
+            default:
+                object = this.catalogs.getProcedureAsync(accountName, listed.databaseName(), listed.schemaName(), listed.name())
+                        .map(new Func1<USqlProcedure, CatalogObject>() {
+                            @Override
+                            public CatalogObject call(USqlProcedure procedure) {
+                                return fromProcedure(procedure);
+                            }
+                        });
+                break;
+        }
+        return object
+                .onErrorResumeNext(new Func1<Throwable, Observable<CatalogObject>>() {
+                    @Override
+                    public Observable<CatalogObject> call(Throwable throwable) {
+                        // An object dropped since it was listed is left out of the snapshot; other failures fail the crawl
+                        if (throwable instanceof CloudException
+                                && ((CloudException) throwable).response() != null
+                                && ((CloudException) throwable).response().code() == 404) {
+                            return Observable.empty();
+                        }
+                        return Observable.error(throwable);
+                    }
+                })
+                .subscribeOn(SdkContext.getRxScheduler());
+    }
+
+    private CatalogSnapshotImpl loadSnapshot(String accountName) {
+        String key = CatalogSnapshotImpl.key(accountName);
+        CatalogSnapshotImpl snapshot = this.snapshots.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        File file = this.cacheFile(accountName);
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try {
+            snapshot = readSnapshot(file);
+        } catch (IOException e) {
+            // An unreadable cache is crawled again
+            return null;
+        }
+        CatalogSnapshotImpl existing = this.snapshots.putIfAbsent(key, snapshot);
+        return existing == null ? snapshot : existing;
+    }
+
+    private void saveSnapshot(CatalogSnapshotImpl snapshot) throws IOException {
+        File file = this.cacheFile(snapshot.accountName());
+        if (file == null) {
+            return;
+        }
+        SnapshotFile content = new SnapshotFile();
+        content.version = FORMAT_VERSION;
+        content.accountName = snapshot.accountName();
+        content.takenTime = snapshot.takenTime().getMillis();
+        content.schemaNames = snapshot.schemaNamesByDatabase();
+        content.objects = snapshot.objects();
+        // Write aside and move, so that a concurrent reader never sees a partial file
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            OutputStream output = new GZIPOutputStream(new FileOutputStream(temp));
+            try {
+                ObjectMapperRegistry.writer().writeValue(output, content);
+            } finally {
+                output.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static CatalogSnapshotImpl readSnapshot(File file) throws IOException {
+        SnapshotFile content;
+        InputStream input = new GZIPInputStream(new FileInputStream(file));
+        try {
+            content = ObjectMapperRegistry.readerFor(SnapshotFile.class).readValue(input);
+        } finally {
+            input.close();
+        }
+        if (content.version != FORMAT_VERSION || content.schemaNames == null || content.objects == null) {
+            throw new IOException("Unsupported catalog snapshot format in " + file);
+        }
+        return new CatalogSnapshotImpl(content.accountName, new DateTime(content.takenTime), content.schemaNames, content.objects);
+    }
+
+    private File cacheFile(String accountName) {
+        File directory = this.cacheDirectory;
+        if (directory == null) {
+            return null;
+        }
+        return new File(directory, "usql-catalog-" + CatalogSnapshotImpl.key(accountName) + ".json.gz");
+    }
+
+    private static <T> List<T> items(Page<T> page) {
+        return page.items() == null ? Collections.<T>emptyList() : page.items();
+    }
+
+    private static CatalogObject fromTable(USqlTable table) {
+        CatalogObject object = new CatalogObject()
+                .withType(CatalogObjectType.TABLE)
+                .withDatabaseName(table.databaseName())
+                .withSchemaName(table.schemaName())
+                .withName(table.name())
+                .withColumnList(table.columnList());
+        object.withVersion(table.version());
+        return object;
+    }
+
+    private static CatalogObject fromView(USqlView view) {
+        CatalogObject object = new CatalogObject()
+                .withType(CatalogObjectType.VIEW)
+                .withDatabaseName(view.databaseName())
+                .withSchemaName(view.schemaName())
+                .withName(view.name())
+                .withDefinition(view.definition());
+        object.withVersion(view.version());
+        return object;
+    }
+
+    private static CatalogObject fromTableValuedFunction(USqlTableValuedFunction function) {
+        CatalogObject object = new CatalogObject()
+                .withType(CatalogObjectType.TABLE_VALUED_FUNCTION)
+                .withDatabaseName(function.databaseName())
+                .withSchemaName(function.schemaName())
+                .withName(function.name())
+                .withDefinition(function.definition());
+        object.withVersion(function.version());
+        return object;
+    }
+
+    private static CatalogObject fromProcedure(USqlProcedure procedure) {
+        CatalogObject object = new CatalogObject()
+                .withType(CatalogObjectType.PROCEDURE)
+                .withDatabaseName(procedure.databaseName())
+                .withSchemaName(procedure.schemaName())
+                .withName(procedure.name())
+                .withDefinition(procedure.definition());
+        object.withVersion(procedure.version());
+        return object;
+    }
+
+    /**
+     * The schemas of a database.
+     */
+    private static final class DatabaseSchemas {
+        private final String databaseName;
+        private final List<String> schemaNames;
+
+        DatabaseSchemas(String databaseName, List<String> schemaNames) {
+            this.databaseName = databaseName;
+            this.schemaNames = schemaNames;
+        }
+    }
+
+    /**
+     * The content of a snapshot file.
+     */
+    private static final class SnapshotFile {
+        @JsonProperty("version")
+        private int version;
+
+        @JsonProperty("accountName")
+        private String accountName;
+
+        @JsonProperty("takenTime")
+        private long takenTime;
+
+        @JsonProperty("schemaNames")
+        private Map<String, List<String>> schemaNames;
+
+        @JsonProperty("objects")
+        private List<CatalogObject> objects;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.CatalogCrawler;
+import com.microsoft.azure.management.datalake.analytics.DataLakeAnalyticsCatalogManagementClient;
+
+/**
+ * Entry point creating {@link CatalogCrawler}s on top of a catalog client.
+ */
+public final class CatalogCrawlers {
+    private CatalogCrawlers() {
+    }
+
+    /**
+     * Creates a crawler of the catalogs reachable through a client.
+     * <p>
+     * Each crawler has its own settings and keeps its own snapshots, so crawlers can be configured
+     * independently even when they share a client.
+     *
+     * @param client the catalog client
+     * @return the crawler
+     */
+    public static CatalogCrawler newCatalogCrawler(DataLakeAnalyticsCatalogManagementClient client) {
+        return new CatalogCrawlerImpl(client.catalogs());
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.CatalogObject;
+import com.microsoft.azure.management.datalake.analytics.CatalogSnapshot;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Implementation of the CatalogSnapshot interface.
+ * <p>
+ * The snapshot is immutable; all the lookups, including the lineage, are answered from indexes
+ * built when the snapshot is created.
+ */
+class CatalogSnapshotImpl implements CatalogSnapshot {
+    private static final String DEFAULT_SCHEMA = "dbo";
+    private static final String PART = "\\[[^\\]]+\\]|[A-Za-z_][A-Za-z0-9_]*";
+    private static final Pattern PART_PATTERN = Pattern.compile(PART);
+    private static final Pattern NAME_PATTERN = Pattern.compile("(?:" + PART + ")(?:\\s*\\.\\s*(?:" + PART + ")){0,2}");
+
+    private final String accountName;
+    private final DateTime takenTime;
+    private final Map<String, List<String>> schemaNames;
+    private final List<CatalogObject> objects;
+    private final List<String> databaseNames = new ArrayList<>();
+    private final Map<String, List<String>> schemaIndex = new HashMap<>();
+    private final Map<String, List<CatalogObject>> objectsBySchema = new HashMap<>();
+    private final Map<String, CatalogObject> objectsByName = new HashMap<>();
+    private final Map<String, List<CatalogObject>> dependencies = new HashMap<>();
+    private final Map<String, List<CatalogObject>> dependents = new HashMap<>();
+
+    CatalogSnapshotImpl(String accountName, DateTime takenTime, Map<String, List<String>> schemaNames, List<CatalogObject> objects) {
+        this.accountName = accountName;
+        this.takenTime = takenTime;
+        this.schemaNames = schemaNames;
+        this.objects = objects;
+        for (Map.Entry<String, List<String>> entry : schemaNames.entrySet()) {
+            this.databaseNames.add(entry.getKey());
+            this.schemaIndex.put(key(entry.getKey()), Collections.unmodifiableList(entry.getValue()));
+        }
+        for (CatalogObject object : objects) {
+            String schemaKey = key(object.databaseName(), object.schemaName());
+            List<CatalogObject> schemaObjects = this.objectsBySchema.get(schemaKey);
+            if (schemaObjects == null) {
+                schemaObjects = new ArrayList<>();
+                this.objectsBySchema.put(schemaKey, schemaObjects);
+            }
+            schemaObjects.add(object);
+            String objectKey = key(object.databaseName(), object.schemaName(), object.name());
+            if (!this.objectsByName.containsKey(objectKey)) {
+                this.objectsByName.put(objectKey, object);
+            }
+        }
+        for (CatalogObject object : objects) {
+            if (object.definition() == null) {
+                continue;
+            }
+            Set<CatalogObject> references = new LinkedHashSet<>();
+            Matcher matcher = NAME_PATTERN.matcher(object.definition());
+            while (matcher.find()) {
+                CatalogObject reference = this.resolve(object, matcher.group());
+                if (reference != null && reference != object) {
+                    references.add(reference);
+                }
+            }
+            String objectKey = key(object.databaseName(), object.schemaName(), object.name());
+            this.dependencies.put(objectKey, new ArrayList<>(references));
+            for (CatalogObject reference : references) {
+                String referenceKey = key(reference.databaseName(), reference.schemaName(), reference.name());
+                List<CatalogObject> referenceDependents = this.dependents.get(referenceKey);
+                if (referenceDependents == null) {
+                    referenceDependents = new ArrayList<>();
+                    this.dependents.put(referenceKey, referenceDependents);
+                }
+                referenceDependents.add(object);
+            }
+        }
+    }
+
+    @Override
+    public String accountName() {
+        return this.accountName;
+    }
+
+    @Override
+    public DateTime takenTime() {
+        return this.takenTime;
+    }
+
+    @Override
+    public List<String> databaseNames() {
+        return Collections.unmodifiableList(this.databaseNames);
+    }
+
+    @Override
+    public List<String> schemaNames(String databaseName) {
+        return nonNull(this.schemaIndex.get(key(databaseName)));
+    }
+
+    @Override
+    public List<CatalogObject> listObjects(String databaseName, String schemaName) {
+        return nonNull(this.objectsBySchema.get(key(databaseName, schemaName)));
+    }
+
+    @Override
+    public CatalogObject getObject(String databaseName, String schemaName, String name) {
+        return this.objectsByName.get(key(databaseName, schemaName, name));
+    }
+
+    @Override
+    public List<CatalogObject> listDependencies(String databaseName, String schemaName, String name) {
+        return nonNull(this.dependencies.get(key(databaseName, schemaName, name)));
+    }
+
+    @Override
+    public List<CatalogObject> listDependents(String databaseName, String schemaName, String name) {
+        return nonNull(this.dependents.get(key(databaseName, schemaName, name)));
+    }
+
+    /**
+     * @param databaseName the name of a database
+     * @return whether the database was crawled when the snapshot was taken, even if it has no objects
+     */
+    boolean containsDatabase(String databaseName) {
+        return this.schemaIndex.containsKey(key(databaseName));
+    }
+
+    Map<String, List<String>> schemaNamesByDatabase() {
+        return this.schemaNames;
+    }
+
+    List<CatalogObject> objects() {
+        return this.objects;
+    }
+
+    /**
+     * Resolves a one, two or three part name found in the definition of an object, the way U-SQL resolves
+     * names relative to the database and schema of the object.
+     *
+     * @param context the object whose definition contains the name
+     * @param qualifiedName the name, whose parts may be bracketed
+     * @return the object named, or null if it is not in the snapshot
+     */
+    private CatalogObject resolve(CatalogObject context, String qualifiedName) {
+        List<String> parts = new ArrayList<>(3);
+        Matcher matcher = PART_PATTERN.matcher(qualifiedName);
+        while (matcher.find()) {
+            String part = matcher.group();
+            parts.add(part.startsWith("[") ? part.substring(1, part.length() - 1) : part);
+        }
+        CatalogObject object;
+        switch (parts.size()) {
+            case 3:
+                return this.getObject(parts.get(0), parts.get(1), parts.get(2));
+            case 2:
+                object = this.getObject(context.databaseName(), parts.get(0), parts.get(1));
+                return object != null ? object : this.getObject(parts.get(0), DEFAULT_SCHEMA, parts.get(1));
+            default:
+                object = this.getObject(context.databaseName(), context.schemaName(), parts.get(0));
+                return object != null ? object : this.getObject(context.databaseName(), DEFAULT_SCHEMA, parts.get(0));
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : Collections.unmodifiableList(list);
+    }
+
+    static String key(String... names) {
+        StringBuilder key = new StringBuilder();
+        for (String name : names) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(name == null ? "" : name.toLowerCase(Locale.ROOT));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.DataLakeAnalyticsJobManagementClient;
+import com.microsoft.azure.management.datalake.analytics.JobHistory;
+
+/**
+ * Entry point creating {@link JobHistory} instances on top of a job client.
+ */
+public final class JobHistories {
+    private JobHistories() {
+    }
+
+    /**
+     * Creates a job history reading the jobs through a client.
+     * <p>
+     * Each job history has its own window size and concurrency, so callers sharing a client
+     * can configure their job histories independently.
+     *
+     * @param client the job client
+     * @return the job history
+     */
+    public static JobHistory newJobHistory(DataLakeAnalyticsJobManagementClient client) {
+        return new JobHistoryImpl(client.jobs());
+    }
+}
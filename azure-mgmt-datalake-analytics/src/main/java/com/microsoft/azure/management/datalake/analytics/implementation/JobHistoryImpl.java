@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.datalake.analytics.JobHistory;
+import com.microsoft.azure.management.datalake.analytics.JobUsageReport;
+import com.microsoft.azure.management.datalake.analytics.Jobs;
+import com.microsoft.azure.management.datalake.analytics.models.JobInformation;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import rx.Observable;
+import rx.functions.Action2;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the JobHistory interface.
+ */
+class JobHistoryImpl implements JobHistory {
+    private static final long DEFAULT_WINDOW_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final String SELECT = "jobId,name,type,submitter,degreeOfParallelism,submitTime,startTime,endTime,state,result";
+
+    private final Jobs jobs;
+    private volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private volatile int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    JobHistoryImpl(Jobs jobs) {
+        this.jobs = jobs;
+    }
+
+    @Override
+    public JobHistoryImpl withWindowSize(long windowSize, TimeUnit unit) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.windowMillis = unit.toMillis(windowSize);
+        return this;
+    }
+
+    @Override
+    public JobHistoryImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public Observable<JobInformation> listAsync(final String accountName, DateTime startTime, DateTime endTime) {
+        final JobHistoryImpl self = this;
+        List<String> filters = new ArrayList<>();
+        for (long start = startTime.getMillis(); start < endTime.getMillis(); start += this.windowMillis) {
+            long end = Math.min(start + this.windowMillis, endTime.getMillis());
+            filters.add("submitTime ge datetimeoffset'" + new DateTime(start, DateTimeZone.UTC)
+                    + "' and submitTime lt datetimeoffset'" + new DateTime(end, DateTimeZone.UTC) + "'");
+        }
+        return Observable.from(filters)
+                .flatMap(new Func1<String, Observable<JobInformation>>() {
+                    @Override
+                    public Observable<JobInformation> call(String filter) {
+                        return self.jobs.listAsync(accountName, filter, null, null, SELECT, null, null)
+                                .concatMapIterable(new Func1<Page<JobInformation>, Iterable<JobInformation>>() {
+                                    @Override
+                                    public Iterable<JobInformation> call(Page<JobInformation> page) {
+                                        List<JobInformation> items = page.items();
+                                        return items == null ? Collections.<JobInformation>emptyList() : items;
+                                    }
+                                })
+                                .subscribeOn(SdkContext.getRxScheduler());
+                    }
+                }, this.maxConcurrency);
+    }
+
+    @Override
+    public JobUsageReport aggregateUsage(String accountName, DateTime startTime, DateTime endTime) {
+        return this.aggregateUsageAsync(accountName, startTime, endTime).toBlocking().single();
+    }
+
+    @Override
+    public Observable<JobUsageReport> aggregateUsageAsync(String accountName, DateTime startTime, DateTime endTime) {
+        return this.listAsync(accountName, startTime, endTime)
+                .collect(new Func0<JobUsageReportImpl>() {
+                    @Override
+                    public JobUsageReportImpl call() {
+                        return new JobUsageReportImpl(System.currentTimeMillis());
+                    }
+                }, new Action2<JobUsageReportImpl, JobInformation>() {
+                    @Override
+                    public void call(JobUsageReportImpl report, JobInformation job) {
+                        report.add(job);
+                    }
+                })
+                .map(new Func1<JobUsageReportImpl, JobUsageReport>() {
+                    @Override
+                    public JobUsageReport call(JobUsageReportImpl report) {
+                        return report;
+                    }
+                });
+    }
+}
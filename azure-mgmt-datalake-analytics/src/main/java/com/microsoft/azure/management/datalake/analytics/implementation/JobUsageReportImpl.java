@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.JobUsageReport;
+import com.microsoft.azure.management.datalake.analytics.models.JobInformation;
+import com.microsoft.azure.management.datalake.analytics.models.JobResult;
+import com.microsoft.azure.management.datalake.analytics.models.JobType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the JobUsageReport interface, accumulating the jobs as they are listed.
+ * <p>
+ * The counters of the groups are kept in primitive arrays, so accumulating a job allocates nothing
+ * once its group exists.
+ */
+class JobUsageReportImpl implements JobUsageReport {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long now;
+    private final Map<String, Integer> groups = new HashMap<>();
+    private final List<String> submitters = new ArrayList<>();
+    private final List<JobType> jobTypes = new ArrayList<>();
+    private final List<JobResult> results = new ArrayList<>();
+    private long[] jobCounts = new long[INITIAL_CAPACITY];
+    private double[] auSeconds = new double[INITIAL_CAPACITY];
+    private long totalJobCount;
+    private double totalAuSeconds;
+
+    /**
+     * Creates an empty report.
+     *
+     * @param now the time, in milliseconds since the epoch, up to which running jobs are accounted
+     */
+    JobUsageReportImpl(long now) {
+        this.now = now;
+    }
+
+    @Override
+    public int size() {
+        return this.submitters.size();
+    }
+
+    @Override
+    public String submitter(int group) {
+        return this.submitters.get(group);
+    }
+
+    @Override
+    public JobType jobType(int group) {
+        return this.jobTypes.get(group);
+    }
+
+    @Override
+    public JobResult result(int group) {
+        return this.results.get(group);
+    }
+
+    @Override
+    public long jobCount(int group) {
+        checkIndex(group);
+        return this.jobCounts[group];
+    }
+
+    @Override
+    public double auSeconds(int group) {
+        checkIndex(group);
+        return this.auSeconds[group];
+    }
+
+    @Override
+    public long totalJobCount() {
+        return this.totalJobCount;
+    }
+
+    @Override
+    public double totalAuSeconds() {
+        return this.totalAuSeconds;
+    }
+
+    /**
+     * Accounts a job.
+     *
+     * @param job the job
+     */
+    void add(JobInformation job) {
+        double seconds = 0;
+        if (job.startTime() != null && job.degreeOfParallelism() != null) {
+            long end = job.endTime() != null ? job.endTime().getMillis() : this.now;
+            seconds = Math.max(0, end - job.startTime().getMillis()) / 1000.0 * job.degreeOfParallelism();
+        }
+        int group = this.group(job.submitter(), job.type(), job.result());
+        this.jobCounts[group]++;
+        this.auSeconds[group] += seconds;
+        this.totalJobCount++;
+        this.totalAuSeconds += seconds;
+    }
+
+    private int group(String submitter, JobType jobType, JobResult result) {
+        String key = submitter + '\n' + jobType + '\n' + result;
+        Integer group = this.groups.get(key);
+        if (group == null) {
+            group = this.submitters.size();
+            this.groups.put(key, group);
+            this.submitters.add(submitter);
+            this.jobTypes.add(jobType);
+            this.results.add(result);
+            if (group == this.jobCounts.length) {
+                this.jobCounts = Arrays.copyOf(this.jobCounts, group * 2);
+                this.auSeconds = Arrays.copyOf(this.auSeconds, group * 2);
+            }
+        }
+        return group;
+    }
+
+    private void checkIndex(int group) {
+        if (group < 0 || group >= this.size()) {
+            throw new IndexOutOfBoundsException("Group " + group + " out of " + this.size());
+        }
+    }
+}
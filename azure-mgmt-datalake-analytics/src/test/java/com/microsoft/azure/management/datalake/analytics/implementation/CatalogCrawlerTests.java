@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.management.datalake.analytics.CatalogObjectType;
+import com.microsoft.azure.management.datalake.analytics.CatalogSnapshot;
+import com.microsoft.azure.management.datalake.analytics.Catalogs;
+import com.microsoft.azure.management.datalake.analytics.models.PageImpl;
+import com.microsoft.azure.management.datalake.analytics.models.USqlDatabase;
+import com.microsoft.azure.management.datalake.analytics.models.USqlProcedure;
+import com.microsoft.azure.management.datalake.analytics.models.USqlSchema;
+import com.microsoft.azure.management.datalake.analytics.models.USqlTable;
+import com.microsoft.azure.management.datalake.analytics.models.USqlTableValuedFunction;
+import com.microsoft.azure.management.datalake.analytics.models.USqlView;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Response;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CatalogCrawlerTests {
+    private static final String ACCOUNT = "account1";
+
+    @Test
+    public void canFetchChangedObjectsOnly() {
+        FakeCatalog catalog = new FakeCatalog();
+        catalog.add(CatalogObjectType.TABLE, "db1", "dbo", "t1", null);
+        catalog.add(CatalogObjectType.VIEW, "db1", "dbo", "v1", "SELECT * FROM t1");
+        catalog.add(CatalogObjectType.PROCEDURE, "db1", "dbo", "p1", "INSERT INTO t1 SELECT * FROM v1");
+        CatalogCrawlerImpl crawler = new CatalogCrawlerImpl(catalog.fake());
+
+        // The first crawl lists the complete objects
+        CatalogSnapshot first = crawler.crawl(ACCOUNT);
+        Assert.assertEquals(Collections.singletonList("db1"), first.databaseNames());
+        Assert.assertEquals(3, objectCount(first));
+        Assert.assertEquals(Arrays.asList("list db1", "list db1", "list db1", "list db1/dbo"), catalog.requests("list"));
+        Assert.assertTrue(catalog.requests("get").isEmpty());
+        Assert.assertEquals(2, first.listDependents("db1", "dbo", "t1").size());
+        Assert.assertSame(first, crawler.lastSnapshot(ACCOUNT));
+
+        // The next one lists the names and versions only, and fetches the changed table
+        catalog.add(CatalogObjectType.TABLE, "db1", "dbo", "t1", null);
+        catalog.requests.clear();
+        CatalogSnapshot second = crawler.crawl(ACCOUNT);
+        Assert.assertEquals(Arrays.asList("select db1", "select db1", "select db1", "select db1/dbo"), catalog.requests("select"));
+        Assert.assertEquals(Collections.singletonList("get db1/dbo/t1"), catalog.requests("get"));
+        Assert.assertNotSame(first.getObject("db1", "dbo", "t1"), second.getObject("db1", "dbo", "t1"));
+        Assert.assertSame(first.getObject("db1", "dbo", "v1"), second.getObject("db1", "dbo", "v1"));
+        Assert.assertEquals("SELECT * FROM t1", second.getObject("db1", "dbo", "v1").definition());
+        Assert.assertEquals(2, second.listDependents("db1", "dbo", "t1").size());
+    }
+
+    @Test
+    public void canCrawlNewDatabasesInFull() {
+        FakeCatalog catalog = new FakeCatalog();
+        catalog.add(CatalogObjectType.TABLE, "db1", "dbo", "t1", null);
+        CatalogCrawlerImpl crawler = new CatalogCrawlerImpl(catalog.fake());
+        crawler.crawl(ACCOUNT);
+
+        // A database created since the previous snapshot has no versions to compare with
+        catalog.add(CatalogObjectType.TABLE_VALUED_FUNCTION, "db2", "dbo", "f1", "SELECT * FROM db1.dbo.t1");
+        catalog.requests.clear();
+        CatalogSnapshot snapshot = crawler.crawl(ACCOUNT);
+        Assert.assertEquals(Arrays.asList("db1", "db2"), snapshot.databaseNames());
+        Assert.assertEquals(Arrays.asList("select db1", "select db1", "select db1", "select db1/dbo"), catalog.requests("select"));
+        Assert.assertEquals(Arrays.asList("list db2", "list db2", "list db2", "list db2/dbo"), catalog.requests("list"));
+        Assert.assertTrue(catalog.requests("get").isEmpty());
+        Assert.assertEquals("SELECT * FROM db1.dbo.t1", snapshot.getObject("db2", "dbo", "f1").definition());
+        Assert.assertEquals(1, snapshot.listDependencies("db2", "dbo", "f1").size());
+    }
+
+    @Test
+    public void canLeaveOutObjectsDroppedWhileCrawling() {
+        FakeCatalog catalog = new FakeCatalog();
+        catalog.add(CatalogObjectType.TABLE, "db1", "dbo", "t1", null);
+        catalog.add(CatalogObjectType.VIEW, "db1", "dbo", "v1", "SELECT * FROM t1");
+        CatalogCrawlerImpl crawler = new CatalogCrawlerImpl(catalog.fake());
+        crawler.crawl(ACCOUNT);
+
+        // The view changed when listed, and is gone when fetched
+        catalog.add(CatalogObjectType.VIEW, "db1", "dbo", "v1", "SELECT * FROM t1");
+        catalog.dropped.add("db1/dbo/v1");
+        CatalogSnapshot snapshot = crawler.crawl(ACCOUNT);
+        Assert.assertNull(snapshot.getObject("db1", "dbo", "v1"));
+        Assert.assertNotNull(snapshot.getObject("db1", "dbo", "t1"));
+        Assert.assertTrue(snapshot.listDependents("db1", "dbo", "t1").isEmpty());
+    }
+
+    @Test
+    public void canBoundConcurrentRequests() {
+        FakeCatalog catalog = new FakeCatalog();
+        for (int i = 0; i < 6; i++) {
+            catalog.add(CatalogObjectType.TABLE, "db" + i, "dbo", "t1", null);
+            catalog.add(CatalogObjectType.PROCEDURE, "db" + i, "dbo", "p1", "SELECT 1");
+            catalog.add(CatalogObjectType.PROCEDURE, "db" + i, "staging", "p1", "SELECT 1");
+        }
+        CatalogCrawlerImpl crawler = new CatalogCrawlerImpl(catalog.fake()).withMaxConcurrency(3);
+        crawler.crawl(ACCOUNT);
+        for (int i = 0; i < 6; i++) {
+            catalog.add(CatalogObjectType.TABLE, "db" + i, "dbo", "t1", null);
+            catalog.add(CatalogObjectType.PROCEDURE, "db" + i, "dbo", "p1", "SELECT 2");
+        }
+        CatalogSnapshot snapshot = crawler.crawl(ACCOUNT);
+
+        Assert.assertEquals(18, objectCount(snapshot));
+        Assert.assertEquals(12, catalog.requests("get").size());
+        Assert.assertTrue(catalog.maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void canResumeFromCacheDirectory() throws Exception {
+        File directory = Files.createTempDirectory("catalog").toFile();
+        try {
+            FakeCatalog catalog = new FakeCatalog();
+            catalog.add(CatalogObjectType.VIEW, "db1", "dbo", "v1", "SELECT 1");
+            new CatalogCrawlerImpl(catalog.fake()).withCacheDirectory(directory).crawl(ACCOUNT);
+
+            CatalogCrawlerImpl crawler = new CatalogCrawlerImpl(catalog.fake()).withCacheDirectory(directory);
+            Assert.assertEquals("SELECT 1", crawler.lastSnapshot(ACCOUNT.toUpperCase()).getObject("db1", "dbo", "v1").definition());
+            catalog.requests.clear();
+            CatalogSnapshot snapshot = crawler.crawl(ACCOUNT);
+            Assert.assertTrue(catalog.requests("list").isEmpty());
+            Assert.assertTrue(catalog.requests("get").isEmpty());
+            Assert.assertEquals("SELECT 1", snapshot.getObject("db1", "dbo", "v1").definition());
+        } finally {
+            for (File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    private static int objectCount(CatalogSnapshot snapshot) {
+        int count = 0;
+        for (String databaseName : snapshot.databaseNames()) {
+            for (String schemaName : snapshot.schemaNames(databaseName)) {
+                count += snapshot.listObjects(databaseName, schemaName).size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A catalog answering from objects in memory, after a short delay so that requests overlap. Listings with
+     * a projection return the names and versions of the objects only; adding an object again gives it a new version.
+     */
+    private static final class FakeCatalog implements InvocationHandler {
+        // Objects keyed by database/schema/name, each object being type, database, schema, name, version and definition
+        private final Map<String, String[]> objects = new TreeMap<>();
+        private final Set<String> dropped = new HashSet<>();
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger versions = new AtomicInteger();
+
+        synchronized void add(CatalogObjectType type, String databaseName, String schemaName, String name, String definition) {
+            String version = String.format("00000000-0000-0000-0000-%012d", this.versions.incrementAndGet());
+            this.objects.put(CatalogSnapshotImpl.key(databaseName, schemaName, name),
+                    new String[] {type.toString(), databaseName, schemaName, name, version, definition});
+        }
+
+        Catalogs fake() {
+            return (Catalogs) Proxy.newProxyInstance(Catalogs.class.getClassLoader(), new Class<?>[] {Catalogs.class}, this);
+        }
+
+        List<String> requests(String kind) {
+            List<String> requests = new ArrayList<>();
+            for (String request : this.requests) {
+                if (request.startsWith(kind + " ")) {
+                    requests.add(request);
+                }
+            }
+            Collections.sort(requests);
+            return requests;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+            String name = method.getName();
+            if ("listDatabasesAsync".equals(name) && args.length == 1) {
+                List<USqlDatabase> databases = new ArrayList<>();
+                for (String databaseName : this.names(1, null, null)) {
+                    databases.add(deserialize("{\"databaseName\":\"" + databaseName + "\"}", USqlDatabase.class));
+                }
+                return this.respond(null, new PageImpl<USqlDatabase>().setItems(databases));
+            } else if ("listSchemasAsync".equals(name) && args.length == 2) {
+                List<USqlSchema> schemas = new ArrayList<>();
+                for (String schemaName : this.names(2, (String) args[1], null)) {
+                    schemas.add(deserialize("{\"databaseName\":\"" + args[1] + "\",\"schemaName\":\"" + schemaName + "\"}", USqlSchema.class));
+                }
+                return this.respond(null, new PageImpl<USqlSchema>().setItems(schemas));
+            } else if ("listTablesByDatabaseAsync".equals(name) && args.length == 8) {
+                return this.list(CatalogObjectType.TABLE, (String) args[1], null, args[5], USqlTable.class);
+            } else if ("listViewsByDatabaseAsync".equals(name) && args.length == 8) {
+                return this.list(CatalogObjectType.VIEW, (String) args[1], null, args[5], USqlView.class);
+            } else if ("listTableValuedFunctionsByDatabaseAsync".equals(name) && args.length == 8) {
+                return this.list(CatalogObjectType.TABLE_VALUED_FUNCTION, (String) args[1], null, args[5], USqlTableValuedFunction.class);
+            } else if ("listProceduresAsync".equals(name) && args.length == 9) {
+                return this.list(CatalogObjectType.PROCEDURE, (String) args[1], (String) args[2], args[6], USqlProcedure.class);
+            } else if ("getTableAsync".equals(name)) {
+                return this.get(args, USqlTable.class);
+            } else if ("getViewAsync".equals(name)) {
+                return this.get(args, USqlView.class);
+            } else if ("getTableValuedFunctionAsync".equals(name)) {
+                return this.get(args, USqlTableValuedFunction.class);
+            } else if ("getProcedureAsync".equals(name)) {
+                return this.get(args, USqlProcedure.class);
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        private <T> Observable<PageImpl<T>> list(CatalogObjectType type, String databaseName, String schemaName,
+                                                 Object select, Class<T> itemType) throws IOException {
+            List<T> items = new ArrayList<>();
+            for (String[] object : this.objects.values()) {
+                if (object[0].equals(type.toString()) && object[1].equals(databaseName)
+                        && (schemaName == null || object[2].equals(schemaName))) {
+                    items.add(deserialize(json(object, select == null), itemType));
+                }
+            }
+            String request = (select == null ? "list " : "select ") + databaseName + (schemaName == null ? "" : "/" + schemaName);
+            return this.respond(request, new PageImpl<T>().setItems(items));
+        }
+
+        private <T> Observable<T> get(Object[] args, Class<T> itemType) throws IOException {
+            String key = CatalogSnapshotImpl.key((String) args[1], (String) args[2], (String) args[3]);
+            String[] object = this.objects.get(key);
+            if (object == null || this.dropped.contains(key)) {
+                return this.<T>respond("get " + key, null).ignoreElements().concatWith(Observable.<T>error(new CloudException("status 404",
+                        Response.error(404, ResponseBody.create(MediaType.parse("application/json"), "{}")))));
+            }
+            return this.respond("get " + key, deserialize(json(object, true), itemType));
+        }
+
+        private List<String> names(int level, String databaseName, String schemaName) {
+            Set<String> names = new TreeSet<>();
+            for (String[] object : this.objects.values()) {
+                if ((databaseName == null || object[1].equals(databaseName)) && (schemaName == null || object[2].equals(schemaName))) {
+                    names.add(object[level]);
+                }
+            }
+            return new ArrayList<>(names);
+        }
+
+        private <T> Observable<T> respond(final String request, final T value) {
+            final FakeCatalog self = this;
+            return Observable.defer(new Func0<Observable<T>>() {
+                @Override
+                public Observable<T> call() {
+                    if (request != null) {
+                        self.requests.add(request);
+                    }
+                    int count = self.inFlight.incrementAndGet();
+                    synchronized (self.maxInFlight) {
+                        self.maxInFlight.set(Math.max(self.maxInFlight.get(), count));
+                    }
+                    return Observable.just(value).delay(10, TimeUnit.MILLISECONDS).doOnTerminate(new Action0() {
+                        @Override
+                        public void call() {
+                            self.inFlight.decrementAndGet();
+                        }
+                    });
+                }
+            });
+        }
+
+        private static String json(String[] object, boolean complete) {
+            String nameProperty;
+            switch (CatalogObjectType.fromString(object[0])) {
+                case TABLE:
+                    nameProperty = "tableName";
+                    break;
+                case VIEW:
+                    nameProperty = "viewName";
+                    break;
+                case TABLE_VALUED_FUNCTION:
+                    nameProperty = "tvfName";
+                    break;
+                default:
+                    nameProperty = "procName";
+                    break;
+            }
+            StringBuilder json = new StringBuilder("{\"databaseName\":\"").append(object[1])
+                    .append("\",\"schemaName\":\"").append(object[2])
+                    .append("\",\"").append(nameProperty).append("\":\"").append(object[3])
+                    .append("\",\"version\":\"").append(object[4]).append('"');
+            if (complete && object[5] != null) {
+                json.append(",\"definition\":\"").append(object[5]).append('"');
+            }
+            return json.append('}').toString();
+        }
+
+        private static <T> T deserialize(String json, Class<T> type) throws IOException {
+            return new AzureJacksonAdapter().deserialize(json, type);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.CatalogObject;
+import com.microsoft.azure.management.datalake.analytics.CatalogObjectType;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CatalogSnapshotTests {
+    @Test
+    public void canLookUpNamesIgnoringCase() {
+        CatalogSnapshotImpl snapshot = snapshot();
+
+        Assert.assertEquals(Arrays.asList("db1", "db2", "empty"), snapshot.databaseNames());
+        Assert.assertEquals(Arrays.asList("dbo", "staging"), snapshot.schemaNames("DB1"));
+        Assert.assertTrue(snapshot.schemaNames("unknown").isEmpty());
+        Assert.assertEquals(CatalogObjectType.TABLE, snapshot.getObject("DB1", "DBO", "T1").type());
+        Assert.assertNull(snapshot.getObject("db1", "dbo", "unknown"));
+        Assert.assertEquals(Arrays.asList("t1", "v1", "v2"), names(snapshot.listObjects("db1", "staging")));
+
+        // A database without schemas is still part of the snapshot
+        Assert.assertTrue(snapshot.containsDatabase("EMPTY"));
+        Assert.assertFalse(snapshot.containsDatabase("unknown"));
+    }
+
+    @Test
+    public void canResolveNamesRelativeToObjects() {
+        CatalogSnapshotImpl snapshot = snapshot();
+
+        // One part names are looked up in the schema of the view, then in the default schema; two part names
+        // in the database of the view, then as database and object of the default schema
+        List<CatalogObject> dependencies = snapshot.listDependencies("db1", "staging", "v1");
+        Assert.assertEquals(Arrays.asList("db1/staging/t1", "db1/dbo/t2", "db2/dbo/t3", "db1/dbo/t1"), keys(dependencies));
+        // Procedures reference tables and views by three part names
+        Assert.assertEquals(Arrays.asList("db2/dbo/t3", "db1/staging/v1"), keys(snapshot.listDependencies("db2", "dbo", "p1")));
+        // An object does not depend on itself, and unknown names are ignored
+        Assert.assertTrue(snapshot.listDependencies("db1", "staging", "v2").isEmpty());
+        Assert.assertTrue(snapshot.listDependencies("db1", "dbo", "t1").isEmpty());
+    }
+
+    @Test
+    public void canListDependents() {
+        CatalogSnapshotImpl snapshot = snapshot();
+
+        Assert.assertEquals(Collections.singletonList("db1/staging/v1"), keys(snapshot.listDependents("DB1", "dbo", "t1")));
+        Assert.assertEquals(Arrays.asList("db1/staging/v1", "db2/dbo/p1"), keys(snapshot.listDependents("db2", "dbo", "t3")));
+        Assert.assertEquals(Collections.singletonList("db2/dbo/p1"), keys(snapshot.listDependents("db1", "staging", "v1")));
+        Assert.assertTrue(snapshot.listDependents("db2", "dbo", "p1").isEmpty());
+    }
+
+    private static CatalogSnapshotImpl snapshot() {
+        Map<String, List<String>> schemaNames = new LinkedHashMap<>();
+        schemaNames.put("db1", Arrays.asList("dbo", "staging"));
+        schemaNames.put("db2", Collections.singletonList("dbo"));
+        schemaNames.put("empty", Collections.<String>emptyList());
+        List<CatalogObject> objects = new ArrayList<>(Arrays.asList(
+                object(CatalogObjectType.TABLE, "db1", "dbo", "t1", null),
+                object(CatalogObjectType.TABLE, "db1", "dbo", "t2", null),
+                object(CatalogObjectType.TABLE, "db1", "staging", "t1", null),
+                object(CatalogObjectType.VIEW, "db1", "staging", "v1",
+                        "SELECT * FROM t1 JOIN [t2] ON 1 = 1 JOIN db2.t3 ON 1 = 1 JOIN [dbo] . [T1] ON 1 = 1"),
+                object(CatalogObjectType.VIEW, "db1", "staging", "v2", "SELECT * FROM v2 JOIN unknown.missing"),
+                object(CatalogObjectType.TABLE, "db2", "dbo", "t3", null),
+                object(CatalogObjectType.PROCEDURE, "db2", "dbo", "p1",
+                        "INSERT INTO t3 SELECT * FROM [db1].[staging].[v1]")));
+        return new CatalogSnapshotImpl("account1", DateTime.now(), schemaNames, objects);
+    }
+
+    private static CatalogObject object(CatalogObjectType type, String databaseName, String schemaName, String name, String definition) {
+        return new CatalogObject()
+                .withType(type)
+                .withDatabaseName(databaseName)
+                .withSchemaName(schemaName)
+                .withName(name)
+                .withDefinition(definition);
+    }
+
+    private static List<String> names(List<CatalogObject> objects) {
+        List<String> names = new ArrayList<>();
+        for (CatalogObject object : objects) {
+            names.add(object.name());
+        }
+        return names;
+    }
+
+    private static List<String> keys(List<CatalogObject> objects) {
+        List<String> keys = new ArrayList<>();
+        for (CatalogObject object : objects) {
+            keys.add(CatalogSnapshotImpl.key(object.databaseName(), object.schemaName(), object.name()));
+        }
+        return keys;
+    }
+}
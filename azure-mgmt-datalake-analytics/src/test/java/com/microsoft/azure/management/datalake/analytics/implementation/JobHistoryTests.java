@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.JobUsageReport;
+import com.microsoft.azure.management.datalake.analytics.Jobs;
+import com.microsoft.azure.management.datalake.analytics.models.JobInformation;
+import com.microsoft.azure.management.datalake.analytics.models.PageImpl;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+import rx.Observable;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class JobHistoryTests {
+    private static final DateTime START = new DateTime(2017, 8, 1, 0, 0, DateTimeZone.UTC);
+
+    @Test
+    public void canSplitRangeIntoWindows() {
+        FakeJobs jobs = new FakeJobs();
+        JobHistoryImpl history = new JobHistoryImpl(jobs.fake());
+
+        history.listAsync("account1", START, START.plusHours(60)).toList().toBlocking().single();
+        Assert.assertEquals(Arrays.asList(
+                "submitTime ge datetimeoffset'2017-08-01T00:00:00.000Z' and submitTime lt datetimeoffset'2017-08-02T00:00:00.000Z'",
+                "submitTime ge datetimeoffset'2017-08-02T00:00:00.000Z' and submitTime lt datetimeoffset'2017-08-03T00:00:00.000Z'",
+                "submitTime ge datetimeoffset'2017-08-03T00:00:00.000Z' and submitTime lt datetimeoffset'2017-08-03T12:00:00.000Z'"),
+                sorted(jobs.filters));
+        Assert.assertEquals(3, jobs.selects.size());
+        Assert.assertTrue(jobs.selects.get(0).startsWith("jobId,name,"));
+
+        // Times in other zones are converted to UTC
+        jobs.filters.clear();
+        history.withWindowSize(6, TimeUnit.HOURS)
+                .listAsync("account1", START.withZone(DateTimeZone.forOffsetHours(2)), START.plusHours(6))
+                .toList().toBlocking().single();
+        Assert.assertEquals(Collections.singletonList(
+                "submitTime ge datetimeoffset'2017-08-01T00:00:00.000Z' and submitTime lt datetimeoffset'2017-08-01T06:00:00.000Z'"),
+                jobs.filters);
+    }
+
+    @Test
+    public void canListEmptyRanges() {
+        FakeJobs jobs = new FakeJobs();
+        JobHistoryImpl history = new JobHistoryImpl(jobs.fake());
+
+        Assert.assertTrue(history.listAsync("account1", START, START).toList().toBlocking().single().isEmpty());
+        Assert.assertTrue(history.listAsync("account1", START, START.minusDays(1)).toList().toBlocking().single().isEmpty());
+        Assert.assertTrue(jobs.filters.isEmpty());
+    }
+
+    @Test
+    public void canListAllPagesOfEachWindow() {
+        FakeJobs jobs = new FakeJobs();
+        JobHistoryImpl history = new JobHistoryImpl(jobs.fake()).withMaxConcurrency(1);
+
+        List<JobInformation> listed = history.listAsync("account1", START, START.plusDays(2)).toList().toBlocking().single();
+        List<String> names = new ArrayList<>();
+        for (JobInformation job : listed) {
+            names.add(job.name());
+        }
+        // Three pages per window, the second one without items
+        Assert.assertEquals(Arrays.asList("0-0", "0-1", "0-2", "1-0", "1-1", "1-2"), sorted(names));
+
+        JobUsageReport report = history.aggregateUsage("account1", START, START.plusDays(2));
+        Assert.assertEquals(6, report.totalJobCount());
+        Assert.assertEquals(1, report.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyWindows() {
+        new JobHistoryImpl(new FakeJobs().fake()).withWindowSize(0, TimeUnit.HOURS);
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Jobs answering each listing with three pages, named after the order of the listing.
+     */
+    private static final class FakeJobs implements InvocationHandler {
+        private final List<String> filters = new CopyOnWriteArrayList<>();
+        private final List<String> selects = new CopyOnWriteArrayList<>();
+
+        Jobs fake() {
+            return (Jobs) Proxy.newProxyInstance(Jobs.class.getClassLoader(), new Class<?>[] {Jobs.class}, this);
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+            if (!"listAsync".equals(method.getName()) || args.length != 7) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            int window = this.filters.size() % 2;
+            this.filters.add((String) args[1]);
+            this.selects.add((String) args[4]);
+            return Observable.just(
+                    new PageImpl<JobInformation>().setItems(Arrays.asList(job(window + "-0"), job(window + "-1"))),
+                    new PageImpl<JobInformation>(),
+                    new PageImpl<JobInformation>().setItems(Collections.singletonList(job(window + "-2"))));
+        }
+
+        private static JobInformation job(String name) throws IOException {
+            return new AzureJacksonAdapter().deserialize("{\"name\":\"" + name + "\",\"submitter\":\"alice\",\"type\":\"USql\","
+                    + "\"degreeOfParallelism\":1,\"result\":\"Succeeded\"}", JobInformation.class);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.datalake.analytics.implementation;
+
+import com.microsoft.azure.management.datalake.analytics.models.JobInformation;
+import com.microsoft.azure.management.datalake.analytics.models.JobResult;
+import com.microsoft.azure.management.datalake.analytics.models.JobType;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class JobUsageReportTests {
+    private static final DateTime NOW = new DateTime(2017, 8, 1, 12, 0, DateTimeZone.UTC);
+
+    @Test
+    public void canAggregateJobs() throws Exception {
+        JobUsageReportImpl report = new JobUsageReportImpl(NOW.getMillis());
+        report.add(job("alice", "USql", "Succeeded", 10, NOW.minusMinutes(10), NOW.minusMinutes(9)));
+        report.add(job("bob", "Hive", "Failed", 4, null, null));
+        report.add(job("alice", "USql", "Succeeded", 2, NOW.minusMinutes(5), NOW.minusSeconds(270)));
+        // Still running, accounted up to the time of the report
+        report.add(job("alice", "USql", null, 5, NOW.minusSeconds(10), null));
+        // A job with an inconsistent end time counts for no usage
+        report.add(job("bob", "Hive", "Failed", 4, NOW.minusMinutes(1), NOW.minusMinutes(2)));
+
+        Assert.assertEquals(3, report.size());
+        Assert.assertEquals("alice", report.submitter(0));
+        Assert.assertEquals(JobType.USQL, report.jobType(0));
+        Assert.assertEquals(JobResult.SUCCEEDED, report.result(0));
+        Assert.assertEquals(2, report.jobCount(0));
+        Assert.assertEquals(10 * 60 + 2 * 30, report.auSeconds(0), 1e-9);
+
+        Assert.assertEquals("bob", report.submitter(1));
+        Assert.assertEquals(JobResult.FAILED, report.result(1));
+        Assert.assertEquals(2, report.jobCount(1));
+        Assert.assertEquals(0, report.auSeconds(1), 0);
+
+        Assert.assertNull(report.result(2));
+        Assert.assertEquals(1, report.jobCount(2));
+        Assert.assertEquals(5 * 10, report.auSeconds(2), 1e-9);
+
+        Assert.assertEquals(5, report.totalJobCount());
+        Assert.assertEquals(600 + 60 + 50, report.totalAuSeconds(), 1e-9);
+    }
+
+    @Test
+    public void canGrowGroups() throws Exception {
+        JobUsageReportImpl report = new JobUsageReportImpl(NOW.getMillis());
+        for (int i = 0; i < 100; i++) {
+            report.add(job("user" + (i % 40), "USql", "Succeeded", 1, NOW.minusSeconds(1), NOW));
+        }
+        Assert.assertEquals(40, report.size());
+        for (int group = 0; group < 40; group++) {
+            Assert.assertEquals("user" + group, report.submitter(group));
+            Assert.assertEquals(group < 20 ? 3 : 2, report.jobCount(group));
+            Assert.assertEquals(report.jobCount(group), report.auSeconds(group), 1e-9);
+        }
+        Assert.assertEquals(100, report.totalJobCount());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUnknownGroups() {
+        new JobUsageReportImpl(NOW.getMillis()).jobCount(0);
+    }
+
+    private static JobInformation job(String submitter, String type, String result, int degreeOfParallelism,
+                                      DateTime startTime, DateTime endTime) throws IOException {
+        StringBuilder json = new StringBuilder("{\"name\":\"job\",\"submitter\":\"").append(submitter)
+                .append("\",\"type\":\"").append(type)
+                .append("\",\"degreeOfParallelism\":").append(degreeOfParallelism);
+        if (result != null) {
+            json.append(",\"result\":\"").append(result).append('"');
+        }
+        if (startTime != null) {
+            json.append(",\"startTime\":\"").append(startTime).append('"');
+        }
+        if (endTime != null) {
+            json.append(",\"endTime\":\"").append(endTime).append('"');
+        }
+        return new AzureJacksonAdapter().deserialize(json.append('}').toString(), JobInformation.class);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.devices;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.devices.implementation.IotHubQuotaMetricInfoInner;
+import com.microsoft.azure.management.devices.implementation.JobResponseInner;
+
+/**
+ * An event of an IoT hub, emitted by an {@link IotHubOperationsWatcher}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface IotHubOperationEvent {
+    /**
+     * @return the type of the event
+     */
+    IotHubOperationEventType type();
+
+    /**
+     * @return the name of the resource group of the IoT hub, or null for a failed listing of the IoT hubs of the subscription
+     */
+    String resourceGroupName();
+
+    /**
+     * @return the name of the IoT hub, or null for a failed listing of the IoT hubs of the subscription
+     */
+    String hubName();
+
+    /**
+     * @return the completed job for a {@link IotHubOperationEventType#JOB_COMPLETED} event, null otherwise
+     */
+    JobResponseInner job();
+
+    /**
+     * @return the quota metric for a {@link IotHubOperationEventType#QUOTA_THRESHOLD_EXCEEDED} event, null otherwise
+     */
+    IotHubQuotaMetricInfoInner quotaMetric();
+
+    /**
+     * @return the error for a {@link IotHubOperationEventType#POLL_FAILED} event, null otherwise
+     */
+    Throwable error();
+}
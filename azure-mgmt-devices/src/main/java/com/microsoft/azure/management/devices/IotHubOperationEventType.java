@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.devices;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+/**
+ * Types of the events emitted by an {@link IotHubOperationsWatcher}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public enum IotHubOperationEventType {
+    /** A job of an IoT hub reached a terminal state. */
+    JOB_COMPLETED,
+
+    /** A quota metric of an IoT hub reached the threshold; it is reported again only after going back under it. */
+    QUOTA_THRESHOLD_EXCEEDED,
+
+    /** A request to an IoT hub failed; it is issued again at the next polling time. */
+    POLL_FAILED
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.devices;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watcher of the jobs and quota metrics of IoT hubs.
+ * <p>
+ * The jobs and quota metrics of each hub are listed at the listing interval. The jobs in progress
+ * are then polled individually, at an interval growing with the age of the job and shortened when the
+ * job approaches the duration observed for the previous jobs of the same type. All the requests go
+ * through a single polling loop, limited both in request rate and in concurrency, however many hubs
+ * and jobs are watched; each request is issued when due, whether or not the others have completed.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface IotHubOperationsWatcher {
+    /**
+     * Adds an IoT hub to watch.
+     *
+     * @param resourceGroupName the name of the resource group of the IoT hub
+     * @param hubName the name of the IoT hub
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withHub(String resourceGroupName, String hubName);
+
+    /**
+     * Specifies to watch all the IoT hubs of the subscription, listed again at each discovery interval.
+     *
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withAllHubs();
+
+    /**
+     * Specifies the interval between listings of the IoT hubs of the subscription, when watching all of them.
+     *
+     * @param interval the interval, defaults to 60 seconds
+     * @param unit the time unit of the interval
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withDiscoveryInterval(long interval, TimeUnit unit);
+
+    /**
+     * Specifies the interval between listings of the jobs and quota metrics of a hub.
+     *
+     * @param interval the interval, defaults to 60 seconds
+     * @param unit the time unit of the interval
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withListingInterval(long interval, TimeUnit unit);
+
+    /**
+     * Specifies the usage ratio of a quota metric from which an alert is emitted.
+     *
+     * @param threshold the ratio of the current value to the maximum value, between 0 and 1; defaults to 0.8
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withQuotaThreshold(double threshold);
+
+    /**
+     * Specifies the maximum rate of requests of the watcher.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests per second, defaults to 5
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withMaxRequestsPerSecond(double maxRequestsPerSecond);
+
+    /**
+     * Specifies the maximum number of concurrent requests of the watcher.
+     *
+     * @param maxConcurrency the maximum number of concurrent requests, defaults to 8
+     * @return the watcher
+     */
+    IotHubOperationsWatcher withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Gets the events of the watched IoT hubs.
+     * <p>
+     * The polling loop is shared by all the subscribers, and runs while there is at least one of them.
+     *
+     * @return an observable emitting the events, until unsubscribed
+     */
+    Observable<IotHubOperationEvent> watchAsync();
+
+    /**
+     * @return an observable emitting the completed jobs of the watched IoT hubs, sharing the polling loop of {@link #watchAsync()}
+     */
+    Observable<IotHubOperationEvent> jobCompletionsAsync();
+
+    /**
+     * @return an observable emitting the quota alerts of the watched IoT hubs, sharing the polling loop of {@link #watchAsync()}
+     */
+    Observable<IotHubOperationEvent> quotaAlertsAsync();
+}
@@ -12,12 +12,13 @@ import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.apigeneration.Beta;
 import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.devices.IotHubOperationsWatcher;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 
 /**
@@ -44,7 +45,7 @@ public final class DevicesManager extends Manager<DevicesManager, IotHubClientIm
         return new DevicesManager(new RestClient.Builder()
                 .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -87,4 +88,12 @@ public final class DevicesManager extends Manager<DevicesManager, IotHubClientIm
             subscriptionId,
             new IotHubClientImpl(restClient).withSubscriptionId(subscriptionId));
     }
+
+    /**
+     * @return a new watcher of the jobs and quota metrics of IoT hubs
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public IotHubOperationsWatcher newOperationsWatcher() {
+        return new IotHubOperationsWatcherImpl(this.inner().iotHubResources());
+    }
 }
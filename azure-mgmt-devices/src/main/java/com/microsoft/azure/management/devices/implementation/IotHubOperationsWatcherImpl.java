@@ -0,0 +1,665 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.devices.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.devices.IotHubOperationEvent;
+import com.microsoft.azure.management.devices.IotHubOperationEventType;
+import com.microsoft.azure.management.devices.IotHubOperationsWatcher;
+import com.microsoft.azure.management.devices.JobStatus;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import com.microsoft.rest.RestException;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation for IotHubOperationsWatcher.
+ */
+@LangDefinition
+class IotHubOperationsWatcherImpl implements IotHubOperationsWatcher {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final double DEFAULT_MAX_REQUESTS_PER_SECOND = 5;
+    private static final double DEFAULT_QUOTA_THRESHOLD = 0.8;
+    private static final long DEFAULT_DISCOVERY_INTERVAL_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(60);
+    private static final long DEFAULT_LISTING_INTERVAL_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(60);
+    private static final long MIN_JOB_POLL_INTERVAL_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_JOB_POLL_INTERVAL_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MIN_LOOP_DELAY_IN_MILLISECONDS = 200;
+    private static final long MAX_LOOP_DELAY_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(5);
+    // Due time of a poll whose request is in flight
+    private static final long IN_FLIGHT = Long.MAX_VALUE;
+    private static final Comparator<Poll> BY_DUE_TIME = new Comparator<Poll>() {
+        @Override
+        public int compare(Poll poll1, Poll poll2) {
+            return poll1.due < poll2.due ? -1 : (poll1.due == poll2.due ? 0 : 1);
+        }
+    };
+
+    private final IotHubResourcesInner client;
+    private final Map<String, HubState> hubs = new LinkedHashMap<>();
+    // Observed job durations by job type, averaged
+    final Map<String, Long> expectedDurations = new HashMap<>();
+    private final SubscriptionPoll subscriptionPoll = new SubscriptionPoll();
+    private boolean allHubs;
+    private long discoveryIntervalInMilliseconds = DEFAULT_DISCOVERY_INTERVAL_IN_MILLISECONDS;
+    private long listingIntervalInMilliseconds = DEFAULT_LISTING_INTERVAL_IN_MILLISECONDS;
+    private double quotaThreshold = DEFAULT_QUOTA_THRESHOLD;
+    private double maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private double tokens;
+    private long lastRefill;
+    private Observable<IotHubOperationEvent> events;
+
+    IotHubOperationsWatcherImpl(IotHubResourcesInner client) {
+        this.client = client;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withHub(String resourceGroupName, String hubName) {
+        HubState hub = this.addHub(resourceGroupName, hubName);
+        hub.explicit = true;
+        return this;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withAllHubs() {
+        this.allHubs = true;
+        return this;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withDiscoveryInterval(long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.discoveryIntervalInMilliseconds = unit.toMillis(interval);
+        return this;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withListingInterval(long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.listingIntervalInMilliseconds = unit.toMillis(interval);
+        return this;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withQuotaThreshold(double threshold) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be greater than 0 and at most 1");
+        }
+        this.quotaThreshold = threshold;
+        return this;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withMaxRequestsPerSecond(double maxRequestsPerSecond) {
+        if (maxRequestsPerSecond <= 0) {
+            throw new IllegalArgumentException("maxRequestsPerSecond must be positive");
+        }
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        return this;
+    }
+
+    @Override
+    public synchronized IotHubOperationsWatcherImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public synchronized Observable<IotHubOperationEvent> watchAsync() {
+        if (this.events == null) {
+            final IotHubOperationsWatcherImpl self = this;
+            this.events = Observable.defer(new Func0<Observable<IotHubOperationEvent>>() {
+                @Override
+                public Observable<IotHubOperationEvent> call() {
+                    int concurrency = self.start();
+                    return Observable.merge(self.requestsAsync(), concurrency);
+                }
+            }).share();
+        }
+        return this.events;
+    }
+
+    @Override
+    public Observable<IotHubOperationEvent> jobCompletionsAsync() {
+        return this.watchAsync().filter(new Func1<IotHubOperationEvent, Boolean>() {
+            @Override
+            public Boolean call(IotHubOperationEvent event) {
+                return event.type() == IotHubOperationEventType.JOB_COMPLETED;
+            }
+        });
+    }
+
+    @Override
+    public Observable<IotHubOperationEvent> quotaAlertsAsync() {
+        return this.watchAsync().filter(new Func1<IotHubOperationEvent, Boolean>() {
+            @Override
+            public Boolean call(IotHubOperationEvent event) {
+                return event.type() == IotHubOperationEventType.QUOTA_THRESHOLD_EXCEEDED;
+            }
+        });
+    }
+
+    /**
+     * Makes the polls interrupted by a previous unsubscription due again.
+     *
+     * @return the maximum number of concurrent requests
+     */
+    private synchronized int start() {
+        for (Poll poll : this.polls()) {
+            if (poll.due == IN_FLIGHT) {
+                poll.due = 0;
+            }
+        }
+        return this.maxConcurrency;
+    }
+
+    /**
+     * Gets the requests of the polling loop.
+     * <p>
+     * Each cycle of the loop issues the requests due, then waits for the next one to be due; it does not wait
+     * for the requests issued to complete, so that a slow request only delays its own poll.
+     *
+     * @return an observable emitting the requests as they fall due, until unsubscribed
+     */
+    private Observable<Observable<IotHubOperationEvent>> requestsAsync() {
+        final IotHubOperationsWatcherImpl self = this;
+        return Observable.defer(new Func0<Observable<Observable<IotHubOperationEvent>>>() {
+            @Override
+            public Observable<Observable<IotHubOperationEvent>> call() {
+                return Observable.from(self.dueRequests());
+            }
+        }).repeatWhen(new Func1<Observable<? extends Void>, Observable<?>>() {
+            @Override
+            public Observable<?> call(Observable<? extends Void> cycles) {
+                return cycles.flatMap(new Func1<Void, Observable<Integer>>() {
+                    @Override
+                    public Observable<Integer> call(Void aVoid) {
+                        return SdkContext.delayedEmitAsync(0, (int) self.nextDelay());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Issues the requests due, within the rate limit.
+     *
+     * @return the requests, each emitting its events
+     */
+    private synchronized List<Observable<IotHubOperationEvent>> dueRequests() {
+        List<Observable<IotHubOperationEvent>> requests = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        this.refill(now);
+        List<Poll> duePolls = new ArrayList<>();
+        for (Poll poll : this.polls()) {
+            if (poll.due <= now) {
+                duePolls.add(poll);
+            }
+        }
+        // The most overdue polls are issued first; the others wait for the rate limit
+        Collections.sort(duePolls, BY_DUE_TIME);
+        for (Poll poll : duePolls) {
+            if (this.tokens < poll.cost()) {
+                break;
+            }
+            this.tokens -= poll.cost();
+            poll.due = IN_FLIGHT;
+            requests.add(poll.pollAsync().subscribeOn(SdkContext.getRxScheduler()));
+        }
+        return requests;
+    }
+
+    /**
+     * @return the delay until the next poll is due and the rate limit allows it, in milliseconds
+     */
+    private synchronized long nextDelay() {
+        long now = System.currentTimeMillis();
+        long delay = MAX_LOOP_DELAY_IN_MILLISECONDS;
+        for (Poll poll : this.polls()) {
+            if (poll.due != IN_FLIGHT) {
+                delay = Math.min(delay, poll.due - now);
+            }
+        }
+        if (this.tokens < 1) {
+            delay = Math.max(delay, (long) ((1 - this.tokens) * 1000 / this.maxRequestsPerSecond));
+        }
+        return Math.max(MIN_LOOP_DELAY_IN_MILLISECONDS, Math.min(delay, MAX_LOOP_DELAY_IN_MILLISECONDS));
+    }
+
+    private void refill(long now) {
+        // A hub listing costs two requests, so the bucket holds at least two tokens
+        double capacity = Math.max(2, this.maxRequestsPerSecond);
+        if (this.lastRefill == 0) {
+            this.tokens = capacity;
+        } else {
+            this.tokens = Math.min(capacity, this.tokens + (now - this.lastRefill) * this.maxRequestsPerSecond / 1000);
+        }
+        this.lastRefill = now;
+    }
+
+    private List<Poll> polls() {
+        List<Poll> polls = new ArrayList<>();
+        if (this.allHubs) {
+            polls.add(this.subscriptionPoll);
+        }
+        for (HubState hub : this.hubs.values()) {
+            polls.add(hub);
+            polls.addAll(hub.jobs.values());
+        }
+        return polls;
+    }
+
+    HubState addHub(String resourceGroupName, String hubName) {
+        String key = (resourceGroupName + "/" + hubName).toLowerCase(Locale.ROOT);
+        HubState hub = this.hubs.get(key);
+        if (hub == null) {
+            hub = new HubState(resourceGroupName, hubName);
+            this.hubs.put(key, hub);
+        }
+        return hub;
+    }
+
+    /**
+     * Gets the delay before polling a job in progress again.
+     * <p>
+     * The delay is a quarter of the age of the job, so that old jobs are polled less often, but is
+     * shortened when the job approaches the average duration of the previous jobs of the same type.
+     */
+    long jobPollInterval(JobState jobState, long now) {
+        JobResponseInner job = jobState.job;
+        long start = job.startTimeUtc() != null ? job.startTimeUtc().getMillis() : jobState.firstSeen;
+        long age = Math.max(0, now - start);
+        long interval = age / 4;
+        Long expected = this.expectedDurations.get(typeKey(job));
+        if (expected != null) {
+            long remaining = expected - age;
+            if (Math.abs(remaining) <= expected / 4) {
+                interval = MIN_JOB_POLL_INTERVAL_IN_MILLISECONDS;
+            } else if (remaining > 0) {
+                interval = Math.min(interval, remaining / 2);
+            }
+        }
+        return Math.max(MIN_JOB_POLL_INTERVAL_IN_MILLISECONDS, Math.min(interval, MAX_JOB_POLL_INTERVAL_IN_MILLISECONDS));
+    }
+
+    void recordDuration(JobResponseInner job, long firstSeen, long now) {
+        long duration;
+        if (job.startTimeUtc() != null && job.endTimeUtc() != null) {
+            duration = job.endTimeUtc().getMillis() - job.startTimeUtc().getMillis();
+        } else {
+            duration = now - firstSeen;
+        }
+        if (duration <= 0) {
+            return;
+        }
+        Long expected = this.expectedDurations.get(typeKey(job));
+        this.expectedDurations.put(typeKey(job), expected == null ? duration : (3 * expected + duration) / 4);
+    }
+
+    private static String typeKey(JobResponseInner job) {
+        return job.type() == null ? "" : job.type().toString();
+    }
+
+    private static boolean isTerminal(JobResponseInner job) {
+        return job.status() == JobStatus.COMPLETED
+                || job.status() == JobStatus.FAILED
+                || job.status() == JobStatus.CANCELLED;
+    }
+
+    /**
+     * A request of the polling loop.
+     */
+    abstract static class Poll {
+        // Time the request is due at, in milliseconds since the epoch
+        protected long due;
+
+        /**
+         * @return the number of requests made by the poll
+         */
+        abstract int cost();
+
+        /**
+         * @return an observable making the requests and emitting the resulting events
+         */
+        abstract Observable<IotHubOperationEvent> pollAsync();
+    }
+
+    /**
+     * Listing of the IoT hubs of the subscription.
+     */
+    private final class SubscriptionPoll extends Poll {
+        @Override
+        int cost() {
+            return 1;
+        }
+
+        @Override
+        Observable<IotHubOperationEvent> pollAsync() {
+            final IotHubOperationsWatcherImpl self = IotHubOperationsWatcherImpl.this;
+            final SubscriptionPoll poll = this;
+            return self.client.listBySubscriptionAsync()
+                    .concatMapIterable(new Func1<Page<IotHubDescriptionInner>, List<IotHubDescriptionInner>>() {
+                        @Override
+                        public List<IotHubDescriptionInner> call(Page<IotHubDescriptionInner> page) {
+                            return page.items();
+                        }
+                    })
+                    .toList()
+                    .flatMap(new Func1<List<IotHubDescriptionInner>, Observable<IotHubOperationEvent>>() {
+                        @Override
+                        public Observable<IotHubOperationEvent> call(List<IotHubDescriptionInner> hubInners) {
+                            synchronized (self) {
+                                Set<HubState> listed = new HashSet<>();
+                                for (IotHubDescriptionInner hubInner : hubInners) {
+                                    listed.add(self.addHub(ResourceUtils.groupFromResourceId(hubInner.id()), hubInner.name()));
+                                }
+                                // The hubs deleted since the previous listing are no longer watched
+                                Iterator<HubState> hubs = self.hubs.values().iterator();
+                                while (hubs.hasNext()) {
+                                    HubState hub = hubs.next();
+                                    if (!hub.explicit && !listed.contains(hub)) {
+                                        hubs.remove();
+                                    }
+                                }
+                            }
+                            return Observable.empty();
+                        }
+                    })
+                    .onErrorResumeNext(new Func1<Throwable, Observable<IotHubOperationEvent>>() {
+                        @Override
+                        public Observable<IotHubOperationEvent> call(Throwable throwable) {
+                            return Observable.<IotHubOperationEvent>just(new IotHubOperationEventImpl(
+                                    IotHubOperationEventType.POLL_FAILED, null, null, null, null, throwable));
+                        }
+                    })
+                    .doAfterTerminate(new Action0() {
+                        @Override
+                        public void call() {
+                            synchronized (self) {
+                                poll.due = System.currentTimeMillis() + self.discoveryIntervalInMilliseconds;
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Listing of the jobs and quota metrics of an IoT hub, and state of the hub.
+     */
+    final class HubState extends Poll {
+        private final String resourceGroupName;
+        private final String hubName;
+        // Jobs in progress, by ID
+        final Map<String, JobState> jobs = new LinkedHashMap<>();
+        // Jobs listed in a terminal state that were already reported, or that completed before the first listing
+        private final Set<String> completedJobIds = new HashSet<>();
+        // Quota metrics over the threshold
+        private final Set<String> exceededMetrics = new HashSet<>();
+        private boolean explicit;
+        private boolean listed;
+
+        HubState(String resourceGroupName, String hubName) {
+            this.resourceGroupName = resourceGroupName;
+            this.hubName = hubName;
+        }
+
+        @Override
+        int cost() {
+            return 2;
+        }
+
+        @Override
+        Observable<IotHubOperationEvent> pollAsync() {
+            final IotHubOperationsWatcherImpl self = IotHubOperationsWatcherImpl.this;
+            final HubState hub = this;
+            Observable<IotHubOperationEvent> jobEvents = self.client.listJobsAsync(this.resourceGroupName, this.hubName)
+                    .concatMapIterable(new Func1<Page<JobResponseInner>, List<JobResponseInner>>() {
+                        @Override
+                        public List<JobResponseInner> call(Page<JobResponseInner> page) {
+                            return page.items();
+                        }
+                    })
+                    .toList()
+                    .concatMapIterable(new Func1<List<JobResponseInner>, List<IotHubOperationEvent>>() {
+                        @Override
+                        public List<IotHubOperationEvent> call(List<JobResponseInner> jobs) {
+                            synchronized (self) {
+                                return hub.updateJobs(jobs, System.currentTimeMillis());
+                            }
+                        }
+                    })
+                    .onErrorResumeNext(this.pollFailed());
+            Observable<IotHubOperationEvent> quotaEvents = self.client.getQuotaMetricsAsync(this.resourceGroupName, this.hubName)
+                    .concatMapIterable(new Func1<Page<IotHubQuotaMetricInfoInner>, List<IotHubQuotaMetricInfoInner>>() {
+                        @Override
+                        public List<IotHubQuotaMetricInfoInner> call(Page<IotHubQuotaMetricInfoInner> page) {
+                            return page.items();
+                        }
+                    })
+                    .toList()
+                    .concatMapIterable(new Func1<List<IotHubQuotaMetricInfoInner>, List<IotHubOperationEvent>>() {
+                        @Override
+                        public List<IotHubOperationEvent> call(List<IotHubQuotaMetricInfoInner> metrics) {
+                            synchronized (self) {
+                                return hub.updateQuotaMetrics(metrics);
+                            }
+                        }
+                    })
+                    .onErrorResumeNext(this.pollFailed());
+            return jobEvents.mergeWith(quotaEvents)
+                    .doAfterTerminate(new Action0() {
+                        @Override
+                        public void call() {
+                            synchronized (self) {
+                                hub.due = System.currentTimeMillis() + self.listingIntervalInMilliseconds;
+                            }
+                        }
+                    });
+        }
+
+        List<IotHubOperationEvent> updateJobs(List<JobResponseInner> jobInners, long now) {
+            final IotHubOperationsWatcherImpl self = IotHubOperationsWatcherImpl.this;
+            List<IotHubOperationEvent> events = new ArrayList<>();
+            Set<String> listedJobIds = new HashSet<>();
+            for (JobResponseInner jobInner : jobInners) {
+                String jobId = jobInner.jobId();
+                listedJobIds.add(jobId);
+                if (!isTerminal(jobInner)) {
+                    if (!this.jobs.containsKey(jobId)) {
+                        JobState jobState = new JobState(this, jobInner, now);
+                        jobState.due = now + self.jobPollInterval(jobState, now);
+                        this.jobs.put(jobId, jobState);
+                    }
+                } else if (this.completedJobIds.add(jobId) && this.listed) {
+                    // Completed since the previous listing, whether it was polled in progress or not
+                    JobState jobState = this.jobs.remove(jobId);
+                    self.recordDuration(jobInner, jobState == null ? now : jobState.firstSeen, now);
+                    events.add(new IotHubOperationEventImpl(IotHubOperationEventType.JOB_COMPLETED,
+                            this.resourceGroupName, this.hubName, jobInner, null, null));
+                }
+            }
+            // Only the jobs still listed can be listed again
+            this.completedJobIds.retainAll(listedJobIds);
+            this.listed = true;
+            return events;
+        }
+
+        List<IotHubOperationEvent> updateQuotaMetrics(List<IotHubQuotaMetricInfoInner> metrics) {
+            final IotHubOperationsWatcherImpl self = IotHubOperationsWatcherImpl.this;
+            List<IotHubOperationEvent> events = new ArrayList<>();
+            for (IotHubQuotaMetricInfoInner metric : metrics) {
+                if (metric.currentValue() == null || metric.maxValue() == null || metric.maxValue() <= 0) {
+                    continue;
+                }
+                if ((double) metric.currentValue() / metric.maxValue() >= self.quotaThreshold) {
+                    if (this.exceededMetrics.add(metric.name())) {
+                        events.add(new IotHubOperationEventImpl(IotHubOperationEventType.QUOTA_THRESHOLD_EXCEEDED,
+                                this.resourceGroupName, this.hubName, null, metric, null));
+                    }
+                } else {
+                    this.exceededMetrics.remove(metric.name());
+                }
+            }
+            return events;
+        }
+
+        private Func1<Throwable, Observable<IotHubOperationEvent>> pollFailed() {
+            final HubState hub = this;
+            return new Func1<Throwable, Observable<IotHubOperationEvent>>() {
+                @Override
+                public Observable<IotHubOperationEvent> call(Throwable throwable) {
+                    return Observable.<IotHubOperationEvent>just(new IotHubOperationEventImpl(
+                            IotHubOperationEventType.POLL_FAILED, hub.resourceGroupName, hub.hubName, null, null, throwable));
+                }
+            };
+        }
+    }
+
+    /**
+     * Polling of a job in progress.
+     */
+    final class JobState extends Poll {
+        private final HubState hub;
+        private final long firstSeen;
+        private JobResponseInner job;
+
+        JobState(HubState hub, JobResponseInner job, long firstSeen) {
+            this.hub = hub;
+            this.job = job;
+            this.firstSeen = firstSeen;
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+
+        @Override
+        Observable<IotHubOperationEvent> pollAsync() {
+            final IotHubOperationsWatcherImpl self = IotHubOperationsWatcherImpl.this;
+            final JobState jobState = this;
+            final HubState hub = this.hub;
+            return self.client.getJobAsync(hub.resourceGroupName, hub.hubName, this.job.jobId())
+                    .flatMap(new Func1<JobResponseInner, Observable<IotHubOperationEvent>>() {
+                        @Override
+                        public Observable<IotHubOperationEvent> call(JobResponseInner jobInner) {
+                            long now = System.currentTimeMillis();
+                            synchronized (self) {
+                                if (!isTerminal(jobInner)) {
+                                    jobState.job = jobInner;
+                                    jobState.due = now + self.jobPollInterval(jobState, now);
+                                    return Observable.empty();
+                                }
+                                // The completion may already have been reported by a listing of the jobs of the hub
+                                if (hub.jobs.remove(jobInner.jobId()) == null || !hub.completedJobIds.add(jobInner.jobId())) {
+                                    return Observable.empty();
+                                }
+                                self.recordDuration(jobInner, jobState.firstSeen, now);
+                            }
+                            return Observable.<IotHubOperationEvent>just(new IotHubOperationEventImpl(
+                                    IotHubOperationEventType.JOB_COMPLETED, hub.resourceGroupName, hub.hubName, jobInner, null, null));
+                        }
+                    })
+                    .onErrorResumeNext(new Func1<Throwable, Observable<IotHubOperationEvent>>() {
+                        @Override
+                        public Observable<IotHubOperationEvent> call(Throwable throwable) {
+                            long now = System.currentTimeMillis();
+                            synchronized (self) {
+                                // The IoT hub operations fail with ErrorDetailsInnerException, a RestException
+                                if (throwable instanceof RestException
+                                        && ((RestException) throwable).response() != null
+                                        && ((RestException) throwable).response().code() == 404) {
+                                    // The job expired from the history of the hub
+                                    hub.jobs.remove(jobState.job.jobId());
+                                    return Observable.empty();
+                                }
+                                jobState.due = now + self.jobPollInterval(jobState, now);
+                            }
+                            return Observable.<IotHubOperationEvent>just(new IotHubOperationEventImpl(
+                                    IotHubOperationEventType.POLL_FAILED, hub.resourceGroupName, hub.hubName, null, null, throwable));
+                        }
+                    });
+        }
+    }
+
+    /**
+     * An event of an IoT hub.
+     */
+    private static final class IotHubOperationEventImpl implements IotHubOperationEvent {
+        private final IotHubOperationEventType type;
+        private final String resourceGroupName;
+        private final String hubName;
+        private final JobResponseInner job;
+        private final IotHubQuotaMetricInfoInner quotaMetric;
+        private final Throwable error;
+
+        IotHubOperationEventImpl(IotHubOperationEventType type, String resourceGroupName, String hubName,
+                                 JobResponseInner job, IotHubQuotaMetricInfoInner quotaMetric, Throwable error) {
+            this.type = type;
+            this.resourceGroupName = resourceGroupName;
+            this.hubName = hubName;
+            this.job = job;
+            this.quotaMetric = quotaMetric;
+            this.error = error;
+        }
+
+        @Override
+        public IotHubOperationEventType type() {
+            return this.type;
+        }
+
+        @Override
+        public String resourceGroupName() {
+            return this.resourceGroupName;
+        }
+
+        @Override
+        public String hubName() {
+            return this.hubName;
+        }
+
+        @Override
+        public JobResponseInner job() {
+            return this.job;
+        }
+
+        @Override
+        public IotHubQuotaMetricInfoInner quotaMetric() {
+            return this.quotaMetric;
+        }
+
+        @Override
+        public Throwable error() {
+            return this.error;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.devices.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.devices.IotHubOperationEvent;
+import com.microsoft.azure.management.devices.IotHubOperationEventType;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import com.microsoft.rest.DateTimeRfc1123;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class IotHubOperationsWatcherTests {
+    private static final long NOW = new DateTime(2017, 8, 1, 12, 0, DateTimeZone.UTC).getMillis();
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    public void canAdaptJobPollInterval() throws IOException {
+        IotHubOperationsWatcherImpl watcher = new IotHubOperationsWatcherImpl(null);
+        IotHubOperationsWatcherImpl.HubState hub = watcher.addHub("rg1", "hub1");
+
+        // A quarter of the age of the job, within 5 seconds and 5 minutes
+        Assert.assertEquals(15 * SECOND, pollInterval(watcher, hub, job("job1", "export", "running", NOW - MINUTE, null), NOW));
+        Assert.assertEquals(5 * SECOND, pollInterval(watcher, hub, job("job1", "export", "running", NOW - 4 * SECOND, null), NOW));
+        Assert.assertEquals(5 * MINUTE, pollInterval(watcher, hub, job("job1", "export", "running", NOW - 60 * MINUTE, null), NOW));
+        // Without start time, the age is counted from the first time the job was seen
+        Assert.assertEquals(30 * SECOND, watcher.jobPollInterval(
+                watcher.new JobState(hub, job("job1", "export", "running", null, null), NOW - 2 * MINUTE), NOW));
+
+        watcher.recordDuration(job("job0", "export", "completed", NOW - 12 * MINUTE, NOW), NOW, NOW);
+        // Half of the remaining time to the expected duration, when shorter
+        Assert.assertEquals(105 * SECOND, pollInterval(watcher, hub, job("job1", "export", "running", NOW - 510 * SECOND, null), NOW));
+        // The minimum interval near the expected duration, before or after it
+        Assert.assertEquals(5 * SECOND, pollInterval(watcher, hub, job("job1", "export", "running", NOW - 11 * MINUTE, null), NOW));
+        Assert.assertEquals(5 * SECOND, pollInterval(watcher, hub, job("job1", "export", "running", NOW - 14 * MINUTE, null), NOW));
+        // The expected durations are by job type
+        Assert.assertEquals(127500, pollInterval(watcher, hub, job("job1", "import", "running", NOW - 510 * SECOND, null), NOW));
+    }
+
+    @Test
+    public void canAverageJobDurations() throws IOException {
+        IotHubOperationsWatcherImpl watcher = new IotHubOperationsWatcherImpl(null);
+
+        watcher.recordDuration(job("job1", "export", "completed", NOW - 12 * MINUTE, NOW), NOW, NOW);
+        Assert.assertEquals(Long.valueOf(12 * MINUTE), watcher.expectedDurations.get("export"));
+        watcher.recordDuration(job("job2", "export", "completed", NOW - 16 * MINUTE, NOW), NOW, NOW);
+        Assert.assertEquals(Long.valueOf(13 * MINUTE), watcher.expectedDurations.get("export"));
+
+        // Without start and end times, the duration is counted from the first time the job was seen
+        watcher.recordDuration(job("job3", "import", "completed", null, null), NOW - 2 * MINUTE, NOW);
+        Assert.assertEquals(Long.valueOf(2 * MINUTE), watcher.expectedDurations.get("import"));
+
+        // Durations that are not positive are ignored
+        watcher.recordDuration(job("job4", "backup", "completed", NOW, NOW - MINUTE), NOW, NOW);
+        watcher.recordDuration(job("job5", "backup", "completed", null, null), NOW, NOW);
+        Assert.assertFalse(watcher.expectedDurations.containsKey("backup"));
+    }
+
+    @Test
+    public void canReportJobsCompletedSinceFirstListing() throws IOException {
+        IotHubOperationsWatcherImpl watcher = new IotHubOperationsWatcherImpl(null);
+        IotHubOperationsWatcherImpl.HubState hub = watcher.addHub("rg1", "hub1");
+
+        // The jobs that completed before the first listing are not reported
+        Assert.assertTrue(hub.updateJobs(Arrays.asList(
+                job("job1", "export", "running", NOW - MINUTE, null),
+                job("job2", "export", "completed", NOW - 10 * MINUTE, NOW - 5 * MINUTE)), NOW).isEmpty());
+        Assert.assertEquals(Collections.singletonList("job1"), new ArrayList<>(hub.jobs.keySet()));
+        Assert.assertEquals(NOW + 15 * SECOND, hub.jobs.get("job1").due);
+
+        // The jobs completed since, whether seen in progress or not
+        List<IotHubOperationEvent> events = hub.updateJobs(Arrays.asList(
+                job("job1", "export", "completed", NOW - MINUTE, NOW + 30 * SECOND),
+                job("job2", "export", "completed", NOW - 10 * MINUTE, NOW - 5 * MINUTE),
+                job("job3", "import", "failed", null, null)), NOW + MINUTE);
+        Assert.assertEquals(Arrays.asList("job1", "job3"), jobIds(events));
+        Assert.assertEquals("rg1", events.get(0).resourceGroupName());
+        Assert.assertEquals("hub1", events.get(0).hubName());
+        Assert.assertTrue(hub.jobs.isEmpty());
+        Assert.assertEquals(Long.valueOf(90 * SECOND), watcher.expectedDurations.get("export"));
+        // job3 was first seen completed, so its duration is unknown
+        Assert.assertFalse(watcher.expectedDurations.containsKey("import"));
+
+        // The completions are reported once
+        Assert.assertTrue(hub.updateJobs(Arrays.asList(
+                job("job1", "export", "completed", NOW - MINUTE, NOW + 30 * SECOND),
+                job("job3", "import", "failed", null, null)), NOW + 2 * MINUTE).isEmpty());
+    }
+
+    @Test
+    public void canAlertOnceAboveQuotaThreshold() throws IOException {
+        IotHubOperationsWatcherImpl watcher = new IotHubOperationsWatcherImpl(null).withQuotaThreshold(0.8);
+        IotHubOperationsWatcherImpl.HubState hub = watcher.addHub("rg1", "hub1");
+
+        Assert.assertEquals(Collections.singletonList("m1"), metricNames(hub.updateQuotaMetrics(Arrays.asList(
+                metric("m1", 90L, 100L), metric("m2", 50L, 100L), metric("m3", 10L, 0L), metric("m4", null, 100L)))));
+        Assert.assertTrue(hub.updateQuotaMetrics(Arrays.asList(metric("m1", 95L, 100L), metric("m2", 50L, 100L))).isEmpty());
+
+        // A metric back under the threshold is alerted on again when it exceeds it
+        Assert.assertTrue(hub.updateQuotaMetrics(Collections.singletonList(metric("m1", 10L, 100L))).isEmpty());
+        Assert.assertEquals(Arrays.asList("m1", "m2"), metricNames(hub.updateQuotaMetrics(Arrays.asList(
+                metric("m1", 85L, 100L), metric("m2", 80L, 100L)))));
+    }
+
+    @Test
+    public void canPollJobsDuringSlowHubListing() throws IOException {
+        FakeIotHubResources client = new FakeIotHubResources();
+        IotHubOperationsWatcherImpl watcher = new IotHubOperationsWatcherImpl(client).withHub("rg1", "hub1");
+
+        IotHubOperationEvent event = watcher.jobCompletionsAsync().first().timeout(30, TimeUnit.SECONDS).toBlocking().single();
+
+        Assert.assertEquals("job1", event.job().jobId());
+        Assert.assertEquals(Collections.singletonList("job1"), client.polledJobIds);
+        // The quota metrics of the hub are still being listed
+        synchronized (watcher) {
+            Assert.assertEquals(Long.MAX_VALUE, watcher.addHub("rg1", "hub1").due);
+        }
+    }
+
+    private static long pollInterval(IotHubOperationsWatcherImpl watcher, IotHubOperationsWatcherImpl.HubState hub,
+                                     JobResponseInner job, long now) {
+        return watcher.jobPollInterval(watcher.new JobState(hub, job, now), now);
+    }
+
+    private static List<String> jobIds(List<IotHubOperationEvent> events) {
+        List<String> jobIds = new ArrayList<>();
+        for (IotHubOperationEvent event : events) {
+            Assert.assertEquals(IotHubOperationEventType.JOB_COMPLETED, event.type());
+            jobIds.add(event.job().jobId());
+        }
+        return jobIds;
+    }
+
+    private static List<String> metricNames(List<IotHubOperationEvent> events) {
+        List<String> names = new ArrayList<>();
+        for (IotHubOperationEvent event : events) {
+            Assert.assertEquals(IotHubOperationEventType.QUOTA_THRESHOLD_EXCEEDED, event.type());
+            names.add(event.quotaMetric().name());
+        }
+        return names;
+    }
+
+    private static JobResponseInner job(String jobId, String type, String status, Long startTime, Long endTime) throws IOException {
+        StringBuilder json = new StringBuilder("{\"jobId\":\"").append(jobId).append("\",\"type\":\"").append(type)
+                .append("\",\"status\":\"").append(status).append('"');
+        if (startTime != null) {
+            json.append(",\"startTimeUtc\":\"").append(new DateTimeRfc1123(new DateTime(startTime, DateTimeZone.UTC))).append('"');
+        }
+        if (endTime != null) {
+            json.append(",\"endTimeUtc\":\"").append(new DateTimeRfc1123(new DateTime(endTime, DateTimeZone.UTC))).append('"');
+        }
+        return new AzureJacksonAdapter().deserialize(json.append('}').toString(), JobResponseInner.class);
+    }
+
+    private static IotHubQuotaMetricInfoInner metric(String name, Long currentValue, Long maxValue) throws IOException {
+        return new AzureJacksonAdapter().deserialize("{\"Name\":\"" + name + "\",\"CurrentValue\":" + currentValue
+                + ",\"MaxValue\":" + maxValue + "}", IotHubQuotaMetricInfoInner.class);
+    }
+
+    /**
+     * IoT hub client listing a job in progress, whose quota metrics are never listed, and completing
+     * the jobs polled.
+     */
+    private static class FakeIotHubResources extends IotHubResourcesInner {
+        private final List<String> polledJobIds = new CopyOnWriteArrayList<>();
+
+        FakeIotHubResources() {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+        }
+
+        @Override
+        public Observable<Page<JobResponseInner>> listJobsAsync(String resourceGroupName, String resourceName) {
+            try {
+                long now = System.currentTimeMillis();
+                return Observable.<Page<JobResponseInner>>just(new PageImpl<JobResponseInner>().setItems(
+                        Collections.singletonList(job("job1", "export", "running", now - 10 * SECOND, null))));
+            } catch (IOException e) {
+                return Observable.error(e);
+            }
+        }
+
+        @Override
+        public Observable<Page<IotHubQuotaMetricInfoInner>> getQuotaMetricsAsync(String resourceGroupName, String resourceName) {
+            return Observable.never();
+        }
+
+        @Override
+        public Observable<JobResponseInner> getJobAsync(String resourceGroupName, String resourceName, String jobId) {
+            this.polledJobIds.add(jobId);
+            try {
+                long now = System.currentTimeMillis();
+                return Observable.just(job(jobId, "export", "completed", now - 20 * SECOND, now));
+            } catch (IOException e) {
+                return Observable.error(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.graphrbac;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import com.microsoft.azure.management.resources.fluentcore.model.Refreshable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evaluates the effective permissions of principals on the resources of a subscription, from a
+ * snapshot of the role assignments and role definitions of the subscription.
+ * <p>
+ * The snapshot is taken by the first refresh. Later refreshes list the role assignments again and
+ * apply the differences to the snapshot. Each refresh also lists the role definitions again, and fetches
+ * those of the assigned roles not listed at the subscription scope, so that changes to the permissions
+ * of custom roles are observed; the checks keep using the previous role definitions until the refresh
+ * completes. A refresh fails if a role definition cannot be fetched, except when it no longer exists.
+ * <p>
+ * Group memberships are not expanded: the checks consider the role assignments of the given principal
+ * IDs only, to which the IDs of the groups of a user can be added.
+ */
+@Fluent(ContainerName = "/Microsoft.Azure.Management.Graph.RBAC.Fluent")
+@Beta(SinceVersion.V1_3_0)
+public interface AccessEvaluator extends Refreshable<AccessEvaluator> {
+    /**
+     * @return the ID of the subscription whose role assignments are evaluated
+     */
+    String subscriptionId();
+
+    /**
+     * @return the number of role assignments in the snapshot
+     */
+    int assignmentCount();
+
+    /**
+     * @return the IDs of the role definitions of role assignments in the snapshot which were not found
+     * by the last refresh, such as deleted custom roles; these role assignments allow no action
+     */
+    Set<String> unresolvedRoleDefinitionIds();
+
+    /**
+     * Checks whether a principal is allowed an action on a resource or scope.
+     *
+     * @param principalId the object ID of the principal
+     * @param action the action, such as "Microsoft.Compute/virtualMachines/start/action"
+     * @param resourceId the ID of the resource, resource group or subscription
+     * @return true if a role assignment of the principal at or above the resource allows the action
+     */
+    boolean isAllowed(String principalId, String action, String resourceId);
+
+    /**
+     * Checks whether any of a set of principals, such as a user and its groups, is allowed an action on a resource or scope.
+     *
+     * @param principalIds the object IDs of the principals
+     * @param action the action, such as "Microsoft.Compute/virtualMachines/start/action"
+     * @param resourceId the ID of the resource, resource group or subscription
+     * @return true if a role assignment of one of the principals at or above the resource allows the action
+     */
+    boolean isAllowed(Collection<String> principalIds, String action, String resourceId);
+
+    /**
+     * Gets the role assignments allowing any of a set of principals an action on a resource or scope.
+     *
+     * @param principalIds the object IDs of the principals
+     * @param action the action, such as "Microsoft.Compute/virtualMachines/start/action"
+     * @param resourceId the ID of the resource, resource group or subscription
+     * @return the role assignments allowing the action, from the broadest scope to the narrowest
+     */
+    List<RoleAssignment> listAllowingAssignments(Collection<String> principalIds, String action, String resourceId);
+}
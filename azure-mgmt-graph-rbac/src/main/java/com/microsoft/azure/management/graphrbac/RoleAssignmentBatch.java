@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.graphrbac;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import rx.Observable;
+
+import java.util.List;
+
+/**
+ * A batch of role assignments to ensure, each granting a role to a principal at a scope.
+ * <p>
+ * The role definitions of the built-in roles are listed once per subscription, and the existing role
+ * assignments once per scope; only the role assignments not existing yet are created, in parallel.
+ * Each apply lists the existing role assignments again, so a batch can be applied repeatedly.
+ */
+@Fluent(ContainerName = "/Microsoft.Azure.Management.Graph.RBAC.Fluent")
+@Beta(SinceVersion.V1_3_0)
+public interface RoleAssignmentBatch {
+    /**
+     * Adds the assignment of a built-in role to a principal at a scope.
+     *
+     * @param principalId the object ID of the user, group or service principal
+     * @param role the built-in role
+     * @param scope the scope of the assignment
+     * @return the batch
+     */
+    RoleAssignmentBatch withAssignment(String principalId, BuiltInRole role, String scope);
+
+    /**
+     * Adds the assignment of a role definition to a principal at a scope.
+     *
+     * @param principalId the object ID of the user, group or service principal
+     * @param roleDefinitionId the ID of the role definition
+     * @param scope the scope of the assignment
+     * @return the batch
+     */
+    RoleAssignmentBatch withRoleDefinitionAssignment(String principalId, String roleDefinitionId, String scope);
+
+    /**
+     * Specifies the maximum number of scopes listed and of role assignments created in parallel.
+     *
+     * @param maxConcurrency the maximum number of concurrent calls, defaults to 8
+     * @return the batch
+     */
+    RoleAssignmentBatch withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Creates the role assignments of the batch not existing yet.
+     *
+     * @return the role assignments of the batch, whether they already existed or were created
+     */
+    List<RoleAssignment> apply();
+
+    /**
+     * Creates the role assignments of the batch not existing yet.
+     *
+     * @return an observable emitting the role assignments of the batch, whether they already existed or were created
+     */
+    Observable<RoleAssignment> applyAsync();
+}
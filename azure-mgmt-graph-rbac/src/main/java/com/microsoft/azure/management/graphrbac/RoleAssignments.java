@@ -77,4 +77,12 @@ public interface RoleAssignments extends
      * @return a list of role assignments
      */
     PagedList<RoleAssignment> listByScope(String scope);
+
+    /**
+     * Starts a batch of role assignments, created only where they do not exist yet.
+     *
+     * @return an empty batch
+     */
+    @Beta(SinceVersion.V1_3_0)
+    RoleAssignmentBatch newBatch();
 }
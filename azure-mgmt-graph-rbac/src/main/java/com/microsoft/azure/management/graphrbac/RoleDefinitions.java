@@ -17,6 +17,7 @@ import com.microsoft.azure.management.resources.fluentcore.arm.models.HasManager
 import com.microsoft.azure.management.resources.fluentcore.model.HasInner;
 import com.microsoft.rest.ServiceCallback;
 import com.microsoft.rest.ServiceFuture;
+import rx.Completable;
 import rx.Observable;
 
 /**
@@ -99,4 +100,24 @@ public interface RoleDefinitions extends
      * @return a list of role definitions
      */
     PagedList<RoleDefinition> listByScope(String scope);
+
+    /**
+     * Loads all the role definitions of a scope into the role definition cache of the manager, so that
+     * the role definitions of the scope are then looked up by role name without further calls.
+     * <p>
+     * Role definitions looked up by role name are cached as well, whether the cache was loaded or not.
+     * The role definitions cached for a subscription, such as the built-in roles, are used for all the
+     * scopes within the subscription.
+     *
+     * @param scope the scope of the role definitions
+     * @return a completable completing when the role definitions are cached
+     */
+    @Beta(SinceVersion.V1_3_0)
+    Completable cacheByScopeAsync(String scope);
+
+    /**
+     * Clears the role definition cache, for instance after custom roles were changed.
+     */
+    @Beta(SinceVersion.V1_3_0)
+    void clearCache();
 }
@@ -0,0 +1,412 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.graphrbac.implementation;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.graphrbac.AccessEvaluator;
+import com.microsoft.azure.management.graphrbac.RoleAssignment;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Implementation for AccessEvaluator.
+ * <p>
+ * The role assignments of each principal are indexed by a trie over the segments of their scopes, so that
+ * a check only visits the assignments at the scopes on the path from the subscription to the resource.
+ * The actions and not actions of each role definition are compiled into matchers once per refresh.
+ */
+@LangDefinition(ContainerName = "/Microsoft.Azure.Management.Graph.RBAC.Fluent")
+class AccessEvaluatorImpl implements AccessEvaluator {
+    private static final int MAX_CONCURRENCY = 4;
+
+    private final GraphRbacManager manager;
+    private final String subscriptionId;
+    private final String subscriptionScope;
+    // The compiled role definitions of the last refresh, by role definition name
+    private volatile Map<String, CompiledRole> roles = Collections.emptyMap();
+    // The role assignments, by role assignment ID
+    private final ConcurrentMap<String, Assignment> assignments = new ConcurrentHashMap<>();
+    // The scope tries of the role assignments, by principal ID
+    private final ConcurrentMap<String, ScopeNode> principals = new ConcurrentHashMap<>();
+    private volatile Set<String> unresolvedRoleDefinitionIds = Collections.emptySet();
+
+    AccessEvaluatorImpl(GraphRbacManager manager, String subscriptionId) {
+        this.manager = manager;
+        this.subscriptionId = subscriptionId;
+        this.subscriptionScope = "/subscriptions/" + subscriptionId;
+    }
+
+    @Override
+    public String subscriptionId() {
+        return this.subscriptionId;
+    }
+
+    @Override
+    public int assignmentCount() {
+        return this.assignments.size();
+    }
+
+    @Override
+    public boolean isAllowed(String principalId, String action, String resourceId) {
+        return this.isAllowed(Collections.singletonList(principalId), action, resourceId);
+    }
+
+    @Override
+    public boolean isAllowed(Collection<String> principalIds, String action, String resourceId) {
+        return !this.findAllowingAssignments(principalIds, action, resourceId, true).isEmpty();
+    }
+
+    @Override
+    public List<RoleAssignment> listAllowingAssignments(Collection<String> principalIds, String action, String resourceId) {
+        List<RoleAssignment> result = new ArrayList<>();
+        for (Assignment assignment : this.findAllowingAssignments(principalIds, action, resourceId, false)) {
+            result.add(new RoleAssignmentImpl(assignment.inner, this.manager));
+        }
+        return result;
+    }
+
+    private List<Assignment> findAllowingAssignments(Collection<String> principalIds, String action, String resourceId, boolean firstOnly) {
+        String[] path = this.segments(resourceId);
+        if (path == null) {
+            throw new IllegalArgumentException(String.format("%s is not in subscription %s", resourceId, this.subscriptionId));
+        }
+        String lowerCaseAction = action.toLowerCase(Locale.ROOT);
+        Map<String, CompiledRole> roles = this.roles;
+        List<Assignment> result = new ArrayList<>();
+        for (String principalId : principalIds) {
+            ScopeNode node = this.principals.get(principalId.toLowerCase(Locale.ROOT));
+            for (int i = 0; node != null; i++) {
+                for (Assignment assignment : node.assignments) {
+                    CompiledRole role = roles.get(assignment.roleName);
+                    if (role != null && role.allows(lowerCaseAction)) {
+                        result.add(assignment);
+                        if (firstOnly) {
+                            return result;
+                        }
+                    }
+                }
+                node = i < path.length ? node.children.get(path[i]) : null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public AccessEvaluator refresh() {
+        return this.refreshAsync().toBlocking().last();
+    }
+
+    @Override
+    public Observable<AccessEvaluator> refreshAsync() {
+        final AccessEvaluatorImpl self = this;
+        // The role definitions are listed again into new compiled roles, used by the checks once complete
+        final ConcurrentMap<String, CompiledRole> roles = new ConcurrentHashMap<>();
+        return this.manager.roleInner().roleDefinitions().listAsync(this.subscriptionScope)
+                .concatMapIterable(new Func1<Page<RoleDefinitionInner>, List<RoleDefinitionInner>>() {
+                    @Override
+                    public List<RoleDefinitionInner> call(Page<RoleDefinitionInner> roleDefinitionInnerPage) {
+                        return roleDefinitionInnerPage.items();
+                    }
+                })
+                .doOnNext(new Action1<RoleDefinitionInner>() {
+                    @Override
+                    public void call(RoleDefinitionInner roleDefinitionInner) {
+                        addRole(roles, roleDefinitionInner);
+                    }
+                })
+                .toCompletable()
+                .andThen(this.manager.roleInner().roleAssignments().listForScopeAsync(this.subscriptionScope)
+                        .concatMapIterable(new Func1<Page<RoleAssignmentInner>, List<RoleAssignmentInner>>() {
+                            @Override
+                            public List<RoleAssignmentInner> call(Page<RoleAssignmentInner> roleAssignmentInnerPage) {
+                                return roleAssignmentInnerPage.items();
+                            }
+                        })
+                        .toList())
+                .flatMap(new Func1<List<RoleAssignmentInner>, Observable<String>>() {
+                    @Override
+                    public Observable<String> call(List<RoleAssignmentInner> roleAssignmentInners) {
+                        return Observable.from(self.applyAssignments(roleAssignmentInners, roles));
+                    }
+                })
+                .flatMap(new Func1<String, Observable<RoleDefinitionInner>>() {
+                    @Override
+                    public Observable<RoleDefinitionInner> call(String roleDefinitionId) {
+                        // Custom roles only assignable below the subscription are not listed; deleted roles are not found
+                        return self.manager.roleInner().roleDefinitions().getByIdAsync(roleDefinitionId)
+                                .onErrorResumeNext(new Func1<Throwable, Observable<RoleDefinitionInner>>() {
+                                    @Override
+                                    public Observable<RoleDefinitionInner> call(Throwable throwable) {
+                                        return isNotFound(throwable)
+                                                ? Observable.<RoleDefinitionInner>empty()
+                                                : Observable.<RoleDefinitionInner>error(throwable);
+                                    }
+                                });
+                    }
+                }, MAX_CONCURRENCY)
+                .doOnNext(new Action1<RoleDefinitionInner>() {
+                    @Override
+                    public void call(RoleDefinitionInner roleDefinitionInner) {
+                        addRole(roles, roleDefinitionInner);
+                    }
+                })
+                .toList()
+                .map(new Func1<List<RoleDefinitionInner>, AccessEvaluator>() {
+                    @Override
+                    public AccessEvaluator call(List<RoleDefinitionInner> roleDefinitionInners) {
+                        self.useRoles(roles);
+                        return self;
+                    }
+                });
+    }
+
+    @Override
+    public Set<String> unresolvedRoleDefinitionIds() {
+        return this.unresolvedRoleDefinitionIds;
+    }
+
+    /**
+     * Applies the differences between the listed role assignments and the snapshot to the snapshot.
+     *
+     * @param roleAssignmentInners the role assignments of the subscription
+     * @param roles the compiled roles the checks will use
+     * @return the IDs of the role definitions of the assignments of the snapshot missing from the roles
+     */
+    synchronized Set<String> applyAssignments(List<RoleAssignmentInner> roleAssignmentInners, Map<String, CompiledRole> roles) {
+        Set<String> listed = new HashSet<>();
+        for (RoleAssignmentInner inner : roleAssignmentInners) {
+            if (inner.id() == null || inner.properties() == null
+                    || inner.properties().principalId() == null || inner.properties().roleDefinitionId() == null) {
+                continue;
+            }
+            String key = inner.id().toLowerCase(Locale.ROOT);
+            listed.add(key);
+            if (this.assignments.containsKey(key)) {
+                continue;
+            }
+            String[] path = this.segments(inner.properties().scope());
+            // Assignments of management groups and of the root scope apply to the whole subscription
+            Assignment assignment = new Assignment(inner, path == null ? new String[0] : path);
+            this.assignments.put(key, assignment);
+            ScopeNode node = this.principals.get(assignment.principalId);
+            if (node == null) {
+                node = new ScopeNode();
+                this.principals.put(assignment.principalId, node);
+            }
+            node.add(assignment, 0);
+        }
+        for (Assignment assignment : new ArrayList<>(this.assignments.values())) {
+            String key = assignment.inner.id().toLowerCase(Locale.ROOT);
+            if (!listed.contains(key)) {
+                this.assignments.remove(key);
+                ScopeNode node = this.principals.get(assignment.principalId);
+                if (node != null) {
+                    node.remove(assignment, 0);
+                }
+            }
+        }
+        return this.missingRoleDefinitionIds(roles);
+    }
+
+    /**
+     * Makes the checks use new compiled roles.
+     *
+     * @param roles the compiled roles, by role definition name
+     */
+    synchronized void useRoles(Map<String, CompiledRole> roles) {
+        this.roles = roles;
+        this.unresolvedRoleDefinitionIds = Collections.unmodifiableSet(this.missingRoleDefinitionIds(roles));
+    }
+
+    private Set<String> missingRoleDefinitionIds(Map<String, CompiledRole> roles) {
+        Set<String> missingRoles = new HashSet<>();
+        for (Assignment assignment : this.assignments.values()) {
+            if (!roles.containsKey(assignment.roleName)) {
+                missingRoles.add(assignment.inner.properties().roleDefinitionId());
+            }
+        }
+        return missingRoles;
+    }
+
+    static void addRole(Map<String, CompiledRole> roles, RoleDefinitionInner roleDefinitionInner) {
+        if (roleDefinitionInner.name() != null && roleDefinitionInner.properties() != null) {
+            roles.put(roleDefinitionInner.name().toLowerCase(Locale.ROOT), new CompiledRole(roleDefinitionInner.properties().permissions()));
+        }
+    }
+
+    static boolean isNotFound(Throwable throwable) {
+        return throwable instanceof CloudException
+                && ((CloudException) throwable).response() != null
+                && ((CloudException) throwable).response().code() == 404;
+    }
+
+    /**
+     * Splits a scope of the subscription into lower case segments.
+     *
+     * @param scope the scope
+     * @return the segments, or null if the scope is not the subscription or below it
+     */
+    private String[] segments(String scope) {
+        if (scope == null || !scope.regionMatches(true, 0, this.subscriptionScope, 0, this.subscriptionScope.length())
+                || (scope.length() > this.subscriptionScope.length() && scope.charAt(this.subscriptionScope.length()) != '/')) {
+            return null;
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : scope.toLowerCase(Locale.ROOT).split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * A role assignment of the snapshot.
+     */
+    static final class Assignment {
+        private final RoleAssignmentInner inner;
+        private final String principalId;
+        private final String roleName;
+        private final String[] path;
+
+        Assignment(RoleAssignmentInner inner, String[] path) {
+            this.inner = inner;
+            this.principalId = inner.properties().principalId().toLowerCase(Locale.ROOT);
+            this.roleName = ResourceUtils.nameFromResourceId(inner.properties().roleDefinitionId()).toLowerCase(Locale.ROOT);
+            this.path = path;
+        }
+    }
+
+    /**
+     * A node of a scope trie, holding the role assignments at a scope.
+     */
+    static final class ScopeNode {
+        final ConcurrentMap<String, ScopeNode> children = new ConcurrentHashMap<>();
+        final List<Assignment> assignments = new CopyOnWriteArrayList<>();
+
+        void add(Assignment assignment, int depth) {
+            if (depth == assignment.path.length) {
+                this.assignments.add(assignment);
+                return;
+            }
+            ScopeNode child = this.children.get(assignment.path[depth]);
+            if (child == null) {
+                child = new ScopeNode();
+                this.children.put(assignment.path[depth], child);
+            }
+            child.add(assignment, depth + 1);
+        }
+
+        void remove(Assignment assignment, int depth) {
+            if (depth == assignment.path.length) {
+                this.assignments.remove(assignment);
+                return;
+            }
+            ScopeNode child = this.children.get(assignment.path[depth]);
+            if (child != null) {
+                child.remove(assignment, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * The permissions of a role definition, compiled into action matchers.
+     */
+    static final class CompiledRole {
+        private final ActionMatcher[] actions;
+        private final ActionMatcher[] notActions;
+
+        CompiledRole(List<PermissionInner> permissions) {
+            int count = permissions == null ? 0 : permissions.size();
+            this.actions = new ActionMatcher[count];
+            this.notActions = new ActionMatcher[count];
+            for (int i = 0; i < count; i++) {
+                this.actions[i] = new ActionMatcher(permissions.get(i).actions());
+                this.notActions[i] = new ActionMatcher(permissions.get(i).notActions());
+            }
+        }
+
+        boolean allows(String action) {
+            for (int i = 0; i < this.actions.length; i++) {
+                if (this.actions[i].matches(action) && !this.notActions[i].matches(action)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Matcher of lower case actions against action patterns with wildcards, such as "Microsoft.Compute/*".
+     */
+    static final class ActionMatcher {
+        private final Set<String> exactActions = new HashSet<>();
+        private final List<String> prefixes = new ArrayList<>();
+        private boolean matchesAll;
+        private Pattern pattern;
+
+        ActionMatcher(List<String> actionPatterns) {
+            List<String> regexes = new ArrayList<>();
+            if (actionPatterns != null) {
+                for (String actionPattern : actionPatterns) {
+                    String lowerCasePattern = actionPattern.toLowerCase(Locale.ROOT);
+                    int wildcard = lowerCasePattern.indexOf('*');
+                    if (lowerCasePattern.equals("*")) {
+                        this.matchesAll = true;
+                    } else if (wildcard < 0) {
+                        this.exactActions.add(lowerCasePattern);
+                    } else if (wildcard == lowerCasePattern.length() - 1) {
+                        this.prefixes.add(lowerCasePattern.substring(0, wildcard));
+                    } else {
+                        String[] parts = lowerCasePattern.split("\\*", -1);
+                        StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+                        for (int i = 1; i < parts.length; i++) {
+                            regex.append(".*").append(Pattern.quote(parts[i]));
+                        }
+                        regexes.add(regex.toString());
+                    }
+                }
+            }
+            if (!regexes.isEmpty()) {
+                StringBuilder alternatives = new StringBuilder();
+                for (String regex : regexes) {
+                    alternatives.append(alternatives.length() == 0 ? "" : "|").append("(?:").append(regex).append(')');
+                }
+                this.pattern = Pattern.compile(alternatives.toString());
+            }
+        }
+
+        boolean matches(String action) {
+            if (this.matchesAll || this.exactActions.contains(action)) {
+                return true;
+            }
+            for (String prefix : this.prefixes) {
+                if (action.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return this.pattern != null && this.pattern.matcher(action).matches();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.apigeneration.Beta;
 import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.graphrbac.AccessEvaluator;
 import com.microsoft.azure.management.graphrbac.ActiveDirectoryUsers;
 import com.microsoft.azure.management.graphrbac.ActiveDirectoryApplications;
 import com.microsoft.azure.management.graphrbac.ActiveDirectoryGroups;
@@ -20,9 +21,9 @@ import com.microsoft.azure.management.graphrbac.ServicePrincipals;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.model.HasInner;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 import com.microsoft.rest.interceptors.RequestIdHeaderInterceptor;
 
@@ -59,7 +60,7 @@ public final class GraphRbacManager implements HasInner<GraphRbacManagementClien
                 .withBaseUrl(credentials.environment().graphEndpoint())
                 .withInterceptor(new RequestIdHeaderInterceptor())
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -199,4 +200,17 @@ public final class GraphRbacManager implements HasInner<GraphRbacManagementClien
         }
         return roleDefinitions;
     }
+
+    /**
+     * Creates an evaluator of the effective permissions of principals on the resources of a subscription.
+     * <p>
+     * The evaluator is empty until refreshed.
+     *
+     * @param subscriptionId the ID of the subscription
+     * @return the access evaluator
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public AccessEvaluator newAccessEvaluator(String subscriptionId) {
+        return new AccessEvaluatorImpl(this, subscriptionId);
+    }
 }
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.graphrbac.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.graphrbac.BuiltInRole;
+import com.microsoft.azure.management.graphrbac.RoleAssignment;
+import com.microsoft.azure.management.graphrbac.RoleAssignmentBatch;
+import com.microsoft.azure.management.graphrbac.RoleDefinition;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.PropagationRetryPolicy;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import rx.Completable;
+import rx.Observable;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Implementation for RoleAssignmentBatch.
+ */
+@LangDefinition(ContainerName = "/Microsoft.Azure.Management.Graph.RBAC.Fluent")
+class RoleAssignmentBatchImpl implements RoleAssignmentBatch {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private final GraphRbacManager manager;
+    // The requested assignments by scope
+    private final Map<String, List<PendingAssignment>> assignments = new LinkedHashMap<>();
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    RoleAssignmentBatchImpl(GraphRbacManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public RoleAssignmentBatchImpl withAssignment(String principalId, BuiltInRole role, String scope) {
+        return this.withPendingAssignment(new PendingAssignment(principalId, role.toString(), null, scope));
+    }
+
+    @Override
+    public RoleAssignmentBatchImpl withRoleDefinitionAssignment(String principalId, String roleDefinitionId, String scope) {
+        return this.withPendingAssignment(new PendingAssignment(principalId, null, roleDefinitionId, scope));
+    }
+
+    private RoleAssignmentBatchImpl withPendingAssignment(PendingAssignment assignment) {
+        String key = assignment.scope.toLowerCase(Locale.ROOT);
+        List<PendingAssignment> scopeAssignments = this.assignments.get(key);
+        if (scopeAssignments == null) {
+            scopeAssignments = new ArrayList<>();
+            this.assignments.put(key, scopeAssignments);
+        }
+        scopeAssignments.add(assignment);
+        return this;
+    }
+
+    @Override
+    public RoleAssignmentBatchImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public List<RoleAssignment> apply() {
+        return this.applyAsync().toList().toBlocking().single();
+    }
+
+    @Override
+    public Observable<RoleAssignment> applyAsync() {
+        final RoleAssignmentBatchImpl self = this;
+        // Each apply resolves its own copy of the assignments, so that the batch can be changed and applied again
+        final List<List<PendingAssignment>> scopes = new ArrayList<>();
+        final Map<String, String> subscriptionScopes = new LinkedHashMap<>();
+        for (List<PendingAssignment> scopeAssignments : this.assignments.values()) {
+            scopes.add(new ArrayList<>(scopeAssignments));
+            for (PendingAssignment assignment : scopeAssignments) {
+                if (assignment.roleName != null) {
+                    String subscriptionScope = RoleDefinitionsImpl.subscriptionScope(assignment.scope);
+                    subscriptionScopes.put(subscriptionScope.toLowerCase(Locale.ROOT), subscriptionScope);
+                }
+            }
+        }
+        // Built-in roles are the same at all the scopes of a subscription: list them once per subscription
+        List<Completable> cacheRoleDefinitions = new ArrayList<>();
+        for (String subscriptionScope : subscriptionScopes.values()) {
+            cacheRoleDefinitions.add(this.manager.roleDefinitions().cacheByScopeAsync(subscriptionScope));
+        }
+        return Completable.merge(Observable.from(cacheRoleDefinitions), this.maxConcurrency)
+                .andThen(Observable.from(scopes))
+                .flatMap(new Func1<List<PendingAssignment>, Observable<PendingAssignment>>() {
+                    @Override
+                    public Observable<PendingAssignment> call(List<PendingAssignment> scopeAssignments) {
+                        return self.resolveAsync(scopeAssignments);
+                    }
+                }, this.maxConcurrency)
+                .flatMap(new Func1<PendingAssignment, Observable<RoleAssignment>>() {
+                    @Override
+                    public Observable<RoleAssignment> call(PendingAssignment assignment) {
+                        if (assignment.existing != null) {
+                            return Observable.<RoleAssignment>just(new RoleAssignmentImpl(assignment.existing, self.manager));
+                        }
+                        return self.manager.roleInner().roleAssignments().createAsync(assignment.scope,
+                                SdkContext.randomUuid(),
+                                new RoleAssignmentPropertiesInner()
+                                        .withPrincipalId(assignment.principalId)
+                                        .withRoleDefinitionId(assignment.roleDefinitionId))
+                                // Principals created just before may not be known to Resource Manager yet
+                                .compose(PropagationRetryPolicy.forTenant(self.manager.tenantId()).<RoleAssignmentInner>transformer())
+                                .map(new Func1<RoleAssignmentInner, RoleAssignment>() {
+                                    @Override
+                                    public RoleAssignment call(RoleAssignmentInner roleAssignmentInner) {
+                                        return new RoleAssignmentImpl(roleAssignmentInner, self.manager);
+                                    }
+                                });
+                    }
+                }, this.maxConcurrency);
+    }
+
+    /**
+     * Resolves the role definitions of the assignments of a scope and matches them with the existing assignments.
+     *
+     * @param scopeAssignments the assignments of a scope
+     * @return an observable emitting the distinct resolved assignments, with their existing assignment if any
+     */
+    private Observable<PendingAssignment> resolveAsync(final List<PendingAssignment> scopeAssignments) {
+        final RoleAssignmentBatchImpl self = this;
+        final String scope = scopeAssignments.get(0).scope;
+        return this.manager.roleInner().roleAssignments()
+                .listForScopeAsync(scope)
+                .concatMapIterable(new Func1<Page<RoleAssignmentInner>, List<RoleAssignmentInner>>() {
+                    @Override
+                    public List<RoleAssignmentInner> call(Page<RoleAssignmentInner> roleAssignmentInnerPage) {
+                        return roleAssignmentInnerPage.items();
+                    }
+                })
+                .filter(new Func1<RoleAssignmentInner, Boolean>() {
+                    @Override
+                    public Boolean call(RoleAssignmentInner roleAssignmentInner) {
+                        // Assignments at parent and child scopes are listed as well
+                        return roleAssignmentInner.properties() != null
+                                && scope.equalsIgnoreCase(roleAssignmentInner.properties().scope());
+                    }
+                })
+                .toMap(new Func1<RoleAssignmentInner, String>() {
+                    @Override
+                    public String call(RoleAssignmentInner roleAssignmentInner) {
+                        return key(roleAssignmentInner.properties().principalId(), roleAssignmentInner.properties().roleDefinitionId());
+                    }
+                })
+                .flatMap(new Func1<Map<String, RoleAssignmentInner>, Observable<PendingAssignment>>() {
+                    @Override
+                    public Observable<PendingAssignment> call(final Map<String, RoleAssignmentInner> existing) {
+                        return Observable.from(scopeAssignments)
+                                .concatMap(new Func1<PendingAssignment, Observable<PendingAssignment>>() {
+                                    @Override
+                                    public Observable<PendingAssignment> call(PendingAssignment assignment) {
+                                        return self.resolveRoleDefinitionAsync(assignment);
+                                    }
+                                })
+                                .distinct(new Func1<PendingAssignment, String>() {
+                                    @Override
+                                    public String call(PendingAssignment assignment) {
+                                        return key(assignment.principalId, assignment.roleDefinitionId);
+                                    }
+                                })
+                                .map(new Func1<PendingAssignment, PendingAssignment>() {
+                                    @Override
+                                    public PendingAssignment call(PendingAssignment assignment) {
+                                        return assignment.withExisting(existing.get(key(assignment.principalId, assignment.roleDefinitionId)));
+                                    }
+                                });
+                    }
+                });
+    }
+
+    private Observable<PendingAssignment> resolveRoleDefinitionAsync(final PendingAssignment assignment) {
+        if (assignment.roleDefinitionId != null) {
+            return Observable.just(assignment);
+        }
+        // Served by the role definition cache loaded for the subscription
+        final String subscriptionScope = RoleDefinitionsImpl.subscriptionScope(assignment.scope);
+        return this.manager.roleDefinitions().getByScopeAndRoleNameAsync(subscriptionScope, assignment.roleName)
+                .map(new Func1<RoleDefinition, PendingAssignment>() {
+                    @Override
+                    public PendingAssignment call(RoleDefinition roleDefinition) {
+                        if (roleDefinition == null) {
+                            throw new IllegalArgumentException(String.format("Role '%s' not found at scope %s", assignment.roleName, subscriptionScope));
+                        }
+                        return assignment.withRoleDefinitionId(roleDefinition.id());
+                    }
+                });
+    }
+
+    /**
+     * Gets the key of an assignment in a scope. Role definitions are compared by name, as their IDs
+     * can be based on different scopes.
+     */
+    private static String key(String principalId, String roleDefinitionId) {
+        return (principalId + "|" + ResourceUtils.nameFromResourceId(roleDefinitionId)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A role assignment of the batch.
+     */
+    private static final class PendingAssignment {
+        private final String principalId;
+        private final String roleName;
+        private final String scope;
+        private final String roleDefinitionId;
+        private final RoleAssignmentInner existing;
+
+        PendingAssignment(String principalId, String roleName, String roleDefinitionId, String scope) {
+            this(principalId, roleName, roleDefinitionId, scope, null);
+        }
+
+        private PendingAssignment(String principalId, String roleName, String roleDefinitionId, String scope, RoleAssignmentInner existing) {
+            this.principalId = principalId;
+            this.roleName = roleName;
+            this.roleDefinitionId = roleDefinitionId;
+            this.scope = scope;
+            this.existing = existing;
+        }
+
+        PendingAssignment withRoleDefinitionId(String roleDefinitionId) {
+            return new PendingAssignment(this.principalId, this.roleName, roleDefinitionId, this.scope, this.existing);
+        }
+
+        PendingAssignment withExisting(RoleAssignmentInner existing) {
+            return new PendingAssignment(this.principalId, this.roleName, this.roleDefinitionId, this.scope, existing);
+        }
+    }
+}
@@ -9,6 +9,7 @@ package com.microsoft.azure.management.graphrbac.implementation;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.apigeneration.LangDefinition;
 import com.microsoft.azure.management.graphrbac.RoleAssignment;
+import com.microsoft.azure.management.graphrbac.RoleAssignmentBatch;
 import com.microsoft.azure.management.graphrbac.RoleAssignments;
 import com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation.CreatableResourcesImpl;
 import com.microsoft.azure.management.resources.fluentcore.model.HasInner;
@@ -127,4 +128,9 @@ class RoleAssignmentsImpl
     public RoleAssignmentImpl define(String name) {
         return wrapModel(name);
     }
+
+    @Override
+    public RoleAssignmentBatch newBatch() {
+        return new RoleAssignmentBatchImpl(manager());
+    }
 }
@@ -15,9 +15,16 @@ import com.microsoft.azure.management.resources.fluentcore.arm.collection.implem
 import com.microsoft.azure.management.resources.fluentcore.model.HasInner;
 import com.microsoft.rest.ServiceCallback;
 import com.microsoft.rest.ServiceFuture;
+import rx.Completable;
 import rx.Observable;
+import rx.functions.Action1;
 import rx.functions.Func1;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * The implementation of RoleDefinitions and its parent interfaces.
  */
@@ -31,6 +38,8 @@ class RoleDefinitionsImpl
             RoleDefinitions,
             HasInner<RoleDefinitionsInner> {
     private final GraphRbacManager manager;
+    // Role definitions by scope and role name
+    private final ConcurrentMap<String, RoleDefinition> cache = new ConcurrentHashMap<>();
 
     RoleDefinitionsImpl(
             final GraphRbacManager manager) {
@@ -114,6 +123,15 @@ class RoleDefinitionsImpl
 
     @Override
     public Observable<RoleDefinition> getByScopeAndRoleNameAsync(String scope,  String roleName) {
+        final String key = cacheKey(scope, roleName);
+        RoleDefinition cached = cache.get(key);
+        if (cached == null) {
+            // The role definitions of a subscription can be assigned at all the scopes within it
+            cached = cache.get(cacheKey(subscriptionScope(scope), roleName));
+        }
+        if (cached != null) {
+            return Observable.just(cached);
+        }
         return manager().roleInner().roleDefinitions().listAsync(scope, String.format("roleName eq '%s'", roleName))
                 .map(new Func1<Page<RoleDefinitionInner>, RoleDefinition>() {
                     @Override
@@ -123,9 +141,74 @@ class RoleDefinitionsImpl
                         }
                         return new RoleDefinitionImpl(roleDefinitionInnerPage.items().get(0), manager());
                     }
+                })
+                .doOnNext(new Action1<RoleDefinition>() {
+                    @Override
+                    public void call(RoleDefinition roleDefinition) {
+                        if (roleDefinition != null) {
+                            cache.put(key, roleDefinition);
+                        }
+                    }
                 });
     }
 
+    @Override
+    public Completable cacheByScopeAsync(final String scope) {
+        return manager().roleInner().roleDefinitions().listAsync(scope)
+                .concatMapIterable(new Func1<Page<RoleDefinitionInner>, List<RoleDefinitionInner>>() {
+                    @Override
+                    public List<RoleDefinitionInner> call(Page<RoleDefinitionInner> roleDefinitionInnerPage) {
+                        return roleDefinitionInnerPage.items();
+                    }
+                })
+                .doOnNext(new Action1<RoleDefinitionInner>() {
+                    @Override
+                    public void call(RoleDefinitionInner roleDefinitionInner) {
+                        if (roleDefinitionInner.properties() != null && roleDefinitionInner.properties().roleName() != null) {
+                            cache.put(cacheKey(scope, roleDefinitionInner.properties().roleName()),
+                                    new RoleDefinitionImpl(roleDefinitionInner, manager()));
+                        }
+                    }
+                })
+                .toCompletable();
+    }
+
+    @Override
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private static String cacheKey(String scope, String roleName) {
+        // Role names and scopes are case insensitive, and scopes are used with or without leading slash
+        return (trimSlashes(scope) + "|" + roleName).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the scope of the subscription of a scope.
+     *
+     * @param scope the scope
+     * @return the subscription scope, or the scope itself if it is not within a subscription
+     */
+    static String subscriptionScope(String scope) {
+        String[] segments = trimSlashes(scope).split("/");
+        if (segments.length > 2 && "subscriptions".equalsIgnoreCase(segments[0])) {
+            return (scope.startsWith("/") ? "/" : "") + segments[0] + "/" + segments[1];
+        }
+        return scope;
+    }
+
+    private static String trimSlashes(String scope) {
+        int start = 0;
+        int end = scope.length();
+        while (start < end && scope.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && scope.charAt(end - 1) == '/') {
+            end--;
+        }
+        return scope.substring(start, end);
+    }
+
     @Override
     public RoleDefinitionsInner inner() {
         return this.manager().roleInner().roleDefinitions();
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.graphrbac.implementation;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AccessEvaluatorTests {
+    private static final String SUBSCRIPTION = "/subscriptions/sub1";
+    private static final String RESOURCE_GROUP = SUBSCRIPTION + "/resourceGroups/rg1";
+    private static final String VM = RESOURCE_GROUP + "/providers/Microsoft.Compute/virtualMachines/vm1";
+    private static final String READER = SUBSCRIPTION + "/providers/Microsoft.Authorization/roleDefinitions/reader";
+    private static final String DELETED = SUBSCRIPTION + "/providers/Microsoft.Authorization/roleDefinitions/deleted";
+
+    @Test
+    public void canMatchActionPatterns() {
+        AccessEvaluatorImpl.ActionMatcher matcher = new AccessEvaluatorImpl.ActionMatcher(Arrays.asList(
+                "Microsoft.Storage/storageAccounts/listKeys/action", "Microsoft.Compute/*", "Microsoft.*/read"));
+
+        Assert.assertTrue(matcher.matches("microsoft.storage/storageaccounts/listkeys/action"));
+        Assert.assertFalse(matcher.matches("microsoft.storage/storageaccounts/write"));
+        Assert.assertTrue(matcher.matches("microsoft.compute/virtualmachines/start/action"));
+        Assert.assertTrue(matcher.matches("microsoft.network/virtualnetworks/read"));
+        Assert.assertFalse(matcher.matches("microsoft.network/virtualnetworks/write"));
+        Assert.assertFalse(matcher.matches("other.provider/read/action"));
+
+        Assert.assertTrue(new AccessEvaluatorImpl.ActionMatcher(Collections.singletonList("*")).matches("anything/write"));
+        Assert.assertFalse(new AccessEvaluatorImpl.ActionMatcher(null).matches("anything/write"));
+    }
+
+    @Test
+    public void canExcludeNotActions() throws Exception {
+        AccessEvaluatorImpl.CompiledRole role = new AccessEvaluatorImpl.CompiledRole(roleDefinition("contributor",
+                "[\"*\"]", "[\"Microsoft.Authorization/*/Write\"]").properties().permissions());
+
+        Assert.assertTrue(role.allows("microsoft.compute/virtualmachines/write"));
+        Assert.assertFalse(role.allows("microsoft.authorization/roleassignments/write"));
+    }
+
+    @Test
+    public void canAddAndRemoveScopeNodes() throws Exception {
+        AccessEvaluatorImpl.Assignment assignment = new AccessEvaluatorImpl.Assignment(
+                roleAssignment("a1", RESOURCE_GROUP, READER), new String[] {"subscriptions", "sub1", "resourcegroups", "rg1"});
+        AccessEvaluatorImpl.ScopeNode root = new AccessEvaluatorImpl.ScopeNode();
+
+        root.add(assignment, 0);
+        AccessEvaluatorImpl.ScopeNode node = root.children.get("subscriptions").children.get("sub1")
+                .children.get("resourcegroups").children.get("rg1");
+        Assert.assertEquals(Collections.singletonList(assignment), node.assignments);
+        Assert.assertTrue(root.assignments.isEmpty());
+
+        root.remove(assignment, 0);
+        Assert.assertTrue(node.assignments.isEmpty());
+    }
+
+    @Test
+    public void canEvaluateAssignmentsAtScopes() throws Exception {
+        AccessEvaluatorImpl evaluator = new AccessEvaluatorImpl(null, "sub1");
+        Map<String, AccessEvaluatorImpl.CompiledRole> roles = new HashMap<>();
+        AccessEvaluatorImpl.addRole(roles, roleDefinition("reader", "[\"*/read\"]", "[]"));
+
+        Assert.assertEquals(Collections.singleton(DELETED), evaluator.applyAssignments(Arrays.asList(
+                roleAssignment("a1", RESOURCE_GROUP, READER),
+                roleAssignment("a2", SUBSCRIPTION, DELETED)), roles));
+        evaluator.useRoles(roles);
+
+        Assert.assertEquals(2, evaluator.assignmentCount());
+        Assert.assertEquals(Collections.singleton(DELETED), evaluator.unresolvedRoleDefinitionIds());
+        Assert.assertTrue(evaluator.isAllowed("PRINCIPAL", "Microsoft.Compute/virtualMachines/read", VM));
+        Assert.assertTrue(evaluator.isAllowed("principal", "Microsoft.Resources/subscriptions/resourceGroups/read", RESOURCE_GROUP));
+        Assert.assertFalse(evaluator.isAllowed("principal", "Microsoft.Compute/virtualMachines/write", VM));
+        Assert.assertFalse(evaluator.isAllowed("principal", "Microsoft.Resources/subscriptions/read", SUBSCRIPTION));
+        Assert.assertFalse(evaluator.isAllowed("principal", "Microsoft.Compute/virtualMachines/read",
+                SUBSCRIPTION + "/resourceGroups/rg2/providers/Microsoft.Compute/virtualMachines/vm1"));
+        Assert.assertFalse(evaluator.isAllowed("other", "Microsoft.Compute/virtualMachines/read", VM));
+
+        // The missing roles of known assignments are reported again, and removed assignments no longer apply
+        Assert.assertEquals(Collections.singleton(DELETED), evaluator.applyAssignments(Collections.singletonList(
+                roleAssignment("a2", SUBSCRIPTION, DELETED)), roles));
+        Assert.assertEquals(1, evaluator.assignmentCount());
+        Assert.assertFalse(evaluator.isAllowed("principal", "Microsoft.Compute/virtualMachines/read", VM));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotEvaluateOtherSubscriptions() {
+        new AccessEvaluatorImpl(null, "sub1").isAllowed("principal", "*/read", "/subscriptions/sub10/resourceGroups/rg1");
+    }
+
+    @Test
+    public void skipsOnlyRoleDefinitionsNotFound() {
+        Assert.assertTrue(AccessEvaluatorImpl.isNotFound(cloudException(404)));
+        Assert.assertFalse(AccessEvaluatorImpl.isNotFound(cloudException(403)));
+        Assert.assertFalse(AccessEvaluatorImpl.isNotFound(new CloudException("no response", null)));
+        Assert.assertFalse(AccessEvaluatorImpl.isNotFound(new IOException()));
+    }
+
+    private static RoleDefinitionInner roleDefinition(String name, String actions, String notActions) throws IOException {
+        return new AzureJacksonAdapter().deserialize(
+                "{\"id\":\"" + SUBSCRIPTION + "/providers/Microsoft.Authorization/roleDefinitions/" + name + "\",\"name\":\"" + name
+                        + "\",\"properties\":{\"permissions\":[{\"actions\":" + actions + ",\"notActions\":" + notActions + "}]}}",
+                RoleDefinitionInner.class);
+    }
+
+    private static RoleAssignmentInner roleAssignment(String name, String scope, String roleDefinitionId) throws IOException {
+        return new AzureJacksonAdapter().deserialize(
+                "{\"id\":\"" + scope + "/providers/Microsoft.Authorization/roleAssignments/" + name + "\",\"name\":\"" + name
+                        + "\",\"properties\":{\"scope\":\"" + scope + "\",\"roleDefinitionId\":\"" + roleDefinitionId
+                        + "\",\"principalId\":\"principal\"}}",
+                RoleAssignmentInner.class);
+    }
+
+    private static CloudException cloudException(int code) {
+        Response<ResponseBody> response = Response.error(code, ResponseBody.create(MediaType.parse("application/json"), "{}"));
+        return new CloudException("status " + code, response);
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.graphrbac.implementation;
+
+import com.microsoft.azure.management.graphrbac.BuiltInRole;
+import com.microsoft.azure.management.graphrbac.RoleAssignment;
+import com.microsoft.azure.management.graphrbac.RoleAssignmentBatch;
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RoleAssignmentBatchTests {
+    private static final String SUBSCRIPTION = "/subscriptions/sub1";
+    private static final String RG1 = SUBSCRIPTION + "/resourceGroups/rg1";
+    private static final String RG2 = SUBSCRIPTION + "/resourceGroups/rg2";
+    private static final String ROLE_DEFINITIONS = "/providers/Microsoft.Authorization/roleDefinitions";
+    private static final String ROLE_ASSIGNMENTS = "/providers/Microsoft.Authorization/roleAssignments";
+    private static final String READER_ID = SUBSCRIPTION + ROLE_DEFINITIONS + "/reader-id";
+    private static final String CONTRIBUTOR_ID = SUBSCRIPTION + ROLE_DEFINITIONS + "/contributor-id";
+    private static final Pattern ROLE_NAME_FILTER = Pattern.compile("roleName eq '(.*)'");
+
+    private LocalTestServer server;
+    private GraphRbacManager manager;
+    // The requests received, as method and path, followed by the filter if any
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    // The role assignments of the server, as scope, principal and role definition ID
+    private final List<String[]> assignments = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() throws IOException {
+        server = new LocalTestServer(new AuthorizationHandler());
+        manager = GraphRbacManager.authenticate(server.restClient(), "tenant1");
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void canCreateMissingAssignmentsOnce() {
+        assignments.add(new String[] {RG1, "p2", READER_ID});
+        // An assignment at a parent scope does not exist at the scope
+        assignments.add(new String[] {SUBSCRIPTION, "p1", READER_ID});
+
+        List<RoleAssignment> applied = manager.roleAssignments().newBatch()
+                .withAssignment("p1", BuiltInRole.READER, RG1)
+                .withAssignment("p1", BuiltInRole.READER, RG1)
+                .withRoleDefinitionAssignment("p1", READER_ID, RG1)
+                .withAssignment("p2", BuiltInRole.READER, RG1)
+                .withAssignment("p1", BuiltInRole.CONTRIBUTOR, RG2)
+                .apply();
+
+        Assert.assertEquals(3, applied.size());
+        Assert.assertEquals(Arrays.asList(RG1 + "|p1|" + READER_ID, RG1 + "|p2|" + READER_ID, RG2 + "|p1|" + CONTRIBUTOR_ID),
+                describe(applied));
+        // The built-in roles are listed once for the subscription, the assignments once per scope
+        Assert.assertEquals(Collections.singletonList("GET " + SUBSCRIPTION + ROLE_DEFINITIONS), requests("GET " + SUBSCRIPTION + ROLE_DEFINITIONS));
+        Assert.assertEquals(1, requests("GET " + RG1 + ROLE_ASSIGNMENTS).size());
+        Assert.assertEquals(1, requests("GET " + RG2 + ROLE_ASSIGNMENTS).size());
+        Assert.assertEquals(2, requests("PUT ").size());
+        Assert.assertEquals(4, assignments.size());
+    }
+
+    @Test
+    public void canApplyBatchAgain() {
+        RoleAssignmentBatch batch = manager.roleAssignments().newBatch()
+                .withAssignment("p1", BuiltInRole.READER, RG1);
+
+        Assert.assertEquals(1, batch.apply().size());
+        Assert.assertEquals(1, requests("PUT ").size());
+
+        // The assignment created by the first apply exists now
+        Assert.assertEquals(1, batch.apply().size());
+        Assert.assertEquals(1, requests("PUT ").size());
+
+        // Existing assignments are listed again by each apply
+        assignments.clear();
+        Assert.assertEquals(1, batch.apply().size());
+        Assert.assertEquals(2, requests("PUT ").size());
+        Assert.assertEquals(3, requests("GET " + RG1 + ROLE_ASSIGNMENTS).size());
+    }
+
+    @Test
+    public void cannotAssignUnknownRoles() {
+        try {
+            manager.roleAssignments().newBatch()
+                    .withAssignment("p1", BuiltInRole.OWNER, RG1)
+                    .apply();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("Owner"));
+        }
+        Assert.assertTrue(requests("PUT ").isEmpty());
+    }
+
+    @Test
+    public void canCacheRoleDefinitions() {
+        Assert.assertEquals(READER_ID, manager.roleDefinitions().getByScopeAndRoleName(RG1, "Reader").id());
+        Assert.assertEquals(READER_ID, manager.roleDefinitions().getByScopeAndRoleName(RG1.toUpperCase(), "reader").id());
+        Assert.assertEquals(Collections.singletonList("GET " + RG1 + ROLE_DEFINITIONS + " roleName eq 'Reader'"), requests("GET "));
+        Assert.assertNull(manager.roleDefinitions().getByScopeAndRoleName(RG1, "Owner"));
+        Assert.assertEquals(2, requests("GET ").size());
+
+        // The role definitions cached for the subscription are used for the scopes within it
+        manager.roleDefinitions().cacheByScopeAsync(SUBSCRIPTION).await();
+        Assert.assertEquals(3, requests("GET ").size());
+        Assert.assertEquals(CONTRIBUTOR_ID, manager.roleDefinitions().getByScopeAndRoleName(RG2, "Contributor").id());
+        Assert.assertEquals(CONTRIBUTOR_ID, manager.roleDefinitions().getByScopeAndRoleName("subscriptions/sub1/resourceGroups/rg3", "Contributor").id());
+        Assert.assertEquals(3, requests("GET ").size());
+
+        manager.roleDefinitions().clearCache();
+        Assert.assertEquals(CONTRIBUTOR_ID, manager.roleDefinitions().getByScopeAndRoleName(RG2, "Contributor").id());
+        Assert.assertEquals(4, requests("GET ").size());
+    }
+
+    @Test
+    public void canGetSubscriptionScopes() {
+        Assert.assertEquals(SUBSCRIPTION, RoleDefinitionsImpl.subscriptionScope(RG1));
+        Assert.assertEquals("subscriptions/sub1", RoleDefinitionsImpl.subscriptionScope("subscriptions/sub1/resourceGroups/rg1/"));
+        Assert.assertEquals(SUBSCRIPTION, RoleDefinitionsImpl.subscriptionScope(SUBSCRIPTION));
+        Assert.assertEquals("/providers/Microsoft.Management/managementGroups/mg1",
+                RoleDefinitionsImpl.subscriptionScope("/providers/Microsoft.Management/managementGroups/mg1"));
+    }
+
+    private List<String> requests(String prefix) {
+        List<String> matching = new ArrayList<>();
+        for (String request : requests) {
+            if (request.startsWith(prefix)) {
+                matching.add(request);
+            }
+        }
+        return matching;
+    }
+
+    private static List<String> describe(List<RoleAssignment> roleAssignments) {
+        List<String> descriptions = new ArrayList<>();
+        for (RoleAssignment roleAssignment : roleAssignments) {
+            descriptions.add(roleAssignment.scope() + "|" + roleAssignment.principalId() + "|" + roleAssignment.roleDefinitionId());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static String roleAssignmentJson(String[] assignment, String name) {
+        return "{\"id\":\"" + assignment[0] + ROLE_ASSIGNMENTS + "/" + name + "\",\"name\":\"" + name + "\","
+                + "\"properties\":{\"scope\":\"" + assignment[0] + "\",\"principalId\":\"" + assignment[1] + "\","
+                + "\"roleDefinitionId\":\"" + assignment[2] + "\"}}";
+    }
+
+    private static String roleDefinitionJson(String id, String roleName) {
+        return "{\"id\":\"" + id + "\",\"name\":\"" + id.substring(id.lastIndexOf('/') + 1) + "\","
+                + "\"properties\":{\"roleName\":\"" + roleName + "\",\"type\":\"BuiltInRole\"}}";
+    }
+
+    /**
+     * A stand-in for the authorization endpoints used by role definitions and role assignment batches,
+     * with the built-in Reader and Contributor roles.
+     */
+    private final class AuthorizationHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String filter = filter(exchange.getRequestURI().getQuery());
+            requests.add(method + " " + path + (filter == null ? "" : " " + filter));
+            if ("GET".equals(method) && path.endsWith(ROLE_DEFINITIONS)) {
+                List<String> items = new ArrayList<>();
+                Matcher matcher = ROLE_NAME_FILTER.matcher(filter == null ? "" : filter);
+                String roleName = matcher.matches() ? matcher.group(1) : null;
+                if (roleName == null || "Reader".equalsIgnoreCase(roleName)) {
+                    items.add(roleDefinitionJson(READER_ID, "Reader"));
+                }
+                if (roleName == null || "Contributor".equalsIgnoreCase(roleName)) {
+                    items.add(roleDefinitionJson(CONTRIBUTOR_ID, "Contributor"));
+                }
+                LocalTestServer.respondJson(exchange, 200, page(items));
+            } else if ("GET".equals(method) && path.endsWith(ROLE_ASSIGNMENTS)) {
+                // Like the service, list the assignments at all the scopes
+                List<String> items = new ArrayList<>();
+                for (String[] assignment : assignments) {
+                    items.add(roleAssignmentJson(assignment, "a" + items.size()));
+                }
+                LocalTestServer.respondJson(exchange, 200, page(items));
+            } else if ("PUT".equals(method) && path.contains(ROLE_ASSIGNMENTS + "/")) {
+                String body = readAll(exchange.getRequestBody());
+                String[] assignment = new String[] {path.substring(0, path.indexOf(ROLE_ASSIGNMENTS)),
+                        property(body, "principalId"), property(body, "roleDefinitionId")};
+                assignments.add(assignment);
+                LocalTestServer.respondJson(exchange, 201, roleAssignmentJson(assignment, path.substring(path.lastIndexOf('/') + 1)));
+            } else {
+                LocalTestServer.respond(exchange, 404, null);
+            }
+        }
+
+        private String filter(String query) {
+            if (query == null) {
+                return null;
+            }
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("$filter=")) {
+                    return parameter.substring("$filter=".length());
+                }
+            }
+            return null;
+        }
+
+        private String page(List<String> items) {
+            StringBuilder json = new StringBuilder("{\"value\":[");
+            for (int i = 0; i < items.size(); i++) {
+                json.append(i == 0 ? "" : ",").append(items.get(i));
+            }
+            return json.append("]}").toString();
+        }
+
+        private String property(String json, String name) {
+            Matcher matcher = Pattern.compile("\"" + name + "\":\"([^\"]*)\"").matcher(json);
+            Assert.assertTrue(matcher.find());
+            return matcher.group(1);
+        }
+
+        private String readAll(InputStream input) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
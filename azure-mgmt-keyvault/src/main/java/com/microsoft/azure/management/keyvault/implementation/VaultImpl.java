@@ -18,6 +18,7 @@ import com.microsoft.azure.management.keyvault.SkuName;
 import com.microsoft.azure.management.keyvault.Vault;
 import com.microsoft.azure.management.keyvault.VaultProperties;
 import com.microsoft.azure.management.resources.fluentcore.arm.models.implementation.GroupableResourceImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.PropagationRetryPolicy;
 import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
 import rx.Observable;
 import rx.functions.Action1;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation for Vault and its parent interfaces.
@@ -43,6 +45,8 @@ class VaultImpl
         Vault,
         Vault.Definition,
         Vault.Update {
+    private static final long PRINCIPAL_LOOKUP_TIMEOUT_IN_SECONDS = 60;
+
     private GraphRbacManager graphRbacManager;
     private List<AccessPolicyImpl> accessPolicies;
 
@@ -198,6 +202,15 @@ class VaultImpl
     }
 
     private Observable<List<AccessPolicy>> populateAccessPolicies() {
+        // A principal created just before may not be found by Graph yet
+        final PropagationRetryPolicy propagationRetryPolicy = PropagationRetryPolicy.forTenant(graphRbacManager.tenantId())
+                .withRetryOn(new Func1<Throwable, Boolean>() {
+                    @Override
+                    public Boolean call(Throwable throwable) {
+                        return throwable instanceof PrincipalNotFoundException;
+                    }
+                })
+                .withMaxDuration(PRINCIPAL_LOOKUP_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
         List<Observable<?>>observables = new ArrayList<>();
         for (final AccessPolicyImpl accessPolicy : accessPolicies) {
             if (accessPolicy.objectId() == null) {
@@ -208,12 +221,13 @@ class VaultImpl
                                 @Override
                                 public void call(ActiveDirectoryUser user) {
                                     if (user == null) {
-                                        throw new CloudException(String.format("User principal name %s is not found in tenant %s",
-                                                accessPolicy.userPrincipalName(), graphRbacManager.tenantId()), null);
+                                        throw new PrincipalNotFoundException(String.format("User principal name %s is not found in tenant %s",
+                                                accessPolicy.userPrincipalName(), graphRbacManager.tenantId()));
                                     }
                                     accessPolicy.forObjectId(user.id());
                                 }
-                            }));
+                            })
+                            .compose(propagationRetryPolicy.<ActiveDirectoryUser>transformer()));
                 } else if (accessPolicy.servicePrincipalName() != null) {
                     observables.add(graphRbacManager.servicePrincipals().getByNameAsync(accessPolicy.servicePrincipalName())
                             .subscribeOn(SdkContext.getRxScheduler())
@@ -221,12 +235,13 @@ class VaultImpl
                                 @Override
                                 public void call(ServicePrincipal sp) {
                                     if (sp == null) {
-                                        throw new CloudException(String.format("User principal name %s is not found in tenant %s",
-                                                accessPolicy.userPrincipalName(), graphRbacManager.tenantId()), null);
+                                        throw new PrincipalNotFoundException(String.format("User principal name %s is not found in tenant %s",
+                                                accessPolicy.userPrincipalName(), graphRbacManager.tenantId()));
                                     }
                                     accessPolicy.forObjectId(sp.id());
                                 }
-                            }));
+                            })
+                            .compose(propagationRetryPolicy.<ServicePrincipal>transformer()));
                 } else {
                     throw new IllegalArgumentException("Access policy must specify object ID.");
                 }
@@ -269,4 +284,15 @@ class VaultImpl
     protected Observable<VaultInner> getInnerAsync() {
         return this.manager().inner().vaults().getByResourceGroupAsync(resourceGroupName(), name());
     }
+
+    /**
+     * Error raised when the principal of an access policy is not found.
+     */
+    private static final class PrincipalNotFoundException extends CloudException {
+        private static final long serialVersionUID = 1L;
+
+        PrincipalNotFoundException(String message) {
+            super(message, null);
+        }
+    }
 }
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.logic;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.logic.implementation.WorkflowRunActionInner;
+import com.microsoft.azure.management.logic.implementation.WorkflowRunInner;
+
+/**
+ * An event of the run history of a workflow, emitted by a {@link WorkflowRunTailer}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface WorkflowRunEvent {
+    /**
+     * @return the type of the event
+     */
+    WorkflowRunEventType type();
+
+    /**
+     * @return the name of the resource group of the workflow
+     */
+    String resourceGroupName();
+
+    /**
+     * @return the name of the workflow
+     */
+    String workflowName();
+
+    /**
+     * @return the run, or null for a {@link WorkflowRunEventType#POLL_FAILED} event of the listing of the runs
+     */
+    WorkflowRunInner run();
+
+    /**
+     * @return the failed action for a {@link WorkflowRunEventType#ACTION_FAILED} event, null otherwise
+     */
+    WorkflowRunActionInner action();
+
+    /**
+     * @return the error for a {@link WorkflowRunEventType#POLL_FAILED} event, null otherwise
+     */
+    Throwable error();
+}
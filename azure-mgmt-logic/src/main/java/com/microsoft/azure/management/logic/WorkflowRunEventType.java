@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.logic;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+/**
+ * Types of the events emitted by a {@link WorkflowRunTailer}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public enum WorkflowRunEventType {
+    /** A run was observed for the first time, before completing. */
+    RUN_STARTED,
+
+    /** A run was observed in a terminal state for the first time. */
+    RUN_COMPLETED,
+
+    /** An action of a run that did not succeed has failed, faulted, timed out or was aborted. */
+    ACTION_FAILED,
+
+    /** The runs of a workflow could not be listed; the workflow is polled again in the next cycle. */
+    POLL_FAILED
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.logic;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.logic.implementation.WorkflowInner;
+import org.joda.time.DateTime;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental reader of the run history of workflows.
+ * <p>
+ * Each workflow has a watermark, the latest start time of its observed runs. A poll only lists the
+ * runs started since the watermark, using a server side filter, and gets the runs still in progress
+ * one by one, instead of listing the whole run history. The actions of a run are only listed for the
+ * runs that did not succeed, and only their failed actions.
+ * <p>
+ * Polls may overlap, for instance a {@link #pollAsync()} call made while {@link #tailAsync()} runs: a poll
+ * skips the workflows another poll is still polling, whose events are reported by that other poll.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface WorkflowRunTailer {
+    /**
+     * Adds a workflow to tail.
+     *
+     * @param resourceGroupName the name of the resource group of the workflow
+     * @param workflowName the name of the workflow
+     * @return the tailer
+     */
+    WorkflowRunTailer withWorkflow(String resourceGroupName, String workflowName);
+
+    /**
+     * Adds a workflow to tail.
+     *
+     * @param workflow the workflow
+     * @return the tailer
+     */
+    WorkflowRunTailer withWorkflow(WorkflowInner workflow);
+
+    /**
+     * Specifies the initial watermark of the workflows added afterwards.
+     *
+     * @param startTime the earliest start time of the runs to report; defaults to the time of the first poll of a workflow
+     * @return the tailer
+     */
+    WorkflowRunTailer withStartTime(DateTime startTime);
+
+    /**
+     * Specifies the maximum number of concurrent requests of each stage of a poll.
+     *
+     * @param maxConcurrency the maximum number of workflows polled, and of runs whose actions are listed, concurrently; defaults to 8
+     * @return the tailer
+     */
+    WorkflowRunTailer withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Specifies the delay between the end of a poll and the start of the next one.
+     *
+     * @param interval the delay, defaults to 30 seconds
+     * @param unit the time unit of the delay
+     * @return the tailer
+     */
+    WorkflowRunTailer withPollingInterval(long interval, TimeUnit unit);
+
+    /**
+     * Polls all the workflows once.
+     *
+     * @return an observable emitting the events observed since the previous poll
+     */
+    Observable<WorkflowRunEvent> pollAsync();
+
+    /**
+     * Polls all the workflows repeatedly, until unsubscribed.
+     *
+     * @return an observable emitting the events of all the workflows
+     */
+    Observable<WorkflowRunEvent> tailAsync();
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.logic.implementation;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.logic.WorkflowRunEvent;
+import com.microsoft.azure.management.logic.WorkflowRunEventType;
+import com.microsoft.azure.management.logic.WorkflowRunTailer;
+import com.microsoft.azure.management.logic.WorkflowStatus;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation for WorkflowRunTailer.
+ */
+@LangDefinition
+class WorkflowRunTailerImpl implements WorkflowRunTailer {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final long DEFAULT_POLLING_INTERVAL_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+    private static final Set<WorkflowStatus> TERMINAL_STATUSES = EnumSet.of(
+            WorkflowStatus.SUCCEEDED, WorkflowStatus.SKIPPED, WorkflowStatus.CANCELLED, WorkflowStatus.FAILED,
+            WorkflowStatus.FAULTED, WorkflowStatus.TIMED_OUT, WorkflowStatus.ABORTED, WorkflowStatus.IGNORED);
+    private static final Set<WorkflowStatus> FAILED_STATUSES = EnumSet.of(
+            WorkflowStatus.FAILED, WorkflowStatus.FAULTED, WorkflowStatus.TIMED_OUT, WorkflowStatus.ABORTED);
+    // The actions reported for a failed run are those which did not succeed either
+    static final String FAILED_ACTIONS_FILTER = statusFilter(FAILED_STATUSES);
+    private static final Comparator<WorkflowRunInner> BY_START_TIME = new Comparator<WorkflowRunInner>() {
+        @Override
+        public int compare(WorkflowRunInner run1, WorkflowRunInner run2) {
+            if (run1.startTime() == null || run2.startTime() == null) {
+                return run1.startTime() == null ? (run2.startTime() == null ? 0 : 1) : -1;
+            }
+            return run1.startTime().compareTo(run2.startTime());
+        }
+    };
+
+    private final LogicManagementClientImpl client;
+    private final Map<String, WorkflowState> workflows = new LinkedHashMap<>();
+    private DateTime startTime;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private long pollingIntervalInMilliseconds = DEFAULT_POLLING_INTERVAL_IN_MILLISECONDS;
+
+    WorkflowRunTailerImpl(LogicManagementClientImpl client) {
+        this.client = client;
+    }
+
+    @Override
+    public synchronized WorkflowRunTailerImpl withWorkflow(String resourceGroupName, String workflowName) {
+        String key = (resourceGroupName + "/" + workflowName).toLowerCase(Locale.ROOT);
+        if (!this.workflows.containsKey(key)) {
+            this.workflows.put(key, new WorkflowState(resourceGroupName, workflowName, this.startTime));
+        }
+        return this;
+    }
+
+    @Override
+    public WorkflowRunTailerImpl withWorkflow(WorkflowInner workflow) {
+        return this.withWorkflow(ResourceUtils.groupFromResourceId(workflow.id()), workflow.name());
+    }
+
+    @Override
+    public synchronized WorkflowRunTailerImpl withStartTime(DateTime startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    @Override
+    public WorkflowRunTailerImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public WorkflowRunTailerImpl withPollingInterval(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("interval must not be negative");
+        }
+        this.pollingIntervalInMilliseconds = unit.toMillis(interval);
+        return this;
+    }
+
+    @Override
+    public Observable<WorkflowRunEvent> pollAsync() {
+        final WorkflowRunTailerImpl self = this;
+        return Observable.defer(new Func0<Observable<WorkflowRunEvent>>() {
+            @Override
+            public Observable<WorkflowRunEvent> call() {
+                List<WorkflowState> states;
+                synchronized (self) {
+                    states = new ArrayList<>(self.workflows.values());
+                }
+                return Observable.from(states)
+                        .flatMap(new Func1<WorkflowState, Observable<WorkflowRunEvent>>() {
+                            @Override
+                            public Observable<WorkflowRunEvent> call(WorkflowState state) {
+                                return self.pollWorkflowAsync(state).subscribeOn(SdkContext.getRxScheduler());
+                            }
+                        }, self.maxConcurrency)
+                        .flatMap(new Func1<WorkflowRunEvent, Observable<WorkflowRunEvent>>() {
+                            @Override
+                            public Observable<WorkflowRunEvent> call(WorkflowRunEvent event) {
+                                if (event.type() != WorkflowRunEventType.RUN_COMPLETED
+                                        || !FAILED_STATUSES.contains(event.run().status())) {
+                                    return Observable.just(event);
+                                }
+                                // Actions are only listed for the runs that did not succeed
+                                return Observable.just(event)
+                                        .concatWith(self.failedActionsAsync((WorkflowRunEventImpl) event)
+                                                .subscribeOn(SdkContext.getRxScheduler()));
+                            }
+                        }, self.maxConcurrency);
+            }
+        });
+    }
+
+    @Override
+    public Observable<WorkflowRunEvent> tailAsync() {
+        final WorkflowRunTailerImpl self = this;
+        return this.pollAsync().repeatWhen(new Func1<Observable<? extends Void>, Observable<?>>() {
+            @Override
+            public Observable<?> call(Observable<? extends Void> polls) {
+                return polls.flatMap(new Func1<Void, Observable<Integer>>() {
+                    @Override
+                    public Observable<Integer> call(Void aVoid) {
+                        return SdkContext.delayedEmitAsync(0, (int) self.pollingIntervalInMilliseconds);
+                    }
+                });
+            }
+        });
+    }
+
+    private Observable<WorkflowRunEvent> pollWorkflowAsync(final WorkflowState state) {
+        final WorkflowRunTailerImpl self = this;
+        return Observable.defer(new Func0<Observable<WorkflowRunEvent>>() {
+            @Override
+            public Observable<WorkflowRunEvent> call() {
+                if (!state.polling.compareAndSet(false, true)) {
+                    // Another poll is polling the workflow and reports its events
+                    return Observable.empty();
+                }
+                Action0 release = new Action0() {
+                    @Override
+                    public void call() {
+                        state.polling.set(false);
+                    }
+                };
+                return self.pollRunsAsync(state).doOnTerminate(release).doOnUnsubscribe(release);
+            }
+        });
+    }
+
+    private Observable<WorkflowRunEvent> pollRunsAsync(final WorkflowState state) {
+        if (state.watermark == null) {
+            state.watermark = DateTime.now(DateTimeZone.UTC);
+        }
+        final String filter = String.format("startTime ge %s", state.watermark.withZone(DateTimeZone.UTC));
+        Observable<WorkflowRunInner> listed = this.client.workflowRuns()
+                .listAsync(state.resourceGroupName, state.workflowName, null, filter)
+                .concatMapIterable(new Func1<Page<WorkflowRunInner>, List<WorkflowRunInner>>() {
+                    @Override
+                    public List<WorkflowRunInner> call(Page<WorkflowRunInner> page) {
+                        return page.items();
+                    }
+                });
+        final LogicManagementClientImpl client = this.client;
+        Observable<WorkflowRunInner> refreshed = Observable.from(state.olderRunsInProgress())
+                .concatMap(new Func1<String, Observable<WorkflowRunInner>>() {
+                    @Override
+                    public Observable<WorkflowRunInner> call(final String runName) {
+                        return client.workflowRuns().getAsync(state.resourceGroupName, state.workflowName, runName)
+                                .onErrorResumeNext(new Func1<Throwable, Observable<WorkflowRunInner>>() {
+                                    @Override
+                                    public Observable<WorkflowRunInner> call(Throwable throwable) {
+                                        if (throwable instanceof CloudException
+                                                && ((CloudException) throwable).response() != null
+                                                && ((CloudException) throwable).response().code() == 404) {
+                                            // The run was deleted with the run history
+                                            state.runsInProgress.remove(runName);
+                                            return Observable.empty();
+                                        }
+                                        return Observable.error(throwable);
+                                    }
+                                });
+                    }
+                });
+        return listed.concatWith(refreshed)
+                .toList()
+                .concatMapIterable(new Func1<List<WorkflowRunInner>, List<WorkflowRunEvent>>() {
+                    @Override
+                    public List<WorkflowRunEvent> call(List<WorkflowRunInner> runs) {
+                        return state.update(runs);
+                    }
+                })
+                .onErrorResumeNext(new Func1<Throwable, Observable<WorkflowRunEvent>>() {
+                    @Override
+                    public Observable<WorkflowRunEvent> call(Throwable throwable) {
+                        // The watermark is unchanged, the same runs are listed in the next poll
+                        return Observable.<WorkflowRunEvent>just(new WorkflowRunEventImpl(WorkflowRunEventType.POLL_FAILED,
+                                state.resourceGroupName, state.workflowName, null, null, throwable));
+                    }
+                });
+    }
+
+    private Observable<WorkflowRunEvent> failedActionsAsync(final WorkflowRunEventImpl event) {
+        return this.client.workflowRunActions()
+                .listAsync(event.resourceGroupName(), event.workflowName(), event.run().name(), null, FAILED_ACTIONS_FILTER)
+                .concatMapIterable(new Func1<Page<WorkflowRunActionInner>, List<WorkflowRunActionInner>>() {
+                    @Override
+                    public List<WorkflowRunActionInner> call(Page<WorkflowRunActionInner> page) {
+                        return page.items();
+                    }
+                })
+                .map(new Func1<WorkflowRunActionInner, WorkflowRunEvent>() {
+                    @Override
+                    public WorkflowRunEvent call(WorkflowRunActionInner action) {
+                        return new WorkflowRunEventImpl(WorkflowRunEventType.ACTION_FAILED,
+                                event.resourceGroupName(), event.workflowName(), event.run(), action, null);
+                    }
+                })
+                .onErrorResumeNext(new Func1<Throwable, Observable<WorkflowRunEvent>>() {
+                    @Override
+                    public Observable<WorkflowRunEvent> call(Throwable throwable) {
+                        return Observable.<WorkflowRunEvent>just(new WorkflowRunEventImpl(WorkflowRunEventType.POLL_FAILED,
+                                event.resourceGroupName(), event.workflowName(), event.run(), null, throwable));
+                    }
+                });
+    }
+
+    private static String statusFilter(Set<WorkflowStatus> statuses) {
+        StringBuilder filter = new StringBuilder();
+        for (WorkflowStatus status : statuses) {
+            if (filter.length() > 0) {
+                filter.append(" or ");
+            }
+            filter.append("status eq '").append(status).append('\'');
+        }
+        return filter.toString();
+    }
+
+    private static boolean isTerminal(WorkflowRunInner run) {
+        return run.status() != null && TERMINAL_STATUSES.contains(run.status());
+    }
+
+    /**
+     * The watermark and the runs in progress of a workflow.
+     */
+    static final class WorkflowState {
+        private final String resourceGroupName;
+        private final String workflowName;
+        // Held by the poll of the workflow in progress, which is the only one accessing the poll state
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private DateTime watermark;
+        private final Set<String> runsAtWatermark = new HashSet<>();
+        private final Map<String, DateTime> runsInProgress = new HashMap<>();
+
+        WorkflowState(String resourceGroupName, String workflowName, DateTime watermark) {
+            this.resourceGroupName = resourceGroupName;
+            this.workflowName = workflowName;
+            this.watermark = watermark;
+        }
+
+        /**
+         * Gets the runs in progress which are not listed by the next poll, as they started before the watermark;
+         * the runs in progress started at the watermark are listed again.
+         *
+         * @return the names of the runs to get one by one
+         */
+        List<String> olderRunsInProgress() {
+            List<String> olderRunNames = new ArrayList<>();
+            for (Map.Entry<String, DateTime> entry : this.runsInProgress.entrySet()) {
+                if (entry.getValue() == null || entry.getValue().isBefore(this.watermark)) {
+                    olderRunNames.add(entry.getKey());
+                }
+            }
+            return olderRunNames;
+        }
+
+        /**
+         * Records the runs of a poll and advances the watermark.
+         *
+         * @param runs the runs started since the watermark, and the runs in progress started before it
+         * @return the events of the poll, in order of run start time
+         */
+        List<WorkflowRunEvent> update(List<WorkflowRunInner> runs) {
+            // A run got after being listed replaces the listed one
+            Map<String, WorkflowRunInner> runsByName = new LinkedHashMap<>();
+            for (WorkflowRunInner run : runs) {
+                runsByName.put(run.name(), run);
+            }
+            List<WorkflowRunInner> sortedRuns = new ArrayList<>(runsByName.values());
+            Collections.sort(sortedRuns, BY_START_TIME);
+
+            List<WorkflowRunEvent> events = new ArrayList<>();
+            DateTime newWatermark = this.watermark;
+            for (WorkflowRunInner run : sortedRuns) {
+                boolean inProgress = this.runsInProgress.containsKey(run.name());
+                boolean known = inProgress || this.runsAtWatermark.contains(run.name());
+                if (isTerminal(run)) {
+                    if (!known || inProgress) {
+                        events.add(new WorkflowRunEventImpl(WorkflowRunEventType.RUN_COMPLETED,
+                                this.resourceGroupName, this.workflowName, run, null, null));
+                    }
+                    this.runsInProgress.remove(run.name());
+                } else if (!known) {
+                    events.add(new WorkflowRunEventImpl(WorkflowRunEventType.RUN_STARTED,
+                            this.resourceGroupName, this.workflowName, run, null, null));
+                    this.runsInProgress.put(run.name(), run.startTime());
+                }
+                if (run.startTime() != null && run.startTime().isAfter(newWatermark)) {
+                    newWatermark = run.startTime();
+                }
+            }
+
+            // The filter on start time is inclusive: the runs at the watermark are listed again by the next poll
+            if (newWatermark.isAfter(this.watermark)) {
+                this.runsAtWatermark.clear();
+                this.watermark = newWatermark;
+            }
+            for (WorkflowRunInner run : sortedRuns) {
+                if (run.startTime() != null && run.startTime().isEqual(this.watermark)) {
+                    this.runsAtWatermark.add(run.name());
+                }
+            }
+            return events;
+        }
+    }
+
+    /**
+     * An event of the run history of a workflow.
+     */
+    private static final class WorkflowRunEventImpl implements WorkflowRunEvent {
+        private final WorkflowRunEventType type;
+        private final String resourceGroupName;
+        private final String workflowName;
+        private final WorkflowRunInner run;
+        private final WorkflowRunActionInner action;
+        private final Throwable error;
+
+        WorkflowRunEventImpl(WorkflowRunEventType type, String resourceGroupName, String workflowName,
+                             WorkflowRunInner run, WorkflowRunActionInner action, Throwable error) {
+            this.type = type;
+            this.resourceGroupName = resourceGroupName;
+            this.workflowName = workflowName;
+            this.run = run;
+            this.action = action;
+            this.error = error;
+        }
+
+        @Override
+        public WorkflowRunEventType type() {
+            return this.type;
+        }
+
+        @Override
+        public String resourceGroupName() {
+            return this.resourceGroupName;
+        }
+
+        @Override
+        public String workflowName() {
+            return this.workflowName;
+        }
+
+        @Override
+        public WorkflowRunInner run() {
+            return this.run;
+        }
+
+        @Override
+        public WorkflowRunActionInner action() {
+            return this.action;
+        }
+
+        @Override
+        public Throwable error() {
+            return this.error;
+        }
+    }
+}
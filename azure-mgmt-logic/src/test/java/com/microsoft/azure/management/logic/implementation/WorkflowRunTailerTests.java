@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.logic.implementation;
+
+import com.microsoft.azure.management.logic.WorkflowRunEvent;
+import com.microsoft.azure.management.logic.WorkflowRunEventType;
+import com.microsoft.azure.management.logic.WorkflowRunTailer;
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class WorkflowRunTailerTests {
+    private static final DateTime T0 = new DateTime(2017, 8, 1, 0, 0, DateTimeZone.UTC);
+    private static final DateTime T1 = T0.plusMinutes(1);
+    private static final DateTime T2 = T0.plusMinutes(2);
+
+    @Test
+    public void canSkipRunsListedAgainAtWatermark() throws IOException {
+        WorkflowRunTailerImpl.WorkflowState state = new WorkflowRunTailerImpl.WorkflowState("rg1", "wf1", T0);
+
+        Assert.assertEquals(Arrays.asList("RUN_STARTED r1", "RUN_COMPLETED r2"),
+                describe(state.update(Arrays.asList(run("r1", T1, "Running"), run("r2", T1, "Succeeded")))));
+        // The filter on start time is inclusive: the runs at the watermark are listed again
+        Assert.assertTrue(state.update(Arrays.asList(run("r1", T1, "Running"), run("r2", T1, "Succeeded"))).isEmpty());
+        Assert.assertEquals(Arrays.asList("RUN_COMPLETED r1", "RUN_STARTED r3"),
+                describe(state.update(Arrays.asList(run("r1", T1, "Succeeded"), run("r2", T1, "Succeeded"), run("r3", T2, "Running")))));
+        Assert.assertTrue(state.update(Collections.singletonList(run("r3", T2, "Running"))).isEmpty());
+        Assert.assertTrue(state.olderRunsInProgress().isEmpty());
+    }
+
+    @Test
+    public void canCompleteRunsStartedBeforeWatermark() throws IOException {
+        WorkflowRunTailerImpl.WorkflowState state = new WorkflowRunTailerImpl.WorkflowState("rg1", "wf1", T0);
+
+        Assert.assertEquals(Collections.singletonList("RUN_STARTED r1"),
+                describe(state.update(Collections.singletonList(run("r1", T1, "Running")))));
+        // A run at the watermark is listed again, so it is not got
+        Assert.assertTrue(state.olderRunsInProgress().isEmpty());
+        Assert.assertEquals(Collections.singletonList("RUN_STARTED r2"),
+                describe(state.update(Collections.singletonList(run("r2", T2, "Running")))));
+        Assert.assertEquals(Collections.singletonList("r1"), state.olderRunsInProgress());
+
+        // The run got after the listing completes, and is no longer in progress
+        Assert.assertEquals(Collections.singletonList("RUN_COMPLETED r1"),
+                describe(state.update(Arrays.asList(run("r2", T2, "Running"), run("r1", T1, "Running"), run("r1", T1, "Failed")))));
+        Assert.assertTrue(state.olderRunsInProgress().isEmpty());
+        Assert.assertTrue(state.update(Collections.singletonList(run("r2", T2, "Running"))).isEmpty());
+    }
+
+    @Test
+    public void canPruneDeletedRunsAndReportFailedActions() throws IOException {
+        RunsHandler handler = new RunsHandler();
+        LocalTestServer server = new LocalTestServer(handler);
+        try {
+            WorkflowRunTailer tailer = LogicManager.authenticate(server.restClient(), LocalTestServer.SUBSCRIPTION_ID)
+                    .newWorkflowRunTailer()
+                    .withStartTime(T0)
+                    .withWorkflow("rg1", "wf1");
+
+            handler.runs = Collections.singletonList(runJson("r0", T0, "Running"));
+            Assert.assertEquals(Collections.singletonList("RUN_STARTED r0"), describe(poll(tailer)));
+            handler.runs = Arrays.asList(runJson("r0", T0, "Running"), runJson("r1", T1, "Running"));
+            Assert.assertEquals(Collections.singletonList("RUN_STARTED r1"), describe(poll(tailer)));
+
+            // r0 started before the watermark is got, and forgotten as it was deleted
+            handler.runs = Collections.singletonList(runJson("r1", T1, "TimedOut"));
+            Assert.assertEquals(Arrays.asList("RUN_COMPLETED r1", "ACTION_FAILED r1"), describe(poll(tailer)));
+            Assert.assertEquals(Collections.singletonList("r0"), handler.gets);
+            Assert.assertEquals(Collections.singletonList(WorkflowRunTailerImpl.FAILED_ACTIONS_FILTER), handler.actionFilters);
+            Assert.assertEquals("status eq 'Failed' or status eq 'Faulted' or status eq 'TimedOut' or status eq 'Aborted'",
+                    WorkflowRunTailerImpl.FAILED_ACTIONS_FILTER);
+
+            Assert.assertTrue(poll(tailer).isEmpty());
+            Assert.assertEquals(Collections.singletonList("r0"), handler.gets);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static List<WorkflowRunEvent> poll(WorkflowRunTailer tailer) {
+        return tailer.pollAsync().toList().toBlocking().single();
+    }
+
+    private static List<String> describe(List<WorkflowRunEvent> events) {
+        List<String> descriptions = new ArrayList<>();
+        for (WorkflowRunEvent event : events) {
+            Assert.assertNotEquals(WorkflowRunEventType.POLL_FAILED, event.type());
+            descriptions.add(event.type() + " " + event.run().name());
+        }
+        return descriptions;
+    }
+
+    private static WorkflowRunInner run(String name, DateTime startTime, String status) throws IOException {
+        return new AzureJacksonAdapter().deserialize(runJson(name, startTime, status), WorkflowRunInner.class);
+    }
+
+    private static String runJson(String name, DateTime startTime, String status) {
+        return "{\"name\":\"" + name + "\",\"properties\":{\"startTime\":\"" + startTime + "\",\"status\":\"" + status + "\"}}";
+    }
+
+    /**
+     * A stand-in for the run history of a workflow, where the runs not listed have been deleted.
+     */
+    private static final class RunsHandler implements HttpHandler {
+        private volatile List<String> runs = Collections.emptyList();
+        private final List<String> gets = new CopyOnWriteArrayList<>();
+        private final List<String> actionFilters = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/runs")) {
+                StringBuilder json = new StringBuilder("{\"value\":[");
+                for (int i = 0; i < this.runs.size(); i++) {
+                    json.append(i == 0 ? "" : ",").append(this.runs.get(i));
+                }
+                LocalTestServer.respondJson(exchange, 200, json.append("]}").toString());
+            } else if (path.endsWith("/actions")) {
+                String query = exchange.getRequestURI().getQuery();
+                this.actionFilters.add(query.substring(query.indexOf("$filter=") + "$filter=".length()).split("&")[0]);
+                LocalTestServer.respondJson(exchange, 200, "{\"value\":[{\"name\":\"a1\",\"properties\":{\"status\":\"TimedOut\"}}]}");
+            } else {
+                this.gets.add(path.substring(path.lastIndexOf('/') + 1));
+                LocalTestServer.respondJson(exchange, 404, "{\"error\":{\"code\":\"WorkflowRunNotFound\",\"message\":\"The run was not found.\"}}");
+            }
+        }
+    }
+}
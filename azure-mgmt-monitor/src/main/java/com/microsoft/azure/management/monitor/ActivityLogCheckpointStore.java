@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+import java.io.IOException;
+
+/**
+ * A store persisting the checkpoint of an {@link ActivityLogTailer}, so that tailing can resume
+ * where it stopped after a restart.
+ * <p>
+ * The checkpoint is an opaque string produced by the tailer.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface ActivityLogCheckpointStore {
+    /**
+     * Loads the last saved checkpoint.
+     *
+     * @return the checkpoint, or null if none was saved
+     * @throws IOException if the checkpoint cannot be loaded
+     */
+    String load() throws IOException;
+
+    /**
+     * Saves a checkpoint, replacing the previous one.
+     *
+     * @param checkpoint the checkpoint
+     * @throws IOException if the checkpoint cannot be saved
+     */
+    void save(String checkpoint) throws IOException;
+}
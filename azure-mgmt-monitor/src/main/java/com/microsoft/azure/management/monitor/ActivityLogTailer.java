@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import com.microsoft.azure.management.monitor.implementation.EventDataInner;
+import org.joda.time.DateTime;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stateful reader of the new events of an activity log.
+ * <p>
+ * Each poll only queries the events recorded since the previous poll, plus an overlap window
+ * catching the events recorded late, and filters out the events already emitted. The position
+ * of the tailer can be persisted to an {@link ActivityLogCheckpointStore}; it is saved at the end
+ * of each poll, so events emitted by a poll interrupted by a crash are emitted again on restart.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface ActivityLogTailer {
+    /**
+     * Restricts the events to those of a resource group.
+     *
+     * @param resourceGroupName the name of the resource group
+     * @return the tailer
+     */
+    ActivityLogTailer withResourceGroup(String resourceGroupName);
+
+    /**
+     * Restricts the events to those of a resource.
+     *
+     * @param resourceId the ID of the resource
+     * @return the tailer
+     */
+    ActivityLogTailer withResourceId(String resourceId);
+
+    /**
+     * Restricts the events to those of a resource provider.
+     *
+     * @param resourceProviderNamespace the namespace of the resource provider
+     * @return the tailer
+     */
+    ActivityLogTailer withResourceProvider(String resourceProviderNamespace);
+
+    /**
+     * Restricts the properties returned for each event, eventTimestamp and eventDataId are always returned.
+     *
+     * @param propertyNames the names of the properties, such as "operationName" or "status"
+     * @return the tailer
+     */
+    ActivityLogTailer withSelect(String... propertyNames);
+
+    /**
+     * Specifies the time to start tailing from, when there is no checkpoint.
+     *
+     * @param startTime the start time, defaults to the time of the first poll minus the overlap window
+     * @return the tailer
+     */
+    ActivityLogTailer withStartTime(DateTime startTime);
+
+    /**
+     * Specifies how far back each poll looks before the end of the previous poll, for events
+     * recorded with a delay.
+     *
+     * @param overlap the length of the overlap window, defaults to 5 minutes
+     * @param unit the time unit of the overlap window
+     * @return the tailer
+     */
+    ActivityLogTailer withOverlap(long overlap, TimeUnit unit);
+
+    /**
+     * Specifies where the position of the tailer is persisted.
+     *
+     * @param checkpointStore the checkpoint store
+     * @return the tailer
+     */
+    ActivityLogTailer withCheckpointStore(ActivityLogCheckpointStore checkpointStore);
+
+    /**
+     * Queries the events recorded since the previous poll.
+     * <p>
+     * Polls of a same tailer must not overlap.
+     *
+     * @return an observable emitting the new events
+     */
+    Observable<EventDataInner> pollAsync();
+
+    /**
+     * Periodically polls the new events.
+     * <p>
+     * Polls never overlap; ticks elapsing while a poll is still in progress are dropped.
+     *
+     * @param interval the interval between two polls
+     * @param unit the time unit of the interval
+     * @return an observable emitting the new events
+     */
+    Observable<EventDataInner> tailAsync(long interval, TimeUnit unit);
+}
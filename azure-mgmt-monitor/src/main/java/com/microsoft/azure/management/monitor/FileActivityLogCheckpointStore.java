@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A checkpoint store keeping the checkpoint in a local file.
+ * <p>
+ * The file is replaced atomically, so that a crash while saving leaves the previous checkpoint intact.
+ */
+@Beta(SinceVersion.V1_3_0)
+public final class FileActivityLogCheckpointStore implements ActivityLogCheckpointStore {
+    private final Path path;
+
+    /**
+     * Creates a store for a file.
+     *
+     * @param file the file containing the checkpoint, created on the first save
+     */
+    public FileActivityLogCheckpointStore(File file) {
+        this.path = file.toPath();
+    }
+
+    @Override
+    public String load() throws IOException {
+        if (!Files.exists(this.path)) {
+            return null;
+        }
+        return new String(Files.readAllBytes(this.path), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void save(String checkpoint) throws IOException {
+        Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        Files.write(temp, checkpoint.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import rx.Observable;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A collector of the metric values of many resources.
+ * <p>
+ * The metrics of each resource are retrieved with a single request, with a bounded number of
+ * requests in flight and, optionally, a bounded request rate per subscription. The responses are
+ * decoded directly into {@link MetricSeries} columns.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface MetricCollector {
+    /**
+     * Specifies the resources to collect the metrics of, replacing the resources specified before.
+     *
+     * @param resourceIds the IDs of the resources
+     * @return the collector
+     */
+    MetricCollector withResourceIds(Collection<String> resourceIds);
+
+    /**
+     * Specifies the resources to collect the metrics of, replacing the resources specified before.
+     *
+     * @param resourceIds the IDs of the resources
+     * @return the collector
+     */
+    MetricCollector withResourceIds(String... resourceIds);
+
+    /**
+     * Specifies the names of the metrics to collect.
+     * <p>
+     * If no metric names are specified, the service returns the default metrics of each resource.
+     *
+     * @param metricNames the names of the metrics
+     * @return the collector
+     */
+    MetricCollector withMetricNames(String... metricNames);
+
+    /**
+     * Specifies the granularity of the data points.
+     *
+     * @param timeGrain the time grain, defaults to one minute
+     * @return the collector
+     */
+    MetricCollector withTimeGrain(Period timeGrain);
+
+    /**
+     * Specifies the maximum number of resources queried concurrently.
+     *
+     * @param maxConcurrency the maximum number of concurrent requests, defaults to 16
+     * @return the collector
+     */
+    MetricCollector withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Limits the rate of the requests sent for the resources of a same subscription.
+     * <p>
+     * Requests exceeding the budget are delayed rather than rejected, so that a collection
+     * stays within the Azure Resource Manager read limits of the subscriptions.
+     *
+     * @param requestsPerSecond the maximum number of requests per second and per subscription
+     * @return the collector
+     */
+    MetricCollector withRequestsPerSecondPerSubscription(double requestsPerSecond);
+
+    /**
+     * Collects the metric values of all the resources over a time window.
+     * <p>
+     * Resources that no longer exist are skipped.
+     *
+     * @param startTime the start of the time window
+     * @param endTime the end of the time window
+     * @return an observable emitting a series for each metric of each resource
+     */
+    Observable<MetricSeries> collectAsync(DateTime startTime, DateTime endTime);
+
+    /**
+     * Periodically collects the metric values of all the resources.
+     * <p>
+     * Each collection covers the time elapsed since the end of the previous one, the first one covers
+     * one interval. Collections never overlap; ticks elapsing while a collection is still in progress,
+     * or while the subscriber is not requesting series, are dropped and the next collection covers
+     * their time window.
+     *
+     * @param interval the interval between two collections
+     * @param unit the time unit of the interval
+     * @return an observable emitting a series for each metric of each resource
+     */
+    Observable<MetricSeries> watchAsync(long interval, TimeUnit unit);
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+
+/**
+ * The values of a metric of a resource over a time window, in columnar form.
+ * <p>
+ * The i-th element of each column belongs to the data point at the i-th timestamp. Aggregations
+ * not reported for a data point are {@link Double#NaN}, or -1 for the counts. Each call to a column
+ * accessor returns a new copy of the column, which callers iterating over the data points should hold on to.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface MetricSeries {
+    /**
+     * @return the ID of the resource the metric belongs to
+     */
+    String resourceId();
+
+    /**
+     * @return the name of the metric
+     */
+    String metricName();
+
+    /**
+     * @return the unit of the metric, or null if not known
+     */
+    Unit unit();
+
+    /**
+     * @return the number of data points
+     */
+    int size();
+
+    /**
+     * @return the timestamps of the data points, in milliseconds since the epoch
+     */
+    long[] timestamps();
+
+    /**
+     * @return the average values
+     */
+    double[] averages();
+
+    /**
+     * @return the minimum values
+     */
+    double[] minimums();
+
+    /**
+     * @return the maximum values
+     */
+    double[] maximums();
+
+    /**
+     * @return the total values
+     */
+    double[] totals();
+
+    /**
+     * @return the number of samples
+     */
+    long[] counts();
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor.implementation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.monitor.ActivityLogCheckpointStore;
+import com.microsoft.azure.management.monitor.ActivityLogTailer;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation for ActivityLogTailer interface.
+ * <p>
+ * The events already emitted are remembered by their eventDataId, for as long as they are within
+ * the overlap window, so the memory used and the size of the checkpoint are proportional to the
+ * number of events in the overlap window.
+ */
+@LangDefinition
+class ActivityLogTailerImpl implements ActivityLogTailer {
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final long DEFAULT_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final MonitorClientImpl client;
+    private final boolean tenantScope;
+    private final Set<String> select = new LinkedHashSet<>();
+    private String scopeCondition;
+    private DateTime startTime;
+    private long overlapMillis = DEFAULT_OVERLAP_MILLIS;
+    private ActivityLogCheckpointStore checkpointStore;
+
+    // The position of the tailer
+    private boolean loaded;
+    private long watermark = -1;
+    // The timestamps of the events emitted within the overlap window, by lower case eventDataId
+    private final Map<String, Long> emitted = new HashMap<>();
+
+    ActivityLogTailerImpl(MonitorManager manager, boolean tenantScope) {
+        this.client = manager.innerEx();
+        this.tenantScope = tenantScope;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withResourceGroup(String resourceGroupName) {
+        this.scopeCondition = "resourceGroupName eq " + quote(resourceGroupName);
+        return this;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withResourceId(String resourceId) {
+        this.scopeCondition = "resourceUri eq " + quote(resourceId);
+        return this;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withResourceProvider(String resourceProviderNamespace) {
+        this.scopeCondition = "resourceProvider eq " + quote(resourceProviderNamespace);
+        return this;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withSelect(String... propertyNames) {
+        this.select.clear();
+        Collections.addAll(this.select, propertyNames);
+        if (!this.select.isEmpty()) {
+            this.select.add("eventTimestamp");
+            this.select.add("eventDataId");
+        }
+        return this;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withStartTime(DateTime startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withOverlap(long overlap, TimeUnit unit) {
+        this.overlapMillis = unit.toMillis(overlap);
+        return this;
+    }
+
+    @Override
+    public ActivityLogTailerImpl withCheckpointStore(ActivityLogCheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+        return this;
+    }
+
+    @Override
+    public Observable<EventDataInner> pollAsync() {
+        final ActivityLogTailerImpl self = this;
+        return Observable.defer(new Func0<Observable<EventDataInner>>() {
+            @Override
+            public Observable<EventDataInner> call() {
+                try {
+                    self.loadCheckpoint();
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+                final long endTime = DateTime.now(DateTimeZone.UTC).getMillis();
+                long startTime;
+                if (self.watermark >= 0) {
+                    startTime = self.watermark - self.overlapMillis;
+                } else if (self.startTime != null) {
+                    startTime = self.startTime.getMillis();
+                } else {
+                    startTime = endTime - self.overlapMillis;
+                }
+                return self.listAsync(self.filter(startTime, endTime))
+                        .concatMapIterable(new Func1<Page<EventDataInner>, Iterable<EventDataInner>>() {
+                            @Override
+                            public Iterable<EventDataInner> call(Page<EventDataInner> page) {
+                                List<EventDataInner> items = page.items();
+                                return items == null ? Collections.<EventDataInner>emptyList() : items;
+                            }
+                        })
+                        .filter(new Func1<EventDataInner, Boolean>() {
+                            @Override
+                            public Boolean call(EventDataInner event) {
+                                return self.markEmitted(event);
+                            }
+                        })
+                        .doOnCompleted(new Action0() {
+                            @Override
+                            public void call() {
+                                try {
+                                    self.advance(endTime);
+                                } catch (IOException e) {
+                                    throw Exceptions.propagate(e);
+                                }
+                            }
+                        });
+            }
+        });
+    }
+
+    @Override
+    public Observable<EventDataInner> tailAsync(long interval, TimeUnit unit) {
+        final ActivityLogTailerImpl self = this;
+        return Observable.interval(0, interval, unit, SdkContext.getRxScheduler())
+                .onBackpressureDrop()
+                .concatMap(new Func1<Long, Observable<EventDataInner>>() {
+                    @Override
+                    public Observable<EventDataInner> call(Long tick) {
+                        return self.pollAsync();
+                    }
+                });
+    }
+
+    private Observable<Page<EventDataInner>> listAsync(String filter) {
+        String selectValue = null;
+        if (!this.select.isEmpty()) {
+            StringBuilder builder = new StringBuilder();
+            for (String propertyName : this.select) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(propertyName);
+            }
+            selectValue = builder.toString();
+        }
+        if (this.tenantScope) {
+            return this.client.tenantActivityLogs().listAsync(filter, selectValue);
+        } else {
+            return this.client.activityLogs().listAsync(filter, selectValue);
+        }
+    }
+
+    private String filter(long startTime, long endTime) {
+        String filter = "eventTimestamp ge '" + new DateTime(startTime, DateTimeZone.UTC)
+                + "' and eventTimestamp le '" + new DateTime(endTime, DateTimeZone.UTC) + "'";
+        if (this.scopeCondition != null) {
+            filter += " and " + this.scopeCondition;
+        }
+        return filter;
+    }
+
+    /**
+     * Records an event as emitted.
+     *
+     * @param event the event
+     * @return true if the event was not emitted before
+     */
+    private synchronized boolean markEmitted(EventDataInner event) {
+        if (event.eventDataId() == null) {
+            return true;
+        }
+        long timestamp = event.eventTimestamp() == null ? this.watermark : event.eventTimestamp().getMillis();
+        return this.emitted.put(event.eventDataId().toLowerCase(Locale.ROOT), timestamp) == null;
+    }
+
+    /**
+     * Moves the watermark to the end of a completed poll, forgets the events which subsequent polls
+     * will no longer return, and saves the checkpoint.
+     *
+     * @param endTime the end of the time window of the poll
+     * @throws IOException if the checkpoint cannot be saved
+     */
+    private synchronized void advance(long endTime) throws IOException {
+        this.watermark = endTime;
+        long cutoff = endTime - this.overlapMillis;
+        Iterator<Long> timestamps = this.emitted.values().iterator();
+        while (timestamps.hasNext()) {
+            if (timestamps.next() < cutoff) {
+                timestamps.remove();
+            }
+        }
+        if (this.checkpointStore != null) {
+            this.checkpointStore.save(this.checkpoint());
+        }
+    }
+
+    private synchronized void loadCheckpoint() throws IOException {
+        if (this.loaded) {
+            return;
+        }
+        this.loaded = true;
+        String checkpoint = this.checkpointStore == null ? null : this.checkpointStore.load();
+        if (checkpoint == null) {
+            return;
+        }
+        JsonNode root = ObjectMapperRegistry.treeReader().readTree(checkpoint);
+        int version = root.path("version").asInt();
+        if (version != CHECKPOINT_VERSION) {
+            throw new IOException("Unsupported activity log checkpoint version " + root.path("version").asText());
+        }
+        this.watermark = root.path("watermark").asLong(-1);
+        JsonNode ids = root.path("ids");
+        JsonNode timestamps = root.path("timestamps");
+        for (int i = 0; i < ids.size(); i++) {
+            this.emitted.put(ids.get(i).asText(), timestamps.get(i).asLong());
+        }
+    }
+
+    private String checkpoint() throws IOException {
+        ObjectNode root = JsonNodeFactory.instance.objectNode();
+        root.put("version", CHECKPOINT_VERSION);
+        root.put("watermark", this.watermark);
+        ArrayNode ids = root.putArray("ids");
+        ArrayNode timestamps = root.putArray("timestamps");
+        for (Map.Entry<String, Long> entry : this.emitted.entrySet()) {
+            ids.add(entry.getKey());
+            timestamps.add(entry.getValue());
+        }
+        return ObjectMapperRegistry.writer().writeValueAsString(root);
+    }
+
+    /**
+     * Quotes a value of an OData filter, doubling its single quotes.
+     *
+     * @param value the value
+     * @return the quoted value
+     */
+    private static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
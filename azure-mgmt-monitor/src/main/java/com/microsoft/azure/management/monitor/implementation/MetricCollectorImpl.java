@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor.implementation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.monitor.ErrorResponseException;
+import com.microsoft.azure.management.monitor.MetricCollector;
+import com.microsoft.azure.management.monitor.MetricSeries;
+import com.microsoft.azure.management.monitor.Unit;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import okhttp3.ResponseBody;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation for MetricCollector interface.
+ * <p>
+ * The responses are read with a streaming parser and decoded into the columns of the series,
+ * without materializing the generated MetricInner and MetricValue models.
+ */
+@LangDefinition
+class MetricCollectorImpl implements MetricCollector {
+    private static final String API_VERSION = "2016-09-01";
+    private static final int DEFAULT_MAX_CONCURRENCY = 16;
+    private static final DateTimeFormatter TIMESTAMP_PARSER = ISODateTimeFormat.dateTimeParser().withZoneUTC();
+
+    private final MonitorClientImpl client;
+    private final MetricsService service;
+    private final Set<String> resourceIds = new LinkedHashSet<>();
+    private final List<String> metricNames = new ArrayList<>();
+    private final ConcurrentMap<String, RateBudget> budgets = new ConcurrentHashMap<>();
+    private Period timeGrain = Period.minutes(1);
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private double requestsPerSecond;
+
+    MetricCollectorImpl(MonitorManager manager) {
+        this.client = manager.innerEx();
+        this.service = this.client.retrofit().create(MetricsService.class);
+    }
+
+    /**
+     * The service for retrieving the metrics as raw responses, to be decoded by the collector.
+     */
+    private interface MetricsService {
+        @Headers({ "Content-Type: application/json; charset=utf-8", "x-ms-logging-context: com.microsoft.azure.management.monitor.Metrics list" })
+        @GET("{resourceUri}/providers/microsoft.insights/metrics")
+        Observable<Response<ResponseBody>> list(@Path(value = "resourceUri", encoded = true) String resourceUri, @Query("$filter") String filter, @Query("api-version") String apiVersion, @Header("accept-language") String acceptLanguage, @Header("User-Agent") String userAgent);
+    }
+
+    @Override
+    public MetricCollectorImpl withResourceIds(Collection<String> resourceIds) {
+        this.resourceIds.clear();
+        this.resourceIds.addAll(resourceIds);
+        return this;
+    }
+
+    @Override
+    public MetricCollectorImpl withResourceIds(String... resourceIds) {
+        return this.withResourceIds(Arrays.asList(resourceIds));
+    }
+
+    @Override
+    public MetricCollectorImpl withMetricNames(String... metricNames) {
+        this.metricNames.clear();
+        Collections.addAll(this.metricNames, metricNames);
+        return this;
+    }
+
+    @Override
+    public MetricCollectorImpl withTimeGrain(Period timeGrain) {
+        this.timeGrain = timeGrain;
+        return this;
+    }
+
+    @Override
+    public MetricCollectorImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public MetricCollectorImpl withRequestsPerSecondPerSubscription(double requestsPerSecond) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.budgets.clear();
+        return this;
+    }
+
+    @Override
+    public Observable<MetricSeries> collectAsync(DateTime startTime, DateTime endTime) {
+        final MetricCollectorImpl self = this;
+        final String filter = this.filter(startTime, endTime);
+        return Observable.from(new ArrayList<>(this.resourceIds))
+                .flatMap(new Func1<String, Observable<MetricSeries>>() {
+                    @Override
+                    public Observable<MetricSeries> call(String resourceId) {
+                        return self.collectResourceAsync(resourceId, filter);
+                    }
+                }, this.maxConcurrency);
+    }
+
+    @Override
+    public Observable<MetricSeries> watchAsync(final long interval, final TimeUnit unit) {
+        final MetricCollectorImpl self = this;
+        return Observable.defer(new Func0<Observable<MetricSeries>>() {
+            @Override
+            public Observable<MetricSeries> call() {
+                // The end of the time window of the previous collection of this watch
+                final DateTime[] lastEndTime = new DateTime[1];
+                return Observable.interval(0, interval, unit, SdkContext.getRxScheduler())
+                        .onBackpressureDrop()
+                        .concatMap(new Func1<Long, Observable<MetricSeries>>() {
+                            @Override
+                            public Observable<MetricSeries> call(Long tick) {
+                                DateTime endTime = DateTime.now(DateTimeZone.UTC);
+                                DateTime startTime = lastEndTime[0] != null
+                                        ? lastEndTime[0]
+                                        : endTime.minus(unit.toMillis(interval));
+                                lastEndTime[0] = endTime;
+                                return self.collectAsync(startTime, endTime);
+                            }
+                        });
+            }
+        });
+    }
+
+    private Observable<MetricSeries> collectResourceAsync(final String resourceId, final String filter) {
+        final MetricCollectorImpl self = this;
+        return Observable.defer(new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                // The delay is reserved when the request is actually scheduled by the bounded flatMap
+                return SdkContext.delayedEmitAsync(resourceId, (int) self.reserveDelay(resourceId));
+            }
+        }).flatMap(new Func1<String, Observable<Response<ResponseBody>>>() {
+            @Override
+            public Observable<Response<ResponseBody>> call(String id) {
+                return self.service.list(id, filter, API_VERSION, self.client.acceptLanguage(), self.client.userAgent())
+                        .subscribeOn(SdkContext.getRxScheduler());
+            }
+        }).flatMap(new Func1<Response<ResponseBody>, Observable<MetricSeries>>() {
+            @Override
+            public Observable<MetricSeries> call(Response<ResponseBody> response) {
+                if (response.code() == HttpURLConnection.HTTP_NOT_FOUND) {
+                    // The resource was deleted since it was added to the collector
+                    if (response.errorBody() != null) {
+                        response.errorBody().close();
+                    }
+                    return Observable.empty();
+                }
+                try {
+                    if (!response.isSuccessful()) {
+                        self.client.restClient().responseBuilderFactory()
+                                .<Void, ErrorResponseException>newInstance(self.client.serializerAdapter())
+                                .registerError(ErrorResponseException.class)
+                                .build(response);
+                    }
+                    return Observable.from(decode(resourceId, response.body()));
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+        });
+    }
+
+    private long reserveDelay(String resourceId) {
+        if (this.requestsPerSecond <= 0) {
+            return 0;
+        }
+        String subscriptionId = ResourceUtils.subscriptionFromResourceId(resourceId);
+        String key = subscriptionId == null ? "" : subscriptionId.toLowerCase(Locale.ROOT);
+        RateBudget budget = this.budgets.get(key);
+        if (budget == null) {
+            RateBudget created = new RateBudget(this.requestsPerSecond);
+            budget = this.budgets.putIfAbsent(key, created);
+            if (budget == null) {
+                budget = created;
+            }
+        }
+        return budget.reserve();
+    }
+
+    private String filter(DateTime startTime, DateTime endTime) {
+        StringBuilder filter = new StringBuilder();
+        if (!this.metricNames.isEmpty()) {
+            filter.append('(');
+            for (int i = 0; i < this.metricNames.size(); i++) {
+                if (i > 0) {
+                    filter.append(" or ");
+                }
+                filter.append("name.value eq '").append(this.metricNames.get(i).replace("'", "''")).append('\'');
+            }
+            filter.append(") and ");
+        }
+        return filter.append("startTime eq ").append(startTime.toDateTime(DateTimeZone.UTC))
+                .append(" and endTime eq ").append(endTime.toDateTime(DateTimeZone.UTC))
+                .append(" and timeGrain eq duration'").append(this.timeGrain).append('\'')
+                .toString();
+    }
+
+    /**
+     * Decodes a response of the metrics API, of the form {"value":[{"name":{"value":...},"unit":...,"data":[...]}]}.
+     *
+     * @param resourceId the ID of the resource the metrics belong to
+     * @param body the body of the response
+     * @return the series of the metrics
+     * @throws IOException if the response cannot be read
+     */
+    static List<MetricSeries> decode(String resourceId, ResponseBody body) throws IOException {
+        List<MetricSeries> series = new ArrayList<>();
+        try (JsonParser parser = ObjectMapperRegistry.treeReader().getFactory().createParser(body.byteStream())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return series;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "value".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        series.add(decodeMetric(resourceId, parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } finally {
+            body.close();
+        }
+        return series;
+    }
+
+    private static MetricSeries decodeMetric(String resourceId, JsonParser parser) throws IOException {
+        MetricSeriesImpl series = new MetricSeriesImpl(resourceId);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT && "name".equals(field)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String nameField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("value".equals(nameField)) {
+                        series.withMetricName(parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (token == JsonToken.VALUE_STRING && "unit".equals(field)) {
+                series.withUnit(Unit.fromString(parser.getText()));
+            } else if (token == JsonToken.START_ARRAY && "data".equals(field)) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    decodeValue(parser, series);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        series.trim();
+        return series;
+    }
+
+    private static void decodeValue(JsonParser parser, MetricSeriesImpl series) throws IOException {
+        long timestamp = 0;
+        double average = Double.NaN;
+        double minimum = Double.NaN;
+        double maximum = Double.NaN;
+        double total = Double.NaN;
+        long count = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "timeStamp":
+                    timestamp = TIMESTAMP_PARSER.parseMillis(parser.getText());
+                    break;
+                case "average":
+                    average = parser.getDoubleValue();
+                    break;
+                case "minimum":
+                    minimum = parser.getDoubleValue();
+                    break;
+                case "maximum":
+                    maximum = parser.getDoubleValue();
+                    break;
+                case "total":
+                    total = parser.getDoubleValue();
+                    break;
+                case "count":
+                    count = parser.getLongValue();
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        series.add(timestamp, average, minimum, maximum, total, count);
+    }
+
+    /**
+     * The request budget of a subscription, spacing the requests evenly.
+     */
+    static final class RateBudget {
+        private final long intervalNanos;
+        private long nextSlot;
+
+        RateBudget(double requestsPerSecond) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            this.nextSlot = System.nanoTime();
+        }
+
+        /**
+         * Reserves the next free slot.
+         *
+         * @return the delay in milliseconds until the slot
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            long slot = Math.max(now, this.nextSlot);
+            this.nextSlot = slot + this.intervalNanos;
+            return TimeUnit.NANOSECONDS.toMillis(slot - now);
+        }
+    }
+}
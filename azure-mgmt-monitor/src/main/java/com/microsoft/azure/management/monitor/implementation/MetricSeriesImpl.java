@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor.implementation;
+
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.monitor.MetricSeries;
+import com.microsoft.azure.management.monitor.Unit;
+
+import java.util.Arrays;
+
+/**
+ * Implementation for MetricSeries interface.
+ */
+@LangDefinition
+class MetricSeriesImpl implements MetricSeries {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String resourceId;
+    private String metricName;
+    private Unit unit;
+    private int size;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] averages = new double[INITIAL_CAPACITY];
+    private double[] minimums = new double[INITIAL_CAPACITY];
+    private double[] maximums = new double[INITIAL_CAPACITY];
+    private double[] totals = new double[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    MetricSeriesImpl(String resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    @Override
+    public String resourceId() {
+        return this.resourceId;
+    }
+
+    @Override
+    public String metricName() {
+        return this.metricName;
+    }
+
+    @Override
+    public Unit unit() {
+        return this.unit;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public long[] timestamps() {
+        return this.timestamps.clone();
+    }
+
+    @Override
+    public double[] averages() {
+        return this.averages.clone();
+    }
+
+    @Override
+    public double[] minimums() {
+        return this.minimums.clone();
+    }
+
+    @Override
+    public double[] maximums() {
+        return this.maximums.clone();
+    }
+
+    @Override
+    public double[] totals() {
+        return this.totals.clone();
+    }
+
+    @Override
+    public long[] counts() {
+        return this.counts.clone();
+    }
+
+    void withMetricName(String metricName) {
+        this.metricName = metricName;
+    }
+
+    void withUnit(Unit unit) {
+        this.unit = unit;
+    }
+
+    void add(long timestamp, double average, double minimum, double maximum, double total, long count) {
+        if (this.size == this.timestamps.length) {
+            resize(Math.max(INITIAL_CAPACITY, this.size * 2));
+        }
+        this.timestamps[this.size] = timestamp;
+        this.averages[this.size] = average;
+        this.minimums[this.size] = minimum;
+        this.maximums[this.size] = maximum;
+        this.totals[this.size] = total;
+        this.counts[this.size] = count;
+        this.size++;
+    }
+
+    /**
+     * Shrinks the columns to the number of data points, once all of them have been added.
+     */
+    void trim() {
+        if (this.size < this.timestamps.length) {
+            resize(this.size);
+        }
+    }
+
+    private void resize(int capacity) {
+        this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+        this.averages = Arrays.copyOf(this.averages, capacity);
+        this.minimums = Arrays.copyOf(this.minimums, capacity);
+        this.maximums = Arrays.copyOf(this.maximums, capacity);
+        this.totals = Arrays.copyOf(this.totals, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+    }
+}
@@ -12,11 +12,13 @@ import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.apigeneration.Beta;
 import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.monitor.ActivityLogTailer;
+import com.microsoft.azure.management.monitor.MetricCollector;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 
 /**
@@ -38,6 +40,36 @@ public final class MonitorManager extends Manager<MonitorManager, MonitorManagem
         return innerEx;
     }
 
+    /**
+     * Creates a collector of the metric values of many resources.
+     *
+     * @return a new metric collector
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public MetricCollector newMetricCollector() {
+        return new MetricCollectorImpl(this);
+    }
+
+    /**
+     * Creates a reader of the new events of the activity log of the subscription.
+     *
+     * @return a new activity log tailer
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public ActivityLogTailer newActivityLogTailer() {
+        return new ActivityLogTailerImpl(this, false);
+    }
+
+    /**
+     * Creates a reader of the new events of the activity log of the tenant.
+     *
+     * @return a new activity log tailer
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public ActivityLogTailer newTenantActivityLogTailer() {
+        return new ActivityLogTailerImpl(this, true);
+    }
+
     /**
     * Get a Configurable instance that can be used to create MonitorManager with optional configuration.
     *
@@ -57,7 +89,7 @@ public final class MonitorManager extends Manager<MonitorManager, MonitorManagem
         return new MonitorManager(new RestClient.Builder()
             .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
             .withCredentials(credentials)
-            .withSerializerAdapter(new AzureJacksonAdapter())
+            .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
             .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
             .withInterceptor(new ProviderRegistrationInterceptor(credentials))
             .build(), subscriptionId);
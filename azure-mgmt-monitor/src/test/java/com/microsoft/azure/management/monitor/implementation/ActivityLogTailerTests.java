@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor.implementation;
+
+import com.microsoft.azure.management.monitor.ActivityLogCheckpointStore;
+import com.microsoft.azure.management.monitor.ActivityLogTailer;
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ActivityLogTailerTests {
+    private LocalTestServer server;
+    private MonitorManager manager;
+    private final Queue<String> responses = new ConcurrentLinkedQueue<>();
+    private final List<String> filters = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        server = new LocalTestServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String query = exchange.getRequestURI().getQuery();
+                for (String parameter : query.split("&")) {
+                    if (parameter.startsWith("$filter=")) {
+                        filters.add(parameter.substring("$filter=".length()));
+                    }
+                }
+                Assert.assertTrue(exchange.getRequestURI().getPath().endsWith("/eventtypes/management/values"));
+                LocalTestServer.respondJson(exchange, 200, responses.remove());
+            }
+        });
+        manager = MonitorManager.authenticate(server.restClient(), LocalTestServer.SUBSCRIPTION_ID);
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void canEmitEachEventOnce() throws Exception {
+        MemoryCheckpointStore store = new MemoryCheckpointStore();
+        ActivityLogTailer tailer = manager.newActivityLogTailer().withCheckpointStore(store);
+
+        responses.add(events("e1", "e2"));
+        Assert.assertEquals(ids("e1", "e2"), poll(tailer));
+        // The overlap window returns e2 again, with a different case
+        responses.add(events("E2", "e3"));
+        Assert.assertEquals(ids("e3"), poll(tailer));
+        Assert.assertTrue(store.checkpoint.startsWith("{\"version\":1,"));
+        Assert.assertTrue(store.checkpoint.contains("\"e1\""));
+
+        // A new tailer resumes from the checkpoint
+        ActivityLogTailer resumed = manager.newActivityLogTailer().withCheckpointStore(store);
+        responses.add(events("e3", "e4"));
+        Assert.assertEquals(ids("e4"), poll(resumed));
+        Assert.assertEquals(3, filters.size());
+    }
+
+    @Test
+    public void canEscapeFilterValues() throws Exception {
+        ActivityLogTailer tailer = manager.newActivityLogTailer().withResourceGroup("o'brien");
+        responses.add(events());
+        poll(tailer);
+        Assert.assertTrue(filters.get(0).endsWith(" and resourceGroupName eq 'o''brien'"));
+
+        tailer.withResourceProvider("Microsoft.Compute'");
+        responses.add(events());
+        poll(tailer);
+        Assert.assertTrue(filters.get(1).endsWith(" and resourceProvider eq 'Microsoft.Compute'''"));
+    }
+
+    @Test
+    public void canResumeFromCheckpointWatermark() throws Exception {
+        MemoryCheckpointStore store = new MemoryCheckpointStore();
+        long watermark = DateTime.now(DateTimeZone.UTC).minusMinutes(1).getMillis();
+        store.checkpoint = "{\"version\":1,\"watermark\":" + watermark + ",\"ids\":[\"e1\"],\"timestamps\":[" + watermark + "]}";
+        ActivityLogTailer tailer = manager.newActivityLogTailer().withCheckpointStore(store);
+
+        responses.add(events("e1", "e2"));
+        Assert.assertEquals(ids("e2"), poll(tailer));
+        Assert.assertTrue(filters.get(0).startsWith("eventTimestamp ge '"
+                + new DateTime(watermark - 5 * 60 * 1000, DateTimeZone.UTC) + "'"));
+    }
+
+    @Test
+    public void failsOnUnknownCheckpoint() throws Exception {
+        for (String checkpoint : new String[] {"{\"version\":2}", "{}"}) {
+            MemoryCheckpointStore store = new MemoryCheckpointStore();
+            store.checkpoint = checkpoint;
+            try {
+                poll(manager.newActivityLogTailer().withCheckpointStore(store));
+                Assert.fail();
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        Assert.assertTrue(filters.isEmpty());
+    }
+
+    private static List<String> poll(ActivityLogTailer tailer) {
+        List<String> ids = new ArrayList<>();
+        for (EventDataInner event : tailer.pollAsync().toList().toBlocking().single()) {
+            ids.add(event.eventDataId());
+        }
+        return ids;
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, ids);
+        return list;
+    }
+
+    private static String events(String... ids) {
+        StringBuilder json = new StringBuilder("{\"value\":[");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            // Recent events, so that they are remembered for the whole overlap window
+            json.append("{\"eventDataId\":\"").append(ids[i]).append("\",\"eventTimestamp\":\"")
+                    .append(DateTime.now(DateTimeZone.UTC).minusSeconds(30)).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * A checkpoint store keeping the last checkpoint in memory.
+     */
+    private static class MemoryCheckpointStore implements ActivityLogCheckpointStore {
+        private volatile String checkpoint;
+
+        @Override
+        public String load() {
+            return this.checkpoint;
+        }
+
+        @Override
+        public void save(String checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+    }
+}
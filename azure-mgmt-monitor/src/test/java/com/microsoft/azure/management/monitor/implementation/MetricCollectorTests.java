@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.monitor.implementation;
+
+import com.microsoft.azure.management.monitor.MetricSeries;
+import com.microsoft.azure.management.monitor.Unit;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MetricCollectorTests {
+    private static final String RESOURCE_ID =
+            "/subscriptions/sub1/resourceGroups/rg1/providers/Microsoft.Compute/virtualMachines/vm1";
+
+    @Test
+    public void canDecodeResponse() throws Exception {
+        String json = "{\"value\":["
+                + "{\"id\":\"m1\",\"name\":{\"value\":\"Percentage CPU\",\"localizedValue\":\"CPU\"},\"unit\":\"Percent\","
+                + "\"data\":["
+                + "{\"timeStamp\":\"2017-08-01T10:00:00Z\",\"average\":12.5,\"minimum\":1,\"maximum\":40,\"count\":4},"
+                + "{\"timeStamp\":\"2017-08-01T10:01:00Z\",\"average\":null,\"total\":7.25,\"extra\":{\"a\":[1,2]}}"
+                + "]},"
+                + "{\"name\":{\"value\":\"Network In\"},\"type\":\"Microsoft.Insights/metrics\",\"data\":[]}"
+                + "],\"nextLink\":null}";
+        List<MetricSeries> series = MetricCollectorImpl.decode(RESOURCE_ID, body(json));
+
+        Assert.assertEquals(2, series.size());
+        MetricSeries cpu = series.get(0);
+        Assert.assertEquals(RESOURCE_ID, cpu.resourceId());
+        Assert.assertEquals("Percentage CPU", cpu.metricName());
+        Assert.assertEquals(Unit.PERCENT, cpu.unit());
+        Assert.assertEquals(2, cpu.size());
+        Assert.assertArrayEquals(new long[] {
+                new DateTime(2017, 8, 1, 10, 0, DateTimeZone.UTC).getMillis(),
+                new DateTime(2017, 8, 1, 10, 1, DateTimeZone.UTC).getMillis() }, cpu.timestamps());
+        Assert.assertArrayEquals(new double[] {12.5, Double.NaN}, cpu.averages(), 0);
+        Assert.assertArrayEquals(new double[] {1, Double.NaN}, cpu.minimums(), 0);
+        Assert.assertArrayEquals(new double[] {40, Double.NaN}, cpu.maximums(), 0);
+        Assert.assertArrayEquals(new double[] {Double.NaN, 7.25}, cpu.totals(), 0);
+        Assert.assertArrayEquals(new long[] {4, -1}, cpu.counts());
+
+        MetricSeries network = series.get(1);
+        Assert.assertEquals("Network In", network.metricName());
+        Assert.assertNull(network.unit());
+        Assert.assertEquals(0, network.size());
+        Assert.assertEquals(0, network.timestamps().length);
+    }
+
+    @Test
+    public void canDecodeEmptyResponses() throws Exception {
+        Assert.assertTrue(MetricCollectorImpl.decode(RESOURCE_ID, body("")).isEmpty());
+        Assert.assertTrue(MetricCollectorImpl.decode(RESOURCE_ID, body("{\"value\":[]}")).isEmpty());
+        Assert.assertTrue(MetricCollectorImpl.decode(RESOURCE_ID, body("[]")).isEmpty());
+    }
+
+    @Test
+    public void canGrowAndCopyColumns() {
+        MetricSeriesImpl series = new MetricSeriesImpl(RESOURCE_ID);
+        for (int i = 0; i < 100; i++) {
+            series.add(i, i, i, i, i, i);
+        }
+        series.trim();
+        Assert.assertEquals(100, series.size());
+        Assert.assertEquals(100, series.timestamps().length);
+        Assert.assertEquals(99, series.counts()[99]);
+
+        // The columns of the series cannot be modified through the returned arrays
+        series.averages()[0] = 42;
+        Assert.assertEquals(0, series.averages()[0], 0);
+    }
+
+    @Test
+    public void canSpaceRequestsEvenly() {
+        MetricCollectorImpl.RateBudget budget = new MetricCollectorImpl.RateBudget(10);
+        long first = budget.reserve();
+        long second = budget.reserve();
+        long third = budget.reserve();
+        Assert.assertEquals(0, first);
+        // Each request is reserved 100ms after the previous one, less the time elapsed between the calls
+        Assert.assertTrue(second > 50 && second <= 100);
+        Assert.assertTrue(third > 150 && third <= 200);
+    }
+
+    @Test
+    public void doesNotAccumulateUnusedBudget() throws Exception {
+        MetricCollectorImpl.RateBudget budget = new MetricCollectorImpl.RateBudget(20);
+        Assert.assertEquals(0, budget.reserve());
+        Thread.sleep(200);
+        // Idle time does not allow a burst of requests afterwards
+        Assert.assertEquals(0, budget.reserve());
+        long next = budget.reserve();
+        Assert.assertTrue(next > 0 && next <= 50);
+    }
+
+    private static ResponseBody body(String json) {
+        return ResponseBody.create(MediaType.parse("application/json"), json);
+    }
+}
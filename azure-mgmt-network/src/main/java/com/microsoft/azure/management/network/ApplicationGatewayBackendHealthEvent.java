@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+/**
+ * A change of the backend health of an application gateway, emitted by an {@link ApplicationGatewayBackendHealthMonitor}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface ApplicationGatewayBackendHealthEvent {
+    /**
+     * @return the type of the event
+     */
+    ApplicationGatewayBackendHealthEventType type();
+
+    /**
+     * @return the name of the resource group of the application gateway
+     */
+    String resourceGroupName();
+
+    /**
+     * @return the name of the application gateway
+     */
+    String applicationGatewayName();
+
+    /**
+     * @return the name of the backend address pool of the server, null for a {@link ApplicationGatewayBackendHealthEventType#POLL_FAILED} event
+     */
+    String backendAddressPoolName();
+
+    /**
+     * @return the name of the backend HTTP settings the server is probed with, null for a {@link ApplicationGatewayBackendHealthEventType#POLL_FAILED} event
+     */
+    String backendHttpSettingsName();
+
+    /**
+     * @return the address of the server, null for a {@link ApplicationGatewayBackendHealthEventType#POLL_FAILED} event
+     */
+    String serverAddress();
+
+    /**
+     * @return the health of the server before the change, null for a {@link ApplicationGatewayBackendHealthEventType#SERVER_ADDED} event
+     */
+    ApplicationGatewayBackendHealthServerHealth previousHealth();
+
+    /**
+     * @return the health of the server, null for a {@link ApplicationGatewayBackendHealthEventType#SERVER_REMOVED} event
+     */
+    ApplicationGatewayBackendHealthServerHealth health();
+
+    /**
+     * @return the error for a {@link ApplicationGatewayBackendHealthEventType#POLL_FAILED} event, null otherwise
+     */
+    Throwable error();
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+/**
+ * Types of the events emitted by an {@link ApplicationGatewayBackendHealthMonitor}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public enum ApplicationGatewayBackendHealthEventType {
+    /** A backend server is reported by the application gateway for the first time. */
+    SERVER_ADDED,
+
+    /** The health of a backend server changed. */
+    SERVER_HEALTH_CHANGED,
+
+    /** A backend server is no longer reported by the application gateway. */
+    SERVER_REMOVED,
+
+    /** The backend health of an application gateway could not be retrieved; it is retrieved again at the next polling time. */
+    POLL_FAILED
+}
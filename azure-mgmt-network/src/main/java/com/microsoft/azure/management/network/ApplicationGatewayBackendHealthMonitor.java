@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import rx.Observable;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitor of the backend health of application gateways.
+ * <p>
+ * The backend health of each application gateway is retrieved at the polling interval, and compared to the
+ * previous one to emit the changes of health of the individual servers only. Retrieving the backend health is
+ * a long running operation: all the application gateways are polled through a single loop limiting the number
+ * of operations in progress, and an application gateway is not polled again before its previous operation
+ * completes, however short the polling interval.
+ * <p>
+ * The last backend health of each application gateway is kept in a compact form, of a few bytes per server
+ * in addition to the names of the servers.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface ApplicationGatewayBackendHealthMonitor {
+    /**
+     * Adds an application gateway to monitor.
+     *
+     * @param applicationGateway the application gateway
+     * @return the monitor
+     */
+    ApplicationGatewayBackendHealthMonitor withApplicationGateway(ApplicationGateway applicationGateway);
+
+    /**
+     * Adds an application gateway to monitor.
+     *
+     * @param resourceGroupName the name of the resource group of the application gateway
+     * @param applicationGatewayName the name of the application gateway
+     * @return the monitor
+     */
+    ApplicationGatewayBackendHealthMonitor withApplicationGateway(String resourceGroupName, String applicationGatewayName);
+
+    /**
+     * Removes an application gateway from the monitored ones.
+     *
+     * @param resourceGroupName the name of the resource group of the application gateway
+     * @param applicationGatewayName the name of the application gateway
+     * @return the monitor
+     */
+    ApplicationGatewayBackendHealthMonitor withoutApplicationGateway(String resourceGroupName, String applicationGatewayName);
+
+    /**
+     * Specifies the interval between the starts of two retrievals of the backend health of an application gateway.
+     *
+     * @param interval the interval, defaults to 30 seconds
+     * @param unit the time unit of the interval
+     * @return the monitor
+     */
+    ApplicationGatewayBackendHealthMonitor withPollingInterval(long interval, TimeUnit unit);
+
+    /**
+     * Specifies the maximum number of retrievals of backend health in progress, for all the application gateways.
+     *
+     * @param maxConcurrency the maximum number of long running operations in progress, defaults to 8
+     * @return the monitor
+     */
+    ApplicationGatewayBackendHealthMonitor withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Gets the changes of backend health of the monitored application gateways.
+     * <p>
+     * The servers of an application gateway are all reported as added by its first poll. The polling loop is
+     * shared by all the subscribers, and runs while there is at least one of them.
+     *
+     * @return an observable emitting the events, until unsubscribed
+     */
+    Observable<ApplicationGatewayBackendHealthEvent> watchAsync();
+
+    /**
+     * Gets the last known backend health of an application gateway.
+     *
+     * @param resourceGroupName the name of the resource group of the application gateway
+     * @param applicationGatewayName the name of the application gateway
+     * @return the health of the servers by backend address pool name, backend HTTP settings name and server address,
+     * separated by slashes; empty if the application gateway was not polled successfully yet
+     */
+    Map<String, ApplicationGatewayBackendHealthServerHealth> lastHealth(String resourceGroupName, String applicationGatewayName);
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import rx.Observable;
+
+import java.util.List;
+
+/**
+ * Local evaluator of network flows against the security rules of network security groups, as a fast
+ * alternative to {@link NetworkWatcher#verifyIPFlow()} for large numbers of flows.
+ * <p>
+ * The rules of each network security group are compiled once into indexes of elementary address and port
+ * intervals, each holding the set of rules matching it ordered by priority; evaluating a flow is then a binary
+ * search in each dimension followed by an intersection of bit sets. For a network interface, the network security
+ * groups of its subnet and of the interface itself are both applied, in the order Azure applies them.
+ * <p>
+ * Service tags are resolved as follows: "VirtualNetwork" to the address spaces of the virtual network of the
+ * network interface, "Internet" to the addresses outside of them and "AzureLoadBalancer" to the address of the
+ * Azure health probes. Other tags, and the tags of network security groups evaluated without a network interface,
+ * are unknown unless specified with {@link #withServiceTag(String, String...)}; verdicts that may depend on them
+ * are reported as not exact. The "VirtualNetwork" and "Internet" tags resolved from the address spaces miss the
+ * peered virtual networks and the on-premises address ranges, so verdicts that may depend on them are also
+ * reported as not exact, unless the tags are specified explicitly.
+ * <p>
+ * Once the targets are added, the evaluator can be used concurrently.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface NetworkSecurityEvaluator {
+    /**
+     * Adds a network security group as an evaluation target, identified by the ID of the group.
+     *
+     * @param networkSecurityGroup the network security group
+     * @return the evaluator
+     */
+    NetworkSecurityEvaluator withNetworkSecurityGroup(NetworkSecurityGroup networkSecurityGroup);
+
+    /**
+     * Adds a network interface as an evaluation target, identified by the ID of the interface.
+     * <p>
+     * (Note that this results in additional calls to Azure, for the virtual network and network security groups
+     * not already known to the evaluator.)
+     *
+     * @param networkInterface the network interface
+     * @return the evaluator
+     */
+    NetworkSecurityEvaluator withNetworkInterface(NetworkInterface networkInterface);
+
+    /**
+     * Specifies the addresses of a service tag, for all the targets.
+     *
+     * @param tag the service tag, such as "Storage"
+     * @param addressPrefixes the IPv4 addresses or CIDR blocks of the tag
+     * @return the evaluator
+     */
+    NetworkSecurityEvaluator withServiceTag(String tag, String... addressPrefixes);
+
+    /**
+     * Evaluates a flow.
+     *
+     * @param targetId the ID of the network interface or network security group
+     * @param flow the flow
+     * @return the verdict
+     */
+    NetworkSecurityVerdict evaluate(String targetId, NetworkSecurityFlow flow);
+
+    /**
+     * Evaluates flows.
+     *
+     * @param targetId the ID of the network interface or network security group
+     * @param flows the flows
+     * @return the verdicts, in the order of the flows
+     */
+    List<NetworkSecurityVerdict> evaluate(String targetId, List<NetworkSecurityFlow> flows);
+
+    /**
+     * Checks the local verdicts of flows of a virtual machine against the IP flow verification of a network watcher.
+     * <p>
+     * Flows are verified a few at a time, as each verification is a long running operation.
+     *
+     * @param networkWatcher the network watcher of the region of the virtual machine
+     * @param virtualMachineId the ID of the virtual machine
+     * @param networkInterfaceId the ID of the network interface of the virtual machine, added to the evaluator
+     * @param flows the flows
+     * @return an observable emitting the flows whose local verdict differs from the verification
+     */
+    Observable<NetworkSecurityFlow> crossCheckAsync(NetworkWatcher networkWatcher,
+                                                    String virtualMachineId,
+                                                    String networkInterfaceId,
+                                                    List<NetworkSecurityFlow> flows);
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+/**
+ * A network flow to evaluate against network security rules, as seen from a network interface.
+ * <p>
+ * The IPv4 addresses are parsed once, when the flow is created.
+ */
+@Beta(SinceVersion.V1_3_0)
+public final class NetworkSecurityFlow {
+    private final Direction direction;
+    private final Protocol protocol;
+    private final String localIPAddress;
+    private final int localPort;
+    private final String remoteIPAddress;
+    private final int remotePort;
+    private final long localAddress;
+    private final long remoteAddress;
+
+    /**
+     * Creates a flow.
+     *
+     * @param direction the direction of the flow
+     * @param protocol the protocol of the flow, TCP or UDP
+     * @param localIPAddress the IPv4 address on the side of the network interface
+     * @param localPort the port on the side of the network interface
+     * @param remoteIPAddress the IPv4 address on the other side
+     * @param remotePort the port on the other side
+     */
+    public NetworkSecurityFlow(Direction direction, Protocol protocol,
+                               String localIPAddress, int localPort,
+                               String remoteIPAddress, int remotePort) {
+        if (!Direction.INBOUND.equals(direction) && !Direction.OUTBOUND.equals(direction)) {
+            throw new IllegalArgumentException("Unsupported direction: " + direction);
+        }
+        if (!Protocol.TCP.equals(protocol) && !Protocol.UDP.equals(protocol)) {
+            throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+        }
+        this.direction = direction;
+        this.protocol = protocol;
+        this.localIPAddress = localIPAddress;
+        this.localPort = checkPort(localPort);
+        this.remoteIPAddress = remoteIPAddress;
+        this.remotePort = checkPort(remotePort);
+        this.localAddress = parseIPv4Address(localIPAddress);
+        this.remoteAddress = parseIPv4Address(remoteIPAddress);
+    }
+
+    /**
+     * Creates an inbound flow.
+     *
+     * @param protocol the protocol of the flow, TCP or UDP
+     * @param localIPAddress the destination IPv4 address, on the side of the network interface
+     * @param localPort the destination port
+     * @param remoteIPAddress the source IPv4 address
+     * @param remotePort the source port
+     * @return the flow
+     */
+    public static NetworkSecurityFlow inbound(Protocol protocol, String localIPAddress, int localPort,
+                                              String remoteIPAddress, int remotePort) {
+        return new NetworkSecurityFlow(Direction.INBOUND, protocol, localIPAddress, localPort, remoteIPAddress, remotePort);
+    }
+
+    /**
+     * Creates an outbound flow.
+     *
+     * @param protocol the protocol of the flow, TCP or UDP
+     * @param localIPAddress the source IPv4 address, on the side of the network interface
+     * @param localPort the source port
+     * @param remoteIPAddress the destination IPv4 address
+     * @param remotePort the destination port
+     * @return the flow
+     */
+    public static NetworkSecurityFlow outbound(Protocol protocol, String localIPAddress, int localPort,
+                                               String remoteIPAddress, int remotePort) {
+        return new NetworkSecurityFlow(Direction.OUTBOUND, protocol, localIPAddress, localPort, remoteIPAddress, remotePort);
+    }
+
+    /**
+     * @return the direction of the flow
+     */
+    public Direction direction() {
+        return this.direction;
+    }
+
+    /**
+     * @return the protocol of the flow
+     */
+    public Protocol protocol() {
+        return this.protocol;
+    }
+
+    /**
+     * @return the IPv4 address on the side of the network interface
+     */
+    public String localIPAddress() {
+        return this.localIPAddress;
+    }
+
+    /**
+     * @return the port on the side of the network interface
+     */
+    public int localPort() {
+        return this.localPort;
+    }
+
+    /**
+     * @return the IPv4 address on the other side
+     */
+    public String remoteIPAddress() {
+        return this.remoteIPAddress;
+    }
+
+    /**
+     * @return the port on the other side
+     */
+    public int remotePort() {
+        return this.remotePort;
+    }
+
+    /**
+     * @return the local IPv4 address as an unsigned 32 bits value
+     */
+    public long localAddress() {
+        return this.localAddress;
+    }
+
+    /**
+     * @return the remote IPv4 address as an unsigned 32 bits value
+     */
+    public long remoteAddress() {
+        return this.remoteAddress;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s:%d %s %s:%d", this.direction, this.protocol,
+                this.localIPAddress, this.localPort,
+                Direction.INBOUND.equals(this.direction) ? "<-" : "->",
+                this.remoteIPAddress, this.remotePort);
+    }
+
+    /**
+     * Parses an IPv4 address in dotted decimal notation.
+     *
+     * @param address the address
+     * @return the address as an unsigned 32 bits value
+     */
+    public static long parseIPv4Address(String address) {
+        if (address == null) {
+            throw new IllegalArgumentException("Missing IPv4 address");
+        }
+        long value = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i <= address.length(); i++) {
+            char c = i < address.length() ? address.charAt(i) : '.';
+            if (c == '.') {
+                if (octet < 0 || ++octets > 4) {
+                    throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+                }
+                value = (value << 8) | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+            }
+        }
+        if (octets != 4) {
+            throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+        }
+        return value;
+    }
+
+    private static int checkPort(int port) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+        return port;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+
+/**
+ * The result of the local evaluation of a flow by a {@link NetworkSecurityEvaluator}.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface NetworkSecurityVerdict {
+    /**
+     * @return whether the flow is allowed or denied
+     */
+    Access access();
+
+    /**
+     * @return the name of the rule deciding the flow: the denying rule, or the allowing rule of the last
+     * network security group evaluated; null if no network security group applies
+     */
+    String ruleName();
+
+    /**
+     * @return the ID of the network security group of the rule deciding the flow, null if no network security group applies
+     */
+    String networkSecurityGroupId();
+
+    /**
+     * @return true if the deciding rule is a default security rule
+     */
+    boolean isDefaultRule();
+
+    /**
+     * @return false if the deciding rule or a rule of higher priority uses a service tag whose addresses are unknown
+     * or approximate to the evaluator, in which case the verdict may differ from the one of Azure
+     */
+    boolean isExact();
+
+    /**
+     * Checks the verdict against the result of the IP flow verification of a network watcher.
+     *
+     * @param verification the result of the verification of the same flow
+     * @return true if both have the same access and rule name
+     */
+    boolean agreesWith(VerificationIPFlow verification);
+}
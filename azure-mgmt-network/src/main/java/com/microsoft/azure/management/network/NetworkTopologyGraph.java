@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import rx.Observable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Client-side graph of the network topologies of resource groups, retrieved by a network watcher.
+ * <p>
+ * The topologies of the resource groups are retrieved in parallel and merged into a single graph, indexed by
+ * resource ID, whose edges are the associations of the resources in either direction; associations across
+ * resource groups are followed when both groups are part of the graph. Child resources, such as subnets or the IP
+ * configurations of network interfaces, are also linked to their parent when it is part of the graph, so that
+ * resources associated with a child resource are reachable from its parent. Queries are answered from the graph
+ * without calls to Azure, and can be made concurrently with refreshes: each query sees the graph of a single
+ * refresh.
+ * <p>
+ * A refresh retrieves the topologies again, but the graph is rebuilt only if one of them was modified since
+ * the previous refresh; a single resource group can also be refreshed, for instance when a resource of the group
+ * is known to have changed.
+ */
+@Beta(SinceVersion.V1_3_0)
+public interface NetworkTopologyGraph {
+    /**
+     * Adds resource groups to the graph, retrieved at the next refresh.
+     *
+     * @param resourceGroupNames the names of the resource groups
+     * @return the graph
+     */
+    NetworkTopologyGraph withResourceGroups(String... resourceGroupNames);
+
+    /**
+     * Removes a resource group from the graph.
+     *
+     * @param resourceGroupName the name of the resource group
+     * @return the graph
+     */
+    NetworkTopologyGraph withoutResourceGroup(String resourceGroupName);
+
+    /**
+     * Specifies the maximum number of topologies retrieved concurrently.
+     *
+     * @param maxConcurrency the maximum number of concurrent requests, defaults to 4
+     * @return the graph
+     */
+    NetworkTopologyGraph withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Retrieves the topologies of all the resource groups of the graph.
+     *
+     * @return the graph
+     */
+    NetworkTopologyGraph refresh();
+
+    /**
+     * Retrieves the topologies of all the resource groups of the graph asynchronously.
+     *
+     * @return an observable emitting the graph once refreshed
+     */
+    Observable<NetworkTopologyGraph> refreshAsync();
+
+    /**
+     * Retrieves the topology of the resource group of a resource asynchronously, adding the group to the graph if needed.
+     *
+     * @param resourceId the ID of a resource that changed
+     * @return an observable emitting the graph once refreshed
+     */
+    Observable<NetworkTopologyGraph> refreshResourceAsync(String resourceId);
+
+    /**
+     * @return the IDs of all the resources of the graph
+     */
+    Set<String> resourceIds();
+
+    /**
+     * Gets a resource of the graph.
+     *
+     * @param resourceId the ID of the resource
+     * @return the resource, or null if it is not part of the graph; resources only known from the associations
+     * of other resources have no location nor associations
+     */
+    TopologyResource getResource(String resourceId);
+
+    /**
+     * Gets the resources associated with a resource, in either direction.
+     *
+     * @param resourceId the ID of the resource
+     * @return the associated resources
+     */
+    List<TopologyResource> associatedResources(String resourceId);
+
+    /**
+     * Gets the resources of a type reachable from a resource through associations, only passing through
+     * resources of the specified types.
+     *
+     * @param resourceId the ID of the resource to start from
+     * @param resourceType the type of the resources to find, such as "Microsoft.Network/networkInterfaces"
+     * @param throughResourceTypes the types of the intermediate resources, such as "Microsoft.Network/virtualNetworks/subnets"
+     * @return the resources found, the closest first
+     */
+    List<TopologyResource> reachableResources(String resourceId, String resourceType, String... throughResourceTypes);
+
+    /**
+     * Gets the network interfaces filtered by a network security group, directly or through their subnet.
+     * <p>
+     * The network interfaces are found whether the topology associates the subnets with the network interfaces
+     * or with their IP configurations.
+     *
+     * @param networkSecurityGroupId the ID of the network security group
+     * @return the network interfaces
+     */
+    List<TopologyResource> networkInterfacesSecuredBy(String networkSecurityGroupId);
+
+    /**
+     * Gets the virtual machines whose network interfaces are associated with a load balancer.
+     * <p>
+     * The virtual machines are found whether the topology associates the load balancer, or its backend address
+     * pools, with the network interfaces or with their IP configurations.
+     *
+     * @param loadBalancerId the ID of the load balancer
+     * @return the virtual machines
+     */
+    List<TopologyResource> virtualMachinesBehind(String loadBalancerId);
+
+    /**
+     * Gets the shortest path between two resources through associations.
+     *
+     * @param fromResourceId the ID of the first resource
+     * @param toResourceId the ID of the second resource
+     * @return the resources of the path, including both ends, or an empty list if there is no such path
+     */
+    List<TopologyResource> path(String fromResourceId, String toResourceId);
+}
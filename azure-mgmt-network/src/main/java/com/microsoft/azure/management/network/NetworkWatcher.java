@@ -6,6 +6,7 @@
 package com.microsoft.azure.management.network;
 
 import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
 import com.microsoft.azure.management.apigeneration.Fluent;
 import com.microsoft.azure.management.network.implementation.NetworkManager;
 import com.microsoft.azure.management.network.implementation.NetworkWatcherInner;
@@ -46,6 +47,15 @@ public interface NetworkWatcher extends
      */
     Observable<Topology> getTopologyAsync(String targetResourceGroup);
 
+    /**
+     * Creates a client-side graph of the network topologies of resource groups, for queries on many resource
+     * groups without retrieving their topologies each time.
+     *
+     * @return a new topology graph, empty until the resource groups are added and the graph refreshed
+     */
+    @Beta(SinceVersion.V1_3_0)
+    NetworkTopologyGraph newTopologyGraph();
+
     /**
      * Gets the configured and effective security group rules on the specified VM.
      * @param vmId ID of the target VM
@@ -0,0 +1,467 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network.implementation;
+
+import com.microsoft.azure.SubResource;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.network.ApplicationGateway;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthEvent;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthEventType;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthHttpSettings;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthMonitor;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthPool;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthServer;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthServerHealth;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation for ApplicationGatewayBackendHealthMonitor.
+ */
+@LangDefinition
+class ApplicationGatewayBackendHealthMonitorImpl implements ApplicationGatewayBackendHealthMonitor {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final long DEFAULT_POLLING_INTERVAL_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_LOOP_DELAY_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_LOOP_DELAY_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(5);
+    private static final HealthSnapshot EMPTY_SNAPSHOT = new HealthSnapshot(new String[0], new byte[0]);
+    private static final Comparator<GatewayState> BY_DUE_TIME = new Comparator<GatewayState>() {
+        @Override
+        public int compare(GatewayState gateway1, GatewayState gateway2) {
+            return gateway1.due < gateway2.due ? -1 : (gateway1.due == gateway2.due ? 0 : 1);
+        }
+    };
+
+    private final ApplicationGatewaysInner client;
+    private final Map<String, GatewayState> gateways = new LinkedHashMap<>();
+    // Health values seen, indexed by the bytes of the snapshots
+    private final List<ApplicationGatewayBackendHealthServerHealth> healthValues = new ArrayList<>(Arrays.asList(
+            ApplicationGatewayBackendHealthServerHealth.UNKNOWN,
+            ApplicationGatewayBackendHealthServerHealth.UP,
+            ApplicationGatewayBackendHealthServerHealth.DOWN,
+            ApplicationGatewayBackendHealthServerHealth.PARTIAL));
+    private long pollingIntervalInMilliseconds = DEFAULT_POLLING_INTERVAL_IN_MILLISECONDS;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private Observable<ApplicationGatewayBackendHealthEvent> events;
+
+    ApplicationGatewayBackendHealthMonitorImpl(ApplicationGatewaysInner client) {
+        this.client = client;
+    }
+
+    @Override
+    public ApplicationGatewayBackendHealthMonitorImpl withApplicationGateway(ApplicationGateway applicationGateway) {
+        return this.withApplicationGateway(applicationGateway.resourceGroupName(), applicationGateway.name());
+    }
+
+    @Override
+    public synchronized ApplicationGatewayBackendHealthMonitorImpl withApplicationGateway(String resourceGroupName, String applicationGatewayName) {
+        String key = key(resourceGroupName, applicationGatewayName);
+        if (!this.gateways.containsKey(key)) {
+            this.gateways.put(key, new GatewayState(resourceGroupName, applicationGatewayName));
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized ApplicationGatewayBackendHealthMonitorImpl withoutApplicationGateway(String resourceGroupName, String applicationGatewayName) {
+        this.gateways.remove(key(resourceGroupName, applicationGatewayName));
+        return this;
+    }
+
+    @Override
+    public synchronized ApplicationGatewayBackendHealthMonitorImpl withPollingInterval(long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.pollingIntervalInMilliseconds = unit.toMillis(interval);
+        return this;
+    }
+
+    @Override
+    public synchronized ApplicationGatewayBackendHealthMonitorImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public synchronized Observable<ApplicationGatewayBackendHealthEvent> watchAsync() {
+        if (this.events == null) {
+            final ApplicationGatewayBackendHealthMonitorImpl self = this;
+            this.events = Observable.defer(new Func0<Observable<GatewayState>>() {
+                @Override
+                public Observable<GatewayState> call() {
+                    return Observable.from(self.takeDueGateways());
+                }
+            }).repeatWhen(new Func1<Observable<? extends Void>, Observable<?>>() {
+                @Override
+                public Observable<?> call(Observable<? extends Void> cycles) {
+                    return cycles.flatMap(new Func1<Void, Observable<Integer>>() {
+                        @Override
+                        public Observable<Integer> call(Void aVoid) {
+                            return SdkContext.delayedEmitAsync(0, (int) self.nextDelay());
+                        }
+                    });
+                }
+            }).doOnSubscribe(new Action0() {
+                @Override
+                public void call() {
+                    self.start();
+                }
+            }).flatMap(new Func1<GatewayState, Observable<ApplicationGatewayBackendHealthEvent>>() {
+                @Override
+                public Observable<ApplicationGatewayBackendHealthEvent> call(GatewayState gateway) {
+                    return gateway.pollAsync().subscribeOn(SdkContext.getRxScheduler());
+                }
+            }).share();
+        }
+        return this.events;
+    }
+
+    @Override
+    public Map<String, ApplicationGatewayBackendHealthServerHealth> lastHealth(String resourceGroupName, String applicationGatewayName) {
+        HealthSnapshot snapshot;
+        synchronized (this) {
+            GatewayState gateway = this.gateways.get(key(resourceGroupName, applicationGatewayName));
+            if (gateway == null) {
+                return Collections.emptyMap();
+            }
+            snapshot = gateway.snapshot;
+        }
+        Map<String, ApplicationGatewayBackendHealthServerHealth> health = new LinkedHashMap<>();
+        for (int i = 0; i < snapshot.servers.length; i++) {
+            health.put(snapshot.servers[i], this.healthValue(snapshot.healths[i]));
+        }
+        return Collections.unmodifiableMap(health);
+    }
+
+    /**
+     * Makes the polls interrupted by a previous unsubscription due again.
+     */
+    private synchronized void start() {
+        for (GatewayState gateway : this.gateways.values()) {
+            if (gateway.inFlight) {
+                gateway.inFlight = false;
+                gateway.due = 0;
+            }
+        }
+    }
+
+    /**
+     * Selects the application gateways to poll, the most overdue first, within the limit of operations in progress.
+     *
+     * @return the selected application gateways, marked as in flight
+     */
+    synchronized List<GatewayState> takeDueGateways() {
+        long now = System.currentTimeMillis();
+        int available = this.maxConcurrency;
+        List<GatewayState> dueGateways = new ArrayList<>();
+        for (GatewayState gateway : this.gateways.values()) {
+            if (gateway.inFlight) {
+                available--;
+            } else if (gateway.due <= now) {
+                dueGateways.add(gateway);
+            }
+        }
+        Collections.sort(dueGateways, BY_DUE_TIME);
+        if (dueGateways.size() > available) {
+            dueGateways = new ArrayList<>(dueGateways.subList(0, Math.max(0, available)));
+        }
+        for (GatewayState gateway : dueGateways) {
+            gateway.inFlight = true;
+            // Fixed rate; an operation lasting longer than the interval is followed by the next one at once
+            gateway.due = now + this.pollingIntervalInMilliseconds;
+        }
+        return dueGateways;
+    }
+
+    /**
+     * @return the delay until the next application gateway is due, in milliseconds
+     */
+    private synchronized long nextDelay() {
+        long now = System.currentTimeMillis();
+        long delay = MAX_LOOP_DELAY_IN_MILLISECONDS;
+        for (GatewayState gateway : this.gateways.values()) {
+            if (!gateway.inFlight) {
+                delay = Math.min(delay, gateway.due - now);
+            }
+        }
+        return Math.max(MIN_LOOP_DELAY_IN_MILLISECONDS, delay);
+    }
+
+    private byte healthIndex(ApplicationGatewayBackendHealthServerHealth health) {
+        if (health == null) {
+            return 0;
+        }
+        synchronized (this.healthValues) {
+            int index = this.healthValues.indexOf(health);
+            if (index < 0) {
+                if (this.healthValues.size() > Byte.MAX_VALUE) {
+                    // More distinct values than a byte can index are reported as unknown
+                    return 0;
+                }
+                this.healthValues.add(health);
+                index = this.healthValues.size() - 1;
+            }
+            return (byte) index;
+        }
+    }
+
+    private ApplicationGatewayBackendHealthServerHealth healthValue(byte index) {
+        synchronized (this.healthValues) {
+            return this.healthValues.get(index);
+        }
+    }
+
+    private static String key(String resourceGroupName, String applicationGatewayName) {
+        return (resourceGroupName + "/" + applicationGatewayName).toLowerCase(Locale.ROOT);
+    }
+
+    private static String name(SubResource subResource, String name) {
+        if (name != null) {
+            return name;
+        }
+        return subResource == null || subResource.id() == null ? "" : ResourceUtils.nameFromResourceId(subResource.id());
+    }
+
+    /**
+     * Polling of an application gateway, and last backend health of the application gateway.
+     */
+    final class GatewayState {
+        private final String resourceGroupName;
+        private final String applicationGatewayName;
+        // Time the next poll is due at, in milliseconds since the epoch
+        private long due;
+        private boolean inFlight;
+        private volatile HealthSnapshot snapshot = EMPTY_SNAPSHOT;
+
+        GatewayState(String resourceGroupName, String applicationGatewayName) {
+            this.resourceGroupName = resourceGroupName;
+            this.applicationGatewayName = applicationGatewayName;
+        }
+
+        Observable<ApplicationGatewayBackendHealthEvent> pollAsync() {
+            final ApplicationGatewayBackendHealthMonitorImpl self = ApplicationGatewayBackendHealthMonitorImpl.this;
+            final GatewayState gateway = this;
+            return self.client.backendHealthAsync(this.resourceGroupName, this.applicationGatewayName)
+                    .concatMapIterable(new Func1<ApplicationGatewayBackendHealthInner, List<ApplicationGatewayBackendHealthEvent>>() {
+                        @Override
+                        public List<ApplicationGatewayBackendHealthEvent> call(ApplicationGatewayBackendHealthInner health) {
+                            // Polls of the same application gateway never overlap, so only removals need the lock
+                            List<ApplicationGatewayBackendHealthEvent> events = gateway.update(health);
+                            synchronized (self) {
+                                if (self.gateways.get(key(gateway.resourceGroupName, gateway.applicationGatewayName)) != gateway) {
+                                    return Collections.emptyList();
+                                }
+                            }
+                            return events;
+                        }
+                    })
+                    .onErrorResumeNext(new Func1<Throwable, Observable<ApplicationGatewayBackendHealthEvent>>() {
+                        @Override
+                        public Observable<ApplicationGatewayBackendHealthEvent> call(Throwable throwable) {
+                            return Observable.<ApplicationGatewayBackendHealthEvent>just(new ApplicationGatewayBackendHealthEventImpl(
+                                    ApplicationGatewayBackendHealthEventType.POLL_FAILED, gateway.resourceGroupName,
+                                    gateway.applicationGatewayName, null, null, null, throwable));
+                        }
+                    })
+                    .doAfterTerminate(new Action0() {
+                        @Override
+                        public void call() {
+                            synchronized (self) {
+                                gateway.inFlight = false;
+                            }
+                        }
+                    });
+        }
+
+        /**
+         * Replaces the snapshot of the backend health with a new one.
+         *
+         * @param health the backend health retrieved
+         * @return the changes of health of the servers since the previous snapshot
+         */
+        List<ApplicationGatewayBackendHealthEvent> update(ApplicationGatewayBackendHealthInner health) {
+            final ApplicationGatewayBackendHealthMonitorImpl self = ApplicationGatewayBackendHealthMonitorImpl.this;
+            TreeMap<String, Byte> current = new TreeMap<>();
+            if (health.backendAddressPools() != null) {
+                for (ApplicationGatewayBackendHealthPool pool : health.backendAddressPools()) {
+                    if (pool.backendHttpSettingsCollection() == null) {
+                        continue;
+                    }
+                    String poolName = pool.backendAddressPool() == null
+                            ? "" : name(pool.backendAddressPool(), pool.backendAddressPool().name());
+                    for (ApplicationGatewayBackendHealthHttpSettings settings : pool.backendHttpSettingsCollection()) {
+                        if (settings.servers() == null) {
+                            continue;
+                        }
+                        String settingsName = settings.backendHttpSettings() == null
+                                ? "" : name(settings.backendHttpSettings(), settings.backendHttpSettings().name());
+                        for (ApplicationGatewayBackendHealthServer server : settings.servers()) {
+                            String key = poolName + "/" + settingsName + "/" + server.address();
+                            if (server.address() != null && !current.containsKey(key)) {
+                                current.put(key, self.healthIndex(server.health()));
+                            }
+                        }
+                    }
+                }
+            }
+
+            // Both snapshots are sorted by server, so they are compared in a single pass
+            HealthSnapshot previous = this.snapshot;
+            String[] servers = new String[current.size()];
+            byte[] healths = new byte[current.size()];
+            List<ApplicationGatewayBackendHealthEvent> events = new ArrayList<>();
+            int i = 0;
+            int j = 0;
+            for (Map.Entry<String, Byte> entry : current.entrySet()) {
+                String server = entry.getKey();
+                byte serverHealth = entry.getValue();
+                while (j < previous.servers.length && previous.servers[j].compareTo(server) < 0) {
+                    events.add(this.event(ApplicationGatewayBackendHealthEventType.SERVER_REMOVED,
+                            previous.servers[j], self.healthValue(previous.healths[j]), null));
+                    j++;
+                }
+                if (j < previous.servers.length && previous.servers[j].equals(server)) {
+                    // Keeps a single copy of the name of the server
+                    server = previous.servers[j];
+                    if (previous.healths[j] != serverHealth) {
+                        events.add(this.event(ApplicationGatewayBackendHealthEventType.SERVER_HEALTH_CHANGED,
+                                server, self.healthValue(previous.healths[j]), self.healthValue(serverHealth)));
+                    }
+                    j++;
+                } else {
+                    events.add(this.event(ApplicationGatewayBackendHealthEventType.SERVER_ADDED,
+                            server, null, self.healthValue(serverHealth)));
+                }
+                servers[i] = server;
+                healths[i] = serverHealth;
+                i++;
+            }
+            for (; j < previous.servers.length; j++) {
+                events.add(this.event(ApplicationGatewayBackendHealthEventType.SERVER_REMOVED,
+                        previous.servers[j], self.healthValue(previous.healths[j]), null));
+            }
+            this.snapshot = new HealthSnapshot(servers, healths);
+            return events;
+        }
+
+        private ApplicationGatewayBackendHealthEvent event(ApplicationGatewayBackendHealthEventType type,
+                                                           String server,
+                                                           ApplicationGatewayBackendHealthServerHealth previousHealth,
+                                                           ApplicationGatewayBackendHealthServerHealth health) {
+            String[] names = server.split("/", 3);
+            return new ApplicationGatewayBackendHealthEventImpl(type, this.resourceGroupName, this.applicationGatewayName,
+                    names, previousHealth, health, null);
+        }
+    }
+
+    /**
+     * Backend health of an application gateway, as the servers sorted by pool, HTTP settings and address, and
+     * the index of their health values.
+     */
+    private static final class HealthSnapshot {
+        private final String[] servers;
+        private final byte[] healths;
+
+        HealthSnapshot(String[] servers, byte[] healths) {
+            this.servers = servers;
+            this.healths = healths;
+        }
+    }
+
+    /**
+     * A change of the backend health of an application gateway.
+     */
+    private static final class ApplicationGatewayBackendHealthEventImpl implements ApplicationGatewayBackendHealthEvent {
+        private final ApplicationGatewayBackendHealthEventType type;
+        private final String resourceGroupName;
+        private final String applicationGatewayName;
+        private final String[] names;
+        private final ApplicationGatewayBackendHealthServerHealth previousHealth;
+        private final ApplicationGatewayBackendHealthServerHealth health;
+        private final Throwable error;
+
+        ApplicationGatewayBackendHealthEventImpl(ApplicationGatewayBackendHealthEventType type,
+                                                 String resourceGroupName,
+                                                 String applicationGatewayName,
+                                                 String[] names,
+                                                 ApplicationGatewayBackendHealthServerHealth previousHealth,
+                                                 ApplicationGatewayBackendHealthServerHealth health,
+                                                 Throwable error) {
+            this.type = type;
+            this.resourceGroupName = resourceGroupName;
+            this.applicationGatewayName = applicationGatewayName;
+            this.names = names;
+            this.previousHealth = previousHealth;
+            this.health = health;
+            this.error = error;
+        }
+
+        @Override
+        public ApplicationGatewayBackendHealthEventType type() {
+            return this.type;
+        }
+
+        @Override
+        public String resourceGroupName() {
+            return this.resourceGroupName;
+        }
+
+        @Override
+        public String applicationGatewayName() {
+            return this.applicationGatewayName;
+        }
+
+        @Override
+        public String backendAddressPoolName() {
+            return this.names == null ? null : this.names[0];
+        }
+
+        @Override
+        public String backendHttpSettingsName() {
+            return this.names == null ? null : this.names[1];
+        }
+
+        @Override
+        public String serverAddress() {
+            return this.names == null ? null : this.names[2];
+        }
+
+        @Override
+        public ApplicationGatewayBackendHealthServerHealth previousHealth() {
+            return this.previousHealth;
+        }
+
+        @Override
+        public ApplicationGatewayBackendHealthServerHealth health() {
+            return this.health;
+        }
+
+        @Override
+        public Throwable error() {
+            return this.error;
+        }
+    }
+}
@@ -12,10 +12,12 @@ import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.apigeneration.Beta;
 import com.microsoft.azure.management.network.ApplicationGateway;
 import com.microsoft.azure.management.network.ApplicationGatewayBackend;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthMonitor;
 import com.microsoft.azure.management.network.ApplicationGateways;
 import com.microsoft.azure.management.network.LoadBalancers;
 import com.microsoft.azure.management.network.Network;
 import com.microsoft.azure.management.network.NetworkInterfaces;
+import com.microsoft.azure.management.network.NetworkSecurityEvaluator;
 import com.microsoft.azure.management.network.NetworkSecurityGroups;
 import com.microsoft.azure.management.network.NetworkUsages;
 import com.microsoft.azure.management.network.Networks;
@@ -27,9 +29,9 @@ import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 
 import java.util.ArrayList;
@@ -76,7 +78,7 @@ public final class NetworkManager extends Manager<NetworkManager, NetworkManagem
         return new NetworkManager(new RestClient.Builder()
                 .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -218,6 +220,22 @@ public final class NetworkManager extends Manager<NetworkManager, NetworkManagem
         return this.networkWatchers;
     }
 
+    /**
+     * @return a new local evaluator of network flows against the rules of network security groups
+     */
+    @Beta(Beta.SinceVersion.V1_3_0)
+    public NetworkSecurityEvaluator newSecurityEvaluator() {
+        return new NetworkSecurityEvaluatorImpl(this);
+    }
+
+    /**
+     * @return a new monitor of the backend health of application gateways
+     */
+    @Beta(Beta.SinceVersion.V1_3_0)
+    public ApplicationGatewayBackendHealthMonitor newBackendHealthMonitor() {
+        return new ApplicationGatewayBackendHealthMonitorImpl(this.inner().applicationGateways());
+    }
+
     // Internal utility function
     Subnet getAssociatedSubnet(SubResource subnetRef) {
         if (subnetRef == null) {
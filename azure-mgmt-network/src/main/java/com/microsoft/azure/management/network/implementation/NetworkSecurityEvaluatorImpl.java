@@ -0,0 +1,662 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network.implementation;
+
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.network.Access;
+import com.microsoft.azure.management.network.Direction;
+import com.microsoft.azure.management.network.Network;
+import com.microsoft.azure.management.network.NetworkInterface;
+import com.microsoft.azure.management.network.NetworkSecurityEvaluator;
+import com.microsoft.azure.management.network.NetworkSecurityFlow;
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+import com.microsoft.azure.management.network.NetworkSecurityRule;
+import com.microsoft.azure.management.network.NetworkSecurityVerdict;
+import com.microsoft.azure.management.network.NetworkWatcher;
+import com.microsoft.azure.management.network.NicIPConfiguration;
+import com.microsoft.azure.management.network.Protocol;
+import com.microsoft.azure.management.network.SecurityRuleAccess;
+import com.microsoft.azure.management.network.SecurityRuleDirection;
+import com.microsoft.azure.management.network.SecurityRuleProtocol;
+import com.microsoft.azure.management.network.Subnet;
+import com.microsoft.azure.management.network.VerificationIPFlow;
+import com.microsoft.azure.management.network.VerificationIPFlow.DefinitionStages.WithLocalIP;
+import rx.Observable;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation for NetworkSecurityEvaluator.
+ */
+@LangDefinition
+class NetworkSecurityEvaluatorImpl implements NetworkSecurityEvaluator {
+    private static final long MAX_ADDRESS = 0xFFFFFFFFL;
+    private static final long MAX_PORT = 65535;
+    private static final int CROSS_CHECK_CONCURRENCY = 4;
+    private static final String VIRTUAL_NETWORK_TAG = "virtualnetwork";
+    private static final String INTERNET_TAG = "internet";
+    private static final String AZURE_LOAD_BALANCER_TAG = "azureloadbalancer";
+    private static final String AZURE_LOAD_BALANCER_ADDRESS = "168.63.129.16/32";
+
+    private final NetworkManager manager;
+    private final Map<String, NetworkSecurityGroup> networkSecurityGroups = new HashMap<>();
+    private final Map<String, Network> networks = new HashMap<>();
+    private final Map<String, Target> targets = new HashMap<>();
+    private final Map<String, List<long[]>> serviceTags = new HashMap<>();
+    // Compiled network security groups, by group and virtual network
+    private final ConcurrentMap<String, CompiledGroup> compiledGroups = new ConcurrentHashMap<>();
+
+    NetworkSecurityEvaluatorImpl(NetworkManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public synchronized NetworkSecurityEvaluatorImpl withNetworkSecurityGroup(NetworkSecurityGroup networkSecurityGroup) {
+        this.networkSecurityGroups.put(key(networkSecurityGroup.id()), networkSecurityGroup);
+        this.targets.put(key(networkSecurityGroup.id()), new Target(null, networkSecurityGroup.id(), null));
+        this.compiledGroups.clear();
+        return this;
+    }
+
+    @Override
+    public synchronized NetworkSecurityEvaluatorImpl withNetworkInterface(NetworkInterface networkInterface) {
+        NicIPConfiguration ipConfiguration = networkInterface.primaryIPConfiguration();
+        String subnetGroupId = null;
+        Network network = null;
+        if (ipConfiguration != null && ipConfiguration.networkId() != null) {
+            network = this.networks.get(key(ipConfiguration.networkId()));
+            if (network == null) {
+                network = this.manager.networks().getById(ipConfiguration.networkId());
+                this.networks.put(key(network.id()), network);
+            }
+            Subnet subnet = network.subnets().get(ipConfiguration.subnetName());
+            if (subnet != null) {
+                subnetGroupId = subnet.networkSecurityGroupId();
+            }
+        }
+        this.loadGroup(subnetGroupId);
+        this.loadGroup(networkInterface.networkSecurityGroupId());
+        this.targets.put(key(networkInterface.id()),
+                new Target(subnetGroupId, networkInterface.networkSecurityGroupId(), network));
+        this.compiledGroups.clear();
+        return this;
+    }
+
+    @Override
+    public synchronized NetworkSecurityEvaluatorImpl withServiceTag(String tag, String... addressPrefixes) {
+        List<long[]> ranges = new ArrayList<>();
+        for (String addressPrefix : addressPrefixes) {
+            ranges.add(parseAddressPrefix(addressPrefix));
+        }
+        this.serviceTags.put(tag.toLowerCase(Locale.ROOT), ranges);
+        this.compiledGroups.clear();
+        return this;
+    }
+
+    @Override
+    public NetworkSecurityVerdict evaluate(String targetId, NetworkSecurityFlow flow) {
+        return this.evaluate(this.compiledGroups(targetId, flow.direction()), flow);
+    }
+
+    @Override
+    public List<NetworkSecurityVerdict> evaluate(String targetId, List<NetworkSecurityFlow> flows) {
+        // The groups are looked up once per direction rather than once per flow
+        CompiledGroup[] inbound = null;
+        CompiledGroup[] outbound = null;
+        List<NetworkSecurityVerdict> verdicts = new ArrayList<>(flows.size());
+        for (NetworkSecurityFlow flow : flows) {
+            CompiledGroup[] groups;
+            if (Direction.INBOUND.equals(flow.direction())) {
+                if (inbound == null) {
+                    inbound = this.compiledGroups(targetId, Direction.INBOUND);
+                }
+                groups = inbound;
+            } else {
+                if (outbound == null) {
+                    outbound = this.compiledGroups(targetId, Direction.OUTBOUND);
+                }
+                groups = outbound;
+            }
+            verdicts.add(this.evaluate(groups, flow));
+        }
+        return verdicts;
+    }
+
+    @Override
+    public Observable<NetworkSecurityFlow> crossCheckAsync(final NetworkWatcher networkWatcher,
+                                                           final String virtualMachineId,
+                                                           final String networkInterfaceId,
+                                                           List<NetworkSecurityFlow> flows) {
+        final NetworkSecurityEvaluatorImpl self = this;
+        return Observable.from(flows)
+                .flatMap(new Func1<NetworkSecurityFlow, Observable<NetworkSecurityFlow>>() {
+                    @Override
+                    public Observable<NetworkSecurityFlow> call(final NetworkSecurityFlow flow) {
+                        final NetworkSecurityVerdict verdict = self.evaluate(networkInterfaceId, flow);
+                        WithLocalIP withLocalIP = Protocol.TCP.equals(flow.protocol())
+                                ? networkWatcher.verifyIPFlow().withTargetResourceId(virtualMachineId).withDirection(flow.direction()).withTCP()
+                                : networkWatcher.verifyIPFlow().withTargetResourceId(virtualMachineId).withDirection(flow.direction()).withUDP();
+                        return withLocalIP
+                                .withLocalIPAddress(flow.localIPAddress())
+                                .withRemoteIPAddress(flow.remoteIPAddress())
+                                .withLocalPort(String.valueOf(flow.localPort()))
+                                .withRemotePort(String.valueOf(flow.remotePort()))
+                                .withTargetNetworkInterfaceId(networkInterfaceId)
+                                .executeAsync()
+                                .filter(new Func1<VerificationIPFlow, Boolean>() {
+                                    @Override
+                                    public Boolean call(VerificationIPFlow verification) {
+                                        return !verdict.agreesWith(verification);
+                                    }
+                                })
+                                .map(new Func1<VerificationIPFlow, NetworkSecurityFlow>() {
+                                    @Override
+                                    public NetworkSecurityFlow call(VerificationIPFlow verification) {
+                                        return flow;
+                                    }
+                                });
+                    }
+                }, CROSS_CHECK_CONCURRENCY);
+    }
+
+    private void loadGroup(String groupId) {
+        if (groupId != null && !this.networkSecurityGroups.containsKey(key(groupId))) {
+            NetworkSecurityGroup group = this.manager.networkSecurityGroups().getById(groupId);
+            if (group != null) {
+                this.networkSecurityGroups.put(key(groupId), group);
+            }
+        }
+    }
+
+    /**
+     * Gets the compiled network security groups of a target, in the order they apply to a direction.
+     */
+    private CompiledGroup[] compiledGroups(String targetId, Direction direction) {
+        Target target;
+        synchronized (this) {
+            target = this.targets.get(key(targetId));
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown network interface or network security group: " + targetId);
+        }
+        // Inbound traffic goes through the group of the subnet first, outbound traffic through the group of the interface first
+        String[] groupIds = Direction.INBOUND.equals(direction)
+                ? new String[] {target.subnetGroupId, target.interfaceGroupId}
+                : new String[] {target.interfaceGroupId, target.subnetGroupId};
+        List<CompiledGroup> groups = new ArrayList<>();
+        for (String groupId : groupIds) {
+            if (groupId != null) {
+                groups.add(this.compiledGroup(groupId, target.network));
+            }
+        }
+        return groups.toArray(new CompiledGroup[groups.size()]);
+    }
+
+    private CompiledGroup compiledGroup(String groupId, Network network) {
+        String key = key(groupId) + "|" + (network == null ? "" : key(network.id()));
+        CompiledGroup compiled = this.compiledGroups.get(key);
+        if (compiled == null) {
+            synchronized (this) {
+                NetworkSecurityGroup group = this.networkSecurityGroups.get(key(groupId));
+                if (group == null) {
+                    throw new IllegalArgumentException("Network security group not found: " + groupId);
+                }
+                compiled = new CompiledGroup(group, this.tagResolver(network), this.approximateTags(network));
+            }
+            CompiledGroup existing = this.compiledGroups.putIfAbsent(key, compiled);
+            if (existing != null) {
+                compiled = existing;
+            }
+        }
+        return compiled;
+    }
+
+    private Map<String, List<long[]>> tagResolver(Network network) {
+        Map<String, List<long[]>> tags = new HashMap<>();
+        tags.put(AZURE_LOAD_BALANCER_TAG, Collections.singletonList(parseAddressPrefix(AZURE_LOAD_BALANCER_ADDRESS)));
+        if (network != null && network.addressSpaces() != null) {
+            List<long[]> virtualNetwork = new ArrayList<>();
+            for (String addressSpace : network.addressSpaces()) {
+                virtualNetwork.add(parseAddressPrefix(addressSpace));
+            }
+            tags.put(VIRTUAL_NETWORK_TAG, virtualNetwork);
+            tags.put(INTERNET_TAG, complement(virtualNetwork));
+        }
+        // Tags specified explicitly take precedence
+        tags.putAll(this.serviceTags);
+        return tags;
+    }
+
+    /**
+     * Gets the tags resolved from the address spaces of a virtual network, which miss the peered virtual networks
+     * and the on-premises address ranges: rules using them only give approximate verdicts.
+     */
+    private Set<String> approximateTags(Network network) {
+        Set<String> tags = new HashSet<>();
+        if (network != null && network.addressSpaces() != null) {
+            for (String tag : new String[] {VIRTUAL_NETWORK_TAG, INTERNET_TAG}) {
+                if (!this.serviceTags.containsKey(tag)) {
+                    tags.add(tag);
+                }
+            }
+        }
+        return tags;
+    }
+
+    private NetworkSecurityVerdict evaluate(CompiledGroup[] groups, NetworkSecurityFlow flow) {
+        boolean exact = true;
+        VerdictImpl verdict = null;
+        for (CompiledGroup group : groups) {
+            verdict = group.evaluate(flow, exact);
+            exact = verdict.exact;
+            if (Access.DENY.equals(verdict.access)) {
+                break;
+            }
+        }
+        return verdict != null ? verdict : new VerdictImpl(Access.ALLOW, null, null, false, true);
+    }
+
+    private static String key(String id) {
+        return id.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parses an IPv4 address or CIDR block.
+     *
+     * @return the first and last addresses of the block
+     */
+    static long[] parseAddressPrefix(String addressPrefix) {
+        int slash = addressPrefix.indexOf('/');
+        if (slash < 0) {
+            long address = NetworkSecurityFlow.parseIPv4Address(addressPrefix.trim());
+            return new long[] {address, address};
+        }
+        long address = NetworkSecurityFlow.parseIPv4Address(addressPrefix.substring(0, slash).trim());
+        int length;
+        try {
+            length = Integer.parseInt(addressPrefix.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid address prefix: " + addressPrefix);
+        }
+        if (length < 0 || length > 32) {
+            throw new IllegalArgumentException("Invalid address prefix: " + addressPrefix);
+        }
+        long size = 1L << (32 - length);
+        long first = address & ~(size - 1) & MAX_ADDRESS;
+        return new long[] {first, first + size - 1};
+    }
+
+    /**
+     * @return the address ranges not covered by the given ones
+     */
+    static List<long[]> complement(List<long[]> ranges) {
+        List<long[]> sorted = new ArrayList<>(ranges);
+        Collections.sort(sorted, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] range1, long[] range2) {
+                return Long.compare(range1[0], range2[0]);
+            }
+        });
+        List<long[]> complement = new ArrayList<>();
+        long next = 0;
+        for (long[] range : sorted) {
+            if (range[0] > next) {
+                complement.add(new long[] {next, range[0] - 1});
+            }
+            next = Math.max(next, range[1] + 1);
+        }
+        if (next <= MAX_ADDRESS) {
+            complement.add(new long[] {next, MAX_ADDRESS});
+        }
+        return complement;
+    }
+
+    /**
+     * The network security groups applying to an evaluation target.
+     */
+    private static final class Target {
+        private final String subnetGroupId;
+        private final String interfaceGroupId;
+        private final Network network;
+
+        Target(String subnetGroupId, String interfaceGroupId, Network network) {
+            this.subnetGroupId = subnetGroupId;
+            this.interfaceGroupId = interfaceGroupId;
+            this.network = network;
+        }
+    }
+
+    /**
+     * A security rule, with its address and port ranges parsed.
+     */
+    private static final class CompiledRule {
+        private final String name;
+        private final int priority;
+        private final boolean allow;
+        private final boolean isDefault;
+        private final int protocols;
+        private final List<long[]> sourceAddresses;
+        private final List<long[]> sourcePorts;
+        private final List<long[]> destinationAddresses;
+        private final List<long[]> destinationPorts;
+        // False if the rule uses a service tag of unknown addresses, in which case it is indexed as matching any address
+        private final boolean resolved;
+        // The approximate addresses of the rules using approximate tags, indexed as matching any address
+        private final List<long[]> approximateSourceAddresses;
+        private final List<long[]> approximateDestinationAddresses;
+
+        CompiledRule(NetworkSecurityRule rule, boolean isDefault, Map<String, List<long[]>> tags, Set<String> approximateTags) {
+            this.name = rule.name();
+            this.priority = rule.priority();
+            this.allow = SecurityRuleAccess.ALLOW.equals(rule.access());
+            this.isDefault = isDefault;
+            if (SecurityRuleProtocol.TCP.equals(rule.protocol())) {
+                this.protocols = 1;
+            } else if (SecurityRuleProtocol.UDP.equals(rule.protocol())) {
+                this.protocols = 2;
+            } else {
+                this.protocols = 3;
+            }
+            this.sourcePorts = parsePortRange(rule.sourcePortRange());
+            this.destinationPorts = parsePortRange(rule.destinationPortRange());
+            List<long[]> sources = resolveAddressPrefix(rule.sourceAddressPrefix(), tags);
+            List<long[]> destinations = resolveAddressPrefix(rule.destinationAddressPrefix(), tags);
+            boolean approximateSources = isApproximate(rule.sourceAddressPrefix(), approximateTags);
+            boolean approximateDestinations = isApproximate(rule.destinationAddressPrefix(), approximateTags);
+            this.resolved = sources != null && destinations != null;
+            this.sourceAddresses = sources != null && !approximateSources ? sources : anyAddress();
+            this.destinationAddresses = destinations != null && !approximateDestinations ? destinations : anyAddress();
+            this.approximateSourceAddresses = approximateSources ? sources : null;
+            this.approximateDestinationAddresses = approximateDestinations ? destinations : null;
+        }
+
+        boolean isApproximate() {
+            return this.approximateSourceAddresses != null || this.approximateDestinationAddresses != null;
+        }
+
+        /**
+         * Checks whether the flow addresses are in the approximate addresses of the rule.
+         */
+        boolean approximatelyMatches(long sourceAddress, long destinationAddress) {
+            return (this.approximateSourceAddresses == null || contains(this.approximateSourceAddresses, sourceAddress))
+                    && (this.approximateDestinationAddresses == null || contains(this.approximateDestinationAddresses, destinationAddress));
+        }
+
+        private static boolean contains(List<long[]> ranges, long address) {
+            for (long[] range : ranges) {
+                if (range[0] <= address && address <= range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isApproximate(String addressPrefix, Set<String> approximateTags) {
+            return addressPrefix != null && approximateTags.contains(addressPrefix.toLowerCase(Locale.ROOT));
+        }
+
+        private static List<long[]> anyAddress() {
+            return Collections.singletonList(new long[] {0, MAX_ADDRESS});
+        }
+
+        /**
+         * @return the address ranges of a prefix, or null if it is a service tag of unknown addresses
+         */
+        private static List<long[]> resolveAddressPrefix(String addressPrefix, Map<String, List<long[]>> tags) {
+            if (addressPrefix == null || addressPrefix.equals("*")) {
+                return anyAddress();
+            }
+            if (!addressPrefix.isEmpty() && Character.isDigit(addressPrefix.charAt(0))) {
+                return Collections.singletonList(parseAddressPrefix(addressPrefix));
+            }
+            return tags.get(addressPrefix.toLowerCase(Locale.ROOT));
+        }
+
+        private static List<long[]> parsePortRange(String portRange) {
+            if (portRange == null || portRange.equals("*")) {
+                return Collections.singletonList(new long[] {0, MAX_PORT});
+            }
+            try {
+                int dash = portRange.indexOf('-');
+                if (dash < 0) {
+                    long port = Long.parseLong(portRange.trim());
+                    return Collections.singletonList(new long[] {port, port});
+                }
+                return Collections.singletonList(new long[] {
+                    Long.parseLong(portRange.substring(0, dash).trim()),
+                    Long.parseLong(portRange.substring(dash + 1).trim())});
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid port range: " + portRange);
+            }
+        }
+    }
+
+    /**
+     * The rules of a network security group for both directions.
+     */
+    static final class CompiledGroup {
+        private final String id;
+        private final CompiledRules inbound;
+        private final CompiledRules outbound;
+
+        CompiledGroup(NetworkSecurityGroup group, Map<String, List<long[]>> tags, Set<String> approximateTags) {
+            this.id = group.id();
+            List<CompiledRule> inboundRules = new ArrayList<>();
+            List<CompiledRule> outboundRules = new ArrayList<>();
+            for (NetworkSecurityRule rule : group.securityRules().values()) {
+                (SecurityRuleDirection.INBOUND.equals(rule.direction()) ? inboundRules : outboundRules)
+                        .add(new CompiledRule(rule, false, tags, approximateTags));
+            }
+            for (NetworkSecurityRule rule : group.defaultSecurityRules().values()) {
+                (SecurityRuleDirection.INBOUND.equals(rule.direction()) ? inboundRules : outboundRules)
+                        .add(new CompiledRule(rule, true, tags, approximateTags));
+            }
+            this.inbound = new CompiledRules(inboundRules);
+            this.outbound = new CompiledRules(outboundRules);
+        }
+
+        VerdictImpl evaluate(NetworkSecurityFlow flow, boolean exact) {
+            // Rules apply to the source and destination of the flow, which depend on its direction
+            if (Direction.INBOUND.equals(flow.direction())) {
+                return this.inbound.evaluate(this.id, flow.protocol(),
+                        flow.remoteAddress(), flow.remotePort(), flow.localAddress(), flow.localPort(), exact);
+            } else {
+                return this.outbound.evaluate(this.id, flow.protocol(),
+                        flow.localAddress(), flow.localPort(), flow.remoteAddress(), flow.remotePort(), exact);
+            }
+        }
+    }
+
+    /**
+     * The rules of a network security group for a direction, indexed in each dimension.
+     * <p>
+     * Rules are numbered in order of priority, and each index maps a value to the bit set of the numbers of
+     * the rules matching it: the deciding rule is the lowest bit set in all the dimensions.
+     */
+    private static final class CompiledRules {
+        private final CompiledRule[] rules;
+        private final IntervalIndex sourceAddresses;
+        private final IntervalIndex sourcePorts;
+        private final IntervalIndex destinationAddresses;
+        private final IntervalIndex destinationPorts;
+        private final long[] tcpRules;
+        private final long[] udpRules;
+
+        CompiledRules(List<CompiledRule> rules) {
+            Collections.sort(rules, new Comparator<CompiledRule>() {
+                @Override
+                public int compare(CompiledRule rule1, CompiledRule rule2) {
+                    return Integer.compare(rule1.priority, rule2.priority);
+                }
+            });
+            this.rules = rules.toArray(new CompiledRule[rules.size()]);
+            int words = (this.rules.length + 63) / 64;
+            List<List<long[]>> sourceAddresses = new ArrayList<>();
+            List<List<long[]>> sourcePorts = new ArrayList<>();
+            List<List<long[]>> destinationAddresses = new ArrayList<>();
+            List<List<long[]>> destinationPorts = new ArrayList<>();
+            this.tcpRules = new long[words];
+            this.udpRules = new long[words];
+            for (int i = 0; i < this.rules.length; i++) {
+                CompiledRule rule = this.rules[i];
+                sourceAddresses.add(rule.sourceAddresses);
+                sourcePorts.add(rule.sourcePorts);
+                destinationAddresses.add(rule.destinationAddresses);
+                destinationPorts.add(rule.destinationPorts);
+                if ((rule.protocols & 1) != 0) {
+                    this.tcpRules[i >> 6] |= 1L << i;
+                }
+                if ((rule.protocols & 2) != 0) {
+                    this.udpRules[i >> 6] |= 1L << i;
+                }
+            }
+            this.sourceAddresses = new IntervalIndex(sourceAddresses, MAX_ADDRESS, words);
+            this.sourcePorts = new IntervalIndex(sourcePorts, MAX_PORT, words);
+            this.destinationAddresses = new IntervalIndex(destinationAddresses, MAX_ADDRESS, words);
+            this.destinationPorts = new IntervalIndex(destinationPorts, MAX_PORT, words);
+        }
+
+        VerdictImpl evaluate(String groupId, Protocol protocol, long sourceAddress, long sourcePort,
+                             long destinationAddress, long destinationPort, boolean exact) {
+            long[] protocols = Protocol.TCP.equals(protocol) ? this.tcpRules : this.udpRules;
+            long[] sources = this.sourceAddresses.lookup(sourceAddress);
+            long[] sourcePortSet = this.sourcePorts.lookup(sourcePort);
+            long[] destinations = this.destinationAddresses.lookup(destinationAddress);
+            long[] destinationPortSet = this.destinationPorts.lookup(destinationPort);
+            for (int w = 0; w < protocols.length; w++) {
+                long matches = protocols[w] & sources[w] & sourcePortSet[w] & destinations[w] & destinationPortSet[w];
+                while (matches != 0) {
+                    CompiledRule rule = this.rules[(w << 6) + Long.numberOfTrailingZeros(matches)];
+                    if (rule.resolved && !rule.isApproximate()) {
+                        return new VerdictImpl(rule.allow ? Access.ALLOW : Access.DENY, rule.name, groupId, rule.isDefault, exact);
+                    }
+                    // The rule may or may not match: neither its verdict nor the one of the next matching rule is certain
+                    exact = false;
+                    if (rule.resolved && rule.approximatelyMatches(sourceAddress, destinationAddress)) {
+                        return new VerdictImpl(rule.allow ? Access.ALLOW : Access.DENY, rule.name, groupId, rule.isDefault, false);
+                    }
+                    matches &= matches - 1;
+                }
+            }
+            // Not reached with the default rules, which match any flow
+            return new VerdictImpl(Access.DENY, null, groupId, false, false);
+        }
+    }
+
+    /**
+     * Index of the elementary intervals delimited by the bounds of the ranges of the rules.
+     */
+    static final class IntervalIndex {
+        // Sorted first values of the elementary intervals, starting with 0
+        private final long[] starts;
+        // Bit sets of the rules matching each elementary interval
+        private final long[][] rules;
+
+        IntervalIndex(List<List<long[]>> rangesByRule, long maxValue, int words) {
+            TreeSet<Long> bounds = new TreeSet<>();
+            bounds.add(0L);
+            for (List<long[]> ranges : rangesByRule) {
+                for (long[] range : ranges) {
+                    bounds.add(range[0]);
+                    if (range[1] < maxValue) {
+                        bounds.add(range[1] + 1);
+                    }
+                }
+            }
+            this.starts = new long[bounds.size()];
+            int n = 0;
+            for (Long bound : bounds) {
+                this.starts[n++] = bound;
+            }
+            this.rules = new long[n][words];
+            for (int i = 0; i < rangesByRule.size(); i++) {
+                for (long[] range : rangesByRule.get(i)) {
+                    int from = Arrays.binarySearch(this.starts, range[0]);
+                    int to = range[1] < maxValue ? Arrays.binarySearch(this.starts, range[1] + 1) : n;
+                    for (int j = from; j < to; j++) {
+                        this.rules[j][i >> 6] |= 1L << i;
+                    }
+                }
+            }
+        }
+
+        long[] lookup(long value) {
+            int i = Arrays.binarySearch(this.starts, value);
+            return this.rules[i >= 0 ? i : -i - 2];
+        }
+    }
+
+    /**
+     * The result of the evaluation of a flow.
+     */
+    static final class VerdictImpl implements NetworkSecurityVerdict {
+        private final Access access;
+        private final String ruleName;
+        private final String networkSecurityGroupId;
+        private final boolean isDefaultRule;
+        private final boolean exact;
+
+        VerdictImpl(Access access, String ruleName, String networkSecurityGroupId, boolean isDefaultRule, boolean exact) {
+            this.access = access;
+            this.ruleName = ruleName;
+            this.networkSecurityGroupId = networkSecurityGroupId;
+            this.isDefaultRule = isDefaultRule;
+            this.exact = exact;
+        }
+
+        @Override
+        public Access access() {
+            return this.access;
+        }
+
+        @Override
+        public String ruleName() {
+            return this.ruleName;
+        }
+
+        @Override
+        public String networkSecurityGroupId() {
+            return this.networkSecurityGroupId;
+        }
+
+        @Override
+        public boolean isDefaultRule() {
+            return this.isDefaultRule;
+        }
+
+        @Override
+        public boolean isExact() {
+            return this.exact;
+        }
+
+        @Override
+        public boolean agreesWith(VerificationIPFlow verification) {
+            if (!this.access.equals(verification.access())) {
+                return false;
+            }
+            String remoteRuleName = verification.ruleName();
+            if (remoteRuleName == null || this.ruleName == null) {
+                return remoteRuleName == null && this.ruleName == null;
+            }
+            // The verification reports the rule name prefixed with its collection, such as "securityRules/"
+            return remoteRuleName.substring(remoteRuleName.lastIndexOf('/') + 1).equalsIgnoreCase(this.ruleName);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network.implementation;
+
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.network.NetworkTopologyGraph;
+import com.microsoft.azure.management.network.NetworkWatcher;
+import com.microsoft.azure.management.network.TopologyAssociation;
+import com.microsoft.azure.management.network.TopologyResource;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceId;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.joda.time.DateTime;
+import rx.Observable;
+import rx.functions.Func1;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Implementation for NetworkTopologyGraph.
+ */
+@LangDefinition
+class NetworkTopologyGraphImpl implements NetworkTopologyGraph {
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final String NETWORK_INTERFACE_TYPE = "Microsoft.Network/networkInterfaces";
+    private static final String NETWORK_INTERFACE_IP_CONFIGURATION_TYPE = "Microsoft.Network/networkInterfaces/ipConfigurations";
+    private static final String SUBNET_TYPE = "Microsoft.Network/virtualNetworks/subnets";
+    private static final String BACKEND_ADDRESS_POOL_TYPE = "Microsoft.Network/loadBalancers/backendAddressPools";
+    private static final String VIRTUAL_MACHINE_TYPE = "Microsoft.Compute/virtualMachines";
+    private static final Graph EMPTY_GRAPH = new Graph(new HashMap<String, Integer>(),
+            new TopologyResource[0], new String[0], new int[0][]);
+
+    private final NetworkWatcher networkWatcher;
+    private final Map<String, GroupTopology> groups = new LinkedHashMap<>();
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    // Whether the topologies changed since the graph was built
+    private boolean modified;
+    private volatile Graph graph = EMPTY_GRAPH;
+
+    NetworkTopologyGraphImpl(NetworkWatcher networkWatcher) {
+        this.networkWatcher = networkWatcher;
+    }
+
+    @Override
+    public synchronized NetworkTopologyGraphImpl withResourceGroups(String... resourceGroupNames) {
+        for (String resourceGroupName : resourceGroupNames) {
+            String key = key(resourceGroupName);
+            if (!this.groups.containsKey(key)) {
+                this.groups.put(key, new GroupTopology(resourceGroupName));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized NetworkTopologyGraphImpl withoutResourceGroup(String resourceGroupName) {
+        if (this.groups.remove(key(resourceGroupName)) != null) {
+            this.modified = true;
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized NetworkTopologyGraphImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public NetworkTopologyGraph refresh() {
+        return this.refreshAsync().toBlocking().last();
+    }
+
+    @Override
+    public Observable<NetworkTopologyGraph> refreshAsync() {
+        List<String> resourceGroupNames = new ArrayList<>();
+        synchronized (this) {
+            for (GroupTopology group : this.groups.values()) {
+                resourceGroupNames.add(group.resourceGroupName);
+            }
+        }
+        return this.refreshGroupsAsync(resourceGroupNames);
+    }
+
+    @Override
+    public Observable<NetworkTopologyGraph> refreshResourceAsync(String resourceId) {
+        String resourceGroupName = ResourceUtils.groupFromResourceId(resourceId);
+        this.withResourceGroups(resourceGroupName);
+        return this.refreshGroupsAsync(Collections.singletonList(resourceGroupName));
+    }
+
+    @Override
+    public Set<String> resourceIds() {
+        Graph graph = this.graph;
+        Set<String> ids = new LinkedHashSet<>();
+        for (TopologyResource resource : graph.resources) {
+            ids.add(resource.id());
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    @Override
+    public TopologyResource getResource(String resourceId) {
+        Graph graph = this.graph;
+        Integer index = graph.indexes.get(key(resourceId));
+        return index == null ? null : graph.resources[index];
+    }
+
+    @Override
+    public List<TopologyResource> associatedResources(String resourceId) {
+        Graph graph = this.graph;
+        Integer index = graph.indexes.get(key(resourceId));
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        List<TopologyResource> resources = new ArrayList<>();
+        for (int neighbor : graph.adjacency[index]) {
+            resources.add(graph.resources[neighbor]);
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public List<TopologyResource> reachableResources(String resourceId, String resourceType, String... throughResourceTypes) {
+        Graph graph = this.graph;
+        Integer start = graph.indexes.get(key(resourceId));
+        if (start == null) {
+            return Collections.emptyList();
+        }
+        String targetType = resourceType.toLowerCase(Locale.ROOT);
+        Set<String> throughTypes = new HashSet<>();
+        for (String throughResourceType : throughResourceTypes) {
+            throughTypes.add(throughResourceType.toLowerCase(Locale.ROOT));
+        }
+
+        // Breadth first, so that the closest resources are found first
+        List<TopologyResource> resources = new ArrayList<>();
+        boolean[] visited = new boolean[graph.resources.length];
+        Queue<Integer> queue = new ArrayDeque<>();
+        visited[start] = true;
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            for (int neighbor : graph.adjacency[index]) {
+                if (visited[neighbor]) {
+                    continue;
+                }
+                visited[neighbor] = true;
+                if (graph.types[neighbor].equals(targetType)) {
+                    resources.add(graph.resources[neighbor]);
+                } else if (throughTypes.contains(graph.types[neighbor])) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public List<TopologyResource> networkInterfacesSecuredBy(String networkSecurityGroupId) {
+        return this.reachableResources(networkSecurityGroupId, NETWORK_INTERFACE_TYPE,
+                SUBNET_TYPE, NETWORK_INTERFACE_IP_CONFIGURATION_TYPE);
+    }
+
+    @Override
+    public List<TopologyResource> virtualMachinesBehind(String loadBalancerId) {
+        Graph graph = this.graph;
+        Integer start = graph.indexes.get(key(loadBalancerId));
+        if (start == null) {
+            return Collections.emptyList();
+        }
+        // Each step only follows the associations of the previous ones, so that the IP configurations in the backend
+        // address pools of other load balancers are not reached
+        Set<Integer> indexes = new LinkedHashSet<>(Collections.singleton(start));
+        indexes.addAll(graph.neighbors(indexes, BACKEND_ADDRESS_POOL_TYPE));
+        indexes.addAll(graph.neighbors(indexes, NETWORK_INTERFACE_IP_CONFIGURATION_TYPE));
+        Set<Integer> networkInterfaces = graph.neighbors(indexes, NETWORK_INTERFACE_TYPE);
+        List<TopologyResource> resources = new ArrayList<>();
+        for (int index : graph.neighbors(networkInterfaces, VIRTUAL_MACHINE_TYPE)) {
+            resources.add(graph.resources[index]);
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public List<TopologyResource> path(String fromResourceId, String toResourceId) {
+        Graph graph = this.graph;
+        Integer from = graph.indexes.get(key(fromResourceId));
+        Integer to = graph.indexes.get(key(toResourceId));
+        if (from == null || to == null) {
+            return Collections.emptyList();
+        }
+        int[] previous = new int[graph.resources.length];
+        Arrays.fill(previous, -1);
+        previous[from] = from;
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        while (!queue.isEmpty() && previous[to] < 0) {
+            int index = queue.poll();
+            for (int neighbor : graph.adjacency[index]) {
+                if (previous[neighbor] < 0) {
+                    previous[neighbor] = index;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        if (previous[to] < 0) {
+            return Collections.emptyList();
+        }
+        List<TopologyResource> resources = new ArrayList<>();
+        for (int index = to; index != from; index = previous[index]) {
+            resources.add(graph.resources[index]);
+        }
+        resources.add(graph.resources[from]);
+        Collections.reverse(resources);
+        return Collections.unmodifiableList(resources);
+    }
+
+    /**
+     * Retrieves the topologies of resource groups, then rebuilds the graph if any of them was modified.
+     * <p>
+     * The topologies retrieved are kept even if others fail, in which case the first error is emitted once the
+     * graph is rebuilt.
+     */
+    private Observable<NetworkTopologyGraph> refreshGroupsAsync(List<String> resourceGroupNames) {
+        final NetworkTopologyGraphImpl self = this;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final NetworkWatchersInner client = this.networkWatcher.manager().inner().networkWatchers();
+        int concurrency;
+        synchronized (this) {
+            concurrency = this.maxConcurrency;
+        }
+        return Observable.from(resourceGroupNames)
+                .flatMap(new Func1<String, Observable<TopologyInner>>() {
+                    @Override
+                    public Observable<TopologyInner> call(final String resourceGroupName) {
+                        return client.getTopologyAsync(self.networkWatcher.resourceGroupName(), self.networkWatcher.name(), resourceGroupName)
+                                .map(new Func1<TopologyInner, TopologyInner>() {
+                                    @Override
+                                    public TopologyInner call(TopologyInner topology) {
+                                        self.update(resourceGroupName, topology);
+                                        return topology;
+                                    }
+                                })
+                                .onErrorResumeNext(new Func1<Throwable, Observable<TopologyInner>>() {
+                                    @Override
+                                    public Observable<TopologyInner> call(Throwable throwable) {
+                                        errors.add(throwable);
+                                        return Observable.empty();
+                                    }
+                                })
+                                .subscribeOn(SdkContext.getRxScheduler());
+                    }
+                }, concurrency)
+                .toList()
+                .flatMap(new Func1<List<TopologyInner>, Observable<NetworkTopologyGraph>>() {
+                    @Override
+                    public Observable<NetworkTopologyGraph> call(List<TopologyInner> topologies) {
+                        self.rebuild();
+                        if (!errors.isEmpty()) {
+                            return Observable.error(errors.get(0));
+                        }
+                        return Observable.<NetworkTopologyGraph>just(self);
+                    }
+                });
+    }
+
+    synchronized void update(String resourceGroupName, TopologyInner topology) {
+        GroupTopology group = this.groups.get(key(resourceGroupName));
+        if (group == null) {
+            // Removed while being retrieved
+            return;
+        }
+        if (group.resources != null && group.lastModified != null && group.lastModified.equals(topology.lastModified())) {
+            return;
+        }
+        group.lastModified = topology.lastModified();
+        group.resources = topology.resources() == null
+                ? Collections.<TopologyResource>emptyList()
+                : new ArrayList<>(topology.resources());
+        this.modified = true;
+    }
+
+    synchronized void rebuild() {
+        if (!this.modified) {
+            return;
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        List<TopologyResource> resources = new ArrayList<>();
+        for (GroupTopology group : this.groups.values()) {
+            if (group.resources == null) {
+                continue;
+            }
+            for (TopologyResource resource : group.resources) {
+                if (resource.id() != null && !indexes.containsKey(key(resource.id()))) {
+                    indexes.put(key(resource.id()), resources.size());
+                    resources.add(resource);
+                }
+            }
+        }
+
+        // Associations are followed in both directions; the resources of groups not in the graph are added as stubs
+        List<Set<Integer>> neighbors = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            neighbors.add(new LinkedHashSet<Integer>());
+        }
+        int count = resources.size();
+        for (int i = 0; i < count; i++) {
+            List<TopologyAssociation> associations = resources.get(i).associations();
+            if (associations == null) {
+                continue;
+            }
+            for (TopologyAssociation association : associations) {
+                if (association.resourceId() == null) {
+                    continue;
+                }
+                Integer index = indexes.get(key(association.resourceId()));
+                if (index == null) {
+                    index = resources.size();
+                    indexes.put(key(association.resourceId()), index);
+                    resources.add(new TopologyResource()
+                            .withId(association.resourceId())
+                            .withName(association.name()));
+                    neighbors.add(new LinkedHashSet<Integer>());
+                }
+                if (index != i) {
+                    neighbors.get(i).add(index);
+                    neighbors.get(index).add(i);
+                }
+            }
+        }
+
+        // The topology may associate resources with child resources, such as the IP configurations of network
+        // interfaces, rather than with their parent: child resources are linked to their parent when it is in the graph
+        for (int i = 0; i < resources.size(); i++) {
+            Integer parent = indexes.get(key(parentId(resources.get(i).id())));
+            if (parent != null && parent != i) {
+                neighbors.get(i).add(parent);
+                neighbors.get(parent).add(i);
+            }
+        }
+
+        String[] types = new String[resources.size()];
+        int[][] adjacency = new int[resources.size()][];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = type(resources.get(i).id());
+            adjacency[i] = new int[neighbors.get(i).size()];
+            int j = 0;
+            for (int neighbor : neighbors.get(i)) {
+                adjacency[i][j++] = neighbor;
+            }
+        }
+        this.graph = new Graph(indexes, resources.toArray(new TopologyResource[resources.size()]), types, adjacency);
+        this.modified = false;
+    }
+
+    private static String key(String id) {
+        return id == null ? "" : id.toLowerCase(Locale.ROOT);
+    }
+
+    private static String parentId(String id) {
+        try {
+            return ResourceUtils.parentResourceIdFromResourceId(id);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String type(String id) {
+        try {
+            return ResourceId.fromString(id).fullResourceType().toLowerCase(Locale.ROOT);
+        } catch (RuntimeException e) {
+            return "";
+        }
+    }
+
+    /**
+     * The last topology retrieved for a resource group.
+     */
+    private static final class GroupTopology {
+        private final String resourceGroupName;
+        private DateTime lastModified;
+        private List<TopologyResource> resources;
+
+        GroupTopology(String resourceGroupName) {
+            this.resourceGroupName = resourceGroupName;
+        }
+    }
+
+    /**
+     * The resources of all the topologies and their associations, as adjacency lists of resource indexes.
+     */
+    private static final class Graph {
+        private final Map<String, Integer> indexes;
+        private final TopologyResource[] resources;
+        // Resource types, in lower case
+        private final String[] types;
+        private final int[][] adjacency;
+
+        Graph(Map<String, Integer> indexes, TopologyResource[] resources, String[] types, int[][] adjacency) {
+            this.indexes = indexes;
+            this.resources = resources;
+            this.types = types;
+            this.adjacency = adjacency;
+        }
+
+        /**
+         * @return the indexes of the resources of a type associated with any of the given resources
+         */
+        Set<Integer> neighbors(Set<Integer> indexes, String resourceType) {
+            String type = resourceType.toLowerCase(Locale.ROOT);
+            Set<Integer> neighbors = new LinkedHashSet<>();
+            for (int index : indexes) {
+                for (int neighbor : this.adjacency[index]) {
+                    if (this.types[neighbor].equals(type)) {
+                        neighbors.add(neighbor);
+                    }
+                }
+            }
+            return neighbors;
+        }
+    }
+}
@@ -63,6 +63,11 @@ class NetworkWatcherImpl
                 });
     }
 
+    @Override
+    public NetworkTopologyGraphImpl newTopologyGraph() {
+        return new NetworkTopologyGraphImpl(this);
+    }
+
     @Override
     public SecurityGroupView getSecurityGroupView(String vmId) {
         SecurityGroupViewResultInner securityGroupViewResultInner = this.manager().inner().networkWatchers()
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network.implementation;
+
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthEvent;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthHttpSettings;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthPool;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthServer;
+import com.microsoft.azure.management.network.ApplicationGatewayBackendHealthServerHealth;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ApplicationGatewayBackendHealthMonitorTests {
+    private static final ApplicationGatewayBackendHealthServerHealth UP = ApplicationGatewayBackendHealthServerHealth.UP;
+    private static final ApplicationGatewayBackendHealthServerHealth DOWN = ApplicationGatewayBackendHealthServerHealth.DOWN;
+    private static final ApplicationGatewayBackendHealthServerHealth PARTIAL = ApplicationGatewayBackendHealthServerHealth.PARTIAL;
+
+    @Test
+    public void canReportAddedRemovedAndChangedServers() {
+        ApplicationGatewayBackendHealthMonitorImpl monitor = new ApplicationGatewayBackendHealthMonitorImpl(null);
+        ApplicationGatewayBackendHealthMonitorImpl.GatewayState gateway = monitor.new GatewayState("rg1", "agw1");
+
+        // The servers are compared sorted by pool, HTTP settings and address, whatever the order they are listed in
+        Assert.assertEquals(Arrays.asList(
+                "SERVER_ADDED pool1/http1/10.0.0.1 null Down",
+                "SERVER_ADDED pool1/http1/10.0.0.2 null Up"),
+                describe(gateway.update(health(
+                        pool("pool1", "http1", "10.0.0.2", UP),
+                        pool("pool1", "http1", "10.0.0.1", DOWN),
+                        pool("pool1", "http1", null, DOWN)))));
+        Assert.assertEquals(Arrays.asList(
+                "SERVER_HEALTH_CHANGED pool1/http1/10.0.0.1 Down Up",
+                "SERVER_ADDED pool2/http1/10.0.0.3 null Partial"),
+                describe(gateway.update(health(
+                        pool("pool1", "http1", "10.0.0.1", UP),
+                        pool("pool1", "http1", "10.0.0.2", UP),
+                        pool("pool2", "http1", "10.0.0.3", PARTIAL)))));
+        Assert.assertEquals(Collections.singletonList("SERVER_REMOVED pool1/http1/10.0.0.1 Up null"),
+                describe(gateway.update(health(
+                        pool("pool1", "http1", "10.0.0.2", UP),
+                        pool("pool2", "http1", "10.0.0.3", PARTIAL)))));
+        Assert.assertTrue(gateway.update(health(
+                pool("pool2", "http1", "10.0.0.3", PARTIAL),
+                pool("pool1", "http1", "10.0.0.2", UP))).isEmpty());
+
+        // The servers after the last one still reported are removed too
+        Assert.assertEquals(Arrays.asList(
+                "SERVER_REMOVED pool1/http1/10.0.0.2 Up null",
+                "SERVER_REMOVED pool2/http1/10.0.0.3 Partial null"),
+                describe(gateway.update(new ApplicationGatewayBackendHealthInner())));
+    }
+
+    @Test
+    public void canReportSameServerUnderEachHttpSettings() {
+        ApplicationGatewayBackendHealthMonitorImpl monitor = new ApplicationGatewayBackendHealthMonitorImpl(null);
+        ApplicationGatewayBackendHealthMonitorImpl.GatewayState gateway = monitor.new GatewayState("rg1", "agw1");
+
+        Assert.assertEquals(Arrays.asList(
+                "SERVER_ADDED pool1/http1/10.0.0.1 null Up",
+                "SERVER_ADDED pool1/http2/10.0.0.1 null Down"),
+                describe(gateway.update(health(
+                        pool("pool1", "http1", "10.0.0.1", UP),
+                        pool("pool1", "http2", "10.0.0.1", DOWN)))));
+        Assert.assertEquals(Collections.singletonList("SERVER_HEALTH_CHANGED pool1/http2/10.0.0.1 Down Up"),
+                describe(gateway.update(health(
+                        pool("pool1", "http1", "10.0.0.1", UP),
+                        pool("pool1", "http2", "10.0.0.1", UP)))));
+    }
+
+    @Test
+    public void canLimitOperationsInProgress() throws InterruptedException {
+        ApplicationGatewayBackendHealthMonitorImpl monitor = new ApplicationGatewayBackendHealthMonitorImpl(null)
+                .withApplicationGateway("rg1", "agw1")
+                .withApplicationGateway("rg1", "agw2")
+                .withApplicationGateway("rg1", "agw3")
+                .withPollingInterval(1, TimeUnit.MILLISECONDS)
+                .withMaxConcurrency(2);
+
+        Assert.assertEquals(2, monitor.takeDueGateways().size());
+        Thread.sleep(10);
+        // The gateways are due again, but their operations are still in progress
+        Assert.assertTrue(monitor.takeDueGateways().isEmpty());
+        monitor.withMaxConcurrency(5);
+        Assert.assertEquals(1, monitor.takeDueGateways().size());
+        Thread.sleep(10);
+        Assert.assertTrue(monitor.takeDueGateways().isEmpty());
+    }
+
+    @Test
+    public void cannotOverlapOperationsOnSameGateway() {
+        FakeApplicationGateways client = new FakeApplicationGateways();
+        ApplicationGatewayBackendHealthMonitorImpl monitor = new ApplicationGatewayBackendHealthMonitorImpl(client)
+                .withApplicationGateway("rg1", "agw1")
+                .withApplicationGateway("rg1", "agw2")
+                .withPollingInterval(1, TimeUnit.MILLISECONDS);
+
+        List<ApplicationGatewayBackendHealthEvent> events = monitor.watchAsync()
+                .filter(new Func1<ApplicationGatewayBackendHealthEvent, Boolean>() {
+                    @Override
+                    public Boolean call(ApplicationGatewayBackendHealthEvent event) {
+                        return "agw2".equals(event.applicationGatewayName());
+                    }
+                })
+                .take(3).timeout(30, TimeUnit.SECONDS).toList().toBlocking().single();
+
+        Assert.assertEquals(Arrays.asList(
+                "SERVER_ADDED pool1/http1/10.0.0.1 null Up",
+                "SERVER_HEALTH_CHANGED pool1/http1/10.0.0.1 Up Down",
+                "SERVER_HEALTH_CHANGED pool1/http1/10.0.0.1 Down Up"),
+                describe(events));
+        // The backend health of agw1 is still being retrieved, so it is not retrieved again
+        Assert.assertEquals(1, client.calls("agw1"));
+    }
+
+    private static List<String> describe(List<ApplicationGatewayBackendHealthEvent> events) {
+        List<String> descriptions = new ArrayList<>();
+        for (ApplicationGatewayBackendHealthEvent event : events) {
+            Assert.assertNull(event.error());
+            descriptions.add(event.type() + " " + event.backendAddressPoolName() + "/" + event.backendHttpSettingsName()
+                    + "/" + event.serverAddress() + " " + event.previousHealth() + " " + event.health());
+        }
+        return descriptions;
+    }
+
+    private static ApplicationGatewayBackendHealthInner health(ApplicationGatewayBackendHealthPool... pools) {
+        return new ApplicationGatewayBackendHealthInner().withBackendAddressPools(Arrays.asList(pools));
+    }
+
+    private static ApplicationGatewayBackendHealthPool pool(String poolName, String settingsName, String address,
+                                                            ApplicationGatewayBackendHealthServerHealth health) {
+        return new ApplicationGatewayBackendHealthPool()
+                .withBackendAddressPool(new ApplicationGatewayBackendAddressPoolInner().withName(poolName))
+                .withBackendHttpSettingsCollection(Collections.singletonList(new ApplicationGatewayBackendHealthHttpSettings()
+                        .withBackendHttpSettings(new ApplicationGatewayBackendHttpSettingsInner().withName(settingsName))
+                        .withServers(Collections.singletonList(new ApplicationGatewayBackendHealthServer()
+                                .withAddress(address)
+                                .withHealth(health)))));
+    }
+
+    /**
+     * Application gateways client whose backend health retrieval never completes for agw1, and alternates
+     * between up and down for the other gateways.
+     */
+    private static class FakeApplicationGateways extends ApplicationGatewaysInner {
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        FakeApplicationGateways() {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+        }
+
+        int calls(String applicationGatewayName) {
+            AtomicInteger count = this.calls.get(applicationGatewayName);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public Observable<ApplicationGatewayBackendHealthInner> backendHealthAsync(String resourceGroupName, String applicationGatewayName) {
+            this.calls.putIfAbsent(applicationGatewayName, new AtomicInteger());
+            int count = this.calls.get(applicationGatewayName).incrementAndGet();
+            if ("agw1".equals(applicationGatewayName)) {
+                return Observable.never();
+            }
+            return Observable.just(health(pool("pool1", "http1", "10.0.0.1", count % 2 == 1 ? UP : DOWN)));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network.implementation;
+
+import com.microsoft.azure.management.network.Access;
+import com.microsoft.azure.management.network.NetworkSecurityFlow;
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+import com.microsoft.azure.management.network.NetworkSecurityVerdict;
+import com.microsoft.azure.management.network.Protocol;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class NetworkSecurityEvaluatorTests {
+    private static final String NSG_ID =
+            "/subscriptions/sub1/resourceGroups/rg1/providers/Microsoft.Network/networkSecurityGroups/nsg1";
+    private static final long MAX_ADDRESS = 0xFFFFFFFFL;
+    private static final String DEFAULT_RULES = "["
+            + rule("AllowVnetInBound", 65000, "Inbound", "*", "VirtualNetwork", "VirtualNetwork", "*", "Allow") + ","
+            + rule("DenyAllInBound", 65500, "Inbound", "*", "*", "*", "*", "Deny") + ","
+            + rule("AllowInternetOutBound", 65001, "Outbound", "*", "*", "Internet", "*", "Allow") + ","
+            + rule("DenyAllOutBound", 65500, "Outbound", "*", "*", "*", "*", "Deny") + "]";
+
+    @Test
+    public void canLookUpIntervals() {
+        List<List<long[]>> rangesByRule = Arrays.asList(
+                ranges(new long[] {10, 20}),
+                ranges(new long[] {15, 30}, new long[] {50, 60}),
+                ranges(new long[] {0, 100}));
+        NetworkSecurityEvaluatorImpl.IntervalIndex index = new NetworkSecurityEvaluatorImpl.IntervalIndex(rangesByRule, 100, 1);
+
+        Assert.assertEquals(0b100L, index.lookup(0)[0]);
+        Assert.assertEquals(0b100L, index.lookup(9)[0]);
+        Assert.assertEquals(0b101L, index.lookup(10)[0]);
+        Assert.assertEquals(0b111L, index.lookup(15)[0]);
+        Assert.assertEquals(0b111L, index.lookup(20)[0]);
+        Assert.assertEquals(0b110L, index.lookup(21)[0]);
+        Assert.assertEquals(0b100L, index.lookup(31)[0]);
+        Assert.assertEquals(0b110L, index.lookup(55)[0]);
+        Assert.assertEquals(0b100L, index.lookup(61)[0]);
+        Assert.assertEquals(0b100L, index.lookup(100)[0]);
+    }
+
+    @Test
+    public void canComplementAddressRanges() {
+        List<long[]> complement = NetworkSecurityEvaluatorImpl.complement(
+                ranges(new long[] {15, 30}, new long[] {10, 20}, new long[] {40, MAX_ADDRESS}));
+        Assert.assertEquals(2, complement.size());
+        Assert.assertArrayEquals(new long[] {0, 9}, complement.get(0));
+        Assert.assertArrayEquals(new long[] {31, 39}, complement.get(1));
+
+        complement = NetworkSecurityEvaluatorImpl.complement(Collections.<long[]>emptyList());
+        Assert.assertEquals(1, complement.size());
+        Assert.assertArrayEquals(new long[] {0, MAX_ADDRESS}, complement.get(0));
+        Assert.assertTrue(NetworkSecurityEvaluatorImpl.complement(ranges(new long[] {0, MAX_ADDRESS})).isEmpty());
+
+        Assert.assertArrayEquals(new long[] {NetworkSecurityFlow.parseIPv4Address("10.1.0.0"),
+                NetworkSecurityFlow.parseIPv4Address("10.1.255.255")}, NetworkSecurityEvaluatorImpl.parseAddressPrefix("10.1.2.3/16"));
+    }
+
+    @Test
+    public void canApplyRulesInOrderOfPriority() throws Exception {
+        NetworkSecurityGroup nsg = nsg("["
+                + rule("allow-web", 200, "Inbound", "Tcp", "10.0.0.0/8", "*", "80-443", "Allow") + ","
+                + rule("deny-ssh", 100, "Inbound", "*", "*", "*", "22", "Deny") + ","
+                + rule("deny-web", 300, "Inbound", "*", "*", "*", "80-443", "Deny") + "]");
+        NetworkSecurityEvaluatorImpl evaluator = new NetworkSecurityEvaluatorImpl(null).withNetworkSecurityGroup(nsg);
+
+        assertVerdict(Access.ALLOW, "allow-web", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 80, "10.5.5.5", 50000)));
+        assertVerdict(Access.DENY, "deny-ssh", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 22, "10.5.5.5", 50000)));
+        assertVerdict(Access.DENY, "deny-web", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 443, "192.168.1.1", 50000)));
+        assertVerdict(Access.DENY, "deny-web", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.UDP, "10.1.2.3", 80, "10.5.5.5", 50000)));
+        // The tags of groups evaluated without a network interface are unknown
+        assertVerdict(Access.DENY, "DenyAllInBound", false,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 8080, "10.5.5.5", 50000)));
+
+        evaluator.withServiceTag("VirtualNetwork", "10.0.0.0/8");
+        List<NetworkSecurityVerdict> verdicts = evaluator.evaluate(NSG_ID, Arrays.asList(
+                NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 8080, "10.5.5.5", 50000),
+                NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 8080, "192.168.1.1", 50000)));
+        assertVerdict(Access.ALLOW, "AllowVnetInBound", true, verdicts.get(0));
+        assertVerdict(Access.DENY, "DenyAllInBound", true, verdicts.get(1));
+    }
+
+    @Test
+    public void canApplyRulesBeyondTheFirstWord() throws Exception {
+        StringBuilder rules = new StringBuilder("[");
+        for (int i = 0; i < 70; i++) {
+            rules.append(rule("allow-" + i, 100 + i, "Inbound", "Tcp", "*", "*", String.valueOf(1000 + i), "Allow")).append(',');
+        }
+        rules.append(rule("deny-ports", 170, "Inbound", "*", "*", "*", "1000-2000", "Deny")).append(']');
+        NetworkSecurityEvaluatorImpl evaluator = new NetworkSecurityEvaluatorImpl(null).withNetworkSecurityGroup(nsg(rules.toString()));
+
+        assertVerdict(Access.ALLOW, "allow-0", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 1000, "10.5.5.5", 50000)));
+        assertVerdict(Access.ALLOW, "allow-69", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 1069, "10.5.5.5", 50000)));
+        assertVerdict(Access.DENY, "deny-ports", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.TCP, "10.1.2.3", 1500, "10.5.5.5", 50000)));
+        assertVerdict(Access.DENY, "deny-ports", true,
+                evaluator.evaluate(NSG_ID, NetworkSecurityFlow.inbound(Protocol.UDP, "10.1.2.3", 1069, "10.5.5.5", 50000)));
+    }
+
+    @Test
+    public void reportsVerdictsOfApproximateTagsAsNotExact() throws Exception {
+        NetworkSecurityGroup nsg = nsg("[]");
+        Map<String, List<long[]>> tags = new HashMap<>();
+        List<long[]> virtualNetwork = ranges(NetworkSecurityEvaluatorImpl.parseAddressPrefix("10.0.0.0/16"));
+        tags.put("virtualnetwork", virtualNetwork);
+        tags.put("internet", NetworkSecurityEvaluatorImpl.complement(virtualNetwork));
+        Set<String> approximateTags = new HashSet<>(Arrays.asList("virtualnetwork", "internet"));
+        NetworkSecurityFlow fromNetwork = NetworkSecurityFlow.inbound(Protocol.TCP, "10.0.1.1", 8080, "10.0.2.2", 50000);
+        NetworkSecurityFlow fromPeering = NetworkSecurityFlow.inbound(Protocol.TCP, "10.0.1.1", 8080, "10.9.0.1", 50000);
+        NetworkSecurityFlow toInternet = NetworkSecurityFlow.outbound(Protocol.TCP, "10.0.1.1", 50000, "10.9.0.1", 443);
+
+        // Tags resolved from the address spaces only give approximate verdicts
+        NetworkSecurityEvaluatorImpl.CompiledGroup approximate = new NetworkSecurityEvaluatorImpl.CompiledGroup(nsg, tags, approximateTags);
+        assertVerdict(Access.ALLOW, "AllowVnetInBound", false, approximate.evaluate(fromNetwork, true));
+        assertVerdict(Access.DENY, "DenyAllInBound", false, approximate.evaluate(fromPeering, true));
+        assertVerdict(Access.ALLOW, "AllowInternetOutBound", false, approximate.evaluate(toInternet, true));
+
+        // Tags specified explicitly give exact verdicts
+        NetworkSecurityEvaluatorImpl.CompiledGroup exact = new NetworkSecurityEvaluatorImpl.CompiledGroup(nsg, tags, Collections.<String>emptySet());
+        assertVerdict(Access.ALLOW, "AllowVnetInBound", true, exact.evaluate(fromNetwork, true));
+        assertVerdict(Access.DENY, "DenyAllInBound", true, exact.evaluate(fromPeering, true));
+        assertVerdict(Access.ALLOW, "AllowInternetOutBound", true, exact.evaluate(toInternet, true));
+    }
+
+    private static void assertVerdict(Access access, String ruleName, boolean exact, NetworkSecurityVerdict verdict) {
+        Assert.assertEquals(access, verdict.access());
+        Assert.assertEquals(ruleName, verdict.ruleName());
+        Assert.assertEquals(exact, verdict.isExact());
+    }
+
+    private static List<long[]> ranges(long[]... ranges) {
+        return new ArrayList<>(Arrays.asList(ranges));
+    }
+
+    private static NetworkSecurityGroup nsg(String securityRules) throws IOException {
+        NetworkSecurityGroupInner inner = new AzureJacksonAdapter().deserialize(
+                "{\"id\":\"" + NSG_ID + "\",\"name\":\"nsg1\",\"location\":\"westus\",\"properties\":{\"securityRules\":"
+                        + securityRules + ",\"defaultSecurityRules\":" + DEFAULT_RULES + "}}",
+                NetworkSecurityGroupInner.class);
+        return new NetworkSecurityGroupImpl("nsg1", inner, null);
+    }
+
+    private static String rule(String name, int priority, String direction, String protocol,
+                               String sourceAddressPrefix, String destinationAddressPrefix, String destinationPortRange, String access) {
+        return "{\"name\":\"" + name + "\",\"properties\":{\"protocol\":\"" + protocol + "\",\"sourcePortRange\":\"*\","
+                + "\"destinationPortRange\":\"" + destinationPortRange + "\",\"sourceAddressPrefix\":\"" + sourceAddressPrefix
+                + "\",\"destinationAddressPrefix\":\"" + destinationAddressPrefix + "\",\"access\":\"" + access
+                + "\",\"priority\":" + priority + ",\"direction\":\"" + direction + "\"}}";
+    }
+}
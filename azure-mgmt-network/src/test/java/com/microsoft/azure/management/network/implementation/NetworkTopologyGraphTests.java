@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.network.implementation;
+
+import com.microsoft.azure.management.network.AssociationType;
+import com.microsoft.azure.management.network.TopologyAssociation;
+import com.microsoft.azure.management.network.TopologyResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NetworkTopologyGraphTests {
+    private static final String RG1 = "/subscriptions/sub1/resourceGroups/rg1/providers/";
+    private static final String RG2 = "/subscriptions/sub1/resourceGroups/rg2/providers/";
+    private static final String VNET1 = RG1 + "Microsoft.Network/virtualNetworks/vnet1";
+    private static final String SUBNET1 = VNET1 + "/subnets/subnet1";
+    private static final String NSG1 = RG1 + "Microsoft.Network/networkSecurityGroups/nsg1";
+    private static final String NIC1 = RG1 + "Microsoft.Network/networkInterfaces/nic1";
+    private static final String NIC2 = RG1 + "Microsoft.Network/networkInterfaces/nic2";
+    private static final String NIC3 = RG1 + "Microsoft.Network/networkInterfaces/nic3";
+    private static final String LB1 = RG1 + "Microsoft.Network/loadBalancers/lb1";
+    private static final String LB2 = RG1 + "Microsoft.Network/loadBalancers/lb2";
+    private static final String LB3 = RG1 + "Microsoft.Network/loadBalancers/lb3";
+    private static final String PIP1 = RG1 + "Microsoft.Network/publicIPAddresses/pip1";
+    // Known from associations only: the group of the virtual machine is not part of the graph
+    private static final String VM1 = RG2 + "Microsoft.Compute/virtualMachines/vm1";
+    private static final String VM2 = RG1 + "Microsoft.Compute/virtualMachines/vm2";
+    private static final String VM3 = RG1 + "Microsoft.Compute/virtualMachines/vm3";
+
+    @Test
+    public void canAddStubsForResourcesOfOtherGroups() {
+        NetworkTopologyGraphImpl graph = graph();
+
+        Assert.assertTrue(graph.resourceIds().contains(VM1));
+        TopologyResource vm1 = graph.getResource(VM1.toUpperCase());
+        Assert.assertEquals("vm1", vm1.name());
+        Assert.assertNull(vm1.location());
+        Assert.assertNull(vm1.associations());
+        Assert.assertEquals(Collections.singletonList(NIC1), ids(graph.associatedResources(VM1)));
+        Assert.assertEquals("westus", graph.getResource(NIC1).location());
+        Assert.assertNull(graph.getResource(RG2 + "Microsoft.Compute/virtualMachines/unknown"));
+        Assert.assertTrue(graph.associatedResources(RG2 + "Microsoft.Compute/virtualMachines/unknown").isEmpty());
+    }
+
+    @Test
+    public void canFindReachableResourcesClosestFirst() {
+        NetworkTopologyGraphImpl graph = graph();
+
+        Assert.assertTrue(graph.reachableResources(VNET1, "Microsoft.Network/networkInterfaces").isEmpty());
+        Assert.assertEquals(Collections.singletonList(NIC2), ids(graph.reachableResources(VNET1,
+                "Microsoft.Network/networkInterfaces", "Microsoft.Network/virtualNetworks/subnets")));
+        // Network interfaces are found through the subnets associated with their IP configurations
+        Assert.assertEquals(Arrays.asList(NIC2, NIC1), ids(graph.networkInterfacesSecuredBy(NSG1)));
+    }
+
+    @Test
+    public void canFindVirtualMachinesBehindLoadBalancers() {
+        NetworkTopologyGraphImpl graph = graph();
+
+        // Through a backend address pool contained by the load balancer and the IP configurations of the pool
+        Assert.assertEquals(Collections.singletonList(VM1), ids(graph.virtualMachinesBehind(LB1)));
+        // Through a backend address pool only linked to its load balancer by its ID
+        Assert.assertEquals(Arrays.asList(VM1, VM3), ids(graph.virtualMachinesBehind(LB2)));
+        // Through a network interface associated directly
+        Assert.assertEquals(Collections.singletonList(VM2), ids(graph.virtualMachinesBehind(LB3)));
+        Assert.assertTrue(graph.virtualMachinesBehind(PIP1).isEmpty());
+    }
+
+    @Test
+    public void canFindShortestPaths() {
+        NetworkTopologyGraphImpl graph = graph();
+
+        Assert.assertEquals(Arrays.asList(VM2, NIC2, SUBNET1, VNET1), ids(graph.path(VM2, VNET1)));
+        Assert.assertEquals(Collections.singletonList(NSG1), ids(graph.path(NSG1, NSG1)));
+        Assert.assertTrue(graph.path(VM2, PIP1).isEmpty());
+        Assert.assertTrue(graph.path(VM2, RG2 + "Microsoft.Compute/virtualMachines/unknown").isEmpty());
+    }
+
+    @Test
+    public void canRemoveResourceGroups() {
+        NetworkTopologyGraphImpl graph = graph();
+
+        graph.withoutResourceGroup("RG1");
+        graph.rebuild();
+        Assert.assertTrue(graph.resourceIds().isEmpty());
+        Assert.assertNull(graph.getResource(NIC1));
+    }
+
+    private static NetworkTopologyGraphImpl graph() {
+        NetworkTopologyGraphImpl graph = new NetworkTopologyGraphImpl(null).withResourceGroups("rg1");
+        graph.update("rg1", new TopologyInner().withResources(Arrays.asList(
+                resource(VNET1, association(SUBNET1, AssociationType.CONTAINS)),
+                resource(SUBNET1, association(NSG1, AssociationType.ASSOCIATED),
+                        association(NIC1 + "/ipConfigurations/ipconfig1", AssociationType.ASSOCIATED)),
+                resource(NSG1),
+                resource(NIC1, association(VM1, AssociationType.ASSOCIATED)),
+                resource(NIC2, association(VM2, AssociationType.ASSOCIATED), association(NSG1, AssociationType.ASSOCIATED),
+                        association(SUBNET1, AssociationType.ASSOCIATED)),
+                resource(NIC3, association(VM3, AssociationType.ASSOCIATED)),
+                resource(VM2),
+                resource(VM3),
+                resource(LB1, association(LB1 + "/backendAddressPools/pool1", AssociationType.CONTAINS)),
+                resource(LB1 + "/backendAddressPools/pool1",
+                        association(NIC1 + "/ipConfigurations/ipconfig1", AssociationType.ASSOCIATED)),
+                resource(LB2),
+                resource(LB2 + "/backendAddressPools/pool2",
+                        association(NIC1 + "/ipConfigurations/ipconfig1", AssociationType.ASSOCIATED),
+                        association(NIC3 + "/ipConfigurations/ipconfig1", AssociationType.ASSOCIATED)),
+                resource(LB3, association(NIC2, AssociationType.ASSOCIATED)),
+                resource(PIP1))));
+        graph.rebuild();
+        return graph;
+    }
+
+    private static TopologyResource resource(String id, TopologyAssociation... associations) {
+        return new TopologyResource()
+                .withId(id)
+                .withName(id.substring(id.lastIndexOf('/') + 1))
+                .withLocation("westus")
+                .withAssociations(Arrays.asList(associations));
+    }
+
+    private static TopologyAssociation association(String resourceId, AssociationType associationType) {
+        return new TopologyAssociation()
+                .withResourceId(resourceId)
+                .withName(resourceId.substring(resourceId.lastIndexOf('/') + 1))
+                .withAssociationType(associationType);
+    }
+
+    private static List<String> ids(List<TopologyResource> resources) {
+        List<String> ids = new ArrayList<>();
+        for (TopologyResource resource : resources) {
+            ids.add(resource.id());
+        }
+        return ids;
+    }
+}
@@ -6,6 +6,8 @@
 
 package com.microsoft.azure.management.resources;
 
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
 import com.microsoft.azure.management.apigeneration.Fluent;
 import com.microsoft.azure.management.apigeneration.LangMethodDefinition;
 import com.microsoft.azure.management.apigeneration.LangMethodDefinition.LangMethodType;
@@ -111,6 +113,21 @@ public interface Deployment extends
     @LangMethodDefinition(AsType = LangMethodType.Property)
     DeploymentOperations deploymentOperations();
 
+    /**
+     * Streams the progress of a template deployment, typically one started with
+     * {@link Deployment.DefinitionStages.WithCreate#beginCreate()}.
+     * <p>
+     * The deployment operations are polled until the deployment reaches a terminal state. Each poll emits
+     * only the operations that are new or whose provisioning state, timestamp or status code changed since
+     * the previous poll. The polling interval adapts to the number of operations in the deployment and
+     * backs off while nothing changes.
+     *
+     * @return an observable emitting the changed deployment operations, completing when the deployment completes
+     */
+    @Method
+    @Beta(SinceVersion.V1_3_0)
+    Observable<DeploymentOperation> watchOperationsAsync();
+
     /**
      * Cancel a currently running template deployment.
      */
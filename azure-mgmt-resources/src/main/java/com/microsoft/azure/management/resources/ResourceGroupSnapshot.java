@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable, indexed inventory of the resources in a resource group, as they were when the snapshot was taken.
+ * <p>
+ * Resource IDs and types are matched case insensitively. A resource depends on another one if any of its
+ * properties reference the ID of the other resource, or of one of its child resources.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface ResourceGroupSnapshot {
+    /**
+     * @return the name of the resource group
+     */
+    String resourceGroupName();
+
+    /**
+     * @return the time the snapshot was taken
+     */
+    DateTime takenTime();
+
+    /**
+     * @return all the resources in the snapshot
+     */
+    List<GenericResource> resources();
+
+    /**
+     * Gets a resource in the snapshot by its ID.
+     *
+     * @param id the resource ID
+     * @return the resource, or null if it is not in the snapshot
+     */
+    GenericResource getById(String id);
+
+    /**
+     * Lists the resources of a type, for example "Microsoft.Network/networkInterfaces".
+     *
+     * @param type the fully qualified resource type
+     * @return the resources of the type
+     */
+    List<GenericResource> listByType(String type);
+
+    /**
+     * @return the fully qualified types of the resources in the snapshot
+     */
+    Set<String> types();
+
+    /**
+     * Lists the resources in the snapshot that a resource depends on.
+     *
+     * @param id the ID of the dependent resource
+     * @return the resources depended on
+     */
+    List<GenericResource> dependenciesOf(String id);
+
+    /**
+     * Lists the resources in the snapshot that depend on a resource.
+     *
+     * @param id the ID of the resource depended on
+     * @return the dependent resources
+     */
+    List<GenericResource> dependentsOf(String id);
+
+    /**
+     * Gets the IDs of the resources outside of the snapshot that a resource depends on, for example
+     * a virtual network in another resource group.
+     *
+     * @param id the ID of the dependent resource
+     * @return the IDs of the resources depended on
+     */
+    Set<String> externalDependenciesOf(String id);
+
+    /**
+     * Writes the snapshot in a compact form, which can be read back through {@link ResourceGroups#readSnapshot}.
+     * The stream is not closed.
+     *
+     * @param output the stream to write to
+     * @throws IOException when writing fails
+     */
+    void writeTo(OutputStream output) throws IOException;
+}
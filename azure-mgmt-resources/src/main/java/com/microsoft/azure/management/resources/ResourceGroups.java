@@ -6,6 +6,8 @@
 
 package com.microsoft.azure.management.resources;
 
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
 import com.microsoft.azure.management.apigeneration.Fluent;
 import com.microsoft.azure.management.resources.fluentcore.arm.collection.SupportsGettingByName;
 import com.microsoft.azure.management.resources.fluentcore.collection.SupportsBatchCreation;
@@ -14,6 +16,10 @@ import com.microsoft.azure.management.resources.fluentcore.collection.SupportsCr
 import com.microsoft.azure.management.resources.fluentcore.collection.SupportsDeletingByName;
 import com.microsoft.azure.management.resources.fluentcore.collection.SupportsListing;
 import com.microsoft.azure.management.resources.fluentcore.collection.SupportsListingByTag;
+import rx.Observable;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Entry point to resource group management API.
@@ -34,4 +40,46 @@ public interface ResourceGroups extends
      * @return true if the resource group exists; false otherwise
      */
     boolean checkExistence(String name);
+
+    /**
+     * Takes a snapshot of the resources in a resource group.
+     * <p>
+     * The resources are listed once and then fetched in parallel with all their properties,
+     * using the default API version of each resource type. Resources whose type cannot be fetched
+     * by ID, answered with HTTP 404 or 405, are kept as listed; any other failure fails the snapshot.
+     *
+     * @param name the name of the resource group
+     * @return the snapshot
+     */
+    @Beta(SinceVersion.V1_3_0)
+    ResourceGroupSnapshot snapshot(String name);
+
+    /**
+     * Takes a snapshot of the resources in a resource group asynchronously.
+     *
+     * @param name the name of the resource group
+     * @return a representation of the deferred computation of this call, returning the snapshot
+     */
+    @Beta(SinceVersion.V1_3_0)
+    Observable<ResourceGroupSnapshot> snapshotAsync(String name);
+
+    /**
+     * Takes a snapshot of the resources in a resource group asynchronously.
+     *
+     * @param name the name of the resource group
+     * @param maxConcurrency the maximum number of resources fetched at the same time
+     * @return a representation of the deferred computation of this call, returning the snapshot
+     */
+    @Beta(SinceVersion.V1_3_0)
+    Observable<ResourceGroupSnapshot> snapshotAsync(String name, int maxConcurrency);
+
+    /**
+     * Reads a snapshot written by {@link ResourceGroupSnapshot#writeTo}. The stream is not closed.
+     *
+     * @param input the stream to read from
+     * @return the snapshot
+     * @throws IOException when reading fails or the content is not a snapshot
+     */
+    @Beta(SinceVersion.V1_3_0)
+    ResourceGroupSnapshot readSnapshot(InputStream input) throws IOException;
 }
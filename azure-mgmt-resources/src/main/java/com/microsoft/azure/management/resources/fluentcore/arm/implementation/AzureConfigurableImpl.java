@@ -10,9 +10,9 @@ import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.LogLevel;
 import com.microsoft.rest.RestClient;
 import okhttp3.Authenticator;
@@ -34,7 +34,7 @@ public class AzureConfigurableImpl<T extends AzureConfigurable<T>>
 
     protected AzureConfigurableImpl() {
         this.restClientBuilder = new RestClient.Builder()
-            .withSerializerAdapter(new AzureJacksonAdapter())
+            .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
             .withResponseBuilderFactory(new AzureResponseBuilder.Factory());
     }
 
@@ -6,6 +6,10 @@
 
 package com.microsoft.azure.management.resources.fluentcore.utils;
 
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
 /**
  * A wrapper class for thread sleep.
  */
@@ -20,4 +24,16 @@ public class DelayProvider {
         } catch (InterruptedException e) {
         }
     }
+
+    /**
+     * Creates an observable that emits the given item after the specified time in milliseconds.
+     *
+     * @param event the event to emit
+     * @param milliseconds the delay in milliseconds
+     * @param <T> the type of event
+     * @return delayed observable
+     */
+    public <T> Observable<T> delayedEmitAsync(T event, int milliseconds) {
+        return Observable.just(event).delay(milliseconds, TimeUnit.MILLISECONDS, SdkContext.getRxScheduler());
+    }
 }
@@ -0,0 +1,422 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.utils;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava.HttpException;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.Header;
+import retrofit2.http.Streaming;
+import retrofit2.http.Url;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A utility to download files by streaming their content to a channel or a file, without holding
+ * the whole content in memory.
+ * <p>
+ * The observables returned by the download methods emit the number of bytes transferred so far as the
+ * download progresses; their last item is the total number of bytes transferred. Progress items are
+ * conflated when the subscriber is slower than the download.
+ * <p>
+ * A response with an error status fails the download with a {@link HttpException}, the exception of
+ * Retrofit for failed calls; errors reading the content or writing to the target fail it with an IOException.
+ */
+public final class FileDownloader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_SEGMENT_SIZE = 8L * 1024 * 1024;
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    private static final Action1<FileChannel> CLOSE_FILE = new Action1<FileChannel>() {
+        @Override
+        public void call(FileChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing more can be done with the file at this point
+            }
+        }
+    };
+
+    private final FileService service;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    /**
+     * Creates a file downloader.
+     *
+     * @param retrofit the retrofit client
+     */
+    public FileDownloader(Retrofit retrofit) {
+        this.service = retrofit.create(FileService.class);
+    }
+
+    /**
+     * Specifies the size of the ranges downloaded in parallel by {@link #downloadSegmentedAsync(String, Path)}.
+     *
+     * @param segmentSize the segment size in bytes, defaults to 8 MB
+     * @return the file downloader
+     */
+    public FileDownloader withSegmentSize(long segmentSize) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("segmentSize must be positive");
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * Specifies the maximum number of ranges downloaded in parallel by {@link #downloadSegmentedAsync(String, Path)}.
+     *
+     * @param maxConcurrency the maximum number of concurrent range requests, defaults to 4
+     * @return the file downloader
+     */
+    public FileDownloader withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Downloads a file to a channel.
+     *
+     * @param url the URL pointing to the file
+     * @param target the channel to write the content of the file to; it is not closed by this method
+     * @return an observable emitting the number of bytes written so far
+     */
+    public Observable<Long> downloadAsync(String url, WritableByteChannel target) {
+        return this.downloadAsync(url, target, 0);
+    }
+
+    /**
+     * Downloads a file to a channel, starting at the specified offset of the file.
+     * <p>
+     * A range request is used so that only the remainder of the file is transferred; if the server does
+     * not honor it, the bytes before the offset are received but not written to the channel.
+     *
+     * @param url the URL pointing to the file
+     * @param target the channel to write the content of the file to; it is not closed by this method
+     * @param offset the offset in the file to start the download at
+     * @return an observable emitting the number of bytes written so far
+     */
+    public Observable<Long> downloadAsync(final String url, final WritableByteChannel target, final long offset) {
+        return this.service.download(url, offset > 0 ? rangeHeader(offset, -1) : null)
+                .flatMap(new Func1<Response<ResponseBody>, Observable<Long>>() {
+                    @Override
+                    public Observable<Long> call(Response<ResponseBody> response) {
+                        ResponseBody body = checkResponse(url, response);
+                        long skip = response.code() == 206 ? 0 : offset;
+                        return copyAsync(body, skip, target, -1, new AtomicLong());
+                    }
+                })
+                .onBackpressureLatest();
+    }
+
+    /**
+     * Downloads a file to a local path, replacing any existing file.
+     *
+     * @param url the URL pointing to the file
+     * @param path the path of the file to write
+     * @return an observable emitting the number of bytes written so far
+     */
+    public Observable<Long> downloadAsync(final String url, final Path path) {
+        return Observable.<Long, FileChannel>using(openFileFunc(path, true), new Func1<FileChannel, Observable<Long>>() {
+            @Override
+            public Observable<Long> call(FileChannel channel) {
+                return downloadAsync(url, channel);
+            }
+        }, CLOSE_FILE);
+    }
+
+    /**
+     * Resumes the download of a file to a local path, transferring only the bytes that are missing
+     * from the existing file, if any.
+     * <p>
+     * If the server does not honor the range request, the file is downloaded again from the start.
+     *
+     * @param url the URL pointing to the file
+     * @param path the path of the partially downloaded file
+     * @return an observable emitting the total number of bytes in the file so far
+     */
+    public Observable<Long> resumeAsync(final String url, final Path path) {
+        return Observable.<Long, FileChannel>using(openFileFunc(path, false), new Func1<FileChannel, Observable<Long>>() {
+            @Override
+            public Observable<Long> call(final FileChannel channel) {
+                final long existing;
+                try {
+                    existing = channel.size();
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+                return service.download(url, existing > 0 ? rangeHeader(existing, -1) : null)
+                        .flatMap(new Func1<Response<ResponseBody>, Observable<Long>>() {
+                            @Override
+                            public Observable<Long> call(Response<ResponseBody> response) {
+                                // A 416 means the requested range starts at the end of the file: nothing is missing
+                                if (existing > 0 && response.code() == 416) {
+                                    closeBody(response);
+                                    return Observable.just(existing);
+                                }
+                                ResponseBody body = checkResponse(url, response);
+                                long position = response.code() == 206 ? existing : 0;
+                                try {
+                                    channel.truncate(position);
+                                } catch (IOException e) {
+                                    body.close();
+                                    return Observable.error(e);
+                                }
+                                return copyAsync(body, 0, channel, position, new AtomicLong(position));
+                            }
+                        })
+                        .onBackpressureLatest();
+            }
+        }, CLOSE_FILE);
+    }
+
+    /**
+     * Downloads a file to a local path with parallel range requests, replacing any existing file.
+     * <p>
+     * If the server does not report the length of the file or does not accept range requests, the file
+     * is downloaded with a single request instead.
+     *
+     * @param url the URL pointing to the file
+     * @param path the path of the file to write
+     * @return an observable emitting the number of bytes written so far
+     */
+    public Observable<Long> downloadSegmentedAsync(final String url, final Path path) {
+        return this.service.head(url).flatMap(new Func1<Response<Void>, Observable<Long>>() {
+            @Override
+            public Observable<Long> call(Response<Void> response) {
+                String acceptRanges = response.headers().get("Accept-Ranges");
+                String contentLength = response.headers().get("Content-Length");
+                if (!response.isSuccessful()
+                        || contentLength == null
+                        || acceptRanges == null
+                        || !acceptRanges.toLowerCase().contains("bytes")) {
+                    return downloadAsync(url, path);
+                }
+                return downloadSegmentsAsync(url, path, Long.parseLong(contentLength.trim()));
+            }
+        });
+    }
+
+    private Observable<Long> downloadSegmentsAsync(final String url, final Path path, final long length) {
+        final long segmentSize = this.segmentSize;
+        return Observable.<Long, FileChannel>using(openFileFunc(path, true), new Func1<FileChannel, Observable<Long>>() {
+            @Override
+            public Observable<Long> call(final FileChannel channel) {
+                final AtomicLong transferred = new AtomicLong();
+                return Observable.from(segmentStarts(length, segmentSize))
+                        .flatMap(new Func1<Long, Observable<Long>>() {
+                            @Override
+                            public Observable<Long> call(final Long start) {
+                                final long end = Math.min(start + segmentSize, length) - 1;
+                                return service.download(url, rangeHeader(start, end))
+                                        .flatMap(new Func1<Response<ResponseBody>, Observable<Long>>() {
+                                            @Override
+                                            public Observable<Long> call(Response<ResponseBody> response) {
+                                                ResponseBody body = checkResponse(url, response);
+                                                if (response.code() != 206) {
+                                                    body.close();
+                                                    return Observable.error(new IOException(
+                                                            "The server did not honor the range request for " + url));
+                                                }
+                                                return copyAsync(body, 0, channel, start, transferred);
+                                            }
+                                        })
+                                        .subscribeOn(SdkContext.getRxScheduler());
+                            }
+                        }, maxConcurrency)
+                        // Items of concurrent segments may arrive out of order, and an empty file has no segment:
+                        // the total is emitted once all the segments are written
+                        .concatWith(Observable.defer(new Func0<Observable<Long>>() {
+                            @Override
+                            public Observable<Long> call() {
+                                return Observable.just(transferred.get());
+                            }
+                        }))
+                        .onBackpressureLatest();
+            }
+        }, CLOSE_FILE);
+    }
+
+    /**
+     * Gets the start offsets of the segments of a file, computed as they are iterated over, so that the
+     * number of segments is not bounded by the range of an int.
+     */
+    private static Iterable<Long> segmentStarts(final long length, final long segmentSize) {
+        return new Iterable<Long>() {
+            @Override
+            public Iterator<Long> iterator() {
+                return new Iterator<Long>() {
+                    private long next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next < length;
+                    }
+
+                    @Override
+                    public Long next() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        long start = this.next;
+                        // Guards against overflow for segments ending past Long.MAX_VALUE
+                        this.next = length - start > segmentSize ? start + segmentSize : length;
+                        return start;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Copies a response body to a channel, emitting the cumulated number of bytes written.
+     *
+     * @param body the response body to read from
+     * @param skip the number of leading bytes of the body to discard
+     * @param target the channel to write to
+     * @param position the position to write at if target is a file channel written positionally, -1 otherwise
+     * @param transferred the counter of bytes written, shared by concurrent copies to the same target
+     * @return an observable emitting the number of bytes written so far
+     */
+    private static Observable<Long> copyAsync(final ResponseBody body,
+                                              final long skip,
+                                              final WritableByteChannel target,
+                                              final long position,
+                                              final AtomicLong transferred) {
+        return Observable.create(new Observable.OnSubscribe<Long>() {
+            @Override
+            public void call(Subscriber<? super Long> subscriber) {
+                ReadableByteChannel source = Channels.newChannel(body.byteStream());
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                long toSkip = skip;
+                long writePosition = position;
+                boolean written = false;
+                try {
+                    while (!subscriber.isUnsubscribed() && source.read(buffer) != -1) {
+                        buffer.flip();
+                        if (toSkip > 0) {
+                            int skipped = (int) Math.min(toSkip, buffer.remaining());
+                            buffer.position(buffer.position() + skipped);
+                            toSkip -= skipped;
+                        }
+                        int count = buffer.remaining();
+                        while (buffer.hasRemaining()) {
+                            if (writePosition >= 0) {
+                                writePosition += ((FileChannel) target).write(buffer, writePosition);
+                            } else {
+                                target.write(buffer);
+                            }
+                        }
+                        buffer.clear();
+                        if (count > 0) {
+                            written = true;
+                            subscriber.onNext(transferred.addAndGet(count));
+                        }
+                    }
+                    if (!subscriber.isUnsubscribed()) {
+                        // An empty body still reports the total, which was not emitted yet
+                        if (!written) {
+                            subscriber.onNext(transferred.get());
+                        }
+                        subscriber.onCompleted();
+                    }
+                } catch (IOException e) {
+                    subscriber.onError(e);
+                } finally {
+                    body.close();
+                }
+            }
+        }).onBackpressureLatest();
+    }
+
+    private static ResponseBody checkResponse(String url, Response<ResponseBody> response) {
+        if (!response.isSuccessful()) {
+            closeBody(response);
+            // The exception Retrofit raises for failed calls, as thrown by Utils.downloadFileAsync before
+            throw new HttpException(response);
+        }
+        if (response.body() == null) {
+            closeBody(response);
+            throw Exceptions.propagate(new IOException(
+                    String.format("Failed to download %s: HTTP %d without content", url, response.code())));
+        }
+        return response.body();
+    }
+
+    private static void closeBody(Response<ResponseBody> response) {
+        if (response.body() != null) {
+            response.body().close();
+        }
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+    }
+
+    private static String rangeHeader(long start, long end) {
+        return end < 0
+                ? String.format("bytes=%d-", start)
+                : String.format("bytes=%d-%d", start, end);
+    }
+
+    private static Func0<FileChannel> openFileFunc(final Path path, final boolean truncate) {
+        return new Func0<FileChannel>() {
+            @Override
+            public FileChannel call() {
+                try {
+                    if (truncate) {
+                        return FileChannel.open(path, StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    }
+                    return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * A Retrofit service used to download a file.
+     */
+    private interface FileService {
+        @GET
+        @Streaming
+        Observable<Response<ResponseBody>> download(@Url String url, @Header("Range") String range);
+
+        @HEAD
+        Observable<Response<Void>> head(@Url String url);
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.utils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.cfg.PackageVersion;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerFactory;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.rest.serializer.JsonFlatten;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Jackson module deserializing the models annotated with {@link JsonFlatten}, in place of the
+ * runtime flattening deserializer.
+ * <p>
+ * The flattened properties of each model class, such as "properties.provisioningState", are resolved once
+ * instead of for every deserialized object, and the rewritten JSON tree is read directly instead of being
+ * printed and parsed again. Polymorphic models are left to the runtime deserializer.
+ * <p>
+ * The module relies on Jackson databind not passing the deserializers provided by modules to the
+ * deserializer modifiers, which holds up to version 2.9 (the SDK builds against 2.7); from 2.10 on, the
+ * modifier of the runtime flattening deserializer would wrap this deserializer and flatten each object twice,
+ * so {@link ObjectMapperRegistry} only registers the module with the earlier versions.
+ */
+@Beta(SinceVersion.V1_3_0)
+public final class FlatteningDeserializerModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the module.
+     */
+    public FlatteningDeserializerModule() {
+        super("FlatteningDeserializerModule");
+    }
+
+    /**
+     * @return whether the Jackson databind version in use keeps the deserializers of modules away from the
+     * deserializer modifiers, so that this module replaces the runtime flattening deserializer
+     */
+    static boolean isSupported() {
+        return PackageVersion.VERSION.compareTo(new Version(2, 10, 0, null, null, null)) < 0;
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.addDeserializers(new Deserializers.Base() {
+            @Override
+            public JsonDeserializer<?> findBeanDeserializer(JavaType type,
+                                                            DeserializationConfig config,
+                                                            BeanDescription beanDesc) {
+                if (beanDesc.getClassAnnotations().get(JsonFlatten.class) == null
+                        || Modifier.isAbstract(beanDesc.getBeanClass().getModifiers())
+                        || beanDesc.getClassAnnotations().get(JsonTypeInfo.class) != null) {
+                    return null;
+                }
+                return new FlattenedModelDeserializer(type, beanDesc);
+            }
+        });
+    }
+
+    /**
+     * Deserializer of a model class with flattened properties.
+     */
+    private static final class FlattenedModelDeserializer extends StdDeserializer<Object>
+            implements ResolvableDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JavaType type;
+        private final transient BeanDescription beanDesc;
+        private final List<FlattenedProperty> properties = new ArrayList<>();
+        private JsonDeserializer<Object> beanDeserializer;
+
+        FlattenedModelDeserializer(JavaType type, BeanDescription beanDesc) {
+            super(type.getRawClass());
+            this.type = type;
+            this.beanDesc = beanDesc;
+            for (Class<?> c = type.getRawClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    JsonProperty property = field.getAnnotation(JsonProperty.class);
+                    if (property != null && property.value().matches(".+[^\\\\]\\..+")) {
+                        this.properties.add(new FlattenedProperty(property.value()));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+            // Built by a factory without modifiers, so that it is not wrapped by the runtime flattening deserializer
+            this.beanDeserializer = BeanDeserializerFactory.instance.buildBeanDeserializer(ctxt, this.type, this.beanDesc);
+            if (this.beanDeserializer instanceof ResolvableDeserializer) {
+                ((ResolvableDeserializer) this.beanDeserializer).resolve(ctxt);
+            }
+        }
+
+        @Override
+        public Object deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            JsonNode root = parser.readValueAsTree();
+            if (root instanceof ObjectNode) {
+                ObjectNode object = (ObjectNode) root;
+                for (FlattenedProperty property : this.properties) {
+                    JsonNode node = object;
+                    for (String segment : property.segments) {
+                        node = node.get(segment);
+                        if (node == null) {
+                            break;
+                        }
+                    }
+                    object.set(property.name, node);
+                }
+            }
+            JsonParser treeParser = root.traverse(parser.getCodec());
+            treeParser.nextToken();
+            return this.beanDeserializer.deserialize(treeParser, ctxt);
+        }
+    }
+
+    /**
+     * A property whose value is nested in the JSON, e.g. "properties.provisioningState".
+     */
+    private static final class FlattenedProperty {
+        private final String name;
+        private final String[] segments;
+
+        FlattenedProperty(String name) {
+            this.name = name;
+            // Dots escaped with a backslash are part of a segment name
+            this.segments = name.split("((?<!\\\\))\\.");
+            for (int i = 0; i < this.segments.length; i++) {
+                this.segments[i] = this.segments[i].replace("\\.", ".");
+            }
+        }
+    }
+}
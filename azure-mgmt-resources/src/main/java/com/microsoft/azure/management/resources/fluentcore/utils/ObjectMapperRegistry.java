@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide Jackson objects, shared by the managers and the helper classes so that types are
+ * introspected and serializer caches warmed up once rather than per manager or per call.
+ * <p>
+ * The shared objects must not be reconfigured: readers and writers are immutable, and the mapper
+ * of the shared adapter must be treated as such.
+ */
+@Beta(SinceVersion.V1_3_0)
+public final class ObjectMapperRegistry {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    private static final ObjectReader TREE_READER = MAPPER.reader();
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private ObjectMapperRegistry() {
+    }
+
+    /**
+     * @return a writer with the default Jackson configuration
+     */
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    /**
+     * @return a reader with the default Jackson configuration, for reading JSON trees
+     */
+    public static ObjectReader treeReader() {
+        return TREE_READER;
+    }
+
+    /**
+     * Gets a reader with the default Jackson configuration for a type, created on first use.
+     *
+     * @param type the type to read
+     * @return the reader
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        ObjectReader reader = READERS.get(type);
+        if (reader == null) {
+            ObjectReader created = MAPPER.readerFor(type);
+            reader = READERS.putIfAbsent(type, created);
+            if (reader == null) {
+                reader = created;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * @return the serializer adapter for Azure REST clients, with the {@link FlatteningDeserializerModule} registered
+     * when the Jackson version in use supports it
+     */
+    public static AzureJacksonAdapter azureJacksonAdapter() {
+        return AdapterHolder.ADAPTER;
+    }
+
+    /**
+     * Holder of the shared adapter, created on first use.
+     */
+    private static final class AdapterHolder {
+        private static final AzureJacksonAdapter ADAPTER = createAdapter();
+
+        private static AzureJacksonAdapter createAdapter() {
+            AzureJacksonAdapter adapter = new AzureJacksonAdapter();
+            if (FlatteningDeserializerModule.isSupported()) {
+                adapter.serializer().registerModule(new FlatteningDeserializerModule());
+            }
+            return adapter;
+        }
+    }
+}
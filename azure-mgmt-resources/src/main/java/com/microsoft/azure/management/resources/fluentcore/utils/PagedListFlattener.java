@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.utils;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.PagedList;
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.rest.RestException;
+import rx.Notification;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Flattens the child lists of a list of parents, such as the offers of image publishers, into a single list.
+ * <p>
+ * The child lists of the next parents are loaded in parallel ahead of consumption, and the loads failing
+ * with transient errors are retried. The children are returned in the order of their parents, either as a
+ * lazy {@link PagedList} whose pages are the pages of the child lists, or as an {@link Observable} honoring
+ * backpressure.
+ *
+ * @param <ParentT> the type of the parents
+ * @param <ChildT> the type of the children
+ */
+@Beta(SinceVersion.V1_3_0)
+public final class PagedListFlattener<ParentT, ChildT> {
+    private static final int DEFAULT_PREFETCH = 4;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final int DEFAULT_RETRY_DELAY_IN_MILLISECONDS = 1000;
+    private static final String NEXT_PAGE = "nextPage";
+
+    private final Observable<ParentT> parents;
+    private final ChildListLoader<ParentT, ChildT> childListLoader;
+    private int prefetch = DEFAULT_PREFETCH;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private int retryDelayInMilliseconds = DEFAULT_RETRY_DELAY_IN_MILLISECONDS;
+
+    /**
+     * Loader of the child list of a parent.
+     *
+     * @param <T> the type of the parent
+     * @param <U> the type of the children
+     */
+    public interface ChildListLoader<T, U> {
+        /**
+         * Gets the child list of a parent.
+         *
+         * @param parent the parent
+         * @return the child paged list of the parent
+         */
+        PagedList<U> loadList(T parent);
+    }
+
+    /**
+     * Creates a flattener of the child lists of a paged list of parents.
+     *
+     * @param parents the parents
+     * @param childListLoader the loader of the child list of a parent
+     */
+    public PagedListFlattener(PagedList<ParentT> parents, ChildListLoader<ParentT, ChildT> childListLoader) {
+        this(Observable.from(parents), childListLoader);
+    }
+
+    /**
+     * Creates a flattener of the child lists of parents emitted by an observable.
+     *
+     * @param parents the parents
+     * @param childListLoader the loader of the child list of a parent
+     */
+    public PagedListFlattener(Observable<ParentT> parents, ChildListLoader<ParentT, ChildT> childListLoader) {
+        this.parents = parents;
+        this.childListLoader = childListLoader;
+    }
+
+    /**
+     * Specifies the number of parents whose child lists are loaded in parallel ahead of consumption.
+     *
+     * @param prefetch the number of parents, defaults to 4; 1 loads the child lists one after the other
+     * @return the flattener
+     */
+    public PagedListFlattener<ParentT, ChildT> withPrefetch(int prefetch) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch must be at least 1");
+        }
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Specifies how a child list load failing with a transient error, such as an I/O error, throttling or a
+     * server error, is retried.
+     *
+     * @param maxRetries the maximum number of retries of a load, defaults to 3
+     * @param retryDelayInMilliseconds the delay before the first retry, growing linearly with the retries, defaults to one second
+     * @return the flattener
+     */
+    public PagedListFlattener<ParentT, ChildT> withRetries(int maxRetries, int retryDelayInMilliseconds) {
+        this.maxRetries = maxRetries;
+        this.retryDelayInMilliseconds = retryDelayInMilliseconds;
+        return this;
+    }
+
+    /**
+     * Flattens the child lists.
+     * <p>
+     * The pages are requested one at a time as the list is read, the page following the current one being
+     * requested to know whether there is a next page. The child lists of up to the prefetch number of parents
+     * are loaded ahead of the requested page, so a list that is no longer read stops loading child lists once
+     * those loads are complete.
+     *
+     * @return the lazy paged list of the children
+     */
+    public PagedList<ChildT> flatten() {
+        final Iterator<Page<ChildT>> pages = new PageIterator<>(this.pagesAsync());
+        if (!pages.hasNext()) {
+            return new PagedList<ChildT>(page(Collections.<ChildT>emptyList(), null)) {
+                @Override
+                public Page<ChildT> nextPage(String nextPageLink) throws RestException, IOException {
+                    return null;
+                }
+            };
+        }
+        return new PagedList<ChildT>(nextPage(pages)) {
+            @Override
+            public Page<ChildT> nextPage(String nextPageLink) throws RestException, IOException {
+                return PagedListFlattener.nextPage(pages);
+            }
+        };
+    }
+
+    /**
+     * Flattens the child lists.
+     *
+     * @return an observable emitting the children
+     */
+    public Observable<ChildT> flattenAsync() {
+        return this.pagesAsync().concatMapIterable(new Func1<Page<ChildT>, Iterable<ChildT>>() {
+            @Override
+            public Iterable<ChildT> call(Page<ChildT> page) {
+                return page.items();
+            }
+        });
+    }
+
+    /**
+     * @return an observable emitting the non-empty pages of the child lists, in the order of the parents
+     */
+    private Observable<Page<ChildT>> pagesAsync() {
+        final PagedListFlattener<ParentT, ChildT> self = this;
+        return this.parents.concatMapEager(new Func1<ParentT, Observable<Page<ChildT>>>() {
+            @Override
+            public Observable<Page<ChildT>> call(ParentT parent) {
+                return self.loadPagesAsync(parent);
+            }
+        }, this.prefetch, this.prefetch);
+    }
+
+    /**
+     * Loads all the pages of the child list of a parent, retrying the load on transient errors.
+     */
+    private Observable<Page<ChildT>> loadPagesAsync(final ParentT parent) {
+        final PagedListFlattener<ParentT, ChildT> self = this;
+        return Observable.defer(new Func0<Observable<List<Page<ChildT>>>>() {
+            @Override
+            public Observable<List<Page<ChildT>>> call() {
+                List<Page<ChildT>> pages = new ArrayList<>();
+                PagedList<ChildT> list = self.childListLoader.loadList(parent);
+                if (list == null) {
+                    return Observable.just(pages);
+                }
+                pages.add(list.currentPage());
+                while (list.hasNextPage()) {
+                    list.loadNextPage();
+                    pages.add(list.currentPage());
+                }
+                return Observable.just(pages);
+            }
+        }).subscribeOn(SdkContext.getRxScheduler())
+                .retryWhen(new Func1<Observable<? extends Throwable>, Observable<?>>() {
+                    @Override
+                    public Observable<?> call(Observable<? extends Throwable> errors) {
+                        return errors.zipWith(Observable.range(1, self.maxRetries + 1), new Func2<Throwable, Integer, Integer>() {
+                            @Override
+                            public Integer call(Throwable throwable, Integer retry) {
+                                if (retry <= self.maxRetries && isTransient(throwable)) {
+                                    return retry;
+                                }
+                                throw Exceptions.propagate(throwable);
+                            }
+                        }).flatMap(new Func1<Integer, Observable<Integer>>() {
+                            @Override
+                            public Observable<Integer> call(Integer retry) {
+                                return SdkContext.delayedEmitAsync(retry, retry * self.retryDelayInMilliseconds);
+                            }
+                        });
+                    }
+                })
+                .concatMapIterable(new Func1<List<Page<ChildT>>, Iterable<Page<ChildT>>>() {
+                    @Override
+                    public Iterable<Page<ChildT>> call(List<Page<ChildT>> pages) {
+                        return pages;
+                    }
+                })
+                .filter(new Func1<Page<ChildT>, Boolean>() {
+                    @Override
+                    public Boolean call(Page<ChildT> page) {
+                        return page.items() != null && !page.items().isEmpty();
+                    }
+                });
+    }
+
+    /**
+     * Checks whether an error is worth retrying: I/O errors, throttling and server errors.
+     */
+    private static boolean isTransient(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof CloudException && ((CloudException) cause).response() != null) {
+                int code = ((CloudException) cause).response().code();
+                return code == 408 || code == 429 || code >= 500;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the next page from the page iterator, linked to the following page if there is one.
+     */
+    private static <T> Page<T> nextPage(Iterator<Page<T>> pages) {
+        Page<T> page = pages.next();
+        return page(page.items(), pages.hasNext() ? NEXT_PAGE : null);
+    }
+
+    /**
+     * Iterator over the pages emitted by an observable, requesting a page only once the previous one is consumed.
+     */
+    private static final class PageIterator<T> extends Subscriber<Page<T>> implements Iterator<Page<T>> {
+        private final Observable<Page<T>> pages;
+        private final BlockingQueue<Notification<Page<T>>> notifications = new LinkedBlockingQueue<>();
+        private boolean subscribed;
+        private Notification<Page<T>> next;
+
+        PageIterator(Observable<Page<T>> pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public void onStart() {
+            this.request(1);
+        }
+
+        @Override
+        public void onNext(Page<T> page) {
+            this.notifications.offer(Notification.createOnNext(page));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.notifications.offer(Notification.<Page<T>>createOnError(throwable));
+        }
+
+        @Override
+        public void onCompleted() {
+            this.notifications.offer(Notification.<Page<T>>createOnCompleted());
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next == null) {
+                if (!this.subscribed) {
+                    this.subscribed = true;
+                    this.pages.subscribe(this);
+                }
+                try {
+                    this.next = this.notifications.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.unsubscribe();
+                    throw Exceptions.propagate(e);
+                }
+            }
+            if (this.next.isOnError()) {
+                throw Exceptions.propagate(this.next.getThrowable());
+            }
+            return this.next.isOnNext();
+        }
+
+        @Override
+        public Page<T> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Page<T> page = this.next.getValue();
+            this.next = null;
+            this.request(1);
+            return page;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static <T> Page<T> page(final List<T> items, final String nextPageLink) {
+        return new Page<T>() {
+            @Override
+            public String nextPageLink() {
+                return nextPageLink;
+            }
+
+            @Override
+            public List<T> items() {
+                return items;
+            }
+        };
+    }
+}
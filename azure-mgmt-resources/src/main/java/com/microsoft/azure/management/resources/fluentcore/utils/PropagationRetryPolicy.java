@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.fluentcore.utils;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy for the requests failing until a change made just before has been replicated, such as the
+ * assignment of a role to a service principal that Azure Resource Manager does not know yet.
+ * <p>
+ * Only the errors classified as propagation errors are retried: by default the errors with the code
+ * "PrincipalNotFound". The delays grow exponentially, with jitter, up to a maximum duration. The policy also
+ * learns the propagation time of each tenant from the operations that had to be retried: the first delay of an
+ * operation lasts for most of the time propagation usually takes, instead of polling through it.
+ * <p>
+ * The learned propagation times are shared by all the policies of a tenant in the process.
+ */
+@Beta(SinceVersion.V1_3_0)
+public final class PropagationRetryPolicy {
+    private static final long DEFAULT_INITIAL_DELAY_IN_MILLISECONDS = 1000;
+    private static final long DEFAULT_MAX_DELAY_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+    private static final long DEFAULT_MAX_DURATION_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(8);
+    // Part of the usual propagation time waited for at once, the remainder being polled
+    private static final double FIRST_DELAY_RATIO = 0.75;
+    // Weight of the latest observation in the propagation time of a tenant
+    private static final double OBSERVATION_WEIGHT = 0.25;
+    private static final ConcurrentMap<String, PropagationTime> PROPAGATION_TIMES = new ConcurrentHashMap<>();
+
+    private final PropagationTime propagationTime;
+    private final Set<String> errorCodes = new HashSet<>(Collections.singleton("principalnotfound"));
+    private Func1<Throwable, Boolean> errorPredicate;
+    private long initialDelayInMilliseconds = DEFAULT_INITIAL_DELAY_IN_MILLISECONDS;
+    private long maxDelayInMilliseconds = DEFAULT_MAX_DELAY_IN_MILLISECONDS;
+    private long maxDurationInMilliseconds = DEFAULT_MAX_DURATION_IN_MILLISECONDS;
+
+    private PropagationRetryPolicy(PropagationTime propagationTime) {
+        this.propagationTime = propagationTime;
+    }
+
+    /**
+     * Creates a policy with the default settings, sharing the learned propagation time of a tenant.
+     *
+     * @param tenantId the tenant of the principals being replicated
+     * @return the policy
+     */
+    public static PropagationRetryPolicy forTenant(String tenantId) {
+        String key = tenantId == null ? "" : tenantId.toLowerCase(Locale.ROOT);
+        PropagationTime propagationTime = PROPAGATION_TIMES.get(key);
+        if (propagationTime == null) {
+            PropagationTime created = new PropagationTime();
+            propagationTime = PROPAGATION_TIMES.putIfAbsent(key, created);
+            if (propagationTime == null) {
+                propagationTime = created;
+            }
+        }
+        return new PropagationRetryPolicy(propagationTime);
+    }
+
+    /**
+     * Specifies additional error codes of propagation errors.
+     *
+     * @param errorCodes the error codes of the cloud errors to retry, compared ignoring case
+     * @return the policy
+     */
+    public PropagationRetryPolicy withErrorCodes(String... errorCodes) {
+        for (String errorCode : errorCodes) {
+            this.errorCodes.add(errorCode.toLowerCase(Locale.ROOT));
+        }
+        return this;
+    }
+
+    /**
+     * Specifies additional propagation errors, such as errors raised when a lookup does not find a principal yet.
+     *
+     * @param errorPredicate the predicate returning true for the errors to retry
+     * @return the policy
+     */
+    public PropagationRetryPolicy withRetryOn(Func1<Throwable, Boolean> errorPredicate) {
+        this.errorPredicate = errorPredicate;
+        return this;
+    }
+
+    /**
+     * Specifies the delay before the first retry when no propagation time was learned yet.
+     *
+     * @param delay the delay, defaults to 1 second; it doubles with each retry
+     * @param unit the time unit of the delay
+     * @return the policy
+     */
+    public PropagationRetryPolicy withInitialDelay(long delay, TimeUnit unit) {
+        this.initialDelayInMilliseconds = unit.toMillis(delay);
+        return this;
+    }
+
+    /**
+     * Specifies the maximum delay between two retries.
+     *
+     * @param delay the delay, defaults to 30 seconds
+     * @param unit the time unit of the delay
+     * @return the policy
+     */
+    public PropagationRetryPolicy withMaxDelay(long delay, TimeUnit unit) {
+        this.maxDelayInMilliseconds = unit.toMillis(delay);
+        return this;
+    }
+
+    /**
+     * Specifies the time after which a propagation error is no longer retried.
+     *
+     * @param duration the duration from the first attempt, defaults to 8 minutes
+     * @param unit the time unit of the duration
+     * @return the policy
+     */
+    public PropagationRetryPolicy withMaxDuration(long duration, TimeUnit unit) {
+        this.maxDurationInMilliseconds = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param throwable an error
+     * @return true if the error is retried by the policy
+     */
+    public boolean isPropagationError(Throwable throwable) {
+        if (throwable instanceof CloudException) {
+            CloudException exception = (CloudException) throwable;
+            if (exception.body() != null && exception.body().code() != null
+                    && this.errorCodes.contains(exception.body().code().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return this.errorPredicate != null && Boolean.TRUE.equals(this.errorPredicate.call(throwable));
+    }
+
+    /**
+     * @return the propagation time learned for the tenant in milliseconds, or 0 if none was observed yet
+     */
+    public long propagationTimeInMilliseconds() {
+        return this.propagationTime.get();
+    }
+
+    /**
+     * Gets a transformer applying the policy to an observable, to use with {@link Observable#compose}.
+     * <p>
+     * The observable is subscribed to again for each retry.
+     *
+     * @param <T> the type of the items of the observable
+     * @return the transformer
+     */
+    public <T> Observable.Transformer<T, T> transformer() {
+        final PropagationRetryPolicy self = this;
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> source) {
+                return Observable.defer(new Func0<Observable<T>>() {
+                    @Override
+                    public Observable<T> call() {
+                        final Attempts attempts = new Attempts(System.currentTimeMillis());
+                        return source
+                                .doOnSubscribe(new Action0() {
+                                    @Override
+                                    public void call() {
+                                        attempts.lastStart = System.currentTimeMillis();
+                                    }
+                                })
+                                .retryWhen(new Func1<Observable<? extends Throwable>, Observable<?>>() {
+                                    @Override
+                                    public Observable<?> call(Observable<? extends Throwable> errors) {
+                                        return errors.flatMap(new Func1<Throwable, Observable<Integer>>() {
+                                            @Override
+                                            public Observable<Integer> call(Throwable throwable) {
+                                                long delay = self.isPropagationError(throwable) ? self.nextDelay(attempts) : -1;
+                                                if (delay < 0) {
+                                                    return Observable.error(throwable);
+                                                }
+                                                attempts.failures++;
+                                                attempts.lastFailure = System.currentTimeMillis();
+                                                return SdkContext.delayedEmitAsync(attempts.failures, (int) delay);
+                                            }
+                                        });
+                                    }
+                                })
+                                .doOnCompleted(new Action0() {
+                                    @Override
+                                    public void call() {
+                                        if (attempts.failures > 0) {
+                                            // Propagation completed between the last failure and the last attempt
+                                            self.propagationTime.observe((attempts.lastFailure + attempts.lastStart) / 2 - attempts.start);
+                                        }
+                                    }
+                                });
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Applies the policy to an observable.
+     *
+     * @param source the observable, subscribed to again for each retry
+     * @param <T> the type of the items of the observable
+     * @return the observable retrying on propagation errors
+     */
+    public <T> Observable<T> applyTo(Observable<T> source) {
+        return source.compose(this.<T>transformer());
+    }
+
+    /**
+     * @return the delay before the next attempt in milliseconds, or -1 if the maximum duration is reached
+     */
+    private long nextDelay(Attempts attempts) {
+        long elapsed = System.currentTimeMillis() - attempts.start;
+        long remaining = this.maxDurationInMilliseconds - elapsed;
+        if (remaining <= 0) {
+            return -1;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long learned = this.propagationTime.get();
+        long delay;
+        if (attempts.failures == 0 && learned > elapsed) {
+            // Most of the usual propagation time at once, with a tenth of jitter
+            delay = (long) ((learned - elapsed) * FIRST_DELAY_RATIO * (0.9 + 0.2 * random.nextDouble()));
+        } else {
+            // Exponential backoff with equal jitter: between half and all of the exponential delay
+            int exponent = Math.min(attempts.failures, 30);
+            long exponential = Math.min(this.maxDelayInMilliseconds, this.initialDelayInMilliseconds << exponent);
+            delay = exponential / 2 + (long) (random.nextDouble() * (exponential - exponential / 2));
+        }
+        return Math.min(delay, remaining);
+    }
+
+    /**
+     * The attempts of an operation.
+     */
+    private static final class Attempts {
+        private final long start;
+        private volatile long lastStart;
+        private volatile long lastFailure;
+        private volatile int failures;
+
+        Attempts(long start) {
+            this.start = start;
+            this.lastStart = start;
+        }
+    }
+
+    /**
+     * The propagation time of a tenant, averaged over the operations that had to be retried.
+     */
+    private static final class PropagationTime {
+        private long milliseconds;
+
+        synchronized long get() {
+            return this.milliseconds;
+        }
+
+        synchronized void observe(long observed) {
+            if (observed <= 0) {
+                return;
+            }
+            this.milliseconds = this.milliseconds == 0
+                    ? observed
+                    : (long) (this.milliseconds * (1 - OBSERVATION_WEIGHT) + observed * OBSERVATION_WEIGHT);
+        }
+    }
+}
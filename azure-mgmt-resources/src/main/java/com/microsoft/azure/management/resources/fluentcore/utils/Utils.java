@@ -11,15 +11,13 @@ import com.microsoft.azure.Page;
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.resources.fluentcore.model.Indexable;
 import com.microsoft.azure.management.resources.implementation.PageImpl;
-import okhttp3.ResponseBody;
 import retrofit2.Retrofit;
-import retrofit2.http.GET;
-import retrofit2.http.Url;
 import rx.Observable;
-import rx.exceptions.Exceptions;
+import rx.functions.Func0;
 import rx.functions.Func1;
 
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
 import java.util.List;
 
 /**
@@ -116,21 +114,27 @@ public final class Utils {
 
     /**
      * Download a file asynchronously.
+     * <p>
+     * The whole content of the file is held in memory; use {@link FileDownloader} to stream large files
+     * to a channel or to disk instead.
+     *
      * @param url the URL pointing to the file
      * @param retrofit the retrofit client
      * @return an Observable pointing to the content of the file
      */
-    public static Observable<byte[]> downloadFileAsync(String url, Retrofit retrofit) {
-        FileService service = retrofit.create(FileService.class);
-        Observable<ResponseBody> response = service.download(url);
-        return response.map(new Func1<ResponseBody, byte[]>() {
+    public static Observable<byte[]> downloadFileAsync(final String url, final Retrofit retrofit) {
+        return Observable.defer(new Func0<Observable<byte[]>>() {
             @Override
-            public byte[] call(ResponseBody responseBody) {
-                try {
-                    return responseBody.bytes();
-                } catch (IOException e) {
-                    throw Exceptions.propagate(e);
-                }
+            public Observable<byte[]> call() {
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                return new FileDownloader(retrofit).downloadAsync(url, Channels.newChannel(content))
+                        .last()
+                        .map(new Func1<Long, byte[]>() {
+                            @Override
+                            public byte[] call(Long length) {
+                                return content.toByteArray();
+                            }
+                        });
             }
         });
     }
@@ -163,14 +167,6 @@ public final class Utils {
         return converter.convert(pagedList);
     }
 
-    /**
-     * A Retrofit service used to download a file.
-     */
-    private interface FileService {
-        @GET
-        Observable<ResponseBody> download(@Url String url);
-    }
-
     private Utils() {
     }
 }
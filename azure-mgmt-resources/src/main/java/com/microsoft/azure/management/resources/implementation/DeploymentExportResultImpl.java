@@ -7,9 +7,9 @@
 package com.microsoft.azure.management.resources.implementation;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.management.resources.DeploymentExportResult;
 import com.microsoft.azure.management.resources.fluentcore.model.implementation.WrapperImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 
 /**
  * Implementation for {@link DeploymentExportResult}.
@@ -19,11 +19,8 @@ final class DeploymentExportResultImpl extends
         implements
         DeploymentExportResult {
 
-    private ObjectMapper mapper;
-
     DeploymentExportResultImpl(DeploymentExportResultInner innerModel) {
         super(innerModel);
-        mapper = new ObjectMapper();
     }
 
     @Override
@@ -34,7 +31,7 @@ final class DeploymentExportResultImpl extends
     @Override
     public String templateAsJson() {
         try {
-            return mapper.writeValueAsString(template());
+            return ObjectMapperRegistry.writer().writeValueAsString(template());
         } catch (JsonProcessingException e) {
             return null;
         }
@@ -6,11 +6,11 @@
 
 package com.microsoft.azure.management.resources.implementation;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.management.resources.Dependency;
 import com.microsoft.azure.management.resources.Deployment;
 import com.microsoft.azure.management.resources.DeploymentExportResult;
 import com.microsoft.azure.management.resources.DeploymentMode;
+import com.microsoft.azure.management.resources.DeploymentOperation;
 import com.microsoft.azure.management.resources.DeploymentOperations;
 import com.microsoft.azure.management.resources.DeploymentProperties;
 import com.microsoft.azure.management.resources.DeploymentPropertiesExtended;
@@ -22,11 +22,13 @@ import com.microsoft.azure.management.resources.fluentcore.arm.Region;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.model.Creatable;
 import com.microsoft.azure.management.resources.fluentcore.model.implementation.CreatableUpdatableImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.rest.ServiceCallback;
 import com.microsoft.rest.ServiceFuture;
 import org.joda.time.DateTime;
 import rx.Completable;
 import rx.Observable;
+import rx.functions.Func0;
 import rx.functions.Func1;
 
 import java.io.IOException;
@@ -46,13 +48,11 @@ public final class DeploymentImpl extends
     private final ResourceManager resourceManager;
     private String resourceGroupName;
     private Creatable<ResourceGroup> creatableResourceGroup;
-    private ObjectMapper objectMapper;
 
     DeploymentImpl(DeploymentExtendedInner innerModel, final ResourceManager resourceManager) {
         super(innerModel.name(), innerModel);
         this.resourceGroupName = ResourceUtils.groupFromResourceId(innerModel.id());
         this.resourceManager = resourceManager;
-        this.objectMapper = new ObjectMapper();
     }
 
     @Override
@@ -162,6 +162,21 @@ public final class DeploymentImpl extends
         return new DeploymentOperationsImpl(this.manager().inner().deploymentOperations(), this);
     }
 
+    @Override
+    public Observable<DeploymentOperation> watchOperationsAsync() {
+        final DeploymentImpl self = this;
+        return Observable.defer(new Func0<Observable<DeploymentOperation>>() {
+            @Override
+            public Observable<DeploymentOperation> call() {
+                return new DeploymentOperationsWatcher(
+                        self.manager().inner().deployments(),
+                        self.manager().inner().deploymentOperations(),
+                        self.resourceGroupName(),
+                        self.name()).watchAsync();
+            }
+        });
+    }
+
     @Override
     public void cancel() {
         this.cancelAsync().await();
@@ -241,7 +256,7 @@ public final class DeploymentImpl extends
 
     @Override
     public DeploymentImpl withTemplate(String templateJson) throws IOException {
-        return withTemplate(objectMapper.readTree(templateJson));
+        return withTemplate(ObjectMapperRegistry.treeReader().readTree(templateJson));
     }
 
     @Override
@@ -275,7 +290,7 @@ public final class DeploymentImpl extends
 
     @Override
     public DeploymentImpl withParameters(String parametersJson) throws IOException {
-        return withParameters(objectMapper.readTree(parametersJson));
+        return withParameters(ObjectMapperRegistry.treeReader().readTree(parametersJson));
     }
 
     @Override
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.resources.DeploymentOperation;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polls the operations of a template deployment until the deployment reaches a terminal state,
+ * emitting only the operations that are new or changed since the previous poll.
+ * <p>
+ * The polling interval grows with the number of operations in the deployment and backs off
+ * while polls observe no change.
+ */
+final class DeploymentOperationsWatcher {
+    private static final int MIN_DELAY_MILLIS = 5 * 1000;
+    private static final int MAX_DELAY_MILLIS = 60 * 1000;
+    private static final int DELAY_PER_OPERATION_MILLIS = 10;
+
+    private final DeploymentsInner deploymentsClient;
+    private final DeploymentOperationsInner operationsClient;
+    private final String resourceGroupName;
+    private final String deploymentName;
+
+    // Poll state, only accessed by the sequential polls of a single subscription
+    private final Map<String, List<Object>> fingerprints = new HashMap<>();
+    private int operationCount;
+    private int changedCount;
+    private int unchangedPolls;
+    private volatile boolean completed;
+
+    DeploymentOperationsWatcher(DeploymentsInner deploymentsClient,
+                                DeploymentOperationsInner operationsClient,
+                                String resourceGroupName,
+                                String deploymentName) {
+        this.deploymentsClient = deploymentsClient;
+        this.operationsClient = operationsClient;
+        this.resourceGroupName = resourceGroupName;
+        this.deploymentName = deploymentName;
+    }
+
+    /**
+     * @return an observable polling the deployment operations, completing once the deployment has completed
+     */
+    Observable<DeploymentOperation> watchAsync() {
+        final DeploymentOperationsWatcher self = this;
+        return Observable.defer(new Func0<Observable<DeploymentOperation>>() {
+            @Override
+            public Observable<DeploymentOperation> call() {
+                return self.pollAsync();
+            }
+        }).repeatWhen(new Func1<Observable<? extends Void>, Observable<?>>() {
+            @Override
+            public Observable<?> call(Observable<? extends Void> polls) {
+                return polls
+                        .takeWhile(new Func1<Void, Boolean>() {
+                            @Override
+                            public Boolean call(Void aVoid) {
+                                return !self.completed;
+                            }
+                        })
+                        .flatMap(new Func1<Void, Observable<Integer>>() {
+                            @Override
+                            public Observable<Integer> call(Void aVoid) {
+                                return SdkContext.delayedEmitAsync(0, nextDelayMillis(self.operationCount, self.unchangedPolls));
+                            }
+                        });
+            }
+        });
+    }
+
+    private Observable<DeploymentOperation> pollAsync() {
+        final DeploymentOperationsWatcher self = this;
+        // The deployment state is read before the operations, so that the operations listed after
+        // a terminal state is observed are final
+        return this.deploymentsClient.getByResourceGroupAsync(this.resourceGroupName, this.deploymentName)
+                .flatMap(new Func1<DeploymentExtendedInner, Observable<DeploymentOperation>>() {
+                    @Override
+                    public Observable<DeploymentOperation> call(DeploymentExtendedInner deploymentInner) {
+                        self.completed = isTerminal(deploymentInner);
+                        self.operationCount = 0;
+                        self.changedCount = 0;
+                        return self.operationsClient.listByResourceGroupAsync(self.resourceGroupName, self.deploymentName)
+                                .concatMapIterable(new Func1<Page<DeploymentOperationInner>, Iterable<DeploymentOperationInner>>() {
+                                    @Override
+                                    public Iterable<DeploymentOperationInner> call(Page<DeploymentOperationInner> page) {
+                                        return page.items();
+                                    }
+                                })
+                                .filter(new Func1<DeploymentOperationInner, Boolean>() {
+                                    @Override
+                                    public Boolean call(DeploymentOperationInner operationInner) {
+                                        return self.recordChange(operationInner);
+                                    }
+                                })
+                                .map(new Func1<DeploymentOperationInner, DeploymentOperation>() {
+                                    @Override
+                                    public DeploymentOperation call(DeploymentOperationInner operationInner) {
+                                        return new DeploymentOperationImpl(operationInner, self.operationsClient);
+                                    }
+                                })
+                                .doOnCompleted(new Action0() {
+                                    @Override
+                                    public void call() {
+                                        self.unchangedPolls = self.changedCount == 0 ? self.unchangedPolls + 1 : 0;
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Records the state of an operation listed by the current poll.
+     *
+     * @return true if the operation is new or changed since the previous poll
+     */
+    boolean recordChange(DeploymentOperationInner operationInner) {
+        this.operationCount++;
+        List<Object> fingerprint;
+        if (operationInner.properties() == null) {
+            fingerprint = Arrays.<Object>asList(null, null, null);
+        } else {
+            fingerprint = Arrays.<Object>asList(
+                    operationInner.properties().provisioningState(),
+                    operationInner.properties().timestamp(),
+                    operationInner.properties().statusCode());
+        }
+        List<Object> previous = this.fingerprints.put(operationInner.operationId(), fingerprint);
+        if (fingerprint.equals(previous)) {
+            return false;
+        }
+        this.changedCount++;
+        return true;
+    }
+
+    /**
+     * @return the delay before the next poll, growing with the number of operations and the number of
+     * consecutive polls that observed no change
+     */
+    static int nextDelayMillis(int operationCount, int unchangedPolls) {
+        long delay = MIN_DELAY_MILLIS + (long) DELAY_PER_OPERATION_MILLIS * operationCount;
+        // Double the delay for each consecutive poll that observed no change
+        delay <<= Math.min(unchangedPolls, 4);
+        return (int) Math.min(delay, MAX_DELAY_MILLIS);
+    }
+
+    private static boolean isTerminal(DeploymentExtendedInner deploymentInner) {
+        if (deploymentInner.properties() == null || deploymentInner.properties().provisioningState() == null) {
+            return false;
+        }
+        String state = deploymentInner.properties().provisioningState();
+        return state.equalsIgnoreCase("Succeeded")
+                || state.equalsIgnoreCase("Failed")
+                || state.equalsIgnoreCase("Canceled");
+    }
+}
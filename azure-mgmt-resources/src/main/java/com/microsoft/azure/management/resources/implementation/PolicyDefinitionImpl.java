@@ -6,10 +6,10 @@
 
 package com.microsoft.azure.management.resources.implementation;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.management.resources.PolicyDefinition;
 import com.microsoft.azure.management.resources.PolicyType;
 import com.microsoft.azure.management.resources.fluentcore.model.implementation.CreatableUpdatableImpl;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import rx.Observable;
 
 import java.io.IOException;
@@ -81,7 +81,7 @@ final class PolicyDefinitionImpl extends
     @Override
     public PolicyDefinitionImpl withPolicyRuleJson(String policyRuleJson) {
         try {
-            inner().withPolicyRule(new ObjectMapper().readTree(policyRuleJson));
+            inner().withPolicyRule(ObjectMapperRegistry.treeReader().readTree(policyRuleJson));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
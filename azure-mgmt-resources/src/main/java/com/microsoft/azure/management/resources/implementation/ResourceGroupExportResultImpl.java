@@ -7,11 +7,11 @@
 package com.microsoft.azure.management.resources.implementation;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.management.resources.DeploymentExportResult;
 import com.microsoft.azure.management.resources.ResourceGroupExportResult;
 import com.microsoft.azure.management.resources.fluentcore.model.implementation.WrapperImpl;
 import com.microsoft.azure.management.resources.ResourceManagementErrorWithDetails;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 
 /**
  * Implementation for {@link DeploymentExportResult}.
@@ -21,11 +21,8 @@ final class ResourceGroupExportResultImpl extends
         implements
         ResourceGroupExportResult {
 
-    private ObjectMapper mapper;
-
     ResourceGroupExportResultImpl(ResourceGroupExportResultInner innerModel) {
         super(innerModel);
-        mapper = new ObjectMapper();
     }
 
     @Override
@@ -36,7 +33,7 @@ final class ResourceGroupExportResultImpl extends
     @Override
     public String templateJson() {
         try {
-            return mapper.writeValueAsString(template());
+            return ObjectMapperRegistry.writer().writeValueAsString(template());
         } catch (JsonProcessingException e) {
             return null;
         }
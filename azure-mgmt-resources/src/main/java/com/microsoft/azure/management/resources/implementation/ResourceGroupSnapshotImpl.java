@@ -0,0 +1,393 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.implementation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.resources.GenericResource;
+import com.microsoft.azure.management.resources.Provider;
+import com.microsoft.azure.management.resources.ResourceGroupSnapshot;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Implementation for ResourceGroupSnapshot interface.
+ */
+@LangDefinition
+final class ResourceGroupSnapshotImpl implements ResourceGroupSnapshot {
+    static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private static final int FORMAT_VERSION = 1;
+    // The number of segments of a top level resource ID in a resource group, including the empty one before the leading '/'
+    private static final int TOP_LEVEL_ID_SEGMENTS = 9;
+
+    private final String resourceGroupName;
+    private final DateTime takenTime;
+    private final List<GenericResource> resources;
+    // All the maps below are keyed by lower case resource ID or type
+    private final Map<String, GenericResource> resourcesById = new LinkedHashMap<>();
+    private final Map<String, List<GenericResource>> resourcesByType = new LinkedHashMap<>();
+    private final Map<String, List<GenericResource>> dependencies = new LinkedHashMap<>();
+    private final Map<String, List<GenericResource>> dependents = new LinkedHashMap<>();
+    private final Map<String, Set<String>> externalDependencies = new LinkedHashMap<>();
+    private final Set<String> types;
+
+    ResourceGroupSnapshotImpl(String resourceGroupName, DateTime takenTime, List<GenericResource> resources) {
+        this.resourceGroupName = resourceGroupName;
+        this.takenTime = takenTime;
+        this.resources = Collections.unmodifiableList(new ArrayList<>(resources));
+
+        Set<String> typeNames = new LinkedHashSet<>();
+        for (GenericResource resource : this.resources) {
+            this.resourcesById.put(key(resource.id()), resource);
+            String type = key(resource.type());
+            if (!this.resourcesByType.containsKey(type)) {
+                this.resourcesByType.put(type, new ArrayList<GenericResource>());
+                typeNames.add(resource.type());
+            }
+            this.resourcesByType.get(type).add(resource);
+        }
+        this.types = Collections.unmodifiableSet(typeNames);
+
+        for (GenericResource resource : this.resources) {
+            this.indexReferences(resource);
+        }
+    }
+
+    /**
+     * Lists the resources of a resource group, then fetches each of them with all its properties.
+     *
+     * @param manager the resource manager
+     * @param resourceGroupName the name of the resource group
+     * @param maxConcurrency the maximum number of resources fetched at the same time
+     * @return an observable emitting the snapshot
+     */
+    static Observable<ResourceGroupSnapshot> takeAsync(final ResourceManager manager,
+                                                       final String resourceGroupName,
+                                                       final int maxConcurrency) {
+        return Observable.defer(new Func0<Observable<ResourceGroupSnapshot>>() {
+            @Override
+            public Observable<ResourceGroupSnapshot> call() {
+                final DateTime takenTime = DateTime.now();
+                // Each resource provider is fetched once per snapshot, by the first resource needing it
+                final ConcurrentMap<String, Observable<Provider>> providers = new ConcurrentHashMap<>();
+                return manager.inner().resourceGroups().listByResourceGroupAsync(resourceGroupName)
+                        .concatMapIterable(new Func1<Page<GenericResourceInner>, Iterable<GenericResourceInner>>() {
+                            @Override
+                            public Iterable<GenericResourceInner> call(Page<GenericResourceInner> page) {
+                                return page.items();
+                            }
+                        })
+                        .flatMap(new Func1<GenericResourceInner, Observable<GenericResource>>() {
+                            @Override
+                            public Observable<GenericResource> call(GenericResourceInner listedInner) {
+                                return fetchAsync(manager, providers, listedInner)
+                                        .subscribeOn(SdkContext.getRxScheduler());
+                            }
+                        }, maxConcurrency)
+                        .toList()
+                        .map(new Func1<List<GenericResource>, ResourceGroupSnapshot>() {
+                            @Override
+                            public ResourceGroupSnapshot call(List<GenericResource> resources) {
+                                return new ResourceGroupSnapshotImpl(resourceGroupName, takenTime, resources);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo(OutputStream)}.
+     *
+     * @param input the stream to read from, which is not closed
+     * @param manager the resource manager the resources of the snapshot are bound to
+     * @return the snapshot
+     * @throws IOException when reading fails or the content is not a snapshot
+     */
+    static ResourceGroupSnapshot readFrom(InputStream input, ResourceManager manager) throws IOException {
+        JsonNode root;
+        GZIPInputStream gzip = new GZIPInputStream(new FilterInputStream(input) {
+            @Override
+            public void close() {
+                // The caller owns the stream
+            }
+        });
+        try {
+            root = mapper().readTree(gzip);
+        } finally {
+            gzip.close();
+        }
+        if (root == null || root.path("version").asInt() != FORMAT_VERSION) {
+            throw new IOException("The content is not a resource group snapshot or its format is not supported");
+        }
+        List<GenericResource> resources = new ArrayList<>();
+        for (JsonNode node : root.path("resources")) {
+            GenericResourceInner inner = mapper().treeToValue(node.get("resource"), GenericResourceInner.class);
+            resources.add(wrapModel(inner, node.path("apiVersion").asText(null), manager));
+        }
+        return new ResourceGroupSnapshotImpl(
+                root.path("resourceGroupName").asText(),
+                DateTime.parse(root.path("takenTime").asText()),
+                resources);
+    }
+
+    @Override
+    public String resourceGroupName() {
+        return this.resourceGroupName;
+    }
+
+    @Override
+    public DateTime takenTime() {
+        return this.takenTime;
+    }
+
+    @Override
+    public List<GenericResource> resources() {
+        return this.resources;
+    }
+
+    @Override
+    public GenericResource getById(String id) {
+        return this.resourcesById.get(key(id));
+    }
+
+    @Override
+    public List<GenericResource> listByType(String type) {
+        return unmodifiableOrEmpty(this.resourcesByType.get(key(type)));
+    }
+
+    @Override
+    public Set<String> types() {
+        return this.types;
+    }
+
+    @Override
+    public List<GenericResource> dependenciesOf(String id) {
+        return unmodifiableOrEmpty(this.dependencies.get(key(id)));
+    }
+
+    @Override
+    public List<GenericResource> dependentsOf(String id) {
+        return unmodifiableOrEmpty(this.dependents.get(key(id)));
+    }
+
+    @Override
+    public Set<String> externalDependenciesOf(String id) {
+        Set<String> ids = this.externalDependencies.get(key(id));
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        ObjectNode root = mapper().createObjectNode();
+        root.put("version", FORMAT_VERSION);
+        root.put("resourceGroupName", this.resourceGroupName);
+        root.put("takenTime", this.takenTime.toString());
+        ArrayNode resourceNodes = root.putArray("resources");
+        for (GenericResource resource : this.resources) {
+            ObjectNode resourceNode = mapper().valueToTree(resource.inner());
+            // The ID, name and type are read only in the model, so they are not serialized with it
+            resourceNode.put("id", resource.id());
+            resourceNode.put("name", resource.name());
+            resourceNode.put("type", resource.type());
+            ObjectNode node = resourceNodes.addObject();
+            node.put("apiVersion", resource.apiVersion());
+            node.set("resource", resourceNode);
+        }
+        GZIPOutputStream gzip = new GZIPOutputStream(new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The caller owns the stream
+                out.flush();
+            }
+        });
+        try {
+            mapper().writeValue(gzip, root);
+        } finally {
+            gzip.close();
+        }
+    }
+
+    private static Observable<GenericResource> fetchAsync(final ResourceManager manager,
+                                                          ConcurrentMap<String, Observable<Provider>> providers,
+                                                          final GenericResourceInner listedInner) {
+        String namespace = ResourceUtils.resourceProviderFromResourceId(listedInner.id());
+        Observable<Provider> provider = providers.get(key(namespace));
+        if (provider == null) {
+            Observable<Provider> fetch = manager.providers().getByNameAsync(namespace).cache();
+            provider = providers.putIfAbsent(key(namespace), fetch);
+            if (provider == null) {
+                provider = fetch;
+            }
+        }
+        return provider.flatMap(new Func1<Provider, Observable<GenericResource>>() {
+            @Override
+            public Observable<GenericResource> call(Provider provider) {
+                final String apiVersion = ResourceUtils.defaultApiVersion(listedInner.id(), provider);
+                return manager.inner().resources().getByIdAsync(listedInner.id(), apiVersion)
+                        .onErrorResumeNext(new Func1<Throwable, Observable<GenericResourceInner>>() {
+                            @Override
+                            public Observable<GenericResourceInner> call(Throwable throwable) {
+                                // Not all resource types can be read by ID, keep what the listing returned;
+                                // any other failure, such as throttling, fails the snapshot
+                                if (isNotReadableById(throwable)) {
+                                    return Observable.just(listedInner);
+                                }
+                                return Observable.error(throwable);
+                            }
+                        })
+                        .map(new Func1<GenericResourceInner, GenericResource>() {
+                            @Override
+                            public GenericResource call(GenericResourceInner inner) {
+                                return wrapModel(inner, apiVersion, manager);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * @return whether a failure fetching a listed resource by ID means the resource type does not support it
+     */
+    static boolean isNotReadableById(Throwable throwable) {
+        if (!(throwable instanceof CloudException) || ((CloudException) throwable).response() == null) {
+            return false;
+        }
+        int code = ((CloudException) throwable).response().code();
+        return code == 404 || code == 405;
+    }
+
+    /**
+     * @return the mapper of the shared REST adapter, so that resources are persisted as they are sent over the wire;
+     * it ignores unknown properties and omits null ones
+     */
+    private static ObjectMapper mapper() {
+        return ObjectMapperRegistry.azureJacksonAdapter().serializer();
+    }
+
+    private static GenericResource wrapModel(GenericResourceInner inner, String apiVersion, ResourceManager manager) {
+        return new GenericResourceImpl(inner.id(), inner, manager)
+                .withExistingResourceGroup(ResourceUtils.groupFromResourceId(inner.id()))
+                .withProviderNamespace(ResourceUtils.resourceProviderFromResourceId(inner.id()))
+                .withResourceType(ResourceUtils.resourceTypeFromResourceId(inner.id()))
+                .withParentResourceId(ResourceUtils.parentResourceIdFromResourceId(inner.id()))
+                .withApiVersion(apiVersion);
+    }
+
+    private void indexReferences(GenericResource resource) {
+        String resourceKey = key(resource.id());
+        Set<String> references = new LinkedHashSet<>();
+        collectReferences(resource.properties(), references);
+        collectReferences(resource.inner().managedBy(), references);
+
+        Set<GenericResource> resolved = new LinkedHashSet<>();
+        Set<String> external = new LinkedHashSet<>();
+        for (String reference : references) {
+            String[] segments = reference.split("/");
+            if (!isResourceGroupScoped(segments)) {
+                continue;
+            }
+            // A reference to a child resource, e.g. a subnet, is a dependency on the closest resource in the snapshot
+            GenericResource target = null;
+            int length = segments.length - (segments.length - TOP_LEVEL_ID_SEGMENTS) % 2;
+            for (; target == null && length >= TOP_LEVEL_ID_SEGMENTS; length -= 2) {
+                target = this.resourcesById.get(key(StringUtils.join(segments, '/', 0, length)));
+            }
+            if (target == null) {
+                external.add(StringUtils.join(segments, '/', 0, TOP_LEVEL_ID_SEGMENTS));
+            } else if (target != resource) {
+                resolved.add(target);
+            }
+        }
+
+        if (!resolved.isEmpty()) {
+            this.dependencies.put(resourceKey, new ArrayList<>(resolved));
+            for (GenericResource target : resolved) {
+                String targetKey = key(target.id());
+                if (!this.dependents.containsKey(targetKey)) {
+                    this.dependents.put(targetKey, new ArrayList<GenericResource>());
+                }
+                this.dependents.get(targetKey).add(resource);
+            }
+        }
+        if (!external.isEmpty()) {
+            this.externalDependencies.put(resourceKey, external);
+        }
+    }
+
+    private static void collectReferences(Object value, Set<String> references) {
+        if (value instanceof String) {
+            String text = (String) value;
+            if (text.regionMatches(true, 0, "/subscriptions/", 0, "/subscriptions/".length())) {
+                references.add(StringUtils.stripEnd(text, "/"));
+            }
+        } else if (value instanceof Map<?, ?>) {
+            for (Object child : ((Map<?, ?>) value).values()) {
+                collectReferences(child, references);
+            }
+        } else if (value instanceof Iterable<?>) {
+            for (Object child : (Iterable<?>) value) {
+                collectReferences(child, references);
+            }
+        }
+    }
+
+    private static boolean isResourceGroupScoped(String[] segments) {
+        // /subscriptions/<subscriptionId>/resourceGroups/<resourceGroupName>/providers/<providerNamespace>/<resourceType>/<name>
+        return segments.length >= TOP_LEVEL_ID_SEGMENTS
+                && segments[3].equalsIgnoreCase("resourceGroups")
+                && segments[5].equalsIgnoreCase("providers");
+    }
+
+    private static List<GenericResource> unmodifiableOrEmpty(List<GenericResource> resources) {
+        if (resources == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    private static String key(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
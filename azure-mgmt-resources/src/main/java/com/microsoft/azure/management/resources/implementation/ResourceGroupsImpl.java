@@ -8,6 +8,7 @@ package com.microsoft.azure.management.resources.implementation;
 
 import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.resources.ResourceGroup;
+import com.microsoft.azure.management.resources.ResourceGroupSnapshot;
 import com.microsoft.azure.management.resources.ResourceGroups;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azure.management.resources.fluentcore.arm.collection.implementation.CreatableResourcesImpl;
@@ -17,6 +18,9 @@ import com.microsoft.rest.ServiceCallback;
 import rx.Completable;
 import rx.Observable;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * The implementation for {@link ResourceGroups} and its parent interfaces.
  */
@@ -25,14 +29,16 @@ final class ResourceGroupsImpl
         implements ResourceGroups {
     private final ResourceGroupsInner client;
     private final ResourceManagementClientImpl serviceClient;
+    private final ResourceManager resourceManager;
 
     /**
      * Creates an instance of the implementation.
      *
-     * @param serviceClient the inner resource management client
+     * @param resourceManager the resource manager
      */
-    ResourceGroupsImpl(final ResourceManagementClientImpl serviceClient) {
-        this.serviceClient = serviceClient;
+    ResourceGroupsImpl(final ResourceManager resourceManager) {
+        this.resourceManager = resourceManager;
+        this.serviceClient = resourceManager.inner();
         this.client = serviceClient.resourceGroups();
     }
 
@@ -81,6 +87,26 @@ final class ResourceGroupsImpl
         return client.checkExistence(name);
     }
 
+    @Override
+    public ResourceGroupSnapshot snapshot(String name) {
+        return snapshotAsync(name).toBlocking().last();
+    }
+
+    @Override
+    public Observable<ResourceGroupSnapshot> snapshotAsync(String name) {
+        return snapshotAsync(name, ResourceGroupSnapshotImpl.DEFAULT_MAX_CONCURRENCY);
+    }
+
+    @Override
+    public Observable<ResourceGroupSnapshot> snapshotAsync(String name, int maxConcurrency) {
+        return ResourceGroupSnapshotImpl.takeAsync(resourceManager, name, maxConcurrency);
+    }
+
+    @Override
+    public ResourceGroupSnapshot readSnapshot(InputStream input) throws IOException {
+        return ResourceGroupSnapshotImpl.readFrom(input, resourceManager);
+    }
+
     @Override
     protected ResourceGroupImpl wrapModel(String name) {
         return new ResourceGroupImpl(
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources;
+
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.microsoft.azure.management.resources.fluentcore.utils.FileDownloader;
+import com.microsoft.azure.management.resources.fluentcore.utils.Utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava.HttpException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class FileDownloaderTests {
+    private static final byte[] CONTENT = new byte[300 * 1024 + 17];
+
+    private LocalTestServer server;
+    private Retrofit retrofit;
+    private String url;
+    private String emptyUrl;
+    private String emptyRangesUrl;
+    private String missingUrl;
+
+    @Before
+    public void setup() throws Exception {
+        new Random(42).nextBytes(CONTENT);
+        server = new LocalTestServer()
+                .withHandler("/file", new RangeHandler(CONTENT))
+                .withHandler("/emptyranges", new RangeHandler(new byte[0]))
+                .withHandler("/empty", new HttpHandler() {
+                    @Override
+                    public void handle(HttpExchange exchange) throws IOException {
+                        LocalTestServer.respond(exchange, 200, null);
+                    }
+                });
+        url = server.url("/file");
+        emptyUrl = server.url("/empty");
+        emptyRangesUrl = server.url("/emptyranges");
+        missingUrl = server.url("/missing");
+        retrofit = server.retrofit();
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void canDownloadToChannel() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long length = new FileDownloader(retrofit)
+                .downloadAsync(url, Channels.newChannel(output))
+                .toBlocking().last();
+        Assert.assertEquals(CONTENT.length, length);
+        Assert.assertArrayEquals(CONTENT, output.toByteArray());
+    }
+
+    @Test
+    public void canDownloadToBytes() throws Exception {
+        byte[] content = Utils.downloadFileAsync(url, retrofit).toBlocking().single();
+        Assert.assertArrayEquals(CONTENT, content);
+    }
+
+    @Test
+    public void canResumeDownload() throws Exception {
+        Path path = Files.createTempFile("download", ".bin");
+        try {
+            Files.write(path, Arrays.copyOf(CONTENT, 12345));
+            long length = new FileDownloader(retrofit).resumeAsync(url, path).toBlocking().last();
+            Assert.assertEquals(CONTENT.length, length);
+            Assert.assertArrayEquals(CONTENT, Files.readAllBytes(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void canDownloadSegments() throws Exception {
+        Path path = Files.createTempFile("download", ".bin");
+        try {
+            long length = new FileDownloader(retrofit)
+                    .withSegmentSize(64 * 1024)
+                    .withMaxConcurrency(3)
+                    .downloadSegmentedAsync(url, path)
+                    .toBlocking().last();
+            Assert.assertEquals(CONTENT.length, length);
+            Assert.assertArrayEquals(CONTENT, Files.readAllBytes(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void canReportTotalOfSegmentsLast() throws Exception {
+        Path path = Files.createTempFile("download", ".bin");
+        try {
+            List<Long> progress = new FileDownloader(retrofit)
+                    .withSegmentSize(1024)
+                    .withMaxConcurrency(8)
+                    .downloadSegmentedAsync(url, path)
+                    .toList().toBlocking().single();
+            Assert.assertEquals(CONTENT.length, (long) progress.get(progress.size() - 1));
+
+            // An empty file has no segment, but its total is still emitted
+            progress = new FileDownloader(retrofit)
+                    .downloadSegmentedAsync(emptyRangesUrl, path)
+                    .toList().toBlocking().single();
+            Assert.assertEquals(Collections.singletonList(0L), progress);
+            Assert.assertEquals(0, Files.size(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void canReportProgressOnce() throws Exception {
+        List<Long> progress = new FileDownloader(retrofit)
+                .downloadAsync(url, Channels.newChannel(new ByteArrayOutputStream()))
+                .toList().toBlocking().single();
+        for (int i = 1; i < progress.size(); i++) {
+            Assert.assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        Assert.assertEquals(CONTENT.length, (long) progress.get(progress.size() - 1));
+
+        List<Long> empty = new FileDownloader(retrofit)
+                .downloadAsync(emptyUrl, Channels.newChannel(new ByteArrayOutputStream()))
+                .toList().toBlocking().single();
+        Assert.assertEquals(Collections.singletonList(0L), empty);
+    }
+
+    @Test
+    public void failsWithHttpExceptionOnErrorStatus() throws Exception {
+        try {
+            Utils.downloadFileAsync(missingUrl, retrofit).toBlocking().single();
+            Assert.fail();
+        } catch (HttpException e) {
+            Assert.assertEquals(404, e.code());
+        }
+    }
+
+    /**
+     * Serves content, honoring single byte range requests.
+     */
+    private static class RangeHandler implements HttpHandler {
+        private final byte[] content;
+
+        RangeHandler(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            int start = 0;
+            int end = content.length - 1;
+            int status = 200;
+            if (range != null) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                start = Integer.parseInt(bounds[0]);
+                if (!bounds[1].isEmpty()) {
+                    end = Integer.parseInt(bounds[1]);
+                }
+                status = 206;
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+                LocalTestServer.respond(exchange, 200, null);
+                return;
+            }
+            LocalTestServer.respond(exchange, status, Arrays.copyOfRange(content, start, end + 1));
+        }
+    }
+}
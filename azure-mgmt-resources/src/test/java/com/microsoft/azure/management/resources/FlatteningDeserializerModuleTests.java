@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.microsoft.azure.management.resources.fluentcore.utils.FlatteningDeserializerModule;
+import com.microsoft.azure.management.resources.implementation.PolicyAssignmentInner;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import com.microsoft.rest.serializer.JsonFlatten;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FlatteningDeserializerModuleTests {
+    private static final String ASSIGNMENTS_JSON = "["
+            + "{\"id\":\"/subscriptions/sub1/providers/Microsoft.Authorization/policyAssignments/a1\","
+            + "\"type\":\"Microsoft.Authorization/policyAssignments\",\"name\":\"a1\","
+            + "\"properties\":{\"displayName\":\"Assignment 1\",\"policyDefinitionId\":\"def1\",\"scope\":\"/subscriptions/sub1\"}},"
+            + "{\"id\":\"a2\",\"name\":\"a2\",\"properties\":{\"displayName\":\"Assignment 2\"}},"
+            + "{\"id\":\"a3\",\"name\":\"a3\"}"
+            + "]";
+
+    @Test
+    public void canDeserializeFlattenedModels() throws Exception {
+        PolicyAssignmentInner[] assignments = moduleAdapter()
+                .deserialize(ASSIGNMENTS_JSON, PolicyAssignmentInner[].class);
+        Assert.assertEquals(3, assignments.length);
+        Assert.assertEquals("a1", assignments[0].name());
+        Assert.assertEquals("Assignment 1", assignments[0].displayName());
+        Assert.assertEquals("def1", assignments[0].policyDefinitionId());
+        Assert.assertEquals("/subscriptions/sub1", assignments[0].scope());
+        Assert.assertEquals("Assignment 2", assignments[1].displayName());
+        Assert.assertNull(assignments[1].scope());
+        Assert.assertNull(assignments[2].displayName());
+    }
+
+    @Test
+    public void deserializesLikeRuntimeFlattening() throws Exception {
+        PolicyAssignmentInner[] expected = new AzureJacksonAdapter()
+                .deserialize(ASSIGNMENTS_JSON, PolicyAssignmentInner[].class);
+        PolicyAssignmentInner[] actual = moduleAdapter()
+                .deserialize(ASSIGNMENTS_JSON, PolicyAssignmentInner[].class);
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i].id(), actual[i].id());
+            Assert.assertEquals(expected[i].type(), actual[i].type());
+            Assert.assertEquals(expected[i].name(), actual[i].name());
+            Assert.assertEquals(expected[i].displayName(), actual[i].displayName());
+            Assert.assertEquals(expected[i].policyDefinitionId(), actual[i].policyDefinitionId());
+            Assert.assertEquals(expected[i].scope(), actual[i].scope());
+        }
+    }
+
+    @Test
+    public void canRoundTripNestedPathsAndCollections() throws Exception {
+        ContainerModel container = new ContainerModel();
+        container.name = "container1";
+        container.level = 3;
+        container.escaped = "dotted";
+        container.tags = Arrays.asList("a", "b");
+        container.children = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ChildModel child = new ChildModel();
+            child.id = "child" + i;
+            child.state = "Succeeded" + i;
+            container.children.add(child);
+        }
+
+        String json = new AzureJacksonAdapter().serialize(container);
+        Assert.assertTrue(json.contains("\"settings\":{\"level\":3}"));
+
+        ContainerModel expected = new AzureJacksonAdapter().deserialize(json, ContainerModel.class);
+        ContainerModel actual = moduleAdapter().deserialize(json, ContainerModel.class);
+        for (ContainerModel model : Arrays.asList(expected, actual)) {
+            Assert.assertEquals("container1", model.name);
+            Assert.assertEquals(Integer.valueOf(3), model.level);
+            Assert.assertEquals("dotted", model.escaped);
+            Assert.assertEquals(Arrays.asList("a", "b"), model.tags);
+            Assert.assertEquals(2, model.children.size());
+            Assert.assertEquals("child1", model.children.get(1).id);
+            Assert.assertEquals("Succeeded1", model.children.get(1).state);
+        }
+
+        // Missing intermediate objects leave the nested properties unset
+        ContainerModel empty = moduleAdapter().deserialize("{\"name\":\"c\",\"properties\":{}}", ContainerModel.class);
+        Assert.assertEquals("c", empty.name);
+        Assert.assertNull(empty.level);
+        Assert.assertNull(empty.children);
+    }
+
+    @Test
+    public void leavesPolymorphicModelsToRuntimeFlattening() throws Exception {
+        DerivedModel derived = new DerivedModel();
+        derived.name = "derived1";
+        derived.size = 42;
+        String json = new AzureJacksonAdapter().serialize(Collections.<BaseModel>singletonList(derived));
+
+        BaseModel[] expected = new AzureJacksonAdapter().deserialize(json, BaseModel[].class);
+        BaseModel[] actual = moduleAdapter().deserialize(json, BaseModel[].class);
+        Assert.assertEquals(1, actual.length);
+        Assert.assertEquals(expected[0].getClass(), actual[0].getClass());
+        Assert.assertEquals(DerivedModel.class, actual[0].getClass());
+        Assert.assertEquals(expected[0].name, actual[0].name);
+        Assert.assertEquals("derived1", actual[0].name);
+        Assert.assertEquals(Integer.valueOf(42), ((DerivedModel) actual[0]).size);
+    }
+
+    private static AzureJacksonAdapter moduleAdapter() {
+        AzureJacksonAdapter adapter = new AzureJacksonAdapter();
+        adapter.serializer().registerModule(new FlatteningDeserializerModule());
+        return adapter;
+    }
+
+    /**
+     * A model with properties nested at several depths, including a collection of flattened models.
+     */
+    @JsonFlatten
+    static class ContainerModel {
+        @JsonProperty("name")
+        String name;
+
+        @JsonProperty("properties.settings.level")
+        Integer level;
+
+        @JsonProperty("properties.dotted\\.name")
+        String escaped;
+
+        @JsonProperty("properties.tags")
+        List<String> tags;
+
+        @JsonProperty("properties.children")
+        List<ChildModel> children;
+    }
+
+    /**
+     * A flattened model nested in a collection.
+     */
+    @JsonFlatten
+    static class ChildModel {
+        @JsonProperty("id")
+        String id;
+
+        @JsonProperty("properties.provisioningState")
+        String state;
+    }
+
+    /**
+     * The base of a polymorphic flattened model.
+     */
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "kind")
+    @JsonTypeName("Base")
+    @JsonSubTypes({ @JsonSubTypes.Type(name = "Derived", value = DerivedModel.class) })
+    @JsonFlatten
+    static class BaseModel {
+        @JsonProperty("properties.name")
+        String name;
+    }
+
+    /**
+     * A subtype of a polymorphic flattened model.
+     */
+    @JsonTypeName("Derived")
+    @JsonFlatten
+    static class DerivedModel extends BaseModel {
+        @JsonProperty("properties.size")
+        Integer size;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.PagedList;
+import com.microsoft.azure.management.resources.fluentcore.utils.PagedListFlattener;
+import com.microsoft.azure.management.resources.implementation.PageImpl;
+import com.microsoft.rest.RestException;
+import org.junit.Assert;
+import org.junit.Test;
+import rx.Observable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PagedListFlattenerTests {
+    @Test
+    public void canFlattenInParentOrder() {
+        // Parent i has i children, in pages of 2; the first parents are the slowest to load
+        PagedList<Integer> parents = pagedList(Arrays.asList(0, 1, 2, 3, 4, 5, 6), 3);
+        PagedList<Integer> children = new PagedListFlattener<>(parents, new PagedListFlattener.ChildListLoader<Integer, Integer>() {
+            @Override
+            public PagedList<Integer> loadList(Integer parent) {
+                sleep(10 * (6 - parent));
+                List<Integer> items = new ArrayList<>();
+                for (int i = 0; i < parent; i++) {
+                    items.add(parent * 10 + i);
+                }
+                return pagedList(items, 2);
+            }
+        }).withPrefetch(3).flatten();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int parent = 0; parent <= 6; parent++) {
+            for (int i = 0; i < parent; i++) {
+                expected.add(parent * 10 + i);
+            }
+        }
+        Assert.assertEquals(expected, new ArrayList<>(children));
+    }
+
+    @Test
+    public void canFlattenAsync() {
+        List<Integer> children = new PagedListFlattener<>(Observable.just("a", "b", "c"),
+                new PagedListFlattener.ChildListLoader<String, Integer>() {
+                    @Override
+                    public PagedList<Integer> loadList(String parent) {
+                        return "b".equals(parent)
+                                ? pagedList(Collections.<Integer>emptyList(), 1)
+                                : pagedList(Arrays.asList(parent.charAt(0) * 1, parent.charAt(0) + 1), 1);
+                    }
+                }).flattenAsync().toList().toBlocking().single();
+
+        Assert.assertEquals(Arrays.asList(97, 98, 99, 100), children);
+    }
+
+    @Test
+    public void canRetryTransientFailures() {
+        final AtomicInteger attempts = new AtomicInteger();
+        List<Integer> children = new PagedListFlattener<>(Observable.just(1, 2),
+                new PagedListFlattener.ChildListLoader<Integer, Integer>() {
+                    @Override
+                    public PagedList<Integer> loadList(Integer parent) {
+                        if (parent == 2 && attempts.incrementAndGet() < 3) {
+                            throw new RuntimeException(new IOException("connection reset"));
+                        }
+                        return pagedList(Arrays.asList(parent), 1);
+                    }
+                }).withRetries(3, 0).flattenAsync().toList().toBlocking().single();
+
+        Assert.assertEquals(Arrays.asList(1, 2), children);
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void doesNotRetryOtherFailures() {
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            new PagedListFlattener<>(Observable.just(1),
+                    new PagedListFlattener.ChildListLoader<Integer, Integer>() {
+                        @Override
+                        public PagedList<Integer> loadList(Integer parent) {
+                            attempts.incrementAndGet();
+                            throw new IllegalStateException("not found");
+                        }
+                    }).withRetries(3, 0).flattenAsync().toBlocking().last();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void stopsLoadingWhenListIsNotRead() {
+        final AtomicInteger loads = new AtomicInteger();
+        List<Integer> parents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            parents.add(i);
+        }
+        PagedList<Integer> children = new PagedListFlattener<>(Observable.from(parents),
+                new PagedListFlattener.ChildListLoader<Integer, Integer>() {
+                    @Override
+                    public PagedList<Integer> loadList(Integer parent) {
+                        loads.incrementAndGet();
+                        return pagedList(Arrays.asList(parent), 1);
+                    }
+                }).withPrefetch(2).flatten();
+
+        Assert.assertEquals(0, (int) children.get(0));
+        sleep(200);
+        // Only the child lists ahead of the first two pages are loaded
+        Assert.assertTrue("loaded " + loads.get(), loads.get() <= 6);
+    }
+
+    private static PagedList<Integer> pagedList(final List<Integer> items, final int pageSize) {
+        return new PagedList<Integer>(page(items, 0, pageSize)) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws RestException, IOException {
+                return page(items, Integer.parseInt(nextPageLink), pageSize);
+            }
+        };
+    }
+
+    private static Page<Integer> page(List<Integer> items, int start, int pageSize) {
+        PageImpl<Integer> page = new PageImpl<>();
+        int end = Math.min(start + pageSize, items.size());
+        page.setItems(new ArrayList<>(items.subList(start, end)));
+        page.setNextPageLink(end < items.size() ? Integer.toString(end) : null);
+        return page;
+    }
+
+    private static void sleep(int milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources;
+
+import com.microsoft.azure.management.resources.fluentcore.utils.PropagationRetryPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PropagationRetryPolicyTests {
+    @Test
+    public void canRetryUntilPropagated() {
+        final AtomicInteger attempts = new AtomicInteger();
+        String result = policy()
+                .applyTo(failingUntil(3, attempts, new NotFoundException()))
+                .toBlocking().single();
+        Assert.assertEquals("done", result);
+        Assert.assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void doesNotRetryOtherErrors() {
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            policy().applyTo(failingUntil(3, attempts, new IllegalStateException())).toBlocking().single();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void canGiveUpAfterMaxDuration() {
+        final AtomicInteger attempts = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        try {
+            policy().withMaxDuration(200, TimeUnit.MILLISECONDS)
+                    .applyTo(failingUntil(Integer.MAX_VALUE, attempts, new NotFoundException()))
+                    .toBlocking().single();
+            Assert.fail();
+        } catch (NotFoundException e) {
+            Assert.assertTrue(attempts.get() > 1);
+            Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        }
+    }
+
+    @Test
+    public void canLearnPropagationTime() {
+        String tenantId = UUID.randomUUID().toString();
+        PropagationRetryPolicy policy = policy(tenantId);
+        Assert.assertEquals(0, policy.propagationTimeInMilliseconds());
+        policy.applyTo(failingUntil(3, new AtomicInteger(), new NotFoundException())).toBlocking().single();
+        long learned = policy.propagationTimeInMilliseconds();
+        Assert.assertTrue(learned > 0);
+
+        // Shared by the policies of the tenant only
+        Assert.assertEquals(learned, policy(tenantId).propagationTimeInMilliseconds());
+        Assert.assertEquals(0, policy(UUID.randomUUID().toString()).propagationTimeInMilliseconds());
+    }
+
+    private static PropagationRetryPolicy policy() {
+        return policy(UUID.randomUUID().toString());
+    }
+
+    private static PropagationRetryPolicy policy(String tenantId) {
+        return PropagationRetryPolicy.forTenant(tenantId)
+                .withInitialDelay(10, TimeUnit.MILLISECONDS)
+                .withMaxDelay(50, TimeUnit.MILLISECONDS)
+                .withRetryOn(new Func1<Throwable, Boolean>() {
+                    @Override
+                    public Boolean call(Throwable throwable) {
+                        return throwable instanceof NotFoundException;
+                    }
+                });
+    }
+
+    private static Observable<String> failingUntil(final int failures, final AtomicInteger attempts, final RuntimeException error) {
+        return Observable.defer(new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                if (attempts.incrementAndGet() <= failures) {
+                    return Observable.error(error);
+                }
+                return Observable.just("done");
+            }
+        });
+    }
+
+    private static class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+}
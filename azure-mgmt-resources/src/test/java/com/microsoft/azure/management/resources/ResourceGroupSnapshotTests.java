@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources;
+
+import com.microsoft.azure.AzureResponseBuilder;
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.management.resources.core.LocalTestServer;
+import com.microsoft.azure.management.resources.implementation.ResourceManager;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import com.microsoft.rest.RestClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+public class ResourceGroupSnapshotTests {
+    private static final String SUBSCRIPTION_ID = LocalTestServer.SUBSCRIPTION_ID;
+    private static final String GROUP_ID = "/subscriptions/" + SUBSCRIPTION_ID + "/resourceGroups/rg1";
+    private static final String VNET_ID = GROUP_ID + "/providers/Microsoft.Network/virtualNetworks/vnet1";
+    private static final String NIC_ID = GROUP_ID + "/providers/Microsoft.Network/networkInterfaces/nic1";
+    private static final String VM_ID = GROUP_ID + "/providers/Microsoft.Compute/virtualMachines/vm1";
+    private static final String EXTERNAL_DISK_ID =
+            "/subscriptions/00000000-0000-0000-0000-000000000000/resourceGroups/rg2/providers/Microsoft.Compute/disks/disk1";
+
+    private ResourceGroups resourceGroups;
+
+    @Before
+    public void setup() {
+        RestClient restClient = new RestClient.Builder()
+                .withBaseUrl("http://localhost/")
+                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
+                .build();
+        resourceGroups = ResourceManager.authenticate(restClient)
+                .withSubscription(SUBSCRIPTION_ID)
+                .resourceGroups();
+    }
+
+    @Test
+    public void canIndexSnapshot() throws Exception {
+        ResourceGroupSnapshot snapshot = resourceGroups.readSnapshot(new ByteArrayInputStream(gzip(snapshotJson())));
+
+        Assert.assertEquals("rg1", snapshot.resourceGroupName());
+        Assert.assertEquals(3, snapshot.resources().size());
+        Assert.assertEquals(3, snapshot.types().size());
+        Assert.assertEquals("nic1", snapshot.getById(NIC_ID.toUpperCase()).name());
+        Assert.assertEquals("2017-03-30", snapshot.getById(VM_ID).apiVersion());
+        Assert.assertEquals(1, snapshot.listByType("microsoft.network/networkinterfaces").size());
+        Assert.assertTrue(snapshot.listByType("Microsoft.Sql/servers").isEmpty());
+
+        // The NIC references a subnet of the virtual network and one of its own IP configurations
+        Assert.assertEquals(1, snapshot.dependenciesOf(NIC_ID).size());
+        Assert.assertEquals("vnet1", snapshot.dependenciesOf(NIC_ID).get(0).name());
+        Assert.assertEquals(1, snapshot.dependentsOf(VNET_ID).size());
+        Assert.assertEquals("vm1", snapshot.dependentsOf(NIC_ID).get(0).name());
+        Assert.assertEquals(1, snapshot.dependenciesOf(VM_ID).size());
+        Assert.assertTrue(snapshot.externalDependenciesOf(VM_ID).contains(EXTERNAL_DISK_ID));
+        Assert.assertTrue(snapshot.dependenciesOf(VNET_ID).isEmpty());
+    }
+
+    @Test
+    public void canWriteAndReadSnapshot() throws Exception {
+        ResourceGroupSnapshot snapshot = resourceGroups.readSnapshot(new ByteArrayInputStream(gzip(snapshotJson())));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot.writeTo(output);
+
+        ResourceGroupSnapshot copy = resourceGroups.readSnapshot(new ByteArrayInputStream(output.toByteArray()));
+        Assert.assertEquals(snapshot.takenTime(), copy.takenTime());
+        Assert.assertEquals(snapshot.resources().size(), copy.resources().size());
+        for (GenericResource resource : snapshot.resources()) {
+            GenericResource copied = copy.getById(resource.id());
+            Assert.assertNotNull(copied);
+            Assert.assertEquals(resource.type(), copied.type());
+            Assert.assertEquals(resource.regionName(), copied.regionName());
+            Assert.assertEquals(resource.apiVersion(), copied.apiVersion());
+            Assert.assertEquals(resource.tags(), copied.tags());
+        }
+        Assert.assertEquals("vnet1", copy.dependenciesOf(NIC_ID).get(0).name());
+    }
+
+    @Test
+    public void canTakeSnapshot() throws Exception {
+        ResourceServer server = new ResourceServer(405);
+        try {
+            ResourceGroupSnapshot snapshot = server.resourceGroups().snapshotAsync("rg1", 2).toBlocking().single();
+
+            Assert.assertEquals("rg1", snapshot.resourceGroupName());
+            Assert.assertEquals(3, snapshot.resources().size());
+            // Each provider is fetched once, and each listed resource once by ID
+            Assert.assertEquals(1, server.requestCount("/subscriptions/" + SUBSCRIPTION_ID + "/providers/Microsoft.Network"));
+            Assert.assertEquals(1, server.requestCount("/subscriptions/" + SUBSCRIPTION_ID + "/providers/Microsoft.Compute"));
+            Assert.assertEquals(1, server.requestCount(VNET_ID));
+            Assert.assertEquals(1, server.requestCount(NIC_ID));
+            Assert.assertEquals(1, server.requestCount(VM_ID));
+
+            Assert.assertEquals("2017-03-30", snapshot.getById(VM_ID).apiVersion());
+            Assert.assertEquals("vnet1", snapshot.dependenciesOf(NIC_ID).get(0).name());
+            // The VM could not be read by ID, so it is kept as listed, without properties
+            Assert.assertNull(snapshot.getById(VM_ID).properties());
+            Assert.assertTrue(snapshot.dependenciesOf(VM_ID).isEmpty());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void failsSnapshotOnOtherErrors() throws Exception {
+        ResourceServer server = new ResourceServer(403);
+        try {
+            server.resourceGroups().snapshotAsync("rg1").toBlocking().single();
+            Assert.fail();
+        } catch (CloudException e) {
+            Assert.assertEquals(403, e.response().code());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String snapshotJson() {
+        return "{\"version\":1,\"resourceGroupName\":\"rg1\",\"takenTime\":\"2017-08-01T10:00:00.000Z\",\"resources\":["
+                + resourceJson(VNET_ID, "vnet1", "Microsoft.Network/virtualNetworks", "2017-08-01",
+                        "{\"subnets\":[{\"id\":\"" + VNET_ID + "/subnets/default\"}]}")
+                + "," + resourceJson(NIC_ID, "nic1", "Microsoft.Network/networkInterfaces", "2017-08-01",
+                        "{\"ipConfigurations\":[{\"id\":\"" + NIC_ID + "/ipConfigurations/primary\","
+                        + "\"properties\":{\"subnet\":{\"id\":\"" + VNET_ID.toLowerCase() + "/subnets/default\"}}}]}")
+                + "," + resourceJson(VM_ID, "vm1", "Microsoft.Compute/virtualMachines", "2017-03-30",
+                        "{\"networkProfile\":{\"networkInterfaces\":[{\"id\":\"" + NIC_ID + "\"}]},"
+                        + "\"storageProfile\":{\"dataDisks\":[{\"managedDisk\":{\"id\":\"" + EXTERNAL_DISK_ID + "\"}}]}}")
+                + "]}";
+    }
+
+    private static String resourceJson(String id, String name, String type, String apiVersion, String properties) {
+        return "{\"apiVersion\":\"" + apiVersion + "\",\"resource\":{\"id\":\"" + id + "\",\"name\":\"" + name
+                + "\",\"type\":\"" + type + "\",\"location\":\"westus\",\"tags\":{\"env\":\"test\"},"
+                + "\"properties\":" + properties + "}}";
+    }
+
+    private static String genericResourceJson(String id, String name, String type, String properties) {
+        return "{\"id\":\"" + id + "\",\"name\":\"" + name + "\",\"type\":\"" + type
+                + "\",\"location\":\"westus\"" + (properties == null ? "" : ",\"properties\":" + properties) + "}";
+    }
+
+    private static byte[] gzip(String content) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(output);
+        gzip.write(content.getBytes("UTF-8"));
+        gzip.close();
+        return output.toByteArray();
+    }
+
+    /**
+     * Serves the listing of rg1, the providers of its resources and the resources by ID; the VM answers
+     * with the given error status when read by ID.
+     */
+    private static class ResourceServer implements HttpHandler {
+        private final LocalTestServer server;
+        private final int vmStatus;
+        private final ConcurrentMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+        ResourceServer(int vmStatus) throws IOException {
+            this.vmStatus = vmStatus;
+            this.server = new LocalTestServer(this);
+        }
+
+        ResourceGroups resourceGroups() {
+            return ResourceManager.authenticate(this.server.restClient())
+                    .withSubscription(SUBSCRIPTION_ID)
+                    .resourceGroups();
+        }
+
+        int requestCount(String path) {
+            AtomicInteger count = this.requests.get(path.toLowerCase());
+            return count == null ? 0 : count.get();
+        }
+
+        void stop() {
+            this.server.stop();
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath().replaceAll("^/+", "/");
+            this.requests.putIfAbsent(path.toLowerCase(), new AtomicInteger());
+            this.requests.get(path.toLowerCase()).incrementAndGet();
+
+            int status = 200;
+            String body;
+            if (path.equalsIgnoreCase(GROUP_ID + "/resources")) {
+                body = "{\"value\":["
+                        + genericResourceJson(VNET_ID, "vnet1", "Microsoft.Network/virtualNetworks", null) + ","
+                        + genericResourceJson(NIC_ID, "nic1", "Microsoft.Network/networkInterfaces", null) + ","
+                        + genericResourceJson(VM_ID, "vm1", "Microsoft.Compute/virtualMachines", null) + "]}";
+            } else if (path.equalsIgnoreCase("/subscriptions/" + SUBSCRIPTION_ID + "/providers/Microsoft.Network")) {
+                body = "{\"namespace\":\"Microsoft.Network\",\"resourceTypes\":["
+                        + "{\"resourceType\":\"virtualNetworks\",\"apiVersions\":[\"2017-08-01\"]},"
+                        + "{\"resourceType\":\"networkInterfaces\",\"apiVersions\":[\"2017-08-01\"]}]}";
+            } else if (path.equalsIgnoreCase("/subscriptions/" + SUBSCRIPTION_ID + "/providers/Microsoft.Compute")) {
+                body = "{\"namespace\":\"Microsoft.Compute\",\"resourceTypes\":["
+                        + "{\"resourceType\":\"virtualMachines\",\"apiVersions\":[\"2017-03-30\"]}]}";
+            } else if (path.equalsIgnoreCase(VNET_ID)) {
+                body = genericResourceJson(VNET_ID, "vnet1", "Microsoft.Network/virtualNetworks",
+                        "{\"subnets\":[{\"id\":\"" + VNET_ID + "/subnets/default\"}]}");
+            } else if (path.equalsIgnoreCase(NIC_ID)) {
+                body = genericResourceJson(NIC_ID, "nic1", "Microsoft.Network/networkInterfaces",
+                        "{\"ipConfigurations\":[{\"properties\":{\"subnet\":{\"id\":\"" + VNET_ID + "/subnets/default\"}}}]}");
+            } else if (path.equalsIgnoreCase(VM_ID)) {
+                status = this.vmStatus;
+                body = "{\"error\":{\"code\":\"Status" + status + "\",\"message\":\"Status " + status + "\"}}";
+            } else {
+                status = 404;
+                body = "{\"error\":{\"code\":\"NotFound\",\"message\":\"Not found\"}}";
+            }
+            LocalTestServer.respondJson(exchange, status, body);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.core;
+
+import com.microsoft.azure.AzureResponseBuilder;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import com.microsoft.rest.RestClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A local HTTP server for unit tests of clients streaming content or depending on the exact sequence of
+ * requests, such as range requests, page blobs or pollers, which recorded sessions of {@link TestBase} do
+ * not replay: playback matches requests by URL only and does not serve binary content.
+ */
+public class LocalTestServer {
+    public static final String SUBSCRIPTION_ID = "00000000-0000-0000-0000-000000000000";
+
+    private final HttpServer server;
+
+    /**
+     * Starts a server without handlers, answering 404 until handlers are added.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public LocalTestServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.start();
+    }
+
+    /**
+     * Starts a server handling all the requests with a handler.
+     *
+     * @param handler the handler of all the requests
+     * @throws IOException if the server cannot be started
+     */
+    public LocalTestServer(HttpHandler handler) throws IOException {
+        this();
+        this.withHandler("/", handler);
+    }
+
+    /**
+     * Adds a handler for the requests to a path and the paths under it.
+     *
+     * @param path the path prefix
+     * @param handler the handler
+     * @return the server
+     */
+    public LocalTestServer withHandler(String path, HttpHandler handler) {
+        this.server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * @return the URL of the server, without trailing slash
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    /**
+     * @param path the path, starting with a slash
+     * @return the URL of a path on the server
+     */
+    public String url(String path) {
+        return this.baseUrl() + path;
+    }
+
+    /**
+     * @return a REST client sending the requests of managers to the server
+     */
+    public RestClient restClient() {
+        return new RestClient.Builder()
+                .withBaseUrl(this.baseUrl() + "/")
+                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
+                .build();
+    }
+
+    /**
+     * @return a Retrofit client sending requests to the server
+     */
+    public Retrofit retrofit() {
+        return new Retrofit.Builder()
+                .baseUrl(this.baseUrl())
+                .addCallAdapterFactory(RxJavaCallAdapterFactory.create())
+                .build();
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        this.server.stop(0);
+    }
+
+    /**
+     * Sends a response and closes the exchange.
+     *
+     * @param exchange the exchange
+     * @param status the status code
+     * @param body the content of the response, or null for none
+     * @throws IOException if the response cannot be sent
+     */
+    public static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        try {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a JSON response and closes the exchange.
+     *
+     * @param exchange the exchange
+     * @param status the status code
+     * @param json the JSON content of the response
+     * @throws IOException if the response cannot be sent
+     */
+    public static void respondJson(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        respond(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.resources.implementation;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.management.resources.DeploymentOperation;
+import com.microsoft.azure.management.resources.core.TestDelayProvider;
+import com.microsoft.azure.management.resources.fluentcore.utils.DelayProvider;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DeploymentOperationsWatcherTests {
+    @After
+    public void cleanup() {
+        SdkContext.setDelayProvider(new DelayProvider());
+    }
+
+    @Test
+    public void canDetectChangedOperations() throws Exception {
+        DeploymentOperationsWatcher watcher = new DeploymentOperationsWatcher(null, null, "rg1", "deployment1");
+
+        Assert.assertTrue(watcher.recordChange(operation("op1", "Running", "2017-08-01T10:00:00Z")));
+        Assert.assertFalse(watcher.recordChange(operation("op1", "Running", "2017-08-01T10:00:00Z")));
+        Assert.assertTrue(watcher.recordChange(operation("op2", "Running", "2017-08-01T10:00:00Z")));
+        // The timestamp changes while the state remains the same
+        Assert.assertTrue(watcher.recordChange(operation("op1", "Running", "2017-08-01T10:01:00Z")));
+        Assert.assertTrue(watcher.recordChange(operation("op1", "Succeeded", "2017-08-01T10:01:00Z")));
+
+        DeploymentOperationInner withoutProperties = new AzureJacksonAdapter().deserialize(
+                "{\"operationId\":\"op3\"}", DeploymentOperationInner.class);
+        Assert.assertTrue(watcher.recordChange(withoutProperties));
+        Assert.assertFalse(watcher.recordChange(withoutProperties));
+    }
+
+    @Test
+    public void canComputeAdaptiveDelays() {
+        Assert.assertEquals(5000, DeploymentOperationsWatcher.nextDelayMillis(0, 0));
+        Assert.assertEquals(6000, DeploymentOperationsWatcher.nextDelayMillis(100, 0));
+        Assert.assertEquals(12000, DeploymentOperationsWatcher.nextDelayMillis(100, 1));
+        Assert.assertEquals(40000, DeploymentOperationsWatcher.nextDelayMillis(0, 3));
+        // The delay is capped, however long the deployment and however many unchanged polls
+        Assert.assertEquals(60000, DeploymentOperationsWatcher.nextDelayMillis(100, 4));
+        Assert.assertEquals(60000, DeploymentOperationsWatcher.nextDelayMillis(0, 100));
+        Assert.assertEquals(60000, DeploymentOperationsWatcher.nextDelayMillis(Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    public void canSkipDelaysInPlayback() {
+        Assert.assertEquals("event", new TestDelayProvider(false).delayedEmitAsync("event", 60 * 60 * 1000).toBlocking().single());
+    }
+
+    @Test
+    public void canWatchOperationsUntilDeploymentCompletes() throws Exception {
+        final List<Integer> delays = new ArrayList<>();
+        SdkContext.setDelayProvider(new TestDelayProvider(false) {
+            @Override
+            public <T> Observable<T> delayedEmitAsync(T event, int milliseconds) {
+                delays.add(milliseconds);
+                return super.delayedEmitAsync(event, milliseconds);
+            }
+        });
+        FakeDeployments deployments = new FakeDeployments("Running", "Running", "Running", "Succeeded");
+        FakeDeploymentOperations operations = new FakeDeploymentOperations(
+                Arrays.asList(operation("op1", "Running", "2017-08-01T10:00:00Z")),
+                Arrays.asList(operation("op1", "Running", "2017-08-01T10:00:00Z"), operation("op2", "Running", "2017-08-01T10:00:00Z")),
+                Arrays.asList(operation("op1", "Running", "2017-08-01T10:00:00Z"), operation("op2", "Running", "2017-08-01T10:00:00Z")),
+                Arrays.asList(operation("op1", "Succeeded", "2017-08-01T10:02:00Z"), operation("op2", "Succeeded", "2017-08-01T10:02:00Z")));
+
+        List<String> emitted = new ArrayList<>();
+        for (DeploymentOperation operation : new DeploymentOperationsWatcher(deployments, operations, "rg1", "deployment1")
+                .watchAsync().toList().toBlocking().single()) {
+            emitted.add(operation.operationId() + ":" + operation.provisioningState());
+        }
+
+        Assert.assertEquals(Arrays.asList("op1:Running", "op2:Running", "op1:Succeeded", "op2:Succeeded"), emitted);
+        Assert.assertEquals(4, deployments.polls);
+        // The third poll observed no change, so the delay after it is doubled
+        Assert.assertEquals(Arrays.asList(5010, 5020, 10040), delays);
+    }
+
+    private static DeploymentOperationInner operation(String operationId, String provisioningState, String timestamp) throws IOException {
+        return new AzureJacksonAdapter().deserialize(
+                "{\"operationId\":\"" + operationId + "\",\"properties\":{\"provisioningState\":\"" + provisioningState
+                        + "\",\"timestamp\":\"" + timestamp + "\",\"statusCode\":\"OK\"}}",
+                DeploymentOperationInner.class);
+    }
+
+    /**
+     * Deployments client answering with the queued provisioning states.
+     */
+    private static class FakeDeployments extends DeploymentsInner {
+        private final String[] states;
+        private int polls;
+
+        FakeDeployments(String... states) {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+            this.states = states;
+        }
+
+        @Override
+        public Observable<DeploymentExtendedInner> getByResourceGroupAsync(String resourceGroupName, String deploymentName) {
+            try {
+                return Observable.just(new AzureJacksonAdapter().deserialize(
+                        "{\"name\":\"" + deploymentName + "\",\"properties\":{\"provisioningState\":\""
+                                + this.states[this.polls++] + "\"}}",
+                        DeploymentExtendedInner.class));
+            } catch (IOException e) {
+                return Observable.error(e);
+            }
+        }
+    }
+
+    /**
+     * Deployment operations client answering with the queued listings.
+     */
+    private static class FakeDeploymentOperations extends DeploymentOperationsInner {
+        private final List<List<DeploymentOperationInner>> listings;
+        private int calls;
+
+        @SafeVarargs
+        FakeDeploymentOperations(List<DeploymentOperationInner>... listings) {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+            this.listings = Arrays.asList(listings);
+        }
+
+        @Override
+        public Observable<Page<DeploymentOperationInner>> listByResourceGroupAsync(String resourceGroupName, String deploymentName) {
+            return Observable.<Page<DeploymentOperationInner>>just(
+                    new PageImpl<DeploymentOperationInner>().setItems(this.listings.get(this.calls++)));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.sql;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The changes observed on a single SQL database between two collections of a {@link SqlDatabaseMetricsCollector}.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface SqlDatabaseMetricsChange {
+    /**
+     * @return the name of the database
+     */
+    String databaseName();
+
+    /**
+     * @return the usage metrics that are new or whose values changed
+     */
+    List<DatabaseMetric> changedUsages();
+
+    /**
+     * @return the service tier advisors that are new or whose recommendations changed
+     */
+    List<ServiceTierAdvisor> changedServiceTierAdvisors();
+
+    /**
+     * @return the replication links that are new or whose replication state changed
+     */
+    List<ReplicationLink> changedReplicationLinks();
+
+    /**
+     * @return the names of the replication links that no longer exist
+     */
+    Set<String> removedReplicationLinks();
+}
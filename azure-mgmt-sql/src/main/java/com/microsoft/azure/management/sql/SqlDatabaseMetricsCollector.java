@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.sql;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stateful collector of usage metrics, service tier advice and replication state for
+ * all the databases of a SQL Server or of one of its elastic pools.
+ * <p>
+ * The collector remembers the values it observed during the previous collection and only
+ * emits the values that changed since then, so the first collection reports everything and
+ * subsequent ones report deltas only.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface SqlDatabaseMetricsCollector {
+    /**
+     * Restricts the collection to the databases of the specified elastic pool.
+     *
+     * @param elasticPoolName the name of the elastic pool
+     * @return the collector
+     */
+    SqlDatabaseMetricsCollector withElasticPool(String elasticPoolName);
+
+    /**
+     * Specifies the maximum number of databases queried concurrently.
+     * <p>
+     * The usages, service tier advisors and replication links of a database are requested concurrently, so
+     * the number of requests in progress can reach three times this limit.
+     *
+     * @param maxConcurrency the maximum number of concurrent database queries, defaults to 8
+     * @return the collector
+     */
+    SqlDatabaseMetricsCollector withMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Collects the metrics of all the databases once.
+     * <p>
+     * Databases deleted while the collection is in progress are skipped. Any other error, such as
+     * an authorization failure or throttling, terminates the collection with that error; the changes
+     * already emitted are not reported again by the next collection.
+     *
+     * @return an observable emitting a change for each database whose state changed since the last collection
+     */
+    Observable<SqlDatabaseMetricsChange> collectChangesAsync();
+
+    /**
+     * Periodically collects the metrics of all the databases.
+     * <p>
+     * Collections never overlap; ticks elapsing while a collection is still in progress are dropped.
+     * A failed collection terminates the observable with the error of the collection.
+     *
+     * @param interval the interval between two collections
+     * @param unit the time unit of the interval
+     * @return an observable emitting a change for each database whose state changed since the last collection
+     */
+    Observable<SqlDatabaseMetricsChange> watchChangesAsync(long interval, TimeUnit unit);
+
+    /**
+     * Forgets all previously observed values, so that the next collection reports everything.
+     */
+    void reset();
+}
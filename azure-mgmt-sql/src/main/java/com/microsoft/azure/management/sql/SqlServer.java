@@ -6,6 +6,8 @@
 
 package com.microsoft.azure.management.sql;
 
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
 import com.microsoft.azure.management.apigeneration.Fluent;
 import com.microsoft.azure.management.resources.fluentcore.arm.models.GroupableResource;
 import com.microsoft.azure.management.resources.fluentcore.model.Appliable;
@@ -83,6 +85,18 @@ public interface SqlServer extends
      */
     Map<String, RecommendedElasticPool> listRecommendedElasticPools();
 
+    /**
+     * Creates a collector of usage metrics, service tier advice and replication state for the
+     * databases of this SQL Server.
+     * <p>
+     * The returned collector is stateful and only reports the values that changed since its
+     * previous collection, so a single instance should be kept for repeated collections.
+     *
+     * @return a new database metrics collector
+     */
+    @Beta(SinceVersion.V1_3_0)
+    SqlDatabaseMetricsCollector newDatabaseMetricsCollector();
+
     /**
      * Entry point to firewall rules from the SQL Server.
      */
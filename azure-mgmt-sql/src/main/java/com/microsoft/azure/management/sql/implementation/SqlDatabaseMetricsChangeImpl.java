@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.sql.implementation;
+
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.sql.DatabaseMetric;
+import com.microsoft.azure.management.sql.ReplicationLink;
+import com.microsoft.azure.management.sql.ServiceTierAdvisor;
+import com.microsoft.azure.management.sql.SqlDatabaseMetricsChange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation for SqlDatabaseMetricsChange interface.
+ */
+@LangDefinition
+class SqlDatabaseMetricsChangeImpl implements SqlDatabaseMetricsChange {
+    private final String databaseName;
+    private final List<DatabaseMetric> changedUsages = new ArrayList<>();
+    private final List<ServiceTierAdvisor> changedServiceTierAdvisors = new ArrayList<>();
+    private final List<ReplicationLink> changedReplicationLinks = new ArrayList<>();
+    private final Set<String> removedReplicationLinks = new HashSet<>();
+
+    SqlDatabaseMetricsChangeImpl(String databaseName) {
+        this.databaseName = databaseName;
+    }
+
+    @Override
+    public String databaseName() {
+        return this.databaseName;
+    }
+
+    @Override
+    public List<DatabaseMetric> changedUsages() {
+        return Collections.unmodifiableList(this.changedUsages);
+    }
+
+    @Override
+    public List<ServiceTierAdvisor> changedServiceTierAdvisors() {
+        return Collections.unmodifiableList(this.changedServiceTierAdvisors);
+    }
+
+    @Override
+    public List<ReplicationLink> changedReplicationLinks() {
+        return Collections.unmodifiableList(this.changedReplicationLinks);
+    }
+
+    @Override
+    public Set<String> removedReplicationLinks() {
+        return Collections.unmodifiableSet(this.removedReplicationLinks);
+    }
+
+    boolean isEmpty() {
+        return this.changedUsages.isEmpty()
+                && this.changedServiceTierAdvisors.isEmpty()
+                && this.changedReplicationLinks.isEmpty()
+                && this.removedReplicationLinks.isEmpty();
+    }
+
+    void addUsage(DatabaseMetric usage) {
+        this.changedUsages.add(usage);
+    }
+
+    void addServiceTierAdvisor(ServiceTierAdvisor serviceTierAdvisor) {
+        this.changedServiceTierAdvisors.add(serviceTierAdvisor);
+    }
+
+    void addReplicationLink(ReplicationLink replicationLink) {
+        this.changedReplicationLinks.add(replicationLink);
+    }
+
+    void addRemovedReplicationLinks(Set<String> names) {
+        this.removedReplicationLinks.addAll(names);
+    }
+}
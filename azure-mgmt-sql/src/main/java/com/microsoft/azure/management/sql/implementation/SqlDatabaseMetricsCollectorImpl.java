@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.sql.implementation;
+
+import com.microsoft.azure.CloudException;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.resources.fluentcore.utils.SdkContext;
+import com.microsoft.azure.management.sql.SqlDatabaseMetricsChange;
+import com.microsoft.azure.management.sql.SqlDatabaseMetricsCollector;
+import rx.Observable;
+import rx.functions.Func1;
+import rx.functions.Func3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation for SqlDatabaseMetricsCollector interface.
+ */
+@LangDefinition
+class SqlDatabaseMetricsCollectorImpl implements SqlDatabaseMetricsCollector {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private final SqlServerManager manager;
+    private final String resourceGroupName;
+    private final String sqlServerName;
+    private final Map<String, DatabaseState> states = new ConcurrentHashMap<>();
+    private String elasticPoolName;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    SqlDatabaseMetricsCollectorImpl(SqlServerManager manager, String resourceGroupName, String sqlServerName) {
+        this.manager = manager;
+        this.resourceGroupName = resourceGroupName;
+        this.sqlServerName = sqlServerName;
+    }
+
+    @Override
+    public SqlDatabaseMetricsCollectorImpl withElasticPool(String elasticPoolName) {
+        this.elasticPoolName = elasticPoolName;
+        return this;
+    }
+
+    @Override
+    public SqlDatabaseMetricsCollectorImpl withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    @Override
+    public void reset() {
+        this.states.clear();
+    }
+
+    @Override
+    public Observable<SqlDatabaseMetricsChange> collectChangesAsync() {
+        final SqlDatabaseMetricsCollectorImpl self = this;
+        Observable<List<DatabaseInner>> databases;
+        if (this.elasticPoolName == null) {
+            databases = this.manager.inner().databases().listByServerAsync(
+                    this.resourceGroupName, this.sqlServerName);
+        } else {
+            databases = this.manager.inner().elasticPools().listDatabasesAsync(
+                    this.resourceGroupName, this.sqlServerName, this.elasticPoolName);
+        }
+        return databases.flatMap(new Func1<List<DatabaseInner>, Observable<DatabaseInner>>() {
+            @Override
+            public Observable<DatabaseInner> call(List<DatabaseInner> databaseInners) {
+                if (databaseInners == null) {
+                    databaseInners = Collections.emptyList();
+                }
+                // Forget the state of the databases that no longer exist
+                Set<String> names = new HashSet<>();
+                for (DatabaseInner databaseInner : databaseInners) {
+                    names.add(databaseInner.name());
+                }
+                self.states.keySet().retainAll(names);
+                return Observable.from(databaseInners);
+            }
+        }).flatMap(new Func1<DatabaseInner, Observable<SqlDatabaseMetricsChange>>() {
+            @Override
+            public Observable<SqlDatabaseMetricsChange> call(DatabaseInner databaseInner) {
+                return self.collectDatabaseChangesAsync(databaseInner.name());
+            }
+        }, this.maxConcurrency);
+    }
+
+    @Override
+    public Observable<SqlDatabaseMetricsChange> watchChangesAsync(long interval, TimeUnit unit) {
+        final SqlDatabaseMetricsCollectorImpl self = this;
+        return Observable.interval(0, interval, unit, SdkContext.getRxScheduler())
+                .onBackpressureDrop()
+                .concatMap(new Func1<Long, Observable<SqlDatabaseMetricsChange>>() {
+                    @Override
+                    public Observable<SqlDatabaseMetricsChange> call(Long tick) {
+                        return self.collectChangesAsync();
+                    }
+                });
+    }
+
+    private Observable<SqlDatabaseMetricsChange> collectDatabaseChangesAsync(final String databaseName) {
+        final SqlDatabaseMetricsCollectorImpl self = this;
+        final DatabasesInner databasesInner = this.manager.inner().databases();
+        DatabaseState state = this.states.get(databaseName);
+        if (state == null) {
+            state = new DatabaseState();
+            this.states.put(databaseName, state);
+        }
+        final DatabaseState databaseState = state;
+        return Observable.zip(
+                databasesInner.listUsagesAsync(this.resourceGroupName, this.sqlServerName, databaseName),
+                databasesInner.listServiceTierAdvisorsAsync(this.resourceGroupName, this.sqlServerName, databaseName),
+                databasesInner.listReplicationLinksAsync(this.resourceGroupName, this.sqlServerName, databaseName),
+                new Func3<List<DatabaseMetricInner>, List<ServiceTierAdvisorInner>, List<ReplicationLinkInner>, SqlDatabaseMetricsChangeImpl>() {
+                    @Override
+                    public SqlDatabaseMetricsChangeImpl call(List<DatabaseMetricInner> usages,
+                                                             List<ServiceTierAdvisorInner> advisors,
+                                                             List<ReplicationLinkInner> links) {
+                        SqlDatabaseMetricsChangeImpl change = new SqlDatabaseMetricsChangeImpl(databaseName);
+                        synchronized (databaseState) {
+                            for (DatabaseMetricInner usage : databaseState.usages.update(usages)) {
+                                change.addUsage(new DatabaseMetricImpl(usage));
+                            }
+                            for (ServiceTierAdvisorInner advisor : databaseState.advisors.update(advisors)) {
+                                change.addServiceTierAdvisor(new ServiceTierAdvisorImpl(advisor, databasesInner));
+                            }
+                            for (ReplicationLinkInner link : databaseState.links.update(links)) {
+                                change.addReplicationLink(new ReplicationLinkImpl(link, databasesInner));
+                            }
+                            change.addRemovedReplicationLinks(databaseState.links.removed());
+                        }
+                        return change;
+                    }
+                })
+                .flatMap(new Func1<SqlDatabaseMetricsChangeImpl, Observable<SqlDatabaseMetricsChange>>() {
+                    @Override
+                    public Observable<SqlDatabaseMetricsChange> call(SqlDatabaseMetricsChangeImpl change) {
+                        if (change.isEmpty()) {
+                            return Observable.empty();
+                        }
+                        return Observable.<SqlDatabaseMetricsChange>just(change);
+                    }
+                })
+                .onErrorResumeNext(new Func1<Throwable, Observable<SqlDatabaseMetricsChange>>() {
+                    @Override
+                    public Observable<SqlDatabaseMetricsChange> call(Throwable throwable) {
+                        if (isNotFound(throwable)) {
+                            // Deleted while the collection was in progress
+                            self.states.remove(databaseName);
+                            return Observable.empty();
+                        }
+                        return Observable.error(throwable);
+                    }
+                })
+                .subscribeOn(SdkContext.getRxScheduler());
+    }
+
+    static boolean isNotFound(Throwable throwable) {
+        return throwable instanceof CloudException
+                && ((CloudException) throwable).response() != null
+                && ((CloudException) throwable).response().code() == 404;
+    }
+
+    /**
+     * The values last observed for a single database.
+     */
+    private static class DatabaseState {
+        private final ObservedValues<DatabaseMetricInner> usages = new ObservedValues<DatabaseMetricInner>() {
+            @Override
+            String key(DatabaseMetricInner inner) {
+                return inner.displayName();
+            }
+
+            @Override
+            List<Object> fingerprint(DatabaseMetricInner inner) {
+                return Arrays.<Object>asList(inner.currentValue(), inner.limit(), inner.unit(), inner.nextResetTime());
+            }
+        };
+
+        private final ObservedValues<ServiceTierAdvisorInner> advisors = new ObservedValues<ServiceTierAdvisorInner>() {
+            @Override
+            String key(ServiceTierAdvisorInner inner) {
+                return inner.name();
+            }
+
+            @Override
+            List<Object> fingerprint(ServiceTierAdvisorInner inner) {
+                return Arrays.<Object>asList(
+                        inner.observationPeriodEnd(),
+                        inner.currentServiceLevelObjectiveId(),
+                        inner.overallRecommendationServiceLevelObjectiveId(),
+                        inner.usageBasedRecommendationServiceLevelObjectiveId(),
+                        inner.databaseSizeBasedRecommendationServiceLevelObjectiveId(),
+                        inner.disasterPlanBasedRecommendationServiceLevelObjectiveId(),
+                        inner.avgDtu(),
+                        inner.maxDtu(),
+                        inner.maxSizeInGB(),
+                        inner.confidence());
+            }
+        };
+
+        private final ObservedValues<ReplicationLinkInner> links = new ObservedValues<ReplicationLinkInner>() {
+            @Override
+            String key(ReplicationLinkInner inner) {
+                return inner.name();
+            }
+
+            @Override
+            List<Object> fingerprint(ReplicationLinkInner inner) {
+                return Arrays.<Object>asList(
+                        inner.role(),
+                        inner.partnerRole(),
+                        inner.replicationState(),
+                        inner.percentComplete(),
+                        inner.partnerServer(),
+                        inner.partnerDatabase());
+            }
+        };
+    }
+
+    /**
+     * Tracks the fingerprints of a set of named values between two collections.
+     *
+     * @param <T> the type of the values
+     */
+    abstract static class ObservedValues<T> {
+        private Map<String, List<Object>> fingerprints = new HashMap<>();
+        private Set<String> removed = Collections.emptySet();
+
+        abstract String key(T inner);
+
+        abstract List<Object> fingerprint(T inner);
+
+        /**
+         * Records the current values and returns the ones that are new or changed.
+         *
+         * @param current the currently observed values
+         * @return the values that are new or whose fingerprint changed
+         */
+        List<T> update(List<T> current) {
+            List<T> changed = new ArrayList<>();
+            Map<String, List<Object>> next = new HashMap<>();
+            if (current != null) {
+                for (T inner : current) {
+                    String key = key(inner);
+                    List<Object> fingerprint = fingerprint(inner);
+                    next.put(key, fingerprint);
+                    if (!fingerprint.equals(this.fingerprints.get(key))) {
+                        changed.add(inner);
+                    }
+                }
+            }
+            Set<String> gone = new HashSet<>(this.fingerprints.keySet());
+            gone.removeAll(next.keySet());
+            this.removed = gone;
+            this.fingerprints = next;
+            return changed;
+        }
+
+        /**
+         * @return the keys seen in the previous collection that were absent from the last one
+         */
+        Set<String> removed() {
+            return this.removed;
+        }
+    }
+}
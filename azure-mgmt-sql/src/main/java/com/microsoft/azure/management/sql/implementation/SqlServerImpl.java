@@ -21,6 +21,7 @@ import com.microsoft.azure.management.sql.ServerMetric;
 import com.microsoft.azure.management.sql.ServerVersion;
 import com.microsoft.azure.management.sql.ServiceObjective;
 import com.microsoft.azure.management.sql.SqlDatabase;
+import com.microsoft.azure.management.sql.SqlDatabaseMetricsCollector;
 import com.microsoft.azure.management.sql.SqlElasticPool;
 import com.microsoft.azure.management.sql.SqlFirewallRule;
 import com.microsoft.azure.management.sql.SqlServer;
@@ -180,6 +181,11 @@ public class SqlServerImpl
                 this.manager().inner().servers());
     }
 
+    @Override
+    public SqlDatabaseMetricsCollector newDatabaseMetricsCollector() {
+        return new SqlDatabaseMetricsCollectorImpl(this.manager(), this.resourceGroupName(), this.name());
+    }
+
     @Override
     public Map<String, RecommendedElasticPool> listRecommendedElasticPools() {
         final SqlServerImpl self = this;
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.sql.implementation;
+
+import com.microsoft.azure.CloudException;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SqlDatabaseMetricsCollectorTests {
+    @Test
+    public void canReportNewChangedAndRemovedValues() {
+        SqlDatabaseMetricsCollectorImpl.ObservedValues<String> values = new SqlDatabaseMetricsCollectorImpl.ObservedValues<String>() {
+            @Override
+            String key(String inner) {
+                return inner.split("=")[0];
+            }
+
+            @Override
+            List<Object> fingerprint(String inner) {
+                return Collections.<Object>singletonList(inner.split("=")[1]);
+            }
+        };
+
+        Assert.assertEquals(Arrays.asList("a=1", "b=1"), values.update(Arrays.asList("a=1", "b=1")));
+        Assert.assertTrue(values.removed().isEmpty());
+
+        Assert.assertEquals(Collections.emptyList(), values.update(Arrays.asList("a=1", "b=1")));
+
+        Assert.assertEquals(Arrays.asList("b=2", "c=1"), values.update(Arrays.asList("a=1", "b=2", "c=1")));
+        Assert.assertTrue(values.removed().isEmpty());
+
+        Assert.assertEquals(Collections.emptyList(), values.update(Arrays.asList("b=2")));
+        Assert.assertEquals(2, values.removed().size());
+        Assert.assertTrue(values.removed().containsAll(Arrays.asList("a", "c")));
+
+        // Removed values are reported once
+        values.update(Arrays.asList("b=2"));
+        Assert.assertTrue(values.removed().isEmpty());
+        Assert.assertEquals(Collections.emptyList(), values.update(null));
+        Assert.assertEquals(Collections.singleton("b"), values.removed());
+    }
+
+    @Test
+    public void skipsOnlyDeletedDatabases() {
+        Assert.assertTrue(SqlDatabaseMetricsCollectorImpl.isNotFound(cloudException(404)));
+        Assert.assertFalse(SqlDatabaseMetricsCollectorImpl.isNotFound(cloudException(403)));
+        Assert.assertFalse(SqlDatabaseMetricsCollectorImpl.isNotFound(cloudException(429)));
+        Assert.assertFalse(SqlDatabaseMetricsCollectorImpl.isNotFound(new CloudException("no response", null)));
+        Assert.assertFalse(SqlDatabaseMetricsCollectorImpl.isNotFound(new IOException()));
+    }
+
+    private static CloudException cloudException(int code) {
+        Response<ResponseBody> response = Response.error(code, ResponseBody.create(MediaType.parse("application/json"), "{}"));
+        return new CloudException("status " + code, response);
+    }
+}
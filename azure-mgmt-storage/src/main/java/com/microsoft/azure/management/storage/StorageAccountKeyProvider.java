@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.storage;
+
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
+import com.microsoft.azure.management.apigeneration.Fluent;
+import rx.Observable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of storage account access keys.
+ * <p>
+ * Keys are fetched from Azure at most once per time-to-live period for each storage account, and
+ * concurrent requests for the keys of the same account share a single call to Azure. The cached keys
+ * of an account are replaced whenever its keys are regenerated or fetched through {@link StorageAccount}.
+ */
+@Fluent
+@Beta(SinceVersion.V1_3_0)
+public interface StorageAccountKeyProvider {
+    /**
+     * Specifies how long fetched keys are served from the cache.
+     *
+     * @param timeToLive the time-to-live of cached keys, defaults to 5 minutes
+     * @param unit the time unit of the time-to-live
+     * @return the key provider
+     */
+    StorageAccountKeyProvider withTimeToLive(long timeToLive, TimeUnit unit);
+
+    /**
+     * Gets the access keys of a storage account, from the cache if possible.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @return the access keys
+     */
+    List<StorageAccountKey> getKeys(String storageAccountId);
+
+    /**
+     * Gets the access keys of a storage account asynchronously, from the cache if possible.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @return a representation of the deferred computation of this call, returning the access keys
+     */
+    Observable<List<StorageAccountKey>> getKeysAsync(String storageAccountId);
+
+    /**
+     * Gets a connection string for a storage account, built from its first access key.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @return the connection string
+     */
+    String getConnectionString(String storageAccountId);
+
+    /**
+     * Gets a connection string for a storage account asynchronously, built from its first access key.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @return a representation of the deferred computation of this call, returning the connection string
+     */
+    Observable<String> getConnectionStringAsync(String storageAccountId);
+
+    /**
+     * Gets the decoded bytes of the first access key of a storage account, as needed to sign
+     * shared access signatures.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @return the decoded key bytes
+     */
+    byte[] getSigningKey(String storageAccountId);
+
+    /**
+     * Gets the decoded bytes of the first access key of a storage account asynchronously, as needed to sign
+     * shared access signatures.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @return a representation of the deferred computation of this call, returning the decoded key bytes
+     */
+    Observable<byte[]> getSigningKeyAsync(String storageAccountId);
+
+    /**
+     * Removes the cached keys of a storage account, so that the next request fetches them from Azure.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     */
+    void invalidate(String storageAccountId);
+
+    /**
+     * Removes the cached keys of all storage accounts.
+     */
+    void invalidateAll();
+}
@@ -154,6 +154,11 @@ class StorageAccountImpl
             public List<StorageAccountKey> call(StorageAccountListKeysResultInner storageAccountListKeysResultInner) {
                 return storageAccountListKeysResultInner.keys();
             }
+        }).doOnNext(new Action1<List<StorageAccountKey>>() {
+            @Override
+            public void call(List<StorageAccountKey> storageAccountKeys) {
+                manager().storageAccountKeyProvider().onKeysReceived(id(), storageAccountKeys);
+            }
         });
     }
 
@@ -175,6 +180,11 @@ class StorageAccountImpl
             public List<StorageAccountKey> call(StorageAccountListKeysResultInner storageAccountListKeysResultInner) {
                 return storageAccountListKeysResultInner.keys();
             }
+        }).doOnNext(new Action1<List<StorageAccountKey>>() {
+            @Override
+            public void call(List<StorageAccountKey> storageAccountKeys) {
+                manager().storageAccountKeyProvider().onKeysReceived(id(), storageAccountKeys);
+            }
         });
     }
 
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.storage.implementation;
+
+import com.google.common.io.BaseEncoding;
+import com.microsoft.azure.management.apigeneration.LangDefinition;
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+import com.microsoft.azure.management.storage.StorageAccountKey;
+import com.microsoft.azure.management.storage.StorageAccountKeyProvider;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation for StorageAccountKeyProvider interface.
+ */
+@LangDefinition
+class StorageAccountKeyProviderImpl implements StorageAccountKeyProvider {
+    private static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final StorageAccountsInner client;
+    // Both maps are guarded by this
+    private final Map<String, CachedKeys> cache = new HashMap<>();
+    private final Map<String, PendingFetch> pending = new HashMap<>();
+    private volatile long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+
+    StorageAccountKeyProviderImpl(StorageAccountsInner client) {
+        this.client = client;
+    }
+
+    @Override
+    public StorageAccountKeyProviderImpl withTimeToLive(long timeToLive, TimeUnit unit) {
+        this.timeToLiveMillis = unit.toMillis(timeToLive);
+        return this;
+    }
+
+    @Override
+    public List<StorageAccountKey> getKeys(String storageAccountId) {
+        return this.getKeysAsync(storageAccountId).toBlocking().last();
+    }
+
+    @Override
+    public Observable<List<StorageAccountKey>> getKeysAsync(String storageAccountId) {
+        final String key = cacheKey(storageAccountId);
+        synchronized (this) {
+            CachedKeys cached = this.cache.get(key);
+            if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+                return Observable.just(cached.keys);
+            }
+            PendingFetch fetch = this.pending.get(key);
+            if (fetch == null) {
+                fetch = new PendingFetch(key, storageAccountId);
+                this.pending.put(key, fetch);
+            }
+            return fetch.keys;
+        }
+    }
+
+    @Override
+    public String getConnectionString(String storageAccountId) {
+        return this.getConnectionStringAsync(storageAccountId).toBlocking().last();
+    }
+
+    @Override
+    public Observable<String> getConnectionStringAsync(String storageAccountId) {
+        final String accountName = ResourceUtils.nameFromResourceId(storageAccountId);
+        return this.getKeysAsync(storageAccountId).map(new Func1<List<StorageAccountKey>, String>() {
+            @Override
+            public String call(List<StorageAccountKey> storageAccountKeys) {
+                return String.format("DefaultEndpointsProtocol=https;AccountName=%s;AccountKey=%s",
+                        accountName, firstKey(storageAccountKeys).value());
+            }
+        });
+    }
+
+    @Override
+    public byte[] getSigningKey(String storageAccountId) {
+        return this.getSigningKeyAsync(storageAccountId).toBlocking().last();
+    }
+
+    @Override
+    public Observable<byte[]> getSigningKeyAsync(String storageAccountId) {
+        return this.getKeysAsync(storageAccountId).map(new Func1<List<StorageAccountKey>, byte[]>() {
+            @Override
+            public byte[] call(List<StorageAccountKey> storageAccountKeys) {
+                return BaseEncoding.base64().decode(firstKey(storageAccountKeys).value());
+            }
+        });
+    }
+
+    @Override
+    public synchronized void invalidate(String storageAccountId) {
+        String key = cacheKey(storageAccountId);
+        this.cache.remove(key);
+        this.pending.remove(key);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        this.cache.clear();
+        this.pending.clear();
+    }
+
+    /**
+     * Replaces the cached keys of a storage account with keys just received from Azure,
+     * e.g. as the result of a key regeneration.
+     *
+     * @param storageAccountId the resource ID of the storage account
+     * @param keys the up-to-date keys
+     */
+    synchronized void onKeysReceived(String storageAccountId, List<StorageAccountKey> keys) {
+        String key = cacheKey(storageAccountId);
+        // Any fetch in flight started before these keys were received, so its result must not be cached
+        this.pending.remove(key);
+        this.cache.put(key, new CachedKeys(keys, System.currentTimeMillis() + this.timeToLiveMillis));
+    }
+
+    private synchronized void onFetchCompleted(String key, PendingFetch fetch, List<StorageAccountKey> keys) {
+        // The fetch is no longer pending if the keys were invalidated or replaced meanwhile
+        if (this.pending.get(key) == fetch) {
+            this.pending.remove(key);
+            this.cache.put(key, new CachedKeys(keys, System.currentTimeMillis() + this.timeToLiveMillis));
+        }
+    }
+
+    private synchronized void onFetchTerminated(String key, PendingFetch fetch) {
+        if (this.pending.get(key) == fetch) {
+            this.pending.remove(key);
+        }
+    }
+
+    private static String cacheKey(String storageAccountId) {
+        return storageAccountId.toLowerCase(Locale.ROOT);
+    }
+
+    private static StorageAccountKey firstKey(List<StorageAccountKey> storageAccountKeys) {
+        if (storageAccountKeys == null || storageAccountKeys.isEmpty()) {
+            throw new IllegalStateException("The storage account has no access keys");
+        }
+        return storageAccountKeys.get(0);
+    }
+
+    /**
+     * Keys cached for a storage account.
+     */
+    private static class CachedKeys {
+        private final List<StorageAccountKey> keys;
+        private final long expiresAt;
+
+        CachedKeys(List<StorageAccountKey> keys, long expiresAt) {
+            this.keys = keys;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A call to list the keys of a storage account, shared by all concurrent callers.
+     */
+    private class PendingFetch {
+        private final Observable<List<StorageAccountKey>> keys;
+
+        PendingFetch(final String key, String storageAccountId) {
+            final PendingFetch self = this;
+            this.keys = client.listKeysAsync(
+                    ResourceUtils.groupFromResourceId(storageAccountId),
+                    ResourceUtils.nameFromResourceId(storageAccountId))
+                    .map(new Func1<StorageAccountListKeysResultInner, List<StorageAccountKey>>() {
+                        @Override
+                        public List<StorageAccountKey> call(StorageAccountListKeysResultInner storageAccountListKeysResultInner) {
+                            return storageAccountListKeysResultInner.keys();
+                        }
+                    })
+                    .doOnNext(new Action1<List<StorageAccountKey>>() {
+                        @Override
+                        public void call(List<StorageAccountKey> storageAccountKeys) {
+                            onFetchCompleted(key, self, storageAccountKeys);
+                        }
+                    })
+                    .doOnTerminate(new Action0() {
+                        @Override
+                        public void call() {
+                            onFetchTerminated(key, self);
+                        }
+                    })
+                    .cache();
+        }
+    }
+}
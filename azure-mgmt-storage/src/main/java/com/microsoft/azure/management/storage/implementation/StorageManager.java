@@ -9,14 +9,17 @@ package com.microsoft.azure.management.storage.implementation;
 import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.azure.AzureResponseBuilder;
 import com.microsoft.azure.credentials.AzureTokenCredentials;
+import com.microsoft.azure.management.apigeneration.Beta;
+import com.microsoft.azure.management.apigeneration.Beta.SinceVersion;
 import com.microsoft.azure.management.resources.fluentcore.arm.AzureConfigurable;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.AzureConfigurableImpl;
 import com.microsoft.azure.management.resources.fluentcore.arm.implementation.Manager;
+import com.microsoft.azure.management.resources.fluentcore.utils.ObjectMapperRegistry;
 import com.microsoft.azure.management.resources.fluentcore.utils.ProviderRegistrationInterceptor;
 import com.microsoft.azure.management.resources.fluentcore.utils.ResourceManagerThrottlingInterceptor;
+import com.microsoft.azure.management.storage.StorageAccountKeyProvider;
 import com.microsoft.azure.management.storage.StorageAccounts;
 import com.microsoft.azure.management.storage.Usages;
-import com.microsoft.azure.serializer.AzureJacksonAdapter;
 import com.microsoft.rest.RestClient;
 
 /**
@@ -26,6 +29,8 @@ public final class StorageManager extends Manager<StorageManager, StorageManagem
     // Collections
     private StorageAccounts storageAccounts;
     private Usages storageUsages;
+    // Created eagerly, as the cached keys must not be lost to a concurrent initialization
+    private final StorageAccountKeyProviderImpl storageAccountKeyProvider;
 
     /**
      * Get a Configurable instance that can be used to create StorageManager with optional configuration.
@@ -47,7 +52,7 @@ public final class StorageManager extends Manager<StorageManager, StorageManagem
         return new StorageManager(new RestClient.Builder()
                 .withBaseUrl(credentials.environment(), AzureEnvironment.Endpoint.RESOURCE_MANAGER)
                 .withCredentials(credentials)
-                .withSerializerAdapter(new AzureJacksonAdapter())
+                .withSerializerAdapter(ObjectMapperRegistry.azureJacksonAdapter())
                 .withResponseBuilderFactory(new AzureResponseBuilder.Factory())
                 .withInterceptor(new ProviderRegistrationInterceptor(credentials))
                 .withInterceptor(new ResourceManagerThrottlingInterceptor())
@@ -93,6 +98,7 @@ public final class StorageManager extends Manager<StorageManager, StorageManagem
                 restClient,
                 subscriptionId,
                 new StorageManagementClientImpl(restClient).withSubscriptionId(subscriptionId));
+        this.storageAccountKeyProvider = new StorageAccountKeyProviderImpl(super.innerManagementClient.storageAccounts());
         }
 
     /**
@@ -114,4 +120,16 @@ public final class StorageManager extends Manager<StorageManager, StorageManagem
         }
         return storageUsages;
     }
+
+    /**
+     * @return the cached storage account access keys API entry point
+     */
+    @Beta(SinceVersion.V1_3_0)
+    public StorageAccountKeyProvider storageAccountKeys() {
+        return this.storageAccountKeyProvider;
+    }
+
+    StorageAccountKeyProviderImpl storageAccountKeyProvider() {
+        return this.storageAccountKeyProvider;
+    }
 }
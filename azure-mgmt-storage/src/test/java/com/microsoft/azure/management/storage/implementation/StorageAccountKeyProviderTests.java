@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.management.storage.implementation;
+
+import com.microsoft.azure.management.storage.StorageAccountKey;
+import com.microsoft.azure.serializer.AzureJacksonAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.subjects.PublishSubject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StorageAccountKeyProviderTests {
+    private static final String ACCOUNT_ID =
+            "/subscriptions/sub1/resourceGroups/rg1/providers/Microsoft.Storage/storageAccounts/account1";
+
+    @Test
+    public void canShareAndCacheFetches() throws Exception {
+        FakeStorageAccounts client = new FakeStorageAccounts();
+        StorageAccountKeyProviderImpl provider = new StorageAccountKeyProviderImpl(client);
+
+        PublishSubject<StorageAccountListKeysResultInner> response = PublishSubject.create();
+        client.responses.add(response);
+        final List<List<StorageAccountKey>> received = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            provider.getKeysAsync(ACCOUNT_ID).subscribe(new Action1<List<StorageAccountKey>>() {
+                @Override
+                public void call(List<StorageAccountKey> keys) {
+                    received.add(keys);
+                }
+            });
+        }
+        response.onNext(keys("a"));
+        response.onCompleted();
+
+        Assert.assertEquals(1, client.calls.get());
+        Assert.assertEquals(3, received.size());
+        Assert.assertEquals("a", provider.getKeys(ACCOUNT_ID.toUpperCase()).get(0).value());
+        Assert.assertEquals(1, client.calls.get());
+    }
+
+    @Test
+    public void canRefetchExpiredAndInvalidatedKeys() throws Exception {
+        FakeStorageAccounts client = new FakeStorageAccounts();
+        StorageAccountKeyProviderImpl provider = new StorageAccountKeyProviderImpl(client).withTimeToLive(0, TimeUnit.MILLISECONDS);
+        client.responses.add(Observable.just(keys("a")));
+        client.responses.add(Observable.just(keys("b")));
+        client.responses.add(Observable.just(keys("c")));
+
+        Assert.assertEquals("a", provider.getKeys(ACCOUNT_ID).get(0).value());
+        Assert.assertEquals("b", provider.getKeys(ACCOUNT_ID).get(0).value());
+
+        provider.withTimeToLive(1, TimeUnit.HOURS);
+        provider.invalidate(ACCOUNT_ID);
+        Assert.assertEquals("c", provider.getKeys(ACCOUNT_ID).get(0).value());
+        Assert.assertEquals("c", provider.getKeys(ACCOUNT_ID).get(0).value());
+        Assert.assertEquals(3, client.calls.get());
+    }
+
+    @Test
+    public void doesNotCacheFetchesOverriddenByReceivedKeys() throws Exception {
+        FakeStorageAccounts client = new FakeStorageAccounts();
+        StorageAccountKeyProviderImpl provider = new StorageAccountKeyProviderImpl(client);
+        PublishSubject<StorageAccountListKeysResultInner> response = PublishSubject.create();
+        client.responses.add(response);
+
+        provider.getKeysAsync(ACCOUNT_ID).subscribe();
+        // Keys regenerated while the fetch is in flight
+        provider.onKeysReceived(ACCOUNT_ID, keys("regenerated").keys());
+        response.onNext(keys("stale"));
+        response.onCompleted();
+
+        Assert.assertEquals("regenerated", provider.getKeys(ACCOUNT_ID).get(0).value());
+        Assert.assertEquals(1, client.calls.get());
+    }
+
+    @Test
+    public void canBuildConnectionStringAndSigningKey() throws Exception {
+        FakeStorageAccounts client = new FakeStorageAccounts();
+        StorageAccountKeyProviderImpl provider = new StorageAccountKeyProviderImpl(client);
+        client.responses.add(Observable.just(keys("AQID")));
+
+        Assert.assertEquals("DefaultEndpointsProtocol=https;AccountName=account1;AccountKey=AQID",
+                provider.getConnectionString(ACCOUNT_ID));
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, provider.getSigningKey(ACCOUNT_ID));
+        Assert.assertEquals(1, client.calls.get());
+    }
+
+    private static StorageAccountListKeysResultInner keys(String value) throws IOException {
+        return new AzureJacksonAdapter().deserialize(
+                "{\"keys\":[{\"keyName\":\"key1\",\"value\":\"" + value + "\",\"permissions\":\"Full\"}]}",
+                StorageAccountListKeysResultInner.class);
+    }
+
+    /**
+     * Storage accounts client answering listKeys with the queued responses.
+     */
+    private static class FakeStorageAccounts extends StorageAccountsInner {
+        private final List<Observable<StorageAccountListKeysResultInner>> responses = new ArrayList<>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FakeStorageAccounts() {
+            super(new Retrofit.Builder().baseUrl("https://localhost/").build(), null);
+        }
+
+        @Override
+        public Observable<StorageAccountListKeysResultInner> listKeysAsync(String resourceGroupName, String accountName) {
+            Assert.assertEquals("rg1", resourceGroupName);
+            Assert.assertEquals("account1", accountName);
+            return this.responses.get(this.calls.getAndIncrement());
+        }
+    }
+}